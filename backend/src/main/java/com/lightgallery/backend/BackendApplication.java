@@ -3,6 +3,7 @@ package com.lightgallery.backend;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * LightGallery Backend Application
@@ -10,6 +11,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 @SpringBootApplication
 @MapperScan("com.lightgallery.backend.mapper")
+@EnableScheduling
 public class BackendApplication {
 
     public static void main(String[] args) {
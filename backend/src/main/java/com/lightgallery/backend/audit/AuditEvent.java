@@ -0,0 +1,84 @@
+package com.lightgallery.backend.audit;
+
+import java.time.Instant;
+
+/**
+ * Audit Event
+ * Immutable audit record. Fields that do not apply to an event type are null. Transaction IDs
+ * and free-text reasons are already sanitized when the event is created.
+ *
+ * @param type Event type
+ * @param occurredAt When the event happened
+ * @param userId User ID
+ * @param subscriptionId Subscription ID
+ * @param tier Subscription tier
+ * @param status Subscription status
+ * @param paymentMethod Payment method
+ * @param transactionId Masked transaction ID
+ * @param provider OAuth provider
+ * @param amount Payment amount
+ * @param currency Currency
+ * @param success Verification or authentication result
+ * @param reason Sanitized reason or error message
+ */
+public record AuditEvent(
+        AuditEventType type,
+        Instant occurredAt,
+        Long userId,
+        Long subscriptionId,
+        String tier,
+        String status,
+        String paymentMethod,
+        String transactionId,
+        String provider,
+        Double amount,
+        String currency,
+        Boolean success,
+        String reason) {
+
+    public static AuditEvent subscriptionUpdate(Long userId, Long subscriptionId, String tier, String status,
+                                                String paymentMethod, String transactionId) {
+        return new AuditEvent(AuditEventType.SUBSCRIPTION_UPDATE, Instant.now(), userId, subscriptionId, tier,
+                status, paymentMethod, transactionId, null, null, null, null, null);
+    }
+
+    public static AuditEvent paymentVerification(Long userId, String paymentMethod, String transactionId,
+                                                 Double amount, String currency, boolean success) {
+        return new AuditEvent(AuditEventType.PAYMENT_VERIFICATION, Instant.now(), userId, null, null, null,
+                paymentMethod, transactionId, null, amount, currency, success, null);
+    }
+
+    public static AuditEvent paymentVerificationFailure(Long userId, String paymentMethod, String transactionId,
+                                                        String reason) {
+        return new AuditEvent(AuditEventType.PAYMENT_VERIFICATION_FAILURE, Instant.now(), userId, null, null,
+                null, paymentMethod, transactionId, null, null, null, false, reason);
+    }
+
+    public static AuditEvent subscriptionCancellation(Long userId, Long subscriptionId, String tier, String reason) {
+        return new AuditEvent(AuditEventType.SUBSCRIPTION_CANCELLATION, Instant.now(), userId, subscriptionId,
+                tier, null, null, null, null, null, null, null, reason);
+    }
+
+    public static AuditEvent subscriptionRenewal(Long userId, Long subscriptionId, String tier,
+                                                 String transactionId) {
+        return new AuditEvent(AuditEventType.SUBSCRIPTION_RENEWAL, Instant.now(), userId, subscriptionId, tier,
+                null, null, transactionId, null, null, null, null, null);
+    }
+
+    public static AuditEvent authentication(Long userId, String provider, boolean success) {
+        return new AuditEvent(AuditEventType.AUTHENTICATION, Instant.now(), userId, null, null, null, null,
+                null, provider, null, null, success, null);
+    }
+
+    public static AuditEvent accountDeletion(Long userId, String reason) {
+        return new AuditEvent(AuditEventType.ACCOUNT_DELETION, Instant.now(), userId, null, null, null, null,
+                null, null, null, null, null, reason);
+    }
+
+    /**
+     * Result as written in audit logs
+     */
+    public String result() {
+        return success == null ? null : success ? "SUCCESS" : "FAILURE";
+    }
+}
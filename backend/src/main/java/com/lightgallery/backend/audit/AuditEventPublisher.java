@@ -0,0 +1,213 @@
+package com.lightgallery.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.config.AuditPipelineProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit Event Publisher
+ * Asynchronous audit pipeline. Request threads only enqueue an immutable {@link AuditEvent}
+ * into a bounded lock-free ring buffer; a single consumer thread drains it in batches and hands
+ * each batch to the configured sinks. When the buffer is full the configured
+ * {@link BackPressurePolicy} decides whether publishers wait, drop the oldest event or spill to
+ * disk.
+ *
+ * Metrics: {@code audit.queue.depth}, {@code audit.events.published},
+ * {@code audit.events.dropped} (tagged by reason), {@code audit.events.spilled} and
+ * {@code audit.sink.failures} (tagged by sink).
+ */
+@Slf4j
+@Service
+public class AuditEventPublisher {
+
+    private final AuditRingBuffer ringBuffer;
+    private final List<AuditSink> sinks;
+    private final AuditPipelineProperties properties;
+    private final AuditSpillFile spillFile;
+    private final MeterRegistry meterRegistry;
+
+    private final Counter published;
+    private final Counter droppedOldest;
+    private final Counter droppedBlockTimeout;
+    private final Counter droppedSpillFailure;
+    private final Counter spilled;
+    private final Map<String, Counter> sinkFailures = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    public AuditEventPublisher(List<AuditSink> availableSinks, AuditPipelineProperties properties,
+                               ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.ringBuffer = new AuditRingBuffer(properties.getCapacity());
+        this.sinks = availableSinks.stream()
+                .filter(sink -> properties.getSinks().contains(sink.getName()))
+                .toList();
+        this.spillFile = new AuditSpillFile(Path.of(properties.getSpillPath()), objectMapper);
+
+        Gauge.builder("audit.queue.depth", ringBuffer, AuditRingBuffer::size)
+                .description("Audit events waiting for the consumer")
+                .register(meterRegistry);
+        this.published = Counter.builder("audit.events.published").register(meterRegistry);
+        this.droppedOldest = dropped("drop_oldest");
+        this.droppedBlockTimeout = dropped("block_timeout");
+        this.droppedSpillFailure = dropped("spill_failure");
+        this.spilled = Counter.builder("audit.events.spilled").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (sinks.isEmpty()) {
+            log.warn("No audit sinks enabled (audit.pipeline.sinks={}), audit events will be discarded",
+                    properties.getSinks());
+        }
+        running = true;
+        consumer = new Thread(this::consume, "audit-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+        log.info("Audit pipeline started: capacity={}, batchSize={}, backPressure={}, sinks={}",
+                ringBuffer.capacity(), properties.getBatchSize(), properties.getBackPressure(),
+                sinks.stream().map(AuditSink::getName).toList());
+    }
+
+    /**
+     * Stop the consumer after delivering everything still queued
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        spillFile.close();
+    }
+
+    /**
+     * Publish an event
+     * Never throws; an event that cannot be queued is counted as dropped.
+     *
+     * @param event Audit event
+     */
+    public void publish(AuditEvent event) {
+        if (ringBuffer.offer(event)) {
+            published.increment();
+            return;
+        }
+
+        switch (properties.getBackPressure()) {
+            case DROP_OLDEST -> {
+                while (!ringBuffer.offer(event)) {
+                    if (ringBuffer.poll() != null) {
+                        droppedOldest.increment();
+                    }
+                }
+                published.increment();
+            }
+            case BLOCK -> {
+                long deadline = System.nanoTime() + properties.getBlockTimeout().toNanos();
+                while (!ringBuffer.offer(event)) {
+                    if (System.nanoTime() >= deadline) {
+                        droppedBlockTimeout.increment();
+                        log.warn("Audit buffer full for {}, dropped {} event", properties.getBlockTimeout(), event.type());
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                }
+                published.increment();
+            }
+            case SPILL -> {
+                try {
+                    spillFile.append(event);
+                    spilled.increment();
+                } catch (IOException e) {
+                    droppedSpillFailure.increment();
+                    log.error("Failed to spill {} audit event: {}", event.type(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Approximate number of queued events
+     */
+    public int getQueueDepth() {
+        return ringBuffer.size();
+    }
+
+    /**
+     * Consumer loop: deliver queued events, replay spilled events when idle
+     */
+    private void consume() {
+        List<AuditEvent> batch = new ArrayList<>(properties.getBatchSize());
+        long idleNanos = properties.getIdleWait().toNanos();
+        while (true) {
+            if (ringBuffer.drainTo(batch, properties.getBatchSize()) > 0) {
+                deliver(List.copyOf(batch));
+                batch.clear();
+                continue;
+            }
+            if (spillFile.hasPending()) {
+                replaySpill();
+                continue;
+            }
+            if (!running) {
+                return;
+            }
+            LockSupport.parkNanos(idleNanos);
+        }
+    }
+
+    private void replaySpill() {
+        try {
+            int replayed = spillFile.replay(properties.getBatchSize(), this::deliver);
+            if (replayed > 0) {
+                log.info("Replayed {} spilled audit events", replayed);
+            }
+        } catch (IOException e) {
+            log.error("Failed to replay audit spill file: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Hand a batch to every sink; a failing sink does not affect the others
+     */
+    private void deliver(List<AuditEvent> batch) {
+        for (AuditSink sink : sinks) {
+            try {
+                sink.write(batch);
+            } catch (Exception e) {
+                sinkFailures.computeIfAbsent(sink.getName(), name -> Counter.builder("audit.sink.failures")
+                        .tag("sink", name)
+                        .register(meterRegistry)).increment();
+                log.error("Audit sink {} failed to write {} events: {}", sink.getName(), batch.size(), e.getMessage());
+            }
+        }
+    }
+
+    private Counter dropped(String reason) {
+        return Counter.builder("audit.events.dropped")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,15 @@
+package com.lightgallery.backend.audit;
+
+/**
+ * Audit Event Type
+ * Kinds of events recorded by the audit pipeline
+ */
+public enum AuditEventType {
+    SUBSCRIPTION_UPDATE,
+    PAYMENT_VERIFICATION,
+    PAYMENT_VERIFICATION_FAILURE,
+    SUBSCRIPTION_CANCELLATION,
+    SUBSCRIPTION_RENEWAL,
+    AUTHENTICATION,
+    ACCOUNT_DELETION
+}
@@ -0,0 +1,170 @@
+package com.lightgallery.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.config.AuditJournalProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Audit Journal
+ * Local append-only audit journal that keeps events even while MySQL is down. Events are
+ * appended to fixed-size memory-mapped segment files, so a write is a copy into the page cache
+ * rather than a system call; dirty pages are forced to disk together on a fixed interval
+ * (group commit) and whenever a segment is rotated.
+ *
+ * Segment layout: an 8 byte header (magic, reserved) followed by frames of
+ * {@code [int length][int crc32c][length bytes of JSON]}. A zero length marks the end of the
+ * written data. Each process starts a new segment, so a frame torn by a crash is never
+ * appended to. {@link AuditJournalShipper} reads the journal back to ship it to the database.
+ */
+@Slf4j
+@Component
+public class AuditJournal implements AuditSink {
+
+    static final int MAGIC = 0x414A4E31;
+    static final int SEGMENT_HEADER_SIZE = 8;
+    static final int FRAME_HEADER_SIZE = 8;
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ObjectMapper objectMapper;
+    private final CRC32C crc = new CRC32C();
+
+    private volatile MappedByteBuffer buffer;
+    private volatile long activeSegment = -1;
+    private volatile boolean dirty;
+
+    public AuditJournal(AuditJournalProperties properties, ObjectMapper objectMapper) {
+        this.directory = Path.of(properties.getDirectory());
+        this.segmentSize = Math.toIntExact(properties.getSegmentSize().toBytes());
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String getName() {
+        return "journal";
+    }
+
+    /**
+     * Append a batch of events
+     * Called from the audit consumer thread only.
+     */
+    @Override
+    public void write(List<AuditEvent> events) throws IOException {
+        if (buffer == null) {
+            openNewSegment();
+        }
+        for (AuditEvent event : events) {
+            append(objectMapper.writeValueAsBytes(event));
+        }
+        dirty = true;
+    }
+
+    private void append(byte[] payload) throws IOException {
+        int frameSize = FRAME_HEADER_SIZE + payload.length;
+        if (frameSize > segmentSize - SEGMENT_HEADER_SIZE) {
+            throw new IOException("Audit event of " + payload.length + " bytes does not fit a journal segment");
+        }
+        if (buffer.remaining() < frameSize) {
+            buffer.force();
+            openNewSegment();
+        }
+
+        MappedByteBuffer target = buffer;
+        int start = target.position();
+        crc.reset();
+        crc.update(payload);
+        target.position(start + FRAME_HEADER_SIZE);
+        target.put(payload);
+        target.putInt(start + 4, (int) crc.getValue());
+        // Length last: a frame is only visible once its payload is in place
+        target.putInt(start, payload.length);
+    }
+
+    /**
+     * Force written events to disk
+     * Runs on a fixed interval so one force covers every event written since the last one.
+     */
+    @Scheduled(fixedDelayString = "${audit.journal.force-interval-ms:200}")
+    public void force() {
+        MappedByteBuffer current = buffer;
+        if (current != null && dirty) {
+            dirty = false;
+            current.force();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        force();
+        buffer = null;
+    }
+
+    /**
+     * Index of the segment being written, or -1 before the first write
+     */
+    public long getActiveSegment() {
+        return activeSegment;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    private void openNewSegment() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> existing = listSegments(directory);
+        long index = Math.max(activeSegment, existing.isEmpty() ? 0 : existing.get(existing.size() - 1)) + 1;
+        Path path = segmentPath(directory, index);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            mapped.putInt(MAGIC);
+            mapped.putInt(0);
+            buffer = mapped;
+        }
+        activeSegment = index;
+        log.info("Opened audit journal segment {}", path);
+    }
+
+    /**
+     * Path of a segment file
+     */
+    static Path segmentPath(Path directory, long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Indexes of the segment files in a directory, ascending
+     */
+    static List<Long> listSegments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))
+                    .filter(index -> !index.isEmpty() && index.chars().allMatch(Character::isDigit))
+                    .map(Long::parseLong)
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.lightgallery.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Audit Journal Reader
+ * Reads journal frames back in write order starting from a position. A frame whose length or
+ * CRC does not check out ends its segment: in the segment being written it is treated as not
+ * yet complete, in an older segment as a torn write, and reading continues with the next one.
+ */
+@Slf4j
+final class AuditJournalReader {
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final CRC32C crc = new CRC32C();
+
+    AuditJournalReader(Path directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Read up to maxEvents events
+     *
+     * @param from Position to start at
+     * @param maxEvents Maximum number of events
+     * @return Events read and the position after the last one
+     */
+    Batch read(Position from, int maxEvents) throws IOException {
+        List<AuditEvent> events = new ArrayList<>();
+        List<Long> segments = AuditJournal.listSegments(directory);
+        Position position = from;
+
+        for (int s = 0; s < segments.size(); s++) {
+            long segment = segments.get(s);
+            if (segment < from.segment()) {
+                continue;
+            }
+            int offset = segment == position.segment()
+                    ? Math.max(position.offset(), AuditJournal.SEGMENT_HEADER_SIZE)
+                    : AuditJournal.SEGMENT_HEADER_SIZE;
+
+            SegmentRead read = readSegment(segment, offset, maxEvents - events.size(), events);
+            position = new Position(segment, read.offset());
+            boolean newerExists = s + 1 < segments.size();
+            if (events.size() >= maxEvents || !newerExists) {
+                break;
+            }
+            if (read.invalid()) {
+                log.warn("Skipping invalid audit journal data in segment {} at offset {}", segment, read.offset());
+            }
+        }
+        return new Batch(events, position);
+    }
+
+    private SegmentRead readSegment(long segment, int offset, int limit, List<AuditEvent> events) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(AuditJournal.segmentPath(directory, segment),
+                StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return new SegmentRead(offset, false);
+        }
+
+        int size = buffer.capacity();
+        if (size < AuditJournal.SEGMENT_HEADER_SIZE || buffer.getInt(0) != AuditJournal.MAGIC) {
+            return new SegmentRead(offset, true);
+        }
+
+        int read = 0;
+        while (read < limit && offset + AuditJournal.FRAME_HEADER_SIZE <= size) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                return new SegmentRead(offset, false);
+            }
+            int payloadStart = offset + AuditJournal.FRAME_HEADER_SIZE;
+            if (length < 0 || length > size - payloadStart) {
+                return new SegmentRead(offset, true);
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payloadStart, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                return new SegmentRead(offset, true);
+            }
+
+            try {
+                events.add(objectMapper.readValue(payload, AuditEvent.class));
+            } catch (IOException e) {
+                log.warn("Skipping unreadable audit journal record in segment {} at offset {}: {}",
+                        segment, offset, e.getMessage());
+            }
+            offset = payloadStart + length;
+            read++;
+        }
+        return new SegmentRead(offset, false);
+    }
+
+    /**
+     * Position in the journal: segment index and byte offset within the segment
+     */
+    record Position(long segment, int offset) {
+
+        static final Position START = new Position(0, 0);
+    }
+
+    /**
+     * Events read and the position to continue from
+     */
+    record Batch(List<AuditEvent> events, Position next) {
+    }
+
+    private record SegmentRead(int offset, boolean invalid) {
+    }
+}
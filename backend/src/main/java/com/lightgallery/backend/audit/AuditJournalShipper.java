@@ -0,0 +1,169 @@
+package com.lightgallery.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.config.AuditJournalProperties;
+import com.lightgallery.backend.config.AuditPipelineProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Audit Journal Shipper
+ * Ships the local audit journal to the replay sinks (normally the database) and remembers how
+ * far it got in a checkpoint file. While a sink is unavailable the checkpoint stays put and
+ * events keep accumulating in the journal; once the sink is back the backlog is backfilled in
+ * order. Delivery is at-least-once: a batch whose write failed part way is shipped again.
+ *
+ * Segments entirely before the checkpoint are deleted once they are older than the retention
+ * period.
+ *
+ * Metrics: {@code audit.journal.shipped} and {@code audit.journal.ship.failures}.
+ */
+@Slf4j
+@Service
+public class AuditJournalShipper {
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final AuditJournal journal;
+    private final AuditJournalReader reader;
+    private final AuditJournalProperties properties;
+    private final List<AuditSink> targets;
+    private final boolean enabled;
+    private final Path checkpointPath;
+    private final Clock clock;
+
+    private final Counter shipped;
+    private final Counter failures;
+
+    @Autowired
+    public AuditJournalShipper(List<AuditSink> availableSinks, AuditJournal journal,
+                               AuditPipelineProperties pipelineProperties, AuditJournalProperties properties,
+                               ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this(availableSinks, journal, pipelineProperties, properties, objectMapper, meterRegistry,
+                Clock.systemUTC());
+    }
+
+    AuditJournalShipper(List<AuditSink> availableSinks, AuditJournal journal,
+                        AuditPipelineProperties pipelineProperties, AuditJournalProperties properties,
+                        ObjectMapper objectMapper, MeterRegistry meterRegistry, Clock clock) {
+        this.journal = journal;
+        this.reader = new AuditJournalReader(journal.getDirectory(), objectMapper);
+        this.properties = properties;
+        this.targets = availableSinks.stream()
+                .filter(sink -> properties.getReplaySinks().contains(sink.getName()))
+                .filter(sink -> sink != journal)
+                .toList();
+        this.enabled = pipelineProperties.getSinks().contains(journal.getName());
+        this.checkpointPath = journal.getDirectory().resolve(CHECKPOINT_FILE);
+        this.clock = clock;
+
+        this.shipped = Counter.builder("audit.journal.shipped").register(meterRegistry);
+        this.failures = Counter.builder("audit.journal.ship.failures").register(meterRegistry);
+
+        List<String> duplicated = targets.stream()
+                .map(AuditSink::getName)
+                .filter(pipelineProperties.getSinks()::contains)
+                .toList();
+        if (enabled && !duplicated.isEmpty()) {
+            log.warn("Audit sinks {} receive events from both the pipeline and the journal", duplicated);
+        }
+    }
+
+    /**
+     * Ship journaled events written since the last run
+     */
+    @Scheduled(fixedDelayString = "${audit.journal.ship-interval-ms:1000}")
+    public void ship() {
+        if (enabled && !targets.isEmpty()) {
+            backfill();
+        }
+    }
+
+    /**
+     * Ship everything after the checkpoint to the replay sinks
+     * Stops at the first failing write; the next run resumes from the same checkpoint.
+     *
+     * @return Number of events shipped
+     */
+    public synchronized int backfill() {
+        int total = 0;
+        try {
+            AuditJournalReader.Position position = loadCheckpoint();
+            while (true) {
+                AuditJournalReader.Batch batch = reader.read(position, properties.getReplayBatchSize());
+                if (!batch.events().isEmpty()) {
+                    for (AuditSink sink : targets) {
+                        sink.write(batch.events());
+                    }
+                    shipped.increment(batch.events().size());
+                    total += batch.events().size();
+                }
+                if (batch.next().equals(position)) {
+                    break;
+                }
+                position = batch.next();
+                saveCheckpoint(position);
+            }
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("Audit journal shipping paused after {} events: {}", total, e.getMessage());
+        }
+        if (total > 0) {
+            log.info("Shipped {} audit events from the journal", total);
+        }
+        return total;
+    }
+
+    /**
+     * Delete shipped segments older than the retention period
+     */
+    @Scheduled(fixedDelayString = "${audit.journal.retention-check-interval-ms:3600000}")
+    public void deleteExpiredSegments() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            long keepFrom = targets.isEmpty() ? journal.getActiveSegment() : loadCheckpoint().segment();
+            Instant cutoff = clock.instant().minus(properties.getRetention());
+            for (long segment : AuditJournal.listSegments(journal.getDirectory())) {
+                if (segment >= keepFrom || segment == journal.getActiveSegment()) {
+                    break;
+                }
+                Path path = AuditJournal.segmentPath(journal.getDirectory(), segment);
+                if (Files.getLastModifiedTime(path).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(path);
+                    log.info("Deleted expired audit journal segment {}", path);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to apply audit journal retention: {}", e.getMessage());
+        }
+    }
+
+    AuditJournalReader.Position loadCheckpoint() throws IOException {
+        if (!Files.exists(checkpointPath)) {
+            return AuditJournalReader.Position.START;
+        }
+        String[] parts = Files.readString(checkpointPath, StandardCharsets.UTF_8).trim().split(" ");
+        return new AuditJournalReader.Position(Long.parseLong(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    private void saveCheckpoint(AuditJournalReader.Position position) throws IOException {
+        Path temp = checkpointPath.resolveSibling(CHECKPOINT_FILE + ".tmp");
+        Files.writeString(temp, position.segment() + " " + position.offset(), StandardCharsets.UTF_8);
+        Files.move(temp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
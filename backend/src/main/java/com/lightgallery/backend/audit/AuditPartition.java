@@ -0,0 +1,23 @@
+package com.lightgallery.backend.audit;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Audit Partition
+ * One range partition of the audit_events table as reported by information_schema
+ */
+@Data
+public class AuditPartition {
+
+    /**
+     * Partition name (pYYYYMM, or p_future for the MAXVALUE partition)
+     */
+    private String name;
+
+    /**
+     * Exclusive upper bound of occurred_at, or null for the MAXVALUE partition
+     */
+    private LocalDate upperBound;
+}
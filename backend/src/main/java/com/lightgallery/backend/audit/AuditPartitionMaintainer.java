@@ -0,0 +1,132 @@
+package com.lightgallery.backend.audit;
+
+import com.lightgallery.backend.config.AuditJournalProperties;
+import com.lightgallery.backend.config.AuditPipelineProperties;
+import com.lightgallery.backend.mapper.AuditEventMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Audit Partition Maintainer
+ * Keeps the monthly partitions of audit_events in shape: months ahead of the current one are
+ * split off the MAXVALUE partition before any rows reach them, and partitions entirely older
+ * than the retention period are dropped. Dropping a partition is a metadata operation, so
+ * expiry never deletes rows one by one.
+ */
+@Slf4j
+@Service
+public class AuditPartitionMaintainer {
+
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final Pattern VALID_NAME = Pattern.compile("p[0-9A-Za-z_]+");
+
+    private final AuditEventMapper auditEventMapper;
+    private final AuditPipelineProperties pipelineProperties;
+    private final AuditJournalProperties journalProperties;
+    private final Clock clock;
+    private final int retentionMonths;
+    private final int partitionsAhead;
+
+    @Autowired
+    public AuditPartitionMaintainer(AuditEventMapper auditEventMapper,
+                                    AuditPipelineProperties pipelineProperties,
+                                    AuditJournalProperties journalProperties,
+                                    @Value("${audit.db.retention-months:13}") int retentionMonths,
+                                    @Value("${audit.db.partitions-ahead:3}") int partitionsAhead) {
+        this(auditEventMapper, pipelineProperties, journalProperties, Clock.systemDefaultZone(), retentionMonths,
+                partitionsAhead);
+    }
+
+    AuditPartitionMaintainer(AuditEventMapper auditEventMapper, AuditPipelineProperties pipelineProperties,
+                             AuditJournalProperties journalProperties, Clock clock, int retentionMonths,
+                             int partitionsAhead) {
+        this.auditEventMapper = auditEventMapper;
+        this.pipelineProperties = pipelineProperties;
+        this.journalProperties = journalProperties;
+        this.clock = clock;
+        this.retentionMonths = retentionMonths;
+        this.partitionsAhead = partitionsAhead;
+    }
+
+    /**
+     * Create upcoming partitions and drop expired ones
+     * Does nothing unless events reach the db sink, directly or through the journal.
+     */
+    @Scheduled(initialDelayString = "${audit.db.partition-initial-delay-ms:60000}",
+            fixedDelayString = "${audit.db.partition-check-interval-ms:21600000}")
+    public void maintain() {
+        if (!dbSinkEnabled()) {
+            return;
+        }
+        try {
+            List<AuditPartition> partitions = auditEventMapper.findPartitions();
+            if (partitions.isEmpty()) {
+                log.warn("audit_events is not partitioned, skipping partition maintenance");
+                return;
+            }
+            createUpcoming(partitions);
+            dropExpired(partitions);
+        } catch (Exception e) {
+            log.error("Audit partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private boolean dbSinkEnabled() {
+        List<String> sinks = pipelineProperties.getSinks();
+        return sinks.contains("db") || (sinks.contains("journal") && journalProperties.getReplaySinks().contains("db"));
+    }
+
+    /**
+     * Split each month up to partitionsAhead months from now off p_future
+     */
+    private void createUpcoming(List<AuditPartition> partitions) {
+        LocalDate lastBound = partitions.stream()
+                .map(AuditPartition::getUpperBound)
+                .filter(Objects::nonNull)
+                .max(LocalDate::compareTo)
+                .orElse(LocalDate.MIN);
+
+        YearMonth current = YearMonth.now(clock);
+        for (int i = 0; i <= partitionsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            LocalDate upperBound = month.plusMonths(1).atDay(1);
+            if (!upperBound.isAfter(lastBound)) {
+                continue;
+            }
+            String name = month.format(PARTITION_NAME);
+            auditEventMapper.addPartition(name, upperBound.toString());
+            lastBound = upperBound;
+            log.info("Created audit partition {} (occurred_at < {})", name, upperBound);
+        }
+    }
+
+    /**
+     * Drop partitions whose rows are all older than the retention period
+     */
+    private void dropExpired(List<AuditPartition> partitions) {
+        LocalDate cutoff = YearMonth.now(clock).minusMonths(retentionMonths).atDay(1);
+        for (AuditPartition partition : partitions) {
+            if (partition.getUpperBound() == null || partition.getUpperBound().isAfter(cutoff)) {
+                continue;
+            }
+            if (!VALID_NAME.matcher(partition.getName()).matches()) {
+                log.warn("Skipping audit partition with unexpected name {}", partition.getName());
+                continue;
+            }
+            auditEventMapper.dropPartition(partition.getName());
+            log.info("Dropped expired audit partition {} (occurred_at < {})",
+                    partition.getName(), partition.getUpperBound());
+        }
+    }
+}
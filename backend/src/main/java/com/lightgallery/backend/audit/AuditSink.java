@@ -0,0 +1,24 @@
+package com.lightgallery.backend.audit;
+
+import java.util.List;
+
+/**
+ * Audit Sink
+ * Destination for audit events. Sinks are called from the single audit consumer thread only,
+ * one batch at a time, and are enabled by name through {@code audit.pipeline.sinks}.
+ */
+public interface AuditSink {
+
+    /**
+     * Sink name used in configuration (e.g. log, file, db)
+     */
+    String getName();
+
+    /**
+     * Write a batch of events
+     *
+     * @param events Events in publish order
+     * @throws Exception if the batch could not be written
+     */
+    void write(List<AuditEvent> events) throws Exception;
+}
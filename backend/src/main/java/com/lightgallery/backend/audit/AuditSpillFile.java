@@ -0,0 +1,130 @@
+package com.lightgallery.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Audit Spill File
+ * JSON-lines overflow file used by the spill back-pressure policy. Publishers append when the
+ * ring buffer is full; the consumer replays the file once the buffer has drained. A file left
+ * behind by a previous run is replayed after startup.
+ */
+@Slf4j
+final class AuditSpillFile {
+
+    private final Path path;
+    private final Path replayPath;
+    private final ObjectMapper objectMapper;
+
+    private BufferedWriter writer;
+    private volatile boolean pending;
+
+    AuditSpillFile(Path path, ObjectMapper objectMapper) {
+        this.path = path;
+        this.replayPath = path.resolveSibling(path.getFileName() + ".replay");
+        this.objectMapper = objectMapper;
+        this.pending = Files.exists(path) || Files.exists(replayPath);
+    }
+
+    /**
+     * Append an event
+     *
+     * @throws IOException if the event could not be written
+     */
+    synchronized void append(AuditEvent event) throws IOException {
+        if (writer == null) {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        writer.write(objectMapper.writeValueAsString(event));
+        writer.newLine();
+        writer.flush();
+        pending = true;
+    }
+
+    /**
+     * True if spilled events are waiting to be replayed
+     */
+    boolean hasPending() {
+        return pending;
+    }
+
+    /**
+     * Replay spilled events in batches, deleting them once delivered
+     * Events spilled while the replay runs go to a fresh file and are replayed next time.
+     *
+     * @param batchSize Events per batch
+     * @param delivery Receives each batch
+     * @return Number of events replayed
+     */
+    int replay(int batchSize, Consumer<List<AuditEvent>> delivery) throws IOException {
+        synchronized (this) {
+            if (!Files.exists(replayPath)) {
+                if (!Files.exists(path)) {
+                    pending = false;
+                    return 0;
+                }
+                if (writer != null) {
+                    writer.close();
+                    writer = null;
+                }
+                Files.move(path, replayPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            pending = false;
+        }
+
+        int replayed = 0;
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(objectMapper.readValue(line, AuditEvent.class));
+                } catch (IOException e) {
+                    log.error("Skipping unreadable spilled audit event: {}", e.getMessage());
+                    continue;
+                }
+                if (batch.size() == batchSize) {
+                    delivery.accept(List.copyOf(batch));
+                    replayed += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            delivery.accept(List.copyOf(batch));
+            replayed += batch.size();
+        }
+        Files.delete(replayPath);
+        return replayed;
+    }
+
+    synchronized void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Failed to close audit spill file: {}", e.getMessage());
+            }
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.lightgallery.backend.audit;
+
+/**
+ * Back-Pressure Policy
+ * What a publisher does when the audit ring buffer is full
+ */
+public enum BackPressurePolicy {
+
+    /**
+     * Wait up to the configured block timeout for space, then drop the event
+     */
+    BLOCK,
+
+    /**
+     * Discard the oldest queued event to make room
+     */
+    DROP_OLDEST,
+
+    /**
+     * Append the event to the spill file; it is replayed once the buffer has drained
+     */
+    SPILL
+}
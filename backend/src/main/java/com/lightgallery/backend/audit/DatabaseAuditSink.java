@@ -0,0 +1,67 @@
+package com.lightgallery.backend.audit;
+
+import com.lightgallery.backend.entity.AuditEventRecord;
+import com.lightgallery.backend.mapper.AuditEventMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Database Audit Sink
+ * Stores audit events in the month-partitioned audit_events table. Each batch from the audit
+ * consumer becomes one multi-row INSERT per chunk, so request threads never wait on the database.
+ */
+@Slf4j
+@Component
+public class DatabaseAuditSink implements AuditSink {
+
+    private final AuditEventMapper auditEventMapper;
+    private final int insertBatchSize;
+
+    public DatabaseAuditSink(AuditEventMapper auditEventMapper,
+                             @Value("${audit.db.insert-batch-size:500}") int insertBatchSize) {
+        this.auditEventMapper = auditEventMapper;
+        this.insertBatchSize = insertBatchSize;
+    }
+
+    @Override
+    public String getName() {
+        return "db";
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) {
+        List<AuditEventRecord> records = events.stream().map(DatabaseAuditSink::toRecord).toList();
+        for (int from = 0; from < records.size(); from += insertBatchSize) {
+            List<AuditEventRecord> chunk = records.subList(from, Math.min(from + insertBatchSize, records.size()));
+            auditEventMapper.insertBatch(chunk);
+        }
+        log.debug("Stored {} audit events", records.size());
+    }
+
+    /**
+     * Map an audit event to its table row
+     */
+    static AuditEventRecord toRecord(AuditEvent event) {
+        AuditEventRecord record = new AuditEventRecord();
+        record.setEventType(event.type().name());
+        record.setOccurredAt(LocalDateTime.ofInstant(event.occurredAt(), ZoneId.systemDefault()));
+        record.setUserId(event.userId());
+        record.setSubscriptionId(event.subscriptionId());
+        record.setTier(event.tier());
+        record.setStatus(event.status());
+        record.setPaymentMethod(event.paymentMethod());
+        record.setTransactionId(event.transactionId());
+        record.setProvider(event.provider());
+        record.setAmount(event.amount() != null ? BigDecimal.valueOf(event.amount()) : null);
+        record.setCurrency(event.currency());
+        record.setSuccess(event.success());
+        record.setReason(event.reason());
+        return record;
+    }
+}
@@ -0,0 +1,43 @@
+package com.lightgallery.backend.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Log Audit Sink
+ * Writes audit events as "AUDIT:" log lines, in the format previously written directly by
+ * AuditLogService
+ */
+@Slf4j
+@Component
+public class LogAuditSink implements AuditSink {
+
+    @Override
+    public String getName() {
+        return "log";
+    }
+
+    @Override
+    public void write(List<AuditEvent> events) {
+        for (AuditEvent event : events) {
+            switch (event.type()) {
+                case SUBSCRIPTION_UPDATE -> log.info("AUDIT: Subscription update - userId={}, subscriptionId={}, tier={}, status={}, paymentMethod={}, transactionId={}",
+                        event.userId(), event.subscriptionId(), event.tier(), event.status(), event.paymentMethod(), event.transactionId());
+                case PAYMENT_VERIFICATION -> log.info("AUDIT: Payment verification - userId={}, paymentMethod={}, transactionId={}, amount={}, currency={}, result={}",
+                        event.userId(), event.paymentMethod(), event.transactionId(), event.amount(), event.currency(), event.result());
+                case PAYMENT_VERIFICATION_FAILURE -> log.warn("AUDIT: Payment verification failure - userId={}, paymentMethod={}, transactionId={}, errorReason={}",
+                        event.userId(), event.paymentMethod(), event.transactionId(), event.reason());
+                case SUBSCRIPTION_CANCELLATION -> log.info("AUDIT: Subscription cancellation - userId={}, subscriptionId={}, tier={}, reason={}",
+                        event.userId(), event.subscriptionId(), event.tier(), event.reason());
+                case SUBSCRIPTION_RENEWAL -> log.info("AUDIT: Subscription renewal - userId={}, subscriptionId={}, tier={}, transactionId={}",
+                        event.userId(), event.subscriptionId(), event.tier(), event.transactionId());
+                case AUTHENTICATION -> log.info("AUDIT: Authentication - userId={}, provider={}, result={}",
+                        event.userId(), event.provider(), event.result());
+                case ACCOUNT_DELETION -> log.info("AUDIT: Account deletion - userId={}, reason={}",
+                        event.userId(), event.reason());
+            }
+        }
+    }
+}
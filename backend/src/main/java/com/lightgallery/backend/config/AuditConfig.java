@@ -0,0 +1,13 @@
+package com.lightgallery.backend.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Audit Configuration
+ * Binds the asynchronous audit pipeline and local journal settings
+ */
+@Configuration
+@EnableConfigurationProperties({AuditPipelineProperties.class, AuditJournalProperties.class})
+public class AuditConfig {
+}
@@ -0,0 +1,44 @@
+package com.lightgallery.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Audit Journal Properties
+ * Location, segment size and retention of the local audit journal, and the sinks the journal
+ * is shipped to
+ */
+@Data
+@ConfigurationProperties(prefix = "audit.journal")
+public class AuditJournalProperties {
+
+    /**
+     * Directory holding the journal segments and the shipping checkpoint
+     */
+    private String directory = "logs/audit-journal";
+
+    /**
+     * Size of each memory-mapped segment file
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * How long shipped segments are kept before they are deleted
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    /**
+     * Names of the sinks journaled events are shipped to, e.g. db
+     */
+    private List<String> replaySinks = new ArrayList<>(List.of("db"));
+
+    /**
+     * Maximum events shipped per sink write
+     */
+    private int replayBatchSize = 500;
+}
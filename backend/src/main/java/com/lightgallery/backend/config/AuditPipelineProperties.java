@@ -0,0 +1,54 @@
+package com.lightgallery.backend.config;
+
+import com.lightgallery.backend.audit.BackPressurePolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Audit Pipeline Properties
+ * Ring buffer size, batching, back-pressure and sink selection for the asynchronous audit
+ * pipeline
+ */
+@Data
+@ConfigurationProperties(prefix = "audit.pipeline")
+public class AuditPipelineProperties {
+
+    /**
+     * Ring buffer capacity, rounded up to a power of two
+     */
+    private int capacity = 8192;
+
+    /**
+     * Maximum events handed to the sinks per batch
+     */
+    private int batchSize = 256;
+
+    /**
+     * What publishers do when the ring buffer is full
+     */
+    private BackPressurePolicy backPressure = BackPressurePolicy.DROP_OLDEST;
+
+    /**
+     * How long a publisher waits for space under the block policy before dropping the event
+     */
+    private Duration blockTimeout = Duration.ofMillis(50);
+
+    /**
+     * How long the consumer sleeps when there is nothing to deliver
+     */
+    private Duration idleWait = Duration.ofMillis(20);
+
+    /**
+     * Overflow file used by the spill policy
+     */
+    private String spillPath = "logs/audit-spill.jsonl";
+
+    /**
+     * Names of the sinks events are delivered to
+     */
+    private List<String> sinks = new ArrayList<>(List.of("log"));
+}
@@ -0,0 +1,178 @@
+package com.lightgallery.backend.config;
+
+import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
+import com.lightgallery.backend.datasource.ReadWriteRoutingDataSource;
+import com.lightgallery.backend.datasource.ReadYourWritesTracker;
+import com.lightgallery.backend.datasource.ReplicaRoutingInterceptor;
+import com.lightgallery.backend.datasource.ShardMap;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.datasource.ShardRoutingDataSource;
+import com.lightgallery.backend.datasource.ShardRoutingInterceptor;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DataSource Configuration
+ * Primary pool from {@code spring.datasource}, an optional read replica pool from
+ * {@code spring.datasource.replica}, and the routing DataSource used by MyBatis and the
+ * transaction manager. Without a replica URL every connection goes to the primary.
+ *
+ * The primary database is shard 0. Each entry of {@code spring.datasource.sharding.shards}
+ * (url, username, password, optional {@code hikari} and {@code replica}) adds a shard, and user
+ * data is spread over all of them by user ID; see {@link ShardRoutingInterceptor}. Every shard
+ * needs the full schema, which {@code SchemaMigrator} applies at startup.
+ *
+ * Pool metrics ({@code hikaricp.connections.*}) are tagged with the pool name: {@code primary},
+ * {@code replica}, or the shard name (and {@code <shard>-replica}) for additional shards.
+ */
+@Slf4j
+@Configuration
+public class DataSourceConfig {
+
+    private static final String REPLICA_PREFIX = "spring.datasource.replica";
+    private static final String HIKARI_PREFIX = "spring.datasource.hikari";
+    private static final String SHARDS_PREFIX = "spring.datasource.sharding.shards";
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties primaryDataSourceProperties,
+                                              MeterRegistry meterRegistry) {
+        HikariDataSource dataSource = primaryDataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("primary");
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return dataSource;
+    }
+
+    /**
+     * Routes each connection to the primary or the replica pool
+     */
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource, Environment environment,
+            ReadYourWritesTracker tracker, MeterRegistry meterRegistry) {
+        HikariDataSource replica = createReplica(Binder.get(environment), REPLICA_PREFIX, "replica", meterRegistry);
+        if (replica != null) {
+            log.info("Routing read-only work to replica {}", replica.getJdbcUrl());
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replica, tracker, meterRegistry);
+    }
+
+    /**
+     * Routes each connection to the shard of the user it is for
+     * Shard 0 is the primary (with its replica); every configured additional shard gets a
+     * primary pool, an optional replica pool and read/write routing of its own.
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            ReadWriteRoutingDataSource readWriteRoutingDataSource, Environment environment,
+            ReadYourWritesTracker tracker, MeterRegistry meterRegistry,
+            @Value("${spring.datasource.sharding.primary-name:shard0}") String primaryName) {
+        List<ShardRoutingDataSource.Shard> shards = new ArrayList<>();
+        shards.add(new ShardRoutingDataSource.Shard(primaryName, primaryDataSource, readWriteRoutingDataSource));
+
+        Binder binder = Binder.get(environment);
+        int configured = binder.bind(SHARDS_PREFIX, Bindable.listOf(DataSourceProperties.class))
+                .map(List::size)
+                .orElse(0);
+        for (int i = 0; i < configured; i++) {
+            String prefix = SHARDS_PREFIX + "[" + i + "]";
+            DataSourceProperties properties = binder.bind(prefix, DataSourceProperties.class).get();
+            String name = StringUtils.hasText(properties.getName()) ? properties.getName() : "shard" + (i + 1);
+            if (!StringUtils.hasText(properties.getUrl())) {
+                throw new IllegalStateException("Shard " + name + " has no url");
+            }
+
+            HikariDataSource primary = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .build();
+            binder.bind(HIKARI_PREFIX, Bindable.ofInstance(primary));
+            binder.bind(prefix + ".hikari", Bindable.ofInstance(primary));
+            primary.setPoolName(name);
+            primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            HikariDataSource replica = createReplica(binder, prefix + ".replica", name + "-replica", meterRegistry);
+            shards.add(new ShardRoutingDataSource.Shard(name, primary,
+                    new ReadWriteRoutingDataSource(primary, replica, tracker, meterRegistry)));
+            log.info("Shard {} at {}{}", name, primary.getJdbcUrl(),
+                    replica != null ? " (replica " + replica.getJdbcUrl() + ")" : "");
+        }
+        return new ShardRoutingDataSource(shards, meterRegistry);
+    }
+
+    /**
+     * Consistent-hash placement of users on the configured shards
+     */
+    @Bean
+    public ShardRouter shardRouter(ShardRoutingDataSource shardRoutingDataSource,
+                                   @Value("${spring.datasource.sharding.virtual-nodes:160}") int virtualNodes) {
+        return new ShardRouter(new ShardMap(shardRoutingDataSource.shardNames(), virtualNodes));
+    }
+
+    /**
+     * DataSource used by MyBatis and the transaction manager
+     * The lazy proxy defers taking a connection until the first statement, when the
+     * transaction's read-only flag and the statement's shard are known.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    public ReplicaRoutingInterceptor replicaRoutingInterceptor(ReadYourWritesTracker tracker) {
+        return new ReplicaRoutingInterceptor(tracker);
+    }
+
+    @Bean
+    public ShardRoutingInterceptor shardRoutingInterceptor(ShardRouter shardRouter,
+                                                           ShardRoutingDataSource shardRoutingDataSource,
+                                                           IdentifierGenerator identifierGenerator,
+                                                           MeterRegistry meterRegistry) {
+        return new ShardRoutingInterceptor(shardRouter, shardRoutingDataSource, identifierGenerator, meterRegistry);
+    }
+
+    private HikariDataSource createReplica(Binder binder, String prefix, String poolName, MeterRegistry meterRegistry) {
+        DataSourceProperties properties = binder.bind(prefix, DataSourceProperties.class)
+                .orElse(null);
+        if (properties == null || !StringUtils.hasText(properties.getUrl())) {
+            return null;
+        }
+
+        HikariDataSource replica = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        binder.bind(prefix + ".hikari", Bindable.ofInstance(replica));
+        replica.setPoolName(poolName);
+        replica.setReadOnly(true);
+        replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return replica;
+    }
+}
@@ -2,19 +2,22 @@ package com.lightgallery.backend.config;
 
 import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.OptimisticLockerInnerInterceptor;
 import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
+import com.lightgallery.backend.datasource.SnowflakeIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
  * MyBatis-Plus Configuration
- * Configures pagination and other MyBatis-Plus features
+ * Configures pagination, optimistic locking, ID generation and other MyBatis-Plus features
  */
 @Configuration
 public class MyBatisPlusConfig {
 
     /**
-     * Configure MyBatis-Plus interceptor with pagination support
+     * Configure MyBatis-Plus interceptor with pagination and optimistic lock support
      */
     @Bean
     public MybatisPlusInterceptor mybatisPlusInterceptor() {
@@ -23,6 +26,17 @@ public class MyBatisPlusConfig {
         // Add pagination interceptor for MySQL
         interceptor.addInnerInterceptor(new PaginationInnerInterceptor(DbType.MYSQL));
         
+        // updateById on entities with a @Version field only matches the version that was read
+        interceptor.addInnerInterceptor(new OptimisticLockerInnerInterceptor());
+        
         return interceptor;
     }
+
+    /**
+     * Generator for {@code IdType.ASSIGN_ID} keys, unique across shards and instances
+     */
+    @Bean
+    public SnowflakeIdGenerator identifierGenerator(@Value("${ids.worker-id:-1}") long workerId) {
+        return SnowflakeIdGenerator.forWorker(workerId);
+    }
 }
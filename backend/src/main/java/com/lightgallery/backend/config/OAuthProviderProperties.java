@@ -0,0 +1,84 @@
+package com.lightgallery.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * OAuth Provider Properties
+ * Executor, concurrency and deadline settings for OAuth token validation. Values under
+ * {@code defaults} apply to every provider; entries under {@code instances} override
+ * individual settings for one provider (e.g. {@code wechat}).
+ */
+@Data
+@ConfigurationProperties(prefix = "oauth.validation")
+public class OAuthProviderProperties {
+
+    /**
+     * Settings applied to every provider unless overridden
+     */
+    private Settings defaults = Settings.standard();
+
+    /**
+     * Per-provider overrides keyed by provider name
+     */
+    private Map<String, Settings> instances = new HashMap<>();
+
+    /**
+     * Resolve effective settings for a provider, falling back to defaults for unset values
+     *
+     * @param provider Provider name
+     * @return Effective settings
+     */
+    public Settings resolve(String provider) {
+        Settings override = instances.get(provider);
+        if (override == null) {
+            return defaults;
+        }
+        Settings merged = new Settings();
+        merged.setMaxConcurrentCalls(firstNonNull(override.getMaxConcurrentCalls(), defaults.getMaxConcurrentCalls()));
+        merged.setQueueCapacity(firstNonNull(override.getQueueCapacity(), defaults.getQueueCapacity()));
+        merged.setDeadline(firstNonNull(override.getDeadline(), defaults.getDeadline()));
+        return merged;
+    }
+
+    private static <T> T firstNonNull(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    /**
+     * Validation settings for one provider
+     */
+    @Data
+    public static class Settings {
+
+        /**
+         * Maximum validations running at once (threads in the provider's executor)
+         */
+        private Integer maxConcurrentCalls;
+
+        /**
+         * Validations that may wait for a thread before new ones are rejected
+         */
+        private Integer queueCapacity;
+
+        /**
+         * Overall time allowed for a validation, including time spent queued
+         */
+        private Duration deadline;
+
+        /**
+         * Built-in defaults used when nothing is configured
+         */
+        static Settings standard() {
+            Settings settings = new Settings();
+            settings.setMaxConcurrentCalls(16);
+            settings.setQueueCapacity(32);
+            settings.setDeadline(Duration.ofSeconds(8));
+            return settings;
+        }
+    }
+}
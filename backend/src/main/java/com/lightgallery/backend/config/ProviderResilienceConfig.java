@@ -0,0 +1,100 @@
+package com.lightgallery.backend.config;
+
+import com.lightgallery.backend.service.ProviderCallGuard;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Provider Resilience Configuration
+ * Creates one circuit breaker and one bulkhead per external provider so that a slow
+ * or failing provider cannot exhaust request threads needed by the others.
+ * Breaker and bulkhead states are published to Micrometer.
+ */
+@Configuration
+@EnableConfigurationProperties({ProviderResilienceProperties.class, OAuthProviderProperties.class})
+public class ProviderResilienceConfig {
+
+    /**
+     * Circuit breaker registry with one instance per provider
+     */
+    @Bean
+    public CircuitBreakerRegistry providerCircuitBreakerRegistry(ProviderResilienceProperties properties,
+                                                                 MeterRegistry meterRegistry) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.ofDefaults();
+        for (String provider : ProviderCallGuard.PROVIDERS) {
+            ProviderResilienceProperties.Settings settings = properties.resolve(provider);
+            CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                    .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                    .slidingWindowSize(settings.getSlidingWindowSize())
+                    .minimumNumberOfCalls(settings.getMinimumCalls())
+                    .failureRateThreshold(settings.getFailureRateThreshold())
+                    .slowCallRateThreshold(settings.getSlowCallRateThreshold())
+                    .slowCallDurationThreshold(settings.getSlowCallDuration())
+                    .waitDurationInOpenState(settings.getWaitInOpenState())
+                    .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                    .recordException(ProviderResilienceConfig::isProviderFailure)
+                    // A full bulkhead says nothing about provider health
+                    .ignoreExceptions(BulkheadFullException.class)
+                    .build();
+            registry.circuitBreaker(provider, config);
+        }
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    /**
+     * Whether an exception from a provider call counts against the provider's health
+     * A 4xx answer means the provider is up and rejected our request (bad receipt, expired
+     * code), so only 429 Too Many Requests is recorded; server errors, timeouts and I/O errors
+     * always are.
+     */
+    public static boolean isProviderFailure(Throwable throwable) {
+        if (throwable instanceof HttpClientErrorException clientError) {
+            return clientError.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS;
+        }
+        return true;
+    }
+
+    /**
+     * Bulkhead registry with one concurrency limit per provider
+     */
+    @Bean
+    public BulkheadRegistry providerBulkheadRegistry(ProviderResilienceProperties properties,
+                                                     MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.ofDefaults();
+        for (String provider : ProviderCallGuard.PROVIDERS) {
+            ProviderResilienceProperties.Settings settings = properties.resolve(provider);
+            BulkheadConfig config = BulkheadConfig.custom()
+                    .maxConcurrentCalls(settings.getMaxConcurrentCalls())
+                    .maxWaitDuration(settings.getMaxWait())
+                    .build();
+            registry.bulkhead(provider, config);
+        }
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    /**
+     * Rest template shared by provider clients, with bounded connect and read timeouts
+     */
+    @Bean
+    public RestTemplate providerRestTemplate(RestTemplateBuilder builder, ProviderResilienceProperties properties) {
+        return builder
+                .setConnectTimeout(properties.getConnectTimeout())
+                .setReadTimeout(properties.getReadTimeout())
+                .build();
+    }
+}
@@ -0,0 +1,129 @@
+package com.lightgallery.backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provider Resilience Properties
+ * Circuit breaker, bulkhead and HTTP timeout settings for external payment and OAuth providers.
+ * Values under {@code defaults} apply to every provider; entries under {@code instances}
+ * override individual settings for one provider (e.g. {@code wechat_pay}).
+ */
+@Data
+@ConfigurationProperties(prefix = "resilience.providers")
+public class ProviderResilienceProperties {
+
+    /**
+     * Settings applied to every provider unless overridden
+     */
+    private Settings defaults = Settings.standard();
+
+    /**
+     * Per-provider overrides keyed by provider name
+     */
+    private Map<String, Settings> instances = new HashMap<>();
+
+    /**
+     * HTTP connect timeout for provider calls
+     */
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    /**
+     * HTTP read timeout for provider calls
+     */
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Resolve effective settings for a provider, falling back to defaults for unset values
+     *
+     * @param provider Provider name
+     * @return Effective settings
+     */
+    public Settings resolve(String provider) {
+        Settings override = instances.get(provider);
+        if (override == null) {
+            return defaults;
+        }
+        Settings merged = new Settings();
+        merged.setFailureRateThreshold(firstNonNull(override.getFailureRateThreshold(), defaults.getFailureRateThreshold()));
+        merged.setSlowCallRateThreshold(firstNonNull(override.getSlowCallRateThreshold(), defaults.getSlowCallRateThreshold()));
+        merged.setSlowCallDuration(firstNonNull(override.getSlowCallDuration(), defaults.getSlowCallDuration()));
+        merged.setWaitInOpenState(firstNonNull(override.getWaitInOpenState(), defaults.getWaitInOpenState()));
+        merged.setSlidingWindowSize(firstNonNull(override.getSlidingWindowSize(), defaults.getSlidingWindowSize()));
+        merged.setMinimumCalls(firstNonNull(override.getMinimumCalls(), defaults.getMinimumCalls()));
+        merged.setMaxConcurrentCalls(firstNonNull(override.getMaxConcurrentCalls(), defaults.getMaxConcurrentCalls()));
+        merged.setMaxWait(firstNonNull(override.getMaxWait(), defaults.getMaxWait()));
+        return merged;
+    }
+
+    private static <T> T firstNonNull(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    /**
+     * Circuit breaker and bulkhead settings for one provider
+     */
+    @Data
+    public static class Settings {
+
+        /**
+         * Failure rate (percent) that opens the circuit
+         */
+        private Float failureRateThreshold;
+
+        /**
+         * Slow call rate (percent) that opens the circuit
+         */
+        private Float slowCallRateThreshold;
+
+        /**
+         * Calls slower than this are counted as slow
+         */
+        private Duration slowCallDuration;
+
+        /**
+         * How long the circuit stays open before probing again
+         */
+        private Duration waitInOpenState;
+
+        /**
+         * Number of calls in the count-based sliding window
+         */
+        private Integer slidingWindowSize;
+
+        /**
+         * Minimum calls before failure rates are evaluated
+         */
+        private Integer minimumCalls;
+
+        /**
+         * Maximum concurrent in-flight calls to the provider
+         */
+        private Integer maxConcurrentCalls;
+
+        /**
+         * How long a caller may wait for a bulkhead permit
+         */
+        private Duration maxWait;
+
+        /**
+         * Built-in defaults used when nothing is configured
+         */
+        static Settings standard() {
+            Settings settings = new Settings();
+            settings.setFailureRateThreshold(50f);
+            settings.setSlowCallRateThreshold(50f);
+            settings.setSlowCallDuration(Duration.ofSeconds(3));
+            settings.setWaitInOpenState(Duration.ofSeconds(30));
+            settings.setSlidingWindowSize(20);
+            settings.setMinimumCalls(10);
+            settings.setMaxConcurrentCalls(10);
+            settings.setMaxWait(Duration.ZERO);
+            return settings;
+        }
+    }
+}
@@ -54,6 +54,8 @@ public class SecurityConfig {
                 .requestMatchers("/auth/token/refresh").permitAll()
                 .requestMatchers("/subscription/products").permitAll()
                 .requestMatchers("/health").permitAll()
+                // Provider server notifications (authenticated by payload signature)
+                .requestMatchers("/notifications/**").permitAll()
                 
                 // All other endpoints require authentication
                 .anyRequest().authenticated()
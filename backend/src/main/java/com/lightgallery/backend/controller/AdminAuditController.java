@@ -0,0 +1,147 @@
+package com.lightgallery.backend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.dto.ApiResponse;
+import com.lightgallery.backend.dto.AuditEventPage;
+import com.lightgallery.backend.dto.AuditEventQuery;
+import com.lightgallery.backend.service.AuditQueryService;
+import com.lightgallery.backend.util.LogSanitizer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+
+/**
+ * Admin Audit Controller
+ * Lets support staff search persisted audit events, e.g. when investigating a disputed
+ * payment. Restricted to ROLE_ADMIN.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin/audit-events")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Admin Audit", description = "Audit event search for support staff")
+public class AdminAuditController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final AuditQueryService auditQueryService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Search audit events
+     * GET /api/v1/admin/audit-events
+     *
+     * @return One page of matching events, newest first, with the cursor for the next page
+     */
+    @Operation(
+            summary = "Search audit events",
+            description = "Filters persisted audit events by user, event type, time range and masked or raw " +
+                    "transaction ID. Pages are newest first; pass nextCursor back as cursor for the next page."
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Events found"
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid filter or cursor"
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "403",
+                    description = "Not an admin"
+            )
+    })
+    @GetMapping
+    public ResponseEntity<ApiResponse<AuditEventPage>> search(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String transactionId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + AuditQueryService.DEFAULT_PAGE_SIZE) int limit,
+            @Parameter(hidden = true) Authentication authentication) {
+
+        AuditEventQuery query = AuditEventQuery.builder()
+                .userId(userId)
+                .eventType(eventType)
+                .transactionId(transactionId)
+                .from(from)
+                .to(to)
+                .build();
+        log.info("Audit search by admin {}: userId={}, eventType={}, from={}, to={}",
+                authentication.getName(), userId, eventType, from, to);
+
+        try {
+            AuditEventPage page = auditQueryService.findEvents(query, cursor, limit);
+            return ResponseEntity.ok(ApiResponse.success("Audit events retrieved", page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(400, LogSanitizer.sanitize(e.getMessage())));
+        } catch (Exception e) {
+            log.error("Audit search failed: {}", LogSanitizer.sanitize(e.getMessage()), e);
+            return ResponseEntity.internalServerError()
+                    .body(ApiResponse.error(500, "Audit search failed"));
+        }
+    }
+
+    /**
+     * Export matching audit events as newline-delimited JSON
+     * GET /api/v1/admin/audit-events/export
+     *
+     * Rows are streamed from the database to the response one at a time.
+     */
+    @Operation(
+            summary = "Export audit events",
+            description = "Streams every matching audit event as application/x-ndjson, newest first."
+    )
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String eventType,
+            @RequestParam(required = false) String transactionId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(hidden = true) Authentication authentication) {
+
+        // Validate before the response is committed
+        AuditEventQuery query = auditQueryService.normalize(AuditEventQuery.builder()
+                .userId(userId)
+                .eventType(eventType)
+                .transactionId(transactionId)
+                .from(from)
+                .to(to)
+                .build());
+        log.info("Audit export by admin {}: userId={}, eventType={}, from={}, to={}",
+                authentication.getName(), userId, eventType, from, to);
+
+        StreamingResponseBody body = out -> auditQueryService.streamEvents(query, event -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(event));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+}
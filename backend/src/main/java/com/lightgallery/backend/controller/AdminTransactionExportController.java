@@ -0,0 +1,74 @@
+package com.lightgallery.backend.controller;
+
+import com.lightgallery.backend.service.TransactionExportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.LocalDateTime;
+
+/**
+ * Admin Transaction Export Controller
+ * Lets finance staff download all transactions of a period. Restricted to ROLE_ADMIN.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/admin/transactions")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Admin Transactions", description = "Transaction exports for finance")
+public class AdminTransactionExportController {
+
+    private final TransactionExportService transactionExportService;
+
+    /**
+     * Export transactions created within a time range
+     * GET /api/v1/admin/transactions/export
+     *
+     * Rows are streamed from the database to the response one at a time.
+     */
+    @Operation(
+            summary = "Export transactions",
+            description = "Streams every transaction created in [from, to) as CSV or application/x-ndjson, " +
+                    "optionally for one payment method and optionally gzip-compressed."
+    )
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String paymentMethod,
+            @Parameter(description = "csv or ndjson")
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @Parameter(hidden = true) Authentication authentication) {
+
+        // Validate before the response is committed
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.parse(format);
+        String fileName = transactionExportService.fileName(from, to, paymentMethod, exportFormat)
+                + (gzip ? ".gz" : "");
+        log.info("Transaction export by admin {}: from={}, to={}, paymentMethod={}, format={}, gzip={}",
+                authentication.getName(), from, to, paymentMethod, exportFormat, gzip);
+
+        StreamingResponseBody body = out ->
+                transactionExportService.export(from, to, paymentMethod, exportFormat, gzip, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+}
@@ -4,7 +4,9 @@ import com.lightgallery.backend.dto.ApiResponse;
 import com.lightgallery.backend.dto.AuthResponse;
 import com.lightgallery.backend.dto.OAuthExchangeRequest;
 import com.lightgallery.backend.dto.RefreshTokenRequest;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
 import com.lightgallery.backend.service.AuthService;
+import com.lightgallery.backend.util.LogSanitizer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -98,10 +100,13 @@ public class AuthController {
             AuthResponse response = authService.exchangeOAuthToken(request);
             log.info("OAuth token exchange successful for user: {}", response.getUserId());
             return ResponseEntity.ok(ApiResponse.success("Authentication successful", response));
+        } catch (ProviderUnavailableException e) {
+            // Answered with 503 by the global handler
+            throw e;
         } catch (Exception e) {
-            log.error("OAuth token exchange failed: {}", e.getMessage(), e);
+            log.error("OAuth token exchange failed: {}", LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(400, "Authentication failed: " + e.getMessage()));
+                    .body(ApiResponse.error(400, "Authentication failed: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 
@@ -153,9 +158,9 @@ public class AuthController {
             log.info("Token refresh successful for user: {}", response.getUserId());
             return ResponseEntity.ok(ApiResponse.success("Token refreshed successfully", response));
         } catch (Exception e) {
-            log.error("Token refresh failed: {}", e.getMessage(), e);
+            log.error("Token refresh failed: {}", LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(401, "Token refresh failed: " + e.getMessage()));
+                    .body(ApiResponse.error(401, "Token refresh failed: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 
@@ -218,9 +223,9 @@ public class AuthController {
             log.info("Logout successful for user: {}", userId);
             return ResponseEntity.ok(ApiResponse.success("Logout successful", null));
         } catch (Exception e) {
-            log.error("Logout failed for user {}: {}", userId, e.getMessage(), e);
+            log.error("Logout failed for user {}: {}", userId, LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(500, "Logout failed: " + e.getMessage()));
+                    .body(ApiResponse.error(500, "Logout failed: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 
@@ -288,9 +293,9 @@ public class AuthController {
             log.info("Account deletion successful for user: {}", userId);
             return ResponseEntity.ok(ApiResponse.success("Account deleted successfully", null));
         } catch (Exception e) {
-            log.error("Account deletion failed for user {}: {}", userId, e.getMessage(), e);
+            log.error("Account deletion failed for user {}: {}", userId, LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(500, "Account deletion failed: " + e.getMessage()));
+                    .body(ApiResponse.error(500, "Account deletion failed: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 }
@@ -1,11 +1,13 @@
 package com.lightgallery.backend.controller;
 
 import com.lightgallery.backend.dto.ApiResponse;
+import com.lightgallery.backend.service.ProviderCallGuard;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -16,16 +18,21 @@ import java.util.Map;
 
 /**
  * Health Check Controller
- * Provides health check endpoint for monitoring
+ * Provides health check endpoint for monitoring, including external provider circuit states
  */
 @RestController
 @RequestMapping("/health")
+@RequiredArgsConstructor
 @Tag(name = "Health", description = "Service health check endpoint")
 public class HealthController {
 
+    private final ProviderCallGuard providerCallGuard;
+
     @Operation(
             summary = "Health check",
-            description = "Returns the health status of the service. Used for monitoring and load balancer health checks.",
+            description = "Returns the health status of the service and the circuit breaker state of each " +
+                    "external payment and OAuth provider. Status is DEGRADED while any provider circuit is open. " +
+                    "Used for monitoring and load balancer health checks.",
             security = {}
     )
     @ApiResponses(value = {
@@ -41,7 +48,15 @@ public class HealthController {
                                       "data": {
                                         "status": "UP",
                                         "timestamp": "2024-12-07T10:00:00",
-                                        "service": "lightgallery-backend"
+                                        "service": "lightgallery-backend",
+                                        "providers": {
+                                          "apple_iap": {
+                                            "state": "CLOSED",
+                                            "failureRate": -1.0,
+                                            "slowCallRate": -1.0,
+                                            "availableConcurrentCalls": 10
+                                          }
+                                        }
                                       }
                                     }
                                     """)
@@ -51,9 +66,10 @@ public class HealthController {
     @GetMapping
     public ApiResponse<Map<String, Object>> health() {
         Map<String, Object> health = new HashMap<>();
-        health.put("status", "UP");
+        health.put("status", providerCallGuard.allProvidersAvailable() ? "UP" : "DEGRADED");
         health.put("timestamp", LocalDateTime.now());
         health.put("service", "lightgallery-backend");
+        health.put("providers", providerCallGuard.getProviderStates());
         
         return ApiResponse.success(health);
     }
@@ -0,0 +1,147 @@
+package com.lightgallery.backend.controller;
+
+import com.lightgallery.backend.dto.ApiResponse;
+import com.lightgallery.backend.dto.AppStoreNotificationRequest;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import com.lightgallery.backend.service.AppStoreNotificationService;
+import com.lightgallery.backend.service.PaymentNotificationService;
+import com.lightgallery.backend.util.LogSanitizer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Notification Controller
+ * Receives server-to-server notifications from payment providers.
+ * Notifications are only verified and stored here; they are applied asynchronously.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/notifications")
+@RequiredArgsConstructor
+@Tag(name = "Notifications", description = "Payment provider server notification endpoints")
+public class NotificationController {
+
+    private final AppStoreNotificationService appStoreNotificationService;
+    private final PaymentNotificationService paymentNotificationService;
+
+    /**
+     * Receive an App Store Server Notification V2
+     * POST /api/v1/notifications/app-store
+     *
+     * @param request Signed notification payload
+     * @return 200 once stored (including duplicates), 400 if the signature is invalid
+     */
+    @Operation(
+            summary = "App Store server notification",
+            description = "Receives App Store Server Notifications V2. The signed payload is verified against " +
+                    "Apple's certificate chain and stored once per notification UUID; subscription changes are " +
+                    "applied in the background. Any non-2xx response makes Apple retry the delivery.",
+            security = {}
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Notification accepted"
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid signed payload"
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "500",
+                    description = "Notification could not be stored, Apple will retry"
+            )
+    })
+    @PostMapping("/app-store")
+    public ResponseEntity<ApiResponse<Void>> receiveAppStoreNotification(
+            @Valid @RequestBody AppStoreNotificationRequest request) {
+        try {
+            boolean stored = appStoreNotificationService.ingest(request.getSignedPayload());
+            return ResponseEntity.ok(ApiResponse.success(
+                    stored ? "Notification accepted" : "Notification already received", null));
+        } catch (PaymentVerificationException e) {
+            log.warn("Rejected App Store notification: {}", LogSanitizer.sanitize(e.getMessage()));
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(400, "Invalid signed payload"));
+        } catch (Exception e) {
+            log.error("Failed to store App Store notification", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error(500, "Failed to store notification"));
+        }
+    }
+
+    /**
+     * Receive a WeChat Pay v3 payment or refund notification
+     * POST /api/v1/notifications/wechat-pay
+     *
+     * @return 204 once stored (including duplicates), 4xx/5xx with a FAIL body otherwise
+     */
+    @Operation(
+            summary = "WeChat Pay notification",
+            description = "Receives WeChat Pay v3 notify callbacks. The Wechatpay-Signature header is verified " +
+                    "against the platform certificate and the AES-GCM resource is decrypted with the APIv3 key. " +
+                    "Transactions and subscriptions are updated in the background.",
+            security = {}
+    )
+    @PostMapping(value = "/wechat-pay", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, String>> receiveWeChatPayNotification(
+            @RequestHeader(value = "Wechatpay-Timestamp", required = false) String timestamp,
+            @RequestHeader(value = "Wechatpay-Nonce", required = false) String nonce,
+            @RequestHeader(value = "Wechatpay-Signature", required = false) String signature,
+            @RequestHeader(value = "Wechatpay-Serial", required = false) String serial,
+            @RequestBody String body) {
+        try {
+            paymentNotificationService.ingestWeChatPay(timestamp, nonce, signature, serial, body);
+            return ResponseEntity.noContent().build();
+        } catch (PaymentVerificationException e) {
+            log.warn("Rejected WeChat Pay notification: {}", LogSanitizer.sanitize(e.getMessage()));
+            return ResponseEntity.badRequest().body(Map.of("code", "FAIL", "message", "Invalid signature"));
+        } catch (Exception e) {
+            log.error("Failed to store WeChat Pay notification", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("code", "FAIL", "message", "Failed to store notification"));
+        }
+    }
+
+    /**
+     * Receive an Alipay asynchronous notification
+     * POST /api/v1/notifications/alipay
+     *
+     * @param params Form parameters posted by Alipay
+     * @return "success" once stored (including duplicates); any other body makes Alipay retry
+     */
+    @Operation(
+            summary = "Alipay notification",
+            description = "Receives Alipay asynchronous notifications. The RSA2 signature is verified with the " +
+                    "Alipay public key; transactions and subscriptions are updated in the background.",
+            security = {}
+    )
+    @PostMapping(value = "/alipay", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<String> receiveAlipayNotification(@RequestParam Map<String, String> params) {
+        try {
+            paymentNotificationService.ingestAlipay(params);
+            return ResponseEntity.ok("success");
+        } catch (PaymentVerificationException e) {
+            log.warn("Rejected Alipay notification: {}", LogSanitizer.sanitize(e.getMessage()));
+            return ResponseEntity.badRequest().body("failure");
+        } catch (Exception e) {
+            log.error("Failed to store Alipay notification", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("failure");
+        }
+    }
+}
@@ -5,7 +5,11 @@ import com.lightgallery.backend.dto.PaymentVerificationRequest;
 import com.lightgallery.backend.dto.SubscriptionDTO;
 import com.lightgallery.backend.dto.SubscriptionProductDTO;
 import com.lightgallery.backend.dto.SubscriptionSyncRequest;
+import com.lightgallery.backend.dto.TransactionHistoryPage;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
 import com.lightgallery.backend.service.SubscriptionService;
+import com.lightgallery.backend.service.TransactionHistoryService;
+import com.lightgallery.backend.util.LogSanitizer;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -25,7 +29,7 @@ import java.util.List;
 
 /**
  * Subscription Controller
- * Handles subscription products, status, verification, and sync operations
+ * Handles subscription products, status, verification, sync and transaction history operations
  */
 @Slf4j
 @RestController
@@ -35,6 +39,7 @@ import java.util.List;
 public class SubscriptionController {
 
     private final SubscriptionService subscriptionService;
+    private final TransactionHistoryService transactionHistoryService;
 
     /**
      * Get available subscription products
@@ -94,9 +99,9 @@ public class SubscriptionController {
             log.info("Retrieved {} subscription products", products.size());
             return ResponseEntity.ok(ApiResponse.success("Products retrieved successfully", products));
         } catch (Exception e) {
-            log.error("Failed to fetch subscription products: {}", e.getMessage(), e);
+            log.error("Failed to fetch subscription products: {}", LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(500, "Failed to fetch products: " + e.getMessage()));
+                    .body(ApiResponse.error(500, "Failed to fetch products: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 
@@ -164,9 +169,9 @@ public class SubscriptionController {
                     userId, subscription.getTier(), subscription.getStatus());
             return ResponseEntity.ok(ApiResponse.success("Subscription status retrieved", subscription));
         } catch (Exception e) {
-            log.error("Failed to fetch subscription status for user {}: {}", userId, e.getMessage(), e);
+            log.error("Failed to fetch subscription status for user {}: {}", userId, LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(500, "Failed to fetch subscription status: " + e.getMessage()));
+                    .body(ApiResponse.error(500, "Failed to fetch subscription status: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 
@@ -181,8 +186,9 @@ public class SubscriptionController {
     @Operation(
             summary = "Verify payment and update subscription",
             description = "Verifies a payment transaction with the payment gateway (Apple IAP, WeChat Pay, or Alipay) " +
-                    "and updates the user's subscription status. Creates an audit log entry for the transaction. " +
-                    "Requires valid JWT token.",
+                    "and updates the user's subscription status. For Apple IAP, a StoreKit 2 signedTransaction is " +
+                    "verified locally against Apple's certificate chain instead of calling verifyReceipt. " +
+                    "Creates an audit log entry for the transaction. Requires valid JWT token.",
             security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
@@ -252,10 +258,13 @@ public class SubscriptionController {
             log.info("Payment verified and subscription updated for user {}: tier={}, status={}", 
                     userId, subscription.getTier(), subscription.getStatus());
             return ResponseEntity.ok(ApiResponse.success("Payment verified and subscription updated", subscription));
+        } catch (ProviderUnavailableException e) {
+            // Answered with 503 by the global handler
+            throw e;
         } catch (Exception e) {
-            log.error("Payment verification failed for user {}: {}", userId, e.getMessage(), e);
+            log.error("Payment verification failed for user {}: {}", userId, LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(400, "Payment verification failed: " + e.getMessage()));
+                    .body(ApiResponse.error(400, "Payment verification failed: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 
@@ -322,9 +331,9 @@ public class SubscriptionController {
                     userId, subscription.getTier(), subscription.getStatus());
             return ResponseEntity.ok(ApiResponse.success("Subscription synced successfully", subscription));
         } catch (Exception e) {
-            log.error("Subscription sync failed for user {}: {}", userId, e.getMessage(), e);
+            log.error("Subscription sync failed for user {}: {}", userId, LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(500, "Subscription sync failed: " + e.getMessage()));
+                    .body(ApiResponse.error(500, "Subscription sync failed: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 
@@ -389,9 +398,9 @@ public class SubscriptionController {
             log.info("Upgrade calculation completed for user {}: targetTier={}", userId, targetTier);
             return ResponseEntity.ok(ApiResponse.success("Upgrade calculation completed", upgradeInfo));
         } catch (Exception e) {
-            log.error("Upgrade calculation failed for user {}: {}", userId, e.getMessage(), e);
+            log.error("Upgrade calculation failed for user {}: {}", userId, LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(400, "Upgrade calculation failed: " + e.getMessage()));
+                    .body(ApiResponse.error(400, "Upgrade calculation failed: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 
@@ -477,9 +486,96 @@ public class SubscriptionController {
                     "Subscription cancelled. Access will continue until " + subscription.getExpiryDate(), 
                     subscription));
         } catch (Exception e) {
-            log.error("Subscription cancellation failed for user {}: {}", userId, e.getMessage(), e);
+            log.error("Subscription cancellation failed for user {}: {}", userId, LogSanitizer.sanitize(e.getMessage()), e);
             return ResponseEntity.badRequest()
-                    .body(ApiResponse.error(400, "Subscription cancellation failed: " + e.getMessage()));
+                    .body(ApiResponse.error(400, "Subscription cancellation failed: " + LogSanitizer.sanitize(e.getMessage())));
+        }
+    }
+
+    /**
+     * Get transaction history for authenticated user
+     * GET /api/v1/subscription/transactions
+     *
+     * @param cursor Cursor from the previous page, or absent for the first page
+     * @param limit Page size
+     * @param authentication Current authenticated user
+     * @return One page of transactions, newest first, with the cursor for the next page
+     */
+    @Operation(
+            summary = "Get transaction history",
+            description = "Retrieves the authenticated user's payment transactions, newest first, at most " +
+                    TransactionHistoryService.MAX_PAGE_SIZE + " per page. Pass nextCursor back as cursor " +
+                    "for the next page; it is null on the last page. Requires valid JWT token.",
+            security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "200",
+                    description = "Transaction history retrieved",
+                    content = @Content(
+                            mediaType = "application/json",
+                            examples = @ExampleObject(value = """
+                                    {
+                                      "code": 200,
+                                      "message": "Transaction history retrieved",
+                                      "data": {
+                                        "transactions": [
+                                          {
+                                            "id": 1024,
+                                            "subscriptionId": 1,
+                                            "transactionType": "renewal",
+                                            "paymentMethod": "apple_iap",
+                                            "amount": 10.00,
+                                            "currency": "CNY",
+                                            "platformTransactionId": "1000000123456789",
+                                            "verificationStatus": "verified",
+                                            "tier": "pro",
+                                            "billingPeriod": "monthly",
+                                            "createdAt": "2024-12-01T00:00:00"
+                                          }
+                                        ],
+                                        "nextCursor": "MjAyNC0xMi0wMVQwMDowMHwxMDI0"
+                                      }
+                                    }
+                                    """)
+                    )
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "400",
+                    description = "Invalid cursor",
+                    content = @Content(mediaType = "application/json")
+            ),
+            @io.swagger.v3.oas.annotations.responses.ApiResponse(
+                    responseCode = "401",
+                    description = "User not authenticated",
+                    content = @Content(mediaType = "application/json")
+            )
+    })
+    @GetMapping("/transactions")
+    public ResponseEntity<ApiResponse<TransactionHistoryPage>> getTransactions(
+            @Parameter(description = "Cursor from the previous page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size (max " + TransactionHistoryService.MAX_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "" + TransactionHistoryService.DEFAULT_PAGE_SIZE) int limit,
+            @Parameter(hidden = true) Authentication authentication) {
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(401, "User not authenticated"));
+        }
+
+        Long userId = Long.parseLong(authentication.getName());
+        log.info("Fetching transaction history for user {}: limit={}", userId, limit);
+
+        try {
+            TransactionHistoryPage page = transactionHistoryService.findPage(userId, cursor, limit);
+            return ResponseEntity.ok(ApiResponse.success("Transaction history retrieved", page));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(400, LogSanitizer.sanitize(e.getMessage())));
+        } catch (Exception e) {
+            log.error("Failed to fetch transaction history for user {}: {}", userId, LogSanitizer.sanitize(e.getMessage()), e);
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(500, "Failed to fetch transaction history: " + LogSanitizer.sanitize(e.getMessage())));
         }
     }
 }
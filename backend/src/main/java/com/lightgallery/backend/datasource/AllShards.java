@@ -0,0 +1,41 @@
+package com.lightgallery.backend.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * All Shards
+ * Marks a {@link ShardedByUser} mapper statement that is not scoped to one user. It runs on every
+ * shard in turn, each on a connection of its own, and the per-shard results are combined by
+ * {@link #merge}. Inside a transaction the other shards' connections do not see the
+ * transaction's uncommitted writes, and a write statement is refused altogether. With a single
+ * shard the statement simply runs on shard 0 like any other.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AllShards {
+
+    Merge merge() default Merge.ROWS;
+
+    /**
+     * How per-shard results are combined
+     */
+    enum Merge {
+        /**
+         * Concatenate rows in shard order (ordering and limits apply per shard)
+         */
+        ROWS,
+        /**
+         * Add up single-row numeric results, such as counts
+         */
+        SUM,
+        /**
+         * True if any shard returns true, for existence checks
+         */
+        ANY
+    }
+}
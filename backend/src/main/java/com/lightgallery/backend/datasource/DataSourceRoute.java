@@ -0,0 +1,10 @@
+package com.lightgallery.backend.datasource;
+
+/**
+ * Data Source Route
+ * Connection pool a statement is sent to
+ */
+public enum DataSourceRoute {
+    PRIMARY,
+    REPLICA
+}
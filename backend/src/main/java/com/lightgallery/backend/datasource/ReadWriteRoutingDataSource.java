@@ -0,0 +1,87 @@
+package com.lightgallery.backend.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Read/Write Routing DataSource
+ * Sends connections for read-only transactions ({@code @Transactional(readOnly = true)}) and
+ * {@link ReplicaRead} mapper queries to the replica pool, and everything else to the primary.
+ * Reads by a user who wrote within the stickiness window stay on the primary.
+ *
+ * The route is decided when a physical connection is taken, so this must be wrapped in a
+ * LazyConnectionDataSourceProxy: the transaction manager then opens the transaction before the
+ * read-only flag is visible here, and the real connection is only fetched on the first statement.
+ *
+ * Metrics: {@code datasource.route} tagged by route.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final ThreadLocal<Boolean> REPLICA_REQUESTED = new ThreadLocal<>();
+
+    private final DataSource replica;
+    private final boolean replicaConfigured;
+    private final ReadYourWritesTracker tracker;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReadYourWritesTracker tracker,
+                                      MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.replicaConfigured = replica != null;
+        this.tracker = tracker;
+        this.primaryRoutes = Counter.builder("datasource.route").tag("route", "primary").register(meterRegistry);
+        this.replicaRoutes = Counter.builder("datasource.route").tag("route", "replica").register(meterRegistry);
+
+        setTargetDataSources(Map.of(DataSourceRoute.PRIMARY, primary,
+                DataSourceRoute.REPLICA, replica != null ? replica : primary));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    /**
+     * Route connections taken by the current thread to the replica until {@link #clearReplicaRequest()}
+     */
+    static void requestReplica() {
+        REPLICA_REQUESTED.set(Boolean.TRUE);
+    }
+
+    static void clearReplicaRequest() {
+        REPLICA_REQUESTED.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        DataSourceRoute route = currentRoute();
+        (route == DataSourceRoute.REPLICA ? replicaRoutes : primaryRoutes).increment();
+        return route;
+    }
+
+    DataSourceRoute currentRoute() {
+        if (!replicaConfigured) {
+            return DataSourceRoute.PRIMARY;
+        }
+        boolean readOnly = Boolean.TRUE.equals(REPLICA_REQUESTED.get())
+                || (TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        return readOnly && !tracker.isSticky() ? DataSourceRoute.REPLICA : DataSourceRoute.PRIMARY;
+    }
+
+    /**
+     * Close the replica pool; the primary pool is a bean of its own
+     */
+    @Override
+    public void destroy() throws IOException {
+        if (replica instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+}
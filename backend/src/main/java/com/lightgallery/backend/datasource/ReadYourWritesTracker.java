@@ -0,0 +1,112 @@
+package com.lightgallery.backend.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-Your-Writes Tracker
+ * Remembers which users wrote to the primary recently. For a short window after a user's own
+ * write (for example a verified purchase), that user's reads stay on the primary so they never
+ * see the replica's older state. Writers are identified by the authenticated principal of the
+ * current request; the window is tracked per instance.
+ *
+ * Metrics: {@code datasource.sticky.users}.
+ */
+@Component
+public class ReadYourWritesTracker {
+
+    private final Clock clock;
+    private final Duration window;
+    private final Map<Long, Instant> stickyUntil = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReadYourWritesTracker(MeterRegistry meterRegistry,
+                                 @Value("${spring.datasource.replica.sticky-window:5s}") Duration window) {
+        this(Clock.systemUTC(), meterRegistry, window);
+    }
+
+    ReadYourWritesTracker(Clock clock, MeterRegistry meterRegistry, Duration window) {
+        this.clock = clock;
+        this.window = window;
+        Gauge.builder("datasource.sticky.users", stickyUntil, Map::size)
+                .description("Users whose reads are pinned to the primary after a recent write")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Record a write by the current user
+     */
+    public void recordWrite() {
+        Long userId = currentUserId();
+        if (userId != null) {
+            recordWrite(userId);
+        }
+    }
+
+    /**
+     * Record a write by a user
+     *
+     * @param userId User ID
+     */
+    public void recordWrite(Long userId) {
+        stickyUntil.put(userId, clock.instant().plus(window));
+    }
+
+    /**
+     * Whether the current user's reads must stay on the primary
+     */
+    public boolean isSticky() {
+        Long userId = currentUserId();
+        return userId != null && isSticky(userId);
+    }
+
+    /**
+     * Whether a user's reads must stay on the primary
+     *
+     * @param userId User ID
+     */
+    public boolean isSticky(Long userId) {
+        Instant until = stickyUntil.get(userId);
+        if (until == null) {
+            return false;
+        }
+        if (clock.instant().isAfter(until)) {
+            stickyUntil.remove(userId, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Drop expired entries
+     */
+    @Scheduled(fixedDelayString = "${spring.datasource.replica.sticky-cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        Instant now = clock.instant();
+        stickyUntil.entrySet().removeIf(entry -> now.isAfter(entry.getValue()));
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(authentication.getName());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.lightgallery.backend.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Replica Read
+ * Marks a mapper query that may be served by the read replica when it runs outside a
+ * transaction. Inside a transaction the transaction's connection is used, so a read-write
+ * transaction never reads from the replica. Only use it for queries that tolerate replication lag.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+}
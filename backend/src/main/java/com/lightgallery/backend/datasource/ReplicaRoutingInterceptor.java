@@ -0,0 +1,83 @@
+package com.lightgallery.backend.datasource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Replica Routing Interceptor
+ * MyBatis plugin that routes {@link ReplicaRead} queries issued outside a transaction to the
+ * replica, and records every write for read-your-writes stickiness.
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class ReplicaRoutingInterceptor implements Interceptor {
+
+    private final ReadYourWritesTracker tracker;
+    private final Map<String, Boolean> replicaReads = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingInterceptor(ReadYourWritesTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        if ("update".equals(invocation.getMethod().getName())) {
+            Object result = invocation.proceed();
+            tracker.recordWrite();
+            return result;
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || !replicaReads.computeIfAbsent(ms.getId(), ReplicaRoutingInterceptor::isReplicaRead)) {
+            return invocation.proceed();
+        }
+        ReadWriteRoutingDataSource.requestReplica();
+        try {
+            return invocation.proceed();
+        } finally {
+            ReadWriteRoutingDataSource.clearReplicaRequest();
+        }
+    }
+
+    /**
+     * Whether the mapper method behind a statement ID is annotated with {@link ReplicaRead}
+     */
+    static boolean isReplicaRead(String statementId) {
+        int dot = statementId.lastIndexOf('.');
+        if (dot < 0) {
+            return false;
+        }
+        try {
+            Class<?> mapper = Class.forName(statementId.substring(0, dot));
+            String methodName = statementId.substring(dot + 1);
+            return Arrays.stream(mapper.getMethods())
+                    .filter(method -> method.getName().equals(methodName))
+                    .anyMatch(method -> method.isAnnotationPresent(ReplicaRead.class));
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.lightgallery.backend.datasource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Shard Map
+ * Consistent-hash ring from user ID to shard. Every shard owns a number of virtual nodes placed
+ * by hashing its name, and a user belongs to the first node at or after the hash of their ID.
+ * Because node positions depend only on shard names, adding a shard moves roughly 1/n of the
+ * users, all of them to the new shard, and leaves every other assignment as it was.
+ */
+public final class ShardMap {
+
+    private final List<String> names;
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+
+    /**
+     * Build the ring
+     *
+     * @param names Shard names in shard index order; the ring is built from the names, not the order
+     * @param virtualNodes Ring positions per shard
+     */
+    public ShardMap(List<String> names, int virtualNodes) {
+        if (names.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be at least 1");
+        }
+        if (names.stream().distinct().count() != names.size()) {
+            throw new IllegalArgumentException("Shard names must be unique: " + names);
+        }
+        this.names = List.copyOf(names);
+        for (int shard = 0; shard < names.size(); shard++) {
+            for (int node = 0; node < virtualNodes; node++) {
+                Integer previous = ring.putIfAbsent(hash(names.get(shard) + "#" + node), shard);
+                if (previous != null && previous != shard) {
+                    throw new IllegalArgumentException("Ring position collision between shards "
+                            + names.get(previous) + " and " + names.get(shard));
+                }
+            }
+        }
+    }
+
+    public int shardCount() {
+        return names.size();
+    }
+
+    public String name(int shard) {
+        return names.get(shard);
+    }
+
+    public List<String> names() {
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Shard that holds a user's rows
+     *
+     * @param userId User ID
+     * @return Shard index
+     */
+    public int shardFor(long userId) {
+        if (names.size() == 1) {
+            return 0;
+        }
+        Map.Entry<Long, Integer> node = ring.ceilingEntry(mix(userId));
+        return (node != null ? node : ring.firstEntry()).getValue();
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, finished with the MurmurHash3 mixer
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * MurmurHash3 fmix64: spreads sequential and time-ordered IDs evenly over the ring
+     */
+    private static long mix(long value) {
+        long k = value;
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,82 @@
+package com.lightgallery.backend.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard Router
+ * Entry point for code that needs to know about shards. Mapper statements are routed by
+ * {@link ShardRoutingInterceptor} from the user ID they carry; jobs that walk a whole table
+ * (archival, purges) instead run once per shard inside {@link #onShard}, which sends every
+ * statement on a {@link ShardedByUser} mapper to that shard.
+ *
+ * Shard 0 is the primary {@code spring.datasource} database. It also holds every table that is
+ * not split by user (notifications, audit events, the identity directory), and every
+ * user created before sharding: their AUTO_INCREMENT IDs are far below any Snowflake ID, so
+ * they stay where they are instead of being placed on the ring.
+ */
+public class ShardRouter {
+
+    public static final int DEFAULT_SHARD = 0;
+
+    /**
+     * Smallest user ID placed on the ring; Snowflake IDs pass it minutes after the generator's epoch
+     */
+    static final long FIRST_SHARDED_ID = 1L << 40;
+
+    private final ShardMap shardMap;
+    private final ThreadLocal<Integer> pinned = new ThreadLocal<>();
+
+    public ShardRouter(ShardMap shardMap) {
+        this.shardMap = shardMap;
+    }
+
+    public int shardCount() {
+        return shardMap.shardCount();
+    }
+
+    public String shardName(int shard) {
+        return shardMap.name(shard);
+    }
+
+    /**
+     * Shard that holds a user's rows
+     *
+     * @param userId User ID
+     * @return Shard index; shard 0 for users created before sharding
+     */
+    public int shardFor(long userId) {
+        return userId < FIRST_SHARDED_ID ? DEFAULT_SHARD : shardMap.shardFor(userId);
+    }
+
+    /**
+     * Run work with user-sharded statements pinned to one shard
+     * A Spring transaction opened inside the work uses that shard's connection.
+     *
+     * @param shard Shard index
+     * @param work Work to run
+     * @return Result of the work
+     */
+    public <T> T onShard(int shard, Supplier<T> work) {
+        if (shard < 0 || shard >= shardMap.shardCount()) {
+            throw new IllegalArgumentException("No shard " + shard);
+        }
+        Integer previous = pinned.get();
+        pinned.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous != null) {
+                pinned.set(previous);
+            } else {
+                pinned.remove();
+            }
+        }
+    }
+
+    /**
+     * Shard pinned by {@link #onShard} on this thread, or null
+     */
+    Integer pinnedShard() {
+        return pinned.get();
+    }
+}
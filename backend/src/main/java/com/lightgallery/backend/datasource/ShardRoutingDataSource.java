@@ -0,0 +1,119 @@
+package com.lightgallery.backend.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shard Routing DataSource
+ * Sends each connection to one shard's read/write DataSource. The shard is chosen per statement
+ * by {@link ShardRoutingInterceptor} and defaults to shard 0, so code that does not go through
+ * MyBatis keeps using the primary database.
+ *
+ * Like {@link ReadWriteRoutingDataSource} the route is read when the physical connection is
+ * taken, so this sits below the LazyConnectionDataSourceProxy: a transaction's connection belongs
+ * to the shard of its first statement.
+ *
+ * Metrics: {@code datasource.shard.route} tagged by shard name.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final ThreadLocal<Integer> ROUTE = new ThreadLocal<>();
+
+    private final List<Shard> shards;
+    private final Counter[] routes;
+
+    public ShardRoutingDataSource(List<Shard> shards, MeterRegistry meterRegistry) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        this.routes = new Counter[shards.size()];
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            targets.put(i, shards.get(i).dataSource());
+            routes[i] = Counter.builder("datasource.shard.route")
+                    .tag("shard", shards.get(i).name())
+                    .register(meterRegistry);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.get(ShardRouter.DEFAULT_SHARD).dataSource());
+        afterPropertiesSet();
+    }
+
+    /**
+     * Route connections taken by the current thread to a shard until {@link #clearRoute()}
+     */
+    static void route(int shard) {
+        ROUTE.set(shard);
+    }
+
+    static void clearRoute() {
+        ROUTE.remove();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer shard = ROUTE.get();
+        int index = shard != null ? shard : ShardRouter.DEFAULT_SHARD;
+        routes[index].increment();
+        return index;
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Shard names in shard index order
+     */
+    public List<String> shardNames() {
+        return shards.stream().map(Shard::name).toList();
+    }
+
+    /**
+     * Read/write DataSource of one shard, bypassing routing
+     */
+    public DataSource shardDataSource(int shard) {
+        return shards.get(shard).dataSource();
+    }
+
+    /**
+     * Primary pool of every shard, for schema migrations
+     */
+    public List<DataSource> primaries() {
+        return shards.stream().map(Shard::primary).toList();
+    }
+
+    /**
+     * Close the pools of the additional shards; shard 0's pools are beans of their own
+     */
+    @Override
+    public void destroy() throws Exception {
+        for (Shard shard : shards.subList(1, shards.size())) {
+            if (shard.dataSource() instanceof DisposableBean disposable) {
+                disposable.destroy();
+            }
+            if (shard.primary() instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    /**
+     * One shard
+     *
+     * @param name Shard name, which places the shard on the hash ring
+     * @param primary Primary pool, used for migrations
+     * @param dataSource DataSource statements are routed to (primary or replica)
+     */
+    public record Shard(String name, DataSource primary, DataSource dataSource) {
+    }
+}
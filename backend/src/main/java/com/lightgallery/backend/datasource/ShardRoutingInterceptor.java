@@ -0,0 +1,389 @@
+package com.lightgallery.backend.datasource;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.Constants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shard Routing Interceptor
+ * MyBatis plugin that picks the shard for every statement before it takes a connection from
+ * {@link ShardRoutingDataSource}. Statements on {@link ShardedByUser} mappers go to the shard of
+ * the user they name, or to the shard pinned by {@link ShardRouter#onShard}; statements on other
+ * mappers go to shard 0. {@link AllShards} statements are run on every shard and merged, each
+ * shard on a connection of its own outside the caller's transaction.
+ *
+ * A transaction (or any scope with transaction synchronization) holds one connection, so it is
+ * bound to the shard of its first statement. A later statement for a user on another shard fails
+ * instead of reading or writing the wrong database, and a statement that names no user is only
+ * accepted once the transaction is bound to a user's shard. With a single shard everything
+ * routes to shard 0 and nothing is refused.
+ *
+ * Inserting a user gives the entity its ID here, before routing, since a user's own ID decides
+ * their shard. Metrics: {@code datasource.shard.scatter}.
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class ShardRoutingInterceptor implements Interceptor {
+
+    private static final ThreadLocal<Boolean> SCATTERING = new ThreadLocal<>();
+    private static final Routing UNSHARDED = new Routing(null, null, null, false);
+
+    private final ShardRouter router;
+    private final ShardRoutingDataSource dataSource;
+    private final IdentifierGenerator idGenerator;
+    private final Counter scatters;
+    private final Map<String, Routing> routings = new ConcurrentHashMap<>();
+
+    public ShardRoutingInterceptor(ShardRouter router, ShardRoutingDataSource dataSource,
+                                   IdentifierGenerator idGenerator, MeterRegistry meterRegistry) {
+        if (router.shardCount() != dataSource.shardCount()) {
+            throw new IllegalArgumentException("Shard map has " + router.shardCount()
+                    + " shards but the DataSource has " + dataSource.shardCount());
+        }
+        this.router = router;
+        this.dataSource = dataSource;
+        this.idGenerator = idGenerator;
+        this.scatters = Counter.builder("datasource.shard.scatter")
+                .description("Statements run on every shard")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        // Statements of a scatter already run on a shard's own connection
+        if (SCATTERING.get() != null) {
+            return invocation.proceed();
+        }
+
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        Routing routing = routings.computeIfAbsent(ms.getId(), ShardRoutingInterceptor::routingOf);
+        // With a single shard there is nothing to scatter over, and the statement keeps the
+        // caller's transaction
+        if (routing.allShards() != null && dataSource.shardCount() > 1) {
+            return scatter(invocation, ms, routing.allShards());
+        }
+
+        ShardRoutingDataSource.route(resolveShard(ms, routing, invocation.getArgs()[1]));
+        try {
+            return invocation.proceed();
+        } finally {
+            ShardRoutingDataSource.clearRoute();
+        }
+    }
+
+    /**
+     * Shard a statement runs on, checked against the shard its transaction is bound to
+     */
+    private int resolveShard(MappedStatement ms, Routing routing, Object parameter) {
+        boolean sharded = routing.sharded() != null;
+        int shard = -1;
+        if (sharded) {
+            Long userId = userId(ms, routing, parameter);
+            Integer pinned = router.pinnedShard();
+            if (userId != null) {
+                shard = router.shardFor(userId);
+                if (pinned != null && pinned != shard) {
+                    throw new IllegalStateException(ms.getId() + " names a user on shard "
+                            + router.shardName(shard) + " while pinned to " + router.shardName(pinned));
+                }
+            } else if (pinned != null) {
+                shard = pinned;
+            }
+        } else {
+            shard = ShardRouter.DEFAULT_SHARD;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return shard >= 0 ? shard : unkeyed(ms);
+        }
+
+        BoundShard bound = (BoundShard) TransactionSynchronizationManager.getResource(this);
+        if (bound == null) {
+            int target = shard >= 0 ? shard : unkeyed(ms);
+            bind(new BoundShard(target, sharded && shard >= 0));
+            return target;
+        }
+        if (shard < 0) {
+            return bound.userScoped ? bound.shard : unkeyed(ms);
+        }
+        if (shard != bound.shard) {
+            throw new IllegalStateException(ms.getId() + " needs shard " + router.shardName(shard)
+                    + " but the transaction is on shard " + router.shardName(bound.shard));
+        }
+        bound.userScoped |= sharded;
+        return shard;
+    }
+
+    /**
+     * Shard for a statement that names no user: shard 0 while there is only one
+     */
+    private int unkeyed(MappedStatement ms) {
+        if (router.shardCount() > 1) {
+            throw new IllegalStateException(ms.getId() + " names no user; pass a userId, run it inside "
+                    + "ShardRouter.onShard or annotate it @AllShards");
+        }
+        return ShardRouter.DEFAULT_SHARD;
+    }
+
+    private void bind(BoundShard bound) {
+        TransactionSynchronizationManager.bindResource(this, bound);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(ShardRoutingInterceptor.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(ShardRoutingInterceptor.this, bound);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ShardRoutingInterceptor.this);
+            }
+        });
+    }
+
+    /**
+     * User a statement is for: a userId parameter, the entity's owner property, or an eq on the
+     * owner column in a query wrapper
+     */
+    private Long userId(MappedStatement ms, Routing routing, Object parameter) {
+        ShardedByUser sharded = routing.sharded();
+        if (parameter instanceof Map<?, ?> params) {
+            if (params.containsKey("userId")) {
+                return asLong(params.get("userId"));
+            }
+            if (params.containsKey(Constants.ENTITY)) {
+                return userId(ms, routing, params.get(Constants.ENTITY));
+            }
+            if (params.containsKey(Constants.WRAPPER)
+                    && params.get(Constants.WRAPPER) instanceof AbstractWrapper<?, ?, ?> wrapper) {
+                return wrapperUserId(routing, wrapper);
+            }
+            return null;
+        }
+        if (parameter instanceof Number number) {
+            return routing.ownIdIsUserId() ? number.longValue() : null;
+        }
+        if (parameter == null || parameter instanceof CharSequence) {
+            return null;
+        }
+
+        MetaObject entity = SystemMetaObject.forObject(parameter);
+        if (!entity.hasGetter(sharded.property())) {
+            return null;
+        }
+        Long userId = asLong(entity.getValue(sharded.property()));
+        if (userId == null && ms.getSqlCommandType() == SqlCommandType.INSERT) {
+            userId = assignId(parameter, entity, sharded.property());
+        }
+        return userId;
+    }
+
+    /**
+     * Give a new entity its generated ID now if that ID is what places it on a shard
+     */
+    private Long assignId(Object parameter, MetaObject entity, String property) {
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(parameter.getClass());
+        if (tableInfo == null || tableInfo.getIdType() != IdType.ASSIGN_ID
+                || !property.equals(tableInfo.getKeyProperty())) {
+            return null;
+        }
+        long id = idGenerator.nextId(parameter).longValue();
+        entity.setValue(property, id);
+        return id;
+    }
+
+    private static Long wrapperUserId(Routing routing, AbstractWrapper<?, ?, ?> wrapper) {
+        String segment = wrapper.getSqlSegment();
+        if (segment == null || segment.toUpperCase().contains(" OR ")) {
+            return null;
+        }
+        Matcher matcher = routing.wrapperKey().matcher(segment);
+        return matcher.find() ? asLong(wrapper.getParamNameValuePairs().get(matcher.group(1))) : null;
+    }
+
+    private static Long asLong(Object value) {
+        if (value instanceof Number number) {
+            return number.longValue();
+        }
+        if (value instanceof String text) {
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Run a statement on every shard, each on a connection of its own, and merge the results
+     */
+    private Object scatter(Invocation invocation, MappedStatement ms, AllShards allShards) throws Throwable {
+        String method = invocation.getMethod().getName();
+        boolean update = "update".equals(method);
+        if ("queryCursor".equals(method)) {
+            throw new IllegalStateException(ms.getId() + " runs on every shard and cannot return a cursor");
+        }
+        if (update && TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException(ms.getId() + " writes to every shard and cannot run in a transaction");
+        }
+
+        Object[] args = invocation.getArgs();
+        Object parameter = args[1];
+        List<List<?>> results = new ArrayList<>();
+        long updated = 0;
+        scatters.increment();
+        SCATTERING.set(Boolean.TRUE);
+        try {
+            for (int shard = 0; shard < dataSource.shardCount(); shard++) {
+                Executor executor = ms.getConfiguration().newExecutor(
+                        new JdbcTransaction(dataSource.shardDataSource(shard), null, true), ExecutorType.SIMPLE);
+                try {
+                    if (update) {
+                        updated += executor.update(ms, parameter);
+                    } else {
+                        results.add(executor.query(ms, parameter, (RowBounds) args[2], (ResultHandler<?>) args[3]));
+                    }
+                } finally {
+                    executor.close(false);
+                }
+            }
+        } finally {
+            SCATTERING.remove();
+        }
+        return update ? Math.toIntExact(updated) : merge(allShards.merge(), results);
+    }
+
+    /**
+     * Combine per-shard query results
+     */
+    static List<Object> merge(AllShards.Merge merge, List<List<?>> results) {
+        List<Object> rows = new ArrayList<>();
+        for (List<?> shardRows : results) {
+            if (shardRows != null) {
+                rows.addAll(shardRows);
+            }
+        }
+        switch (merge) {
+            case SUM -> {
+                List<Object> values = rows.stream().filter(Objects::nonNull).toList();
+                if (values.isEmpty()) {
+                    return rows.isEmpty() ? rows : Collections.singletonList(null);
+                }
+                if (values.get(0) instanceof BigDecimal) {
+                    return List.of(values.stream().map(BigDecimal.class::cast).reduce(BigDecimal.ZERO, BigDecimal::add));
+                }
+                long sum = values.stream().mapToLong(value -> ((Number) value).longValue()).sum();
+                return List.of(values.get(0) instanceof Integer ? (Object) Math.toIntExact(sum) : (Object) sum);
+            }
+            case ANY -> {
+                boolean any = rows.stream().anyMatch(row -> Boolean.TRUE.equals(row)
+                        || (row instanceof Number number && number.longValue() != 0));
+                return List.of(any);
+            }
+            default -> {
+                return rows;
+            }
+        }
+    }
+
+    /**
+     * Routing for a statement ID, read from the annotations of its mapper
+     */
+    static Routing routingOf(String statementId) {
+        int dot = statementId.lastIndexOf('.');
+        if (dot < 0) {
+            return UNSHARDED;
+        }
+        try {
+            Class<?> mapper = Class.forName(statementId.substring(0, dot));
+            ShardedByUser sharded = mapper.getAnnotation(ShardedByUser.class);
+            if (sharded == null) {
+                return UNSHARDED;
+            }
+            String methodName = statementId.substring(dot + 1);
+            AllShards allShards = Arrays.stream(mapper.getMethods())
+                    .filter(method -> method.getName().equals(methodName))
+                    .map(method -> method.getAnnotation(AllShards.class))
+                    .filter(annotation -> annotation != null)
+                    .findFirst()
+                    .orElse(null);
+            Pattern wrapperKey = Pattern.compile("(?:^|[^\\w.])" + Pattern.quote(sharded.column())
+                    + "\\s*=\\s*#\\{" + Constants.WRAPPER + "\\.paramNameValuePairs\\.(\\w+)}");
+            // selectById and deleteById pass the bare ID, which is the user ID on the users mapper
+            String namespace = mapper.getName();
+            boolean ownIdIsUserId = TableInfoHelper.getTableInfos().stream()
+                    .filter(info -> namespace.equals(info.getCurrentNamespace()))
+                    .anyMatch(info -> sharded.property().equals(info.getKeyProperty()));
+            return new Routing(sharded, allShards, wrapperKey, ownIdIsUserId);
+        } catch (ClassNotFoundException e) {
+            return UNSHARDED;
+        }
+    }
+
+    /**
+     * How a statement is routed; {@code sharded} is null for mappers that live on shard 0
+     */
+    record Routing(ShardedByUser sharded, AllShards allShards, Pattern wrapperKey, boolean ownIdIsUserId) {
+    }
+
+    /**
+     * Shard a transaction's connection belongs to, and whether a user or pin chose it
+     */
+    private static final class BoundShard {
+
+        private final int shard;
+        private boolean userScoped;
+
+        private BoundShard(int shard, boolean userScoped) {
+            this.shard = shard;
+            this.userScoped = userScoped;
+        }
+    }
+}
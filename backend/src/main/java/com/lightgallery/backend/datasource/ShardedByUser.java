@@ -0,0 +1,31 @@
+package com.lightgallery.backend.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sharded By User
+ * Marks a mapper whose table is split across shards by user. Each statement is sent to the shard
+ * of the user it names: a {@code userId} parameter, the {@link #property} of an entity parameter,
+ * or an {@code eq} on {@link #column} in a query wrapper. Statements that name no user run on the
+ * shard their transaction is already on, or must be annotated {@link AllShards}.
+ * Mappers without this annotation live on shard 0.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardedByUser {
+
+    /**
+     * Entity property holding the owning user's ID
+     */
+    String property() default "userId";
+
+    /**
+     * Column holding the owning user's ID
+     */
+    String column() default "user_id";
+}
@@ -0,0 +1,131 @@
+package com.lightgallery.backend.datasource;
+
+import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Snowflake ID Generator
+ * Hands out 63-bit IDs that are unique across shards and instances without asking a database:
+ * 41 bits of milliseconds since 2024-01-01, a 10-bit worker ID and a 12-bit sequence within the
+ * millisecond. IDs grow with time, so primary key order stays close to insert order and keyset
+ * pagination by ID keeps working.
+ *
+ * Every running instance needs its own worker ID ({@code ids.worker-id}, 0-1023). Without one a
+ * worker ID is derived from the host name and process ID, which is only unlikely to collide.
+ * If the clock steps back by a few milliseconds the generator waits it out; a larger step fails
+ * rather than risk repeating IDs.
+ */
+@Slf4j
+public class SnowflakeIdGenerator implements IdentifierGenerator {
+
+    static final long EPOCH_MILLIS = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    static final int WORKER_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long MAX_WORKER_ID = (1L << WORKER_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long MAX_BACKWARD_MS = 5;
+
+    private final Clock clock;
+    private final long workerId;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public SnowflakeIdGenerator(long workerId) {
+        this(Clock.systemUTC(), workerId);
+    }
+
+    SnowflakeIdGenerator(Clock clock, long workerId) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("Worker ID must be between 0 and " + MAX_WORKER_ID);
+        }
+        this.clock = clock;
+        this.workerId = workerId;
+    }
+
+    /**
+     * Generator for a configured worker ID, or one derived from this host and process when negative
+     *
+     * @param workerId Configured worker ID
+     */
+    public static SnowflakeIdGenerator forWorker(long workerId) {
+        if (workerId >= 0) {
+            return new SnowflakeIdGenerator(workerId);
+        }
+        long derived = derivedWorkerId();
+        log.warn("ids.worker-id is not set; using worker ID {} derived from host and process", derived);
+        return new SnowflakeIdGenerator(derived);
+    }
+
+    @Override
+    public Number nextId(Object entity) {
+        return nextId();
+    }
+
+    /**
+     * Next ID
+     */
+    public synchronized long nextId() {
+        long now = clock.millis();
+        if (now < lastMillis) {
+            long behind = lastMillis - now;
+            if (behind > MAX_BACKWARD_MS) {
+                throw new IllegalStateException("Clock moved back " + behind + " ms; refusing to generate IDs");
+            }
+            now = waitUntil(lastMillis);
+        }
+        if (now == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                now = waitUntil(lastMillis + 1);
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = now;
+        return ((now - EPOCH_MILLIS) << (WORKER_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+
+    public long workerId() {
+        return workerId;
+    }
+
+    /**
+     * Worker ID an ID was generated by
+     */
+    static long workerIdOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_WORKER_ID;
+    }
+
+    /**
+     * Millisecond an ID was generated in
+     */
+    static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (WORKER_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS);
+    }
+
+    private long waitUntil(long millis) {
+        long now = clock.millis();
+        while (now < millis) {
+            Thread.onSpinWait();
+            now = clock.millis();
+        }
+        return now;
+    }
+
+    private static long derivedWorkerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        long pid = ProcessHandle.current().pid();
+        return Math.floorMod((host + "/" + pid).hashCode(), (int) MAX_WORKER_ID + 1);
+    }
+}
@@ -0,0 +1,18 @@
+package com.lightgallery.backend.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * App Store Server Notification Request
+ * Body posted by the App Store for Server Notifications V2
+ */
+@Data
+public class AppStoreNotificationRequest {
+
+    /**
+     * JWS signed notification payload
+     */
+    @NotBlank(message = "Signed payload is required")
+    private String signedPayload;
+}
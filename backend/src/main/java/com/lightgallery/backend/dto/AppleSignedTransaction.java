@@ -0,0 +1,49 @@
+package com.lightgallery.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Apple Signed Transaction
+ * Fields extracted from a locally verified StoreKit 2 signed transaction (JWSTransaction)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppleSignedTransaction {
+
+    /**
+     * Transaction ID
+     */
+    private String transactionId;
+
+    /**
+     * Original transaction ID (stable across renewals)
+     */
+    private String originalTransactionId;
+
+    /**
+     * Product ID
+     */
+    private String productId;
+
+    /**
+     * App bundle ID
+     */
+    private String bundleId;
+
+    /**
+     * Subscription expiry date
+     */
+    private LocalDateTime expiresDate;
+
+    /**
+     * App Store environment: Production, Sandbox
+     */
+    private String environment;
+}
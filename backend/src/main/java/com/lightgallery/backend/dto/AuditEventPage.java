@@ -0,0 +1,30 @@
+package com.lightgallery.backend.dto;
+
+import com.lightgallery.backend.entity.AuditEventRecord;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Audit Event Page
+ * One page of audit events, newest first
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEventPage {
+
+    /**
+     * Events on this page
+     */
+    private List<AuditEventRecord> events;
+
+    /**
+     * Cursor for the next page, or null if this is the last page
+     */
+    private String nextCursor;
+}
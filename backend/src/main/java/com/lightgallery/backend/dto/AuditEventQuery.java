@@ -0,0 +1,44 @@
+package com.lightgallery.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Audit Event Query
+ * Filters for searching persisted audit events; null fields are not filtered on
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AuditEventQuery {
+
+    /**
+     * User ID
+     */
+    private Long userId;
+
+    /**
+     * Event type (AuditEventType name)
+     */
+    private String eventType;
+
+    /**
+     * Masked transaction ID as stored, e.g. 1234****cdef
+     */
+    private String transactionId;
+
+    /**
+     * Inclusive lower bound of occurred_at
+     */
+    private LocalDateTime from;
+
+    /**
+     * Exclusive upper bound of occurred_at
+     */
+    private LocalDateTime to;
+}
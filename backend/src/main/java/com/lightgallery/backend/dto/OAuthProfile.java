@@ -0,0 +1,37 @@
+package com.lightgallery.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * OAuth Profile
+ * Identity verified by an OAuth provider, with any profile fields the provider returned
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OAuthProfile {
+
+    /**
+     * Provider user ID confirmed by the provider
+     */
+    private String providerUserId;
+
+    /**
+     * Display name from the provider (optional)
+     */
+    private String displayName;
+
+    /**
+     * Email from the provider (optional)
+     */
+    private String email;
+
+    /**
+     * Avatar URL from the provider (optional)
+     */
+    private String avatarUrl;
+}
@@ -40,6 +40,12 @@ public class PaymentVerificationRequest {
      */
     private String receiptData;
 
+    /**
+     * StoreKit 2 signed transaction (JWS, for Apple IAP)
+     * When present it is verified locally and takes precedence over receiptData
+     */
+    private String signedTransaction;
+
     /**
      * Original transaction ID (for Apple IAP renewals)
      */
@@ -0,0 +1,29 @@
+package com.lightgallery.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Transaction History Page
+ * One page of a user's transactions, newest first
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionHistoryPage {
+
+    /**
+     * Transactions on this page
+     */
+    private List<TransactionSummary> transactions;
+
+    /**
+     * Cursor for the next page, or null if this is the last page
+     */
+    private String nextCursor;
+}
@@ -0,0 +1,76 @@
+package com.lightgallery.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Transaction Summary
+ * Slim view of a transaction for the user-facing history; leaves out the receipt reference,
+ * verification details and metadata
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionSummary {
+
+    /**
+     * Transaction ID
+     */
+    private Long id;
+
+    /**
+     * Subscription ID
+     */
+    private Long subscriptionId;
+
+    /**
+     * Transaction type: purchase, renewal, upgrade, cancellation, refund
+     */
+    private String transactionType;
+
+    /**
+     * Payment method: apple_iap, wechat_pay, alipay
+     */
+    private String paymentMethod;
+
+    /**
+     * Amount charged
+     */
+    private BigDecimal amount;
+
+    /**
+     * Currency code
+     */
+    private String currency;
+
+    /**
+     * Transaction ID from payment platform
+     */
+    private String platformTransactionId;
+
+    /**
+     * Verification status: pending, verified, failed
+     */
+    private String verificationStatus;
+
+    /**
+     * Subscription tier
+     */
+    private String tier;
+
+    /**
+     * Billing period: monthly, yearly
+     */
+    private String billingPeriod;
+
+    /**
+     * Creation time
+     */
+    private LocalDateTime createdAt;
+}
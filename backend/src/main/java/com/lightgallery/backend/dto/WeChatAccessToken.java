@@ -0,0 +1,51 @@
+package com.lightgallery.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * WeChat Access Token
+ * Response of the WeChat sns/oauth2/access_token code exchange
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class WeChatAccessToken {
+
+    @JsonProperty("access_token")
+    private String accessToken;
+
+    @JsonProperty("expires_in")
+    private Integer expiresIn;
+
+    @JsonProperty("refresh_token")
+    private String refreshToken;
+
+    @JsonProperty("openid")
+    private String openid;
+
+    /**
+     * Granted scopes: snsapi_base or snsapi_userinfo
+     */
+    @JsonProperty("scope")
+    private String scope;
+
+    @JsonProperty("unionid")
+    private String unionid;
+
+    /**
+     * Error code, present only on failure
+     */
+    @JsonProperty("errcode")
+    private Integer errcode;
+
+    @JsonProperty("errmsg")
+    private String errmsg;
+
+    /**
+     * True if the token allows fetching the user's profile
+     */
+    public boolean hasUserInfoScope() {
+        return scope != null && scope.contains("snsapi_userinfo");
+    }
+}
@@ -0,0 +1,35 @@
+package com.lightgallery.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+/**
+ * WeChat User Info
+ * Response of the WeChat sns/userinfo call
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class WeChatUserInfo {
+
+    @JsonProperty("openid")
+    private String openid;
+
+    @JsonProperty("nickname")
+    private String nickname;
+
+    @JsonProperty("headimgurl")
+    private String headimgurl;
+
+    @JsonProperty("unionid")
+    private String unionid;
+
+    /**
+     * Error code, present only on failure
+     */
+    @JsonProperty("errcode")
+    private Integer errcode;
+
+    @JsonProperty("errmsg")
+    private String errmsg;
+}
@@ -0,0 +1,104 @@
+package com.lightgallery.backend.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.time.LocalDateTime;
+
+/**
+ * AppStoreNotification Entity
+ * Inbox of verified App Store Server Notifications V2, applied to subscriptions in batches
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("app_store_notifications")
+public class AppStoreNotification extends BaseEntity {
+
+    /**
+     * Notification row ID (Primary Key)
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * Apple notification UUID (unique, used for deduplication)
+     */
+    @TableField("notification_uuid")
+    private String notificationUuid;
+
+    /**
+     * Notification type: SUBSCRIBED, DID_RENEW, EXPIRED, REFUND, ...
+     */
+    @TableField("notification_type")
+    private String notificationType;
+
+    /**
+     * Notification subtype (nullable)
+     */
+    @TableField("subtype")
+    private String subtype;
+
+    /**
+     * Original transaction ID of the subscription
+     */
+    @TableField("original_transaction_id")
+    private String originalTransactionId;
+
+    /**
+     * Transaction ID carried by the notification
+     */
+    @TableField("transaction_id")
+    private String transactionId;
+
+    /**
+     * Product ID carried by the notification
+     */
+    @TableField("product_id")
+    private String productId;
+
+    /**
+     * Subscription expiry date carried by the notification
+     */
+    @TableField("expires_date")
+    private LocalDateTime expiresDate;
+
+    /**
+     * Time Apple signed the notification
+     */
+    @TableField("signed_date")
+    private LocalDateTime signedDate;
+
+    /**
+     * App Store environment: Production, Sandbox
+     */
+    @TableField("environment")
+    private String environment;
+
+    /**
+     * Raw signed payload as received
+     */
+    @TableField("signed_payload")
+    private String signedPayload;
+
+    /**
+     * Processing status: pending, applied, ignored, unmatched
+     */
+    @TableField("process_status")
+    private String processStatus;
+
+    /**
+     * Number of apply attempts
+     */
+    @TableField("attempts")
+    private Integer attempts;
+
+    /**
+     * Time the notification was applied
+     */
+    @TableField("processed_at")
+    private LocalDateTime processedAt;
+}
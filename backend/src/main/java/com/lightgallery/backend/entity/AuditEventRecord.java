@@ -0,0 +1,105 @@
+package com.lightgallery.backend.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Audit Event Record Entity
+ * Persistent audit event. The table is range-partitioned by month on occurred_at, so rows are
+ * append-only and expire by dropping whole partitions.
+ */
+@Data
+@TableName("audit_events")
+public class AuditEventRecord implements Serializable {
+
+    /**
+     * Audit event ID (Primary Key together with occurred_at)
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * Event type (AuditEventType name)
+     */
+    @TableField("event_type")
+    private String eventType;
+
+    /**
+     * When the event happened
+     */
+    @TableField("occurred_at")
+    private LocalDateTime occurredAt;
+
+    /**
+     * User ID
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * Subscription ID
+     */
+    @TableField("subscription_id")
+    private Long subscriptionId;
+
+    /**
+     * Subscription tier
+     */
+    @TableField("tier")
+    private String tier;
+
+    /**
+     * Subscription status
+     */
+    @TableField("status")
+    private String status;
+
+    /**
+     * Payment method
+     */
+    @TableField("payment_method")
+    private String paymentMethod;
+
+    /**
+     * Masked transaction ID
+     */
+    @TableField("transaction_id")
+    private String transactionId;
+
+    /**
+     * OAuth provider
+     */
+    @TableField("provider")
+    private String provider;
+
+    /**
+     * Payment amount
+     */
+    @TableField("amount")
+    private BigDecimal amount;
+
+    /**
+     * Currency code
+     */
+    @TableField("currency")
+    private String currency;
+
+    /**
+     * Verification or authentication result
+     */
+    @TableField("success")
+    private Boolean success;
+
+    /**
+     * Sanitized reason or error message
+     */
+    @TableField("reason")
+    private String reason;
+}
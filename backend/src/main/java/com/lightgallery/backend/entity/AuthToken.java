@@ -19,9 +19,9 @@ import java.time.LocalDateTime;
 public class AuthToken extends BaseEntity {
 
     /**
-     * Token ID (Primary Key)
+     * Token ID (Primary Key, a Snowflake ID unique across shards)
      */
-    @TableId(type = IdType.AUTO)
+    @TableId(type = IdType.ASSIGN_ID)
     private Long id;
 
     /**
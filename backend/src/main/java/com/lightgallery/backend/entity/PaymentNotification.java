@@ -0,0 +1,94 @@
+package com.lightgallery.backend.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * PaymentNotification Entity
+ * Inbox of verified WeChat Pay and Alipay asynchronous notifications, applied to
+ * transactions and subscriptions in batches
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@TableName("payment_notifications")
+public class PaymentNotification extends BaseEntity {
+
+    /**
+     * Notification row ID (Primary Key)
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * Payment provider: wechat_pay, alipay
+     */
+    @TableField("provider")
+    private String provider;
+
+    /**
+     * Provider notification ID (unique per provider, used for deduplication)
+     */
+    @TableField("notify_id")
+    private String notifyId;
+
+    /**
+     * Provider event type, e.g. TRANSACTION.SUCCESS, REFUND.SUCCESS, trade_status_sync
+     */
+    @TableField("event_type")
+    private String eventType;
+
+    /**
+     * Transaction ID as stored in transactions.platform_transaction_id
+     */
+    @TableField("platform_transaction_id")
+    private String platformTransactionId;
+
+    /**
+     * Raw trade state reported by the provider
+     */
+    @TableField("trade_state")
+    private String tradeState;
+
+    /**
+     * Resolved outcome: verified, failed, refunded, ignored
+     */
+    @TableField("outcome")
+    private String outcome;
+
+    /**
+     * Amount reported by the provider
+     */
+    @TableField("amount")
+    private BigDecimal amount;
+
+    /**
+     * Decrypted notification content (JSON)
+     */
+    @TableField("payload")
+    private String payload;
+
+    /**
+     * Processing status: pending, applied, ignored, unmatched
+     */
+    @TableField("process_status")
+    private String processStatus;
+
+    /**
+     * Number of apply attempts
+     */
+    @TableField("attempts")
+    private Integer attempts;
+
+    /**
+     * Time the notification was applied
+     */
+    @TableField("processed_at")
+    private LocalDateTime processedAt;
+}
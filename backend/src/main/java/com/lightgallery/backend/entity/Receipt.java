@@ -0,0 +1,51 @@
+package com.lightgallery.backend.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Receipt Entity
+ * Content-addressed store of payment receipts, keyed by the SHA-256 of the receipt and
+ * stored deflate-compressed. Rows are immutable and shared by every transaction carrying
+ * the same receipt.
+ */
+@Data
+@TableName("receipts")
+public class Receipt implements Serializable {
+
+    /**
+     * SHA-256 of the uncompressed receipt, hex encoded (Primary Key)
+     */
+    @TableId(value = "receipt_hash", type = IdType.INPUT)
+    private String receiptHash;
+
+    /**
+     * Deflate-compressed receipt bytes
+     */
+    @TableField("payload")
+    private byte[] payload;
+
+    /**
+     * Uncompressed size in bytes
+     */
+    @TableField("original_size")
+    private Integer originalSize;
+
+    /**
+     * Compressed size in bytes
+     */
+    @TableField("compressed_size")
+    private Integer compressedSize;
+
+    /**
+     * Time the receipt was first stored
+     */
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+}
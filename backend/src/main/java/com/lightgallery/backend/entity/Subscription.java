@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.annotation.IdType;
 import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
+import com.baomidou.mybatisplus.annotation.Version;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
@@ -19,9 +20,9 @@ import java.time.LocalDateTime;
 public class Subscription extends BaseEntity {
 
     /**
-     * Subscription ID (Primary Key)
+     * Subscription ID (Primary Key, a Snowflake ID unique across shards)
      */
-    @TableId(type = IdType.AUTO)
+    @TableId(type = IdType.ASSIGN_ID)
     private Long id;
 
     /**
@@ -89,4 +90,17 @@ public class Subscription extends BaseEntity {
      */
     @TableField("last_synced_at")
     private LocalDateTime lastSyncedAt;
+
+    /**
+     * Signing time of the newest App Store notification applied; older ones are ignored
+     */
+    @TableField("last_notification_signed_at")
+    private LocalDateTime lastNotificationSignedAt;
+
+    /**
+     * Optimistic lock version, incremented by every update
+     */
+    @Version
+    @TableField("version")
+    private Integer version;
 }
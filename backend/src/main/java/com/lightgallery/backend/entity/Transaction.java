@@ -18,10 +18,15 @@ import java.math.BigDecimal;
 @TableName("transactions")
 public class Transaction extends BaseEntity {
 
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_VERIFIED = "verified";
+    public static final String STATUS_FAILED = "failed";
+    public static final String STATUS_REFUNDED = "refunded";
+
     /**
-     * Transaction ID (Primary Key)
+     * Transaction ID (Primary Key, a Snowflake ID unique across shards)
      */
-    @TableId(type = IdType.AUTO)
+    @TableId(type = IdType.ASSIGN_ID)
     private Long id;
 
     /**
@@ -67,13 +72,13 @@ public class Transaction extends BaseEntity {
     private String platformTransactionId;
 
     /**
-     * Receipt or verification data
+     * SHA-256 of the receipt or verification data (see receipts table)
      */
-    @TableField("receipt_data")
-    private String receiptData;
+    @TableField("receipt_hash")
+    private String receiptHash;
 
     /**
-     * Verification status: pending, verified, failed
+     * Verification status: pending, verified, failed, refunded
      */
     @TableField("verification_status")
     private String verificationStatus;
@@ -19,9 +19,9 @@ import java.time.LocalDateTime;
 public class User extends BaseEntity {
 
     /**
-     * User ID (Primary Key)
+     * User ID (Primary Key, a Snowflake ID unique across shards)
      */
-    @TableId(type = IdType.AUTO)
+    @TableId(type = IdType.ASSIGN_ID)
     private Long id;
 
     /**
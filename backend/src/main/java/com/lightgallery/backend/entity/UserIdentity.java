@@ -0,0 +1,57 @@
+package com.lightgallery.backend.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * UserIdentity Entity
+ * Global directory from OAuth identity to user ID, kept on shard 0. A first login claims its
+ * identity here before the user is created on the user's shard, so concurrent first logins
+ * agree on one account.
+ */
+@Data
+@TableName("user_identities")
+public class UserIdentity implements Serializable {
+
+    /**
+     * Directory row ID (Primary Key)
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * OAuth provider: apple, wechat, alipay
+     */
+    @TableField("auth_provider")
+    private String authProvider;
+
+    /**
+     * User ID from OAuth provider
+     */
+    @TableField("provider_user_id")
+    private String providerUserId;
+
+    /**
+     * User the identity belongs to
+     */
+    @TableField("user_id")
+    private Long userId;
+
+    /**
+     * Time the identity was claimed
+     */
+    @TableField("created_at")
+    private LocalDateTime createdAt;
+
+    /**
+     * Time the identity was last pointed at a user
+     */
+    @TableField("updated_at")
+    private LocalDateTime updatedAt;
+}
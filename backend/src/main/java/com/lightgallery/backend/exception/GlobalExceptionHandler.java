@@ -1,5 +1,6 @@
 package com.lightgallery.backend.exception;
 
+import com.lightgallery.backend.util.LogSanitizer;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -34,12 +35,12 @@ public class GlobalExceptionHandler {
             HttpServletRequest request) {
         
         log.error("Authentication error: provider={}, errorCode={}, message={}", 
-                ex.getProvider(), ex.getErrorCode(), ex.getMessage());
+                ex.getProvider(), ex.getErrorCode(), LogSanitizer.sanitize(ex.getMessage()));
         
         ErrorResponse errorResponse = new ErrorResponse(
                 HttpStatus.UNAUTHORIZED.value(),
                 "Authentication Failed",
-                ex.getMessage(),
+                LogSanitizer.sanitize(ex.getMessage()),
                 request.getRequestURI(),
                 ex.getErrorCode()
         );
@@ -56,7 +57,7 @@ public class GlobalExceptionHandler {
             AuthenticationException ex,
             HttpServletRequest request) {
         
-        log.error("Spring Security authentication error: {}", ex.getMessage());
+        log.error("Spring Security authentication error: {}", LogSanitizer.sanitize(ex.getMessage()));
         
         ErrorResponse errorResponse = new ErrorResponse(
                 HttpStatus.UNAUTHORIZED.value(),
@@ -78,7 +79,7 @@ public class GlobalExceptionHandler {
             BadCredentialsException ex,
             HttpServletRequest request) {
         
-        log.error("Bad credentials: {}", ex.getMessage());
+        log.error("Bad credentials: {}", LogSanitizer.sanitize(ex.getMessage()));
         
         ErrorResponse errorResponse = new ErrorResponse(
                 HttpStatus.UNAUTHORIZED.value(),
@@ -100,7 +101,7 @@ public class GlobalExceptionHandler {
             AccessDeniedException ex,
             HttpServletRequest request) {
         
-        log.error("Access denied: {}", ex.getMessage());
+        log.error("Access denied: {}", LogSanitizer.sanitize(ex.getMessage()));
         
         ErrorResponse errorResponse = new ErrorResponse(
                 HttpStatus.FORBIDDEN.value(),
@@ -123,12 +124,12 @@ public class GlobalExceptionHandler {
             HttpServletRequest request) {
         
         log.error("Subscription error: errorCode={}, message={}", 
-                ex.getErrorCode(), ex.getMessage());
+                ex.getErrorCode(), LogSanitizer.sanitize(ex.getMessage()));
         
         ErrorResponse errorResponse = new ErrorResponse(
                 HttpStatus.BAD_REQUEST.value(),
                 "Subscription Error",
-                ex.getMessage(),
+                LogSanitizer.sanitize(ex.getMessage()),
                 request.getRequestURI(),
                 ex.getErrorCode()
         );
@@ -146,12 +147,12 @@ public class GlobalExceptionHandler {
             HttpServletRequest request) {
         
         log.error("Payment verification error: method={}, transactionId={}, errorCode={}, message={}", 
-                ex.getPaymentMethod(), ex.getTransactionId(), ex.getErrorCode(), ex.getMessage());
+                ex.getPaymentMethod(), LogSanitizer.maskTransactionId(ex.getTransactionId()), ex.getErrorCode(), LogSanitizer.sanitize(ex.getMessage()));
         
         ErrorResponse errorResponse = new ErrorResponse(
                 HttpStatus.BAD_REQUEST.value(),
                 "Payment Verification Failed",
-                ex.getMessage(),
+                LogSanitizer.sanitize(ex.getMessage()),
                 request.getRequestURI(),
                 ex.getErrorCode()
         );
@@ -159,6 +160,27 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
     }
 
+    /**
+     * Handle provider unavailable exceptions (circuit open or bulkhead full)
+     */
+    @ExceptionHandler(ProviderUnavailableException.class)
+    public ResponseEntity<ErrorResponse> handleProviderUnavailableException(
+            ProviderUnavailableException ex,
+            HttpServletRequest request) {
+        
+        log.warn("Provider unavailable: provider={}, message={}", ex.getProvider(), LogSanitizer.sanitize(ex.getMessage()));
+        
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Provider Unavailable",
+                "The payment or login provider is temporarily unavailable. Please try again later.",
+                request.getRequestURI(),
+                ex.getErrorCode()
+        );
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
     /**
      * Handle validation exceptions
      */
@@ -195,12 +217,12 @@ public class GlobalExceptionHandler {
             IllegalArgumentException ex,
             HttpServletRequest request) {
         
-        log.error("Illegal argument: {}", ex.getMessage());
+        log.error("Illegal argument: {}", LogSanitizer.sanitize(ex.getMessage()));
         
         ErrorResponse errorResponse = new ErrorResponse(
                 HttpStatus.BAD_REQUEST.value(),
                 "Invalid Argument",
-                ex.getMessage(),
+                LogSanitizer.sanitize(ex.getMessage()),
                 request.getRequestURI(),
                 "INVALID_ARGUMENT"
         );
@@ -216,7 +238,7 @@ public class GlobalExceptionHandler {
             Exception ex,
             HttpServletRequest request) {
         
-        log.error("Unexpected error: {}", ex.getMessage(), ex);
+        log.error("Unexpected error: {}", LogSanitizer.sanitize(ex.getMessage()), ex);
         
         ErrorResponse errorResponse = new ErrorResponse(
                 HttpStatus.INTERNAL_SERVER_ERROR.value(),
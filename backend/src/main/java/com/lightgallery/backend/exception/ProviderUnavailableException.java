@@ -0,0 +1,32 @@
+package com.lightgallery.backend.exception;
+
+/**
+ * Provider Unavailable Exception
+ * Thrown when a call to an external payment or OAuth provider is rejected
+ * because its circuit breaker is open or its bulkhead is full
+ */
+public class ProviderUnavailableException extends RuntimeException {
+
+    private final String provider;
+    private final String errorCode;
+
+    public ProviderUnavailableException(String message, String provider) {
+        super(message);
+        this.provider = provider;
+        this.errorCode = "PROVIDER_UNAVAILABLE";
+    }
+
+    public ProviderUnavailableException(String message, String provider, Throwable cause) {
+        super(message, cause);
+        this.provider = provider;
+        this.errorCode = "PROVIDER_UNAVAILABLE";
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+}
@@ -0,0 +1,72 @@
+package com.lightgallery.backend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.entity.AppStoreNotification;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * AppStoreNotificationMapper
+ * MyBatis-Plus mapper for the App Store notification inbox
+ */
+@Mapper
+public interface AppStoreNotificationMapper extends BaseMapper<AppStoreNotification> {
+
+    /**
+     * Insert a notification unless one with the same UUID already exists
+     * 
+     * @param notification Notification to store
+     * @return 1 if inserted, 0 if the UUID was already present
+     */
+    @Insert("INSERT IGNORE INTO app_store_notifications " +
+            "(notification_uuid, notification_type, subtype, original_transaction_id, transaction_id, " +
+            "product_id, expires_date, signed_date, environment, signed_payload, process_status, attempts) " +
+            "VALUES (#{notificationUuid}, #{notificationType}, #{subtype}, #{originalTransactionId}, " +
+            "#{transactionId}, #{productId}, #{expiresDate}, #{signedDate}, #{environment}, " +
+            "#{signedPayload}, 'pending', 0)")
+    int insertIgnore(AppStoreNotification notification);
+
+    /**
+     * Find pending notifications in arrival order
+     * 
+     * @param limit Maximum number of rows
+     * @return Pending notifications
+     */
+    @Select("SELECT id, notification_uuid, notification_type, subtype, original_transaction_id, " +
+            "transaction_id, product_id, expires_date, signed_date, environment, process_status, attempts " +
+            "FROM app_store_notifications WHERE process_status = 'pending' AND deleted = 0 " +
+            "ORDER BY id LIMIT #{limit}")
+    List<AppStoreNotification> findPending(@Param("limit") int limit);
+
+    /**
+     * Mark notifications as processed with the given status
+     * 
+     * @param ids Notification row IDs
+     * @param status New status (applied, ignored)
+     * @return Number of rows affected
+     */
+    @Update("<script>UPDATE app_store_notifications SET process_status = #{status}, " +
+            "processed_at = NOW(), updated_at = NOW() WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markProcessed(@Param("ids") List<Long> ids, @Param("status") String status);
+
+    /**
+     * Record a failed match attempt; rows reaching the attempt limit become 'unmatched'
+     * 
+     * @param ids Notification row IDs
+     * @param maxAttempts Attempt limit
+     * @return Number of rows affected
+     */
+    @Update("<script>UPDATE app_store_notifications SET " +
+            "process_status = CASE WHEN attempts + 1 &gt;= #{maxAttempts} THEN 'unmatched' ELSE 'pending' END, " +
+            "attempts = attempts + 1, updated_at = NOW() WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int recordUnmatched(@Param("ids") List<Long> ids, @Param("maxAttempts") int maxAttempts);
+}
@@ -0,0 +1,120 @@
+package com.lightgallery.backend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.audit.AuditPartition;
+import com.lightgallery.backend.dto.AuditEventQuery;
+import com.lightgallery.backend.entity.AuditEventRecord;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * AuditEventMapper
+ * MyBatis-Plus mapper for the month-partitioned audit event store
+ */
+@Mapper
+public interface AuditEventMapper extends BaseMapper<AuditEventRecord> {
+
+    String SELECT_EVENTS = "SELECT id, event_type, occurred_at, user_id, subscription_id, tier, status, " +
+            "payment_method, transaction_id, provider, amount, currency, success, reason FROM audit_events ";
+
+    /**
+     * Filters served by idx_user_occurred_at, idx_event_type_occurred_at,
+     * idx_transaction_occurred_at and idx_occurred_at respectively
+     */
+    String QUERY_FILTERS = "<if test='q.userId != null'>AND user_id = #{q.userId} </if>" +
+            "<if test='q.eventType != null'>AND event_type = #{q.eventType} </if>" +
+            "<if test='q.transactionId != null'>AND transaction_id = #{q.transactionId} </if>" +
+            "<if test='q.from != null'>AND occurred_at &gt;= #{q.from} </if>" +
+            "<if test='q.to != null'>AND occurred_at &lt; #{q.to} </if>";
+
+    /**
+     * Insert audit events with a single multi-row INSERT
+     *
+     * @param events Events to store (must not be empty)
+     * @return Number of rows inserted
+     */
+    @Insert("<script>INSERT INTO audit_events " +
+            "(event_type, occurred_at, user_id, subscription_id, tier, status, payment_method, " +
+            "transaction_id, provider, amount, currency, success, reason) VALUES " +
+            "<foreach collection='events' item='e' separator=','>" +
+            "(#{e.eventType}, #{e.occurredAt}, #{e.userId}, #{e.subscriptionId}, #{e.tier}, #{e.status}, " +
+            "#{e.paymentMethod}, #{e.transactionId}, #{e.provider}, #{e.amount}, #{e.currency}, " +
+            "#{e.success}, #{e.reason})" +
+            "</foreach></script>")
+    int insertBatch(@Param("events") List<AuditEventRecord> events);
+
+    /**
+     * Find one page of events, newest first, after a keyset cursor
+     *
+     * @param query Filters
+     * @param cursorAt occurred_at of the last row of the previous page, or null for the first page
+     * @param cursorId ID of the last row of the previous page
+     * @param limit Maximum number of rows
+     * @return Events ordered by occurred_at, id descending
+     */
+    @Select("<script>" + SELECT_EVENTS + "<where>" + QUERY_FILTERS +
+            "<if test='cursorAt != null'>AND (occurred_at &lt; #{cursorAt} " +
+            "OR (occurred_at = #{cursorAt} AND id &lt; #{cursorId})) </if>" +
+            "</where>ORDER BY occurred_at DESC, id DESC LIMIT #{limit}</script>")
+    List<AuditEventRecord> findPage(@Param("q") AuditEventQuery query,
+                                    @Param("cursorAt") LocalDateTime cursorAt,
+                                    @Param("cursorId") Long cursorId,
+                                    @Param("limit") int limit);
+
+    /**
+     * Stream every matching event, newest first
+     * Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the result.
+     *
+     * @param query Filters
+     * @param handler Receives each row
+     */
+    @Select("<script>" + SELECT_EVENTS + "<where>" + QUERY_FILTERS + "</where>" +
+            "ORDER BY occurred_at DESC, id DESC</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(AuditEventRecord.class)
+    void streamEvents(@Param("q") AuditEventQuery query, ResultHandler<AuditEventRecord> handler);
+
+    /**
+     * List the partitions of audit_events in range order
+     *
+     * @return Partitions; the MAXVALUE partition has a null upper bound
+     */
+    @Select("SELECT PARTITION_NAME AS name, " +
+            "CASE WHEN PARTITION_DESCRIPTION = 'MAXVALUE' THEN NULL " +
+            "ELSE FROM_DAYS(PARTITION_DESCRIPTION) END AS upperBound " +
+            "FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'audit_events' AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION")
+    List<AuditPartition> findPartitions();
+
+    /**
+     * Split a month off the MAXVALUE partition
+     * Identifiers cannot be bound as parameters; callers must validate the name.
+     *
+     * @param partition New partition name
+     * @param upperBound Exclusive upper bound (yyyy-MM-dd)
+     */
+    @Update("ALTER TABLE audit_events REORGANIZE PARTITION p_future INTO (" +
+            "PARTITION ${partition} VALUES LESS THAN (TO_DAYS('${upperBound}')), " +
+            "PARTITION p_future VALUES LESS THAN MAXVALUE)")
+    void addPartition(@Param("partition") String partition, @Param("upperBound") String upperBound);
+
+    /**
+     * Drop a partition together with all its rows
+     * Identifiers cannot be bound as parameters; callers must validate the name.
+     *
+     * @param partition Partition name
+     */
+    @Update("ALTER TABLE audit_events DROP PARTITION ${partition}")
+    void dropPartition(@Param("partition") String partition);
+}
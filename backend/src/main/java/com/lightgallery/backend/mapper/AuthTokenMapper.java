@@ -1,6 +1,8 @@
 package com.lightgallery.backend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.datasource.AllShards;
+import com.lightgallery.backend.datasource.ShardedByUser;
 import com.lightgallery.backend.entity.AuthToken;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
@@ -15,6 +17,7 @@ import java.util.List;
  * MyBatis-Plus mapper for AuthToken entity with custom queries
  */
 @Mapper
+@ShardedByUser
 public interface AuthTokenMapper extends BaseMapper<AuthToken> {
 
     /**
@@ -23,6 +26,7 @@ public interface AuthTokenMapper extends BaseMapper<AuthToken> {
      * @param accessToken JWT access token
      * @return AuthToken if found, null otherwise
      */
+    @AllShards
     @Select("SELECT * FROM auth_tokens WHERE access_token = #{accessToken} AND deleted = 0")
     AuthToken findByAccessToken(@Param("accessToken") String accessToken);
 
@@ -32,6 +36,7 @@ public interface AuthTokenMapper extends BaseMapper<AuthToken> {
      * @param refreshToken JWT refresh token
      * @return AuthToken if found, null otherwise
      */
+    @AllShards
     @Select("SELECT * FROM auth_tokens WHERE refresh_token = #{refreshToken} AND deleted = 0")
     AuthToken findByRefreshToken(@Param("refreshToken") String refreshToken);
 
@@ -67,20 +72,72 @@ public interface AuthTokenMapper extends BaseMapper<AuthToken> {
 
     /**
      * Delete expired tokens (cleanup job)
+     * Soft delete only; AuthTokenPurgeService physically removes expired and soft-deleted rows.
      * 
      * @param expiryThreshold Expiry threshold timestamp
      * @return Number of rows affected
      */
+    @AllShards
     @Delete("UPDATE auth_tokens SET deleted = 1, updated_at = NOW() " +
             "WHERE expires_at < #{expiryThreshold}")
     int deleteExpiredTokens(@Param("expiryThreshold") LocalDateTime expiryThreshold);
 
+    /**
+     * Find IDs of rows that can be physically deleted, in primary key order
+     * A row is purgeable once its refresh token has expired, or once it has been soft-deleted
+     * for longer than the grace period.
+     *
+     * @param afterId Only IDs greater than this
+     * @param threshold Rows expired or soft-deleted before this time qualify
+     * @param limit Maximum number of IDs
+     * @return Purgeable row IDs, ascending
+     */
+    @Select("SELECT id FROM auth_tokens WHERE id > #{afterId} " +
+            "AND (refresh_expires_at < #{threshold} OR (deleted = 1 AND updated_at < #{threshold})) " +
+            "ORDER BY id LIMIT #{limit}")
+    List<Long> findPurgeableIds(@Param("afterId") long afterId,
+                                @Param("threshold") LocalDateTime threshold,
+                                @Param("limit") int limit);
+
+    /**
+     * Physically delete rows by primary key
+     * Bypasses logical deletion; only for IDs returned by findPurgeableIds.
+     *
+     * @param ids Row IDs
+     * @return Number of rows deleted
+     */
+    @Delete("<script>DELETE FROM auth_tokens WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int purgeByIds(@Param("ids") List<Long> ids);
+
+    /**
+     * Estimated row count of auth_tokens from table statistics
+     *
+     * @return Estimated rows
+     */
+    @AllShards(merge = AllShards.Merge.SUM)
+    @Select("SELECT TABLE_ROWS FROM information_schema.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'auth_tokens'")
+    Long estimateRowCount();
+
+    /**
+     * Data and index size of auth_tokens from table statistics
+     *
+     * @return Size in bytes
+     */
+    @AllShards(merge = AllShards.Merge.SUM)
+    @Select("SELECT DATA_LENGTH + INDEX_LENGTH FROM information_schema.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'auth_tokens'")
+    Long tableSizeBytes();
+
     /**
      * Check if access token is valid (exists and not expired)
      * 
      * @param accessToken JWT access token
      * @return true if valid, false otherwise
      */
+    @AllShards(merge = AllShards.Merge.ANY)
     @Select("SELECT COUNT(*) > 0 FROM auth_tokens WHERE access_token = #{accessToken} " +
             "AND expires_at > NOW() AND deleted = 0")
     boolean isAccessTokenValid(@Param("accessToken") String accessToken);
@@ -91,6 +148,7 @@ public interface AuthTokenMapper extends BaseMapper<AuthToken> {
      * @param refreshToken JWT refresh token
      * @return true if valid, false otherwise
      */
+    @AllShards(merge = AllShards.Merge.ANY)
     @Select("SELECT COUNT(*) > 0 FROM auth_tokens WHERE refresh_token = #{refreshToken} " +
             "AND refresh_expires_at > NOW() AND deleted = 0")
     boolean isRefreshTokenValid(@Param("refreshToken") String refreshToken);
@@ -0,0 +1,84 @@
+package com.lightgallery.backend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.entity.PaymentNotification;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.List;
+
+/**
+ * PaymentNotificationMapper
+ * MyBatis-Plus mapper for the WeChat Pay / Alipay notification inbox
+ */
+@Mapper
+public interface PaymentNotificationMapper extends BaseMapper<PaymentNotification> {
+
+    /**
+     * Insert a notification unless one with the same provider and notify ID already exists
+     *
+     * @param notification Notification to store
+     * @return 1 if inserted, 0 if already present
+     */
+    @Insert("INSERT IGNORE INTO payment_notifications " +
+            "(provider, notify_id, event_type, platform_transaction_id, trade_state, outcome, amount, " +
+            "payload, process_status, attempts) " +
+            "VALUES (#{provider}, #{notifyId}, #{eventType}, #{platformTransactionId}, #{tradeState}, " +
+            "#{outcome}, #{amount}, #{payload}, 'pending', 0)")
+    int insertIgnore(PaymentNotification notification);
+
+    /**
+     * Find pending notifications in arrival order
+     *
+     * @param limit Maximum number of rows
+     * @return Pending notifications
+     */
+    @Select("SELECT id, provider, notify_id, event_type, platform_transaction_id, trade_state, outcome, " +
+            "amount, process_status, attempts " +
+            "FROM payment_notifications WHERE process_status = 'pending' AND deleted = 0 " +
+            "ORDER BY id LIMIT #{limit}")
+    List<PaymentNotification> findPending(@Param("limit") int limit);
+
+    /**
+     * Find the most recent outcome received for a transaction
+     *
+     * @param provider Payment provider
+     * @param platformTransactionId Platform transaction ID
+     * @return Outcome (verified, failed, refunded, ignored) or null if no notification was received
+     */
+    @Select("SELECT outcome FROM payment_notifications WHERE provider = #{provider} " +
+            "AND platform_transaction_id = #{platformTransactionId} AND deleted = 0 " +
+            "ORDER BY id DESC LIMIT 1")
+    String findLatestOutcome(@Param("provider") String provider,
+                             @Param("platformTransactionId") String platformTransactionId);
+
+    /**
+     * Mark notifications as processed with the given status
+     *
+     * @param ids Notification row IDs
+     * @param status New status (applied, ignored)
+     * @return Number of rows affected
+     */
+    @Update("<script>UPDATE payment_notifications SET process_status = #{status}, " +
+            "processed_at = NOW(), updated_at = NOW() WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int markProcessed(@Param("ids") List<Long> ids, @Param("status") String status);
+
+    /**
+     * Record a failed match attempt; rows reaching the attempt limit become 'unmatched'
+     *
+     * @param ids Notification row IDs
+     * @param maxAttempts Attempt limit
+     * @return Number of rows affected
+     */
+    @Update("<script>UPDATE payment_notifications SET " +
+            "process_status = CASE WHEN attempts + 1 &gt;= #{maxAttempts} THEN 'unmatched' ELSE 'pending' END, " +
+            "attempts = attempts + 1, updated_at = NOW() WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int recordUnmatched(@Param("ids") List<Long> ids, @Param("maxAttempts") int maxAttempts);
+}
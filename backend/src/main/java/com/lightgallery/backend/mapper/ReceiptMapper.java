@@ -0,0 +1,41 @@
+package com.lightgallery.backend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.datasource.ShardedByUser;
+import com.lightgallery.backend.entity.Receipt;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * ReceiptMapper
+ * MyBatis-Plus mapper for the content-addressed receipt store
+ * A receipt is kept on the shard of the user whose transaction refers to it, so statements take
+ * that user's ID for routing only; the same receipt used by users on two shards is stored on both.
+ */
+@ShardedByUser
+@Mapper
+public interface ReceiptMapper extends BaseMapper<Receipt> {
+
+    /**
+     * Store a receipt unless one with the same hash already exists
+     * 
+     * @param userId User whose transaction refers to the receipt
+     * @param receipt Receipt to store
+     * @return 1 if inserted, 0 if the hash was already present
+     */
+    @Insert("INSERT IGNORE INTO receipts (receipt_hash, payload, original_size, compressed_size) " +
+            "VALUES (#{receipt.receiptHash}, #{receipt.payload}, #{receipt.originalSize}, #{receipt.compressedSize})")
+    int insertIgnore(@Param("userId") Long userId, @Param("receipt") Receipt receipt);
+
+    /**
+     * Find the compressed payload for a receipt hash
+     * 
+     * @param userId User whose transaction refers to the receipt
+     * @param receiptHash SHA-256 hex of the receipt
+     * @return Compressed payload, or null if not found
+     */
+    @Select("SELECT payload FROM receipts WHERE receipt_hash = #{receiptHash}")
+    byte[] findPayloadByHash(@Param("userId") Long userId, @Param("receiptHash") String receiptHash);
+}
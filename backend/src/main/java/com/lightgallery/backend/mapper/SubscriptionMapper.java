@@ -1,6 +1,9 @@
 package com.lightgallery.backend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.datasource.AllShards;
+import com.lightgallery.backend.datasource.ReplicaRead;
+import com.lightgallery.backend.datasource.ShardedByUser;
 import com.lightgallery.backend.entity.Subscription;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -12,9 +15,11 @@ import java.util.List;
 
 /**
  * SubscriptionMapper
- * MyBatis-Plus mapper for Subscription entity with custom queries
+ * MyBatis-Plus mapper for Subscription entity with custom queries. Every UPDATE increments
+ * the optimistic lock version so concurrent read-modify-write updates notice it.
  */
 @Mapper
+@ShardedByUser
 public interface SubscriptionMapper extends BaseMapper<Subscription> {
 
     /**
@@ -27,6 +32,17 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
             "AND status = 'active' AND deleted = 0 LIMIT 1")
     Subscription findActiveByUserId(@Param("userId") Long userId);
 
+    /**
+     * Find the active, unexpired subscription for a user (status reads, may be served by the replica)
+     * 
+     * @param userId User ID
+     * @return Active subscription if found, null otherwise
+     */
+    @ReplicaRead
+    @Select("SELECT * FROM subscriptions WHERE user_id = #{userId} " +
+            "AND status = 'active' AND expiry_date > NOW() AND deleted = 0 LIMIT 1")
+    Subscription findCurrentActiveByUserId(@Param("userId") Long userId);
+
     /**
      * Find subscription by user ID and status
      * 
@@ -55,6 +71,7 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * @param originalTransactionId Original transaction ID from payment platform
      * @return Subscription if found, null otherwise
      */
+    @AllShards
     @Select("SELECT * FROM subscriptions WHERE original_transaction_id = #{originalTransactionId} " +
             "AND deleted = 0 LIMIT 1")
     Subscription findByOriginalTransactionId(@Param("originalTransactionId") String originalTransactionId);
@@ -66,11 +83,25 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * @param status New status
      * @return Number of rows affected
      */
-    @Update("UPDATE subscriptions SET status = #{status}, updated_at = NOW() " +
+    @Update("UPDATE subscriptions SET status = #{status}, updated_at = NOW(), version = version + 1 " +
             "WHERE id = #{subscriptionId} AND deleted = 0")
     int updateStatus(@Param("subscriptionId") Long subscriptionId,
                     @Param("status") String status);
 
+    /**
+     * Update status for a batch of subscriptions
+     * 
+     * @param subscriptionIds Subscription IDs
+     * @param status New status
+     * @return Number of rows affected
+     */
+    @Update("<script>UPDATE subscriptions SET status = #{status}, updated_at = NOW(), version = version + 1 " +
+            "WHERE id IN " +
+            "<foreach collection='subscriptionIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND deleted = 0</script>")
+    int updateStatusBatch(@Param("subscriptionIds") List<Long> subscriptionIds,
+                          @Param("status") String status);
+
     /**
      * Update subscription expiry date
      * 
@@ -78,7 +109,7 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * @param expiryDate New expiry date
      * @return Number of rows affected
      */
-    @Update("UPDATE subscriptions SET expiry_date = #{expiryDate}, updated_at = NOW() " +
+    @Update("UPDATE subscriptions SET expiry_date = #{expiryDate}, updated_at = NOW(), version = version + 1 " +
             "WHERE id = #{subscriptionId} AND deleted = 0")
     int updateExpiryDate(@Param("subscriptionId") Long subscriptionId,
                         @Param("expiryDate") LocalDateTime expiryDate);
@@ -90,7 +121,7 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * @param tier New tier
      * @return Number of rows affected
      */
-    @Update("UPDATE subscriptions SET tier = #{tier}, updated_at = NOW() " +
+    @Update("UPDATE subscriptions SET tier = #{tier}, updated_at = NOW(), version = version + 1 " +
             "WHERE id = #{subscriptionId} AND deleted = 0")
     int updateTier(@Param("subscriptionId") Long subscriptionId,
                   @Param("tier") String tier);
@@ -102,7 +133,8 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * @param lastSyncedAt Last synced timestamp
      * @return Number of rows affected
      */
-    @Update("UPDATE subscriptions SET last_synced_at = #{lastSyncedAt}, updated_at = NOW() " +
+    @Update("UPDATE subscriptions SET last_synced_at = #{lastSyncedAt}, updated_at = NOW(), " +
+            "version = version + 1 " +
             "WHERE id = #{subscriptionId} AND deleted = 0")
     int updateLastSyncedAt(@Param("subscriptionId") Long subscriptionId,
                           @Param("lastSyncedAt") LocalDateTime lastSyncedAt);
@@ -112,6 +144,7 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * 
      * @return List of expired subscriptions
      */
+    @AllShards
     @Select("SELECT * FROM subscriptions WHERE status = 'active' " +
             "AND expiry_date < NOW() AND deleted = 0")
     List<Subscription> findExpiredActiveSubscriptions();
@@ -122,6 +155,7 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * @param userId User ID
      * @return true if user has active subscription, false otherwise
      */
+    @ReplicaRead
     @Select("SELECT COUNT(*) > 0 FROM subscriptions WHERE user_id = #{userId} " +
             "AND status = 'active' AND expiry_date > NOW() AND deleted = 0")
     boolean hasActiveSubscription(@Param("userId") Long userId);
@@ -132,6 +166,7 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * @param userId User ID
      * @return Subscription tier (free, pro, max) or null if no active subscription
      */
+    @ReplicaRead
     @Select("SELECT tier FROM subscriptions WHERE user_id = #{userId} " +
             "AND status = 'active' AND expiry_date > NOW() AND deleted = 0 LIMIT 1")
     String getUserTier(@Param("userId") Long userId);
@@ -142,6 +177,7 @@ public interface SubscriptionMapper extends BaseMapper<Subscription> {
      * @param tier Subscription tier
      * @return Count of active subscriptions for the tier
      */
+    @AllShards(merge = AllShards.Merge.SUM)
     @Select("SELECT COUNT(*) FROM subscriptions WHERE tier = #{tier} " +
             "AND status = 'active' AND deleted = 0")
     long countByTier(@Param("tier") String tier);
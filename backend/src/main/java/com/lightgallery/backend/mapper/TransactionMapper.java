@@ -1,11 +1,20 @@
 package com.lightgallery.backend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.datasource.AllShards;
+import com.lightgallery.backend.datasource.ShardedByUser;
+import com.lightgallery.backend.dto.TransactionSummary;
 import com.lightgallery.backend.entity.Transaction;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.ResultType;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -15,20 +24,56 @@ import java.util.List;
  * MyBatis-Plus mapper for Transaction entity (audit log)
  */
 @Mapper
+@ShardedByUser
 public interface TransactionMapper extends BaseMapper<Transaction> {
 
+    /**
+     * Columns shared by transactions and transactions_archive
+     */
+    String COLUMNS = "id, user_id, subscription_id, transaction_type, payment_method, amount, currency, " +
+            "platform_transaction_id, receipt_hash, verification_status, verification_message, tier, " +
+            "billing_period, metadata, created_at, updated_at, deleted";
+
+    /**
+     * Columns of the slim history projection
+     */
+    String SUMMARY_COLUMNS = "id, subscription_id, transaction_type, payment_method, amount, currency, " +
+            "platform_transaction_id, verification_status, tier, billing_period, created_at";
+
+    /**
+     * Columns of the finance export
+     */
+    String EXPORT_COLUMNS = "id, user_id, subscription_id, transaction_type, payment_method, amount, currency, " +
+            "platform_transaction_id, verification_status, tier, billing_period, created_at";
+
+    /**
+     * Export filter served by idx_deleted_created, or idx_payment_method_deleted_created when a
+     * payment method is given
+     */
+    String EXPORT_FILTER = "<where>deleted = 0 AND created_at &gt;= #{from} AND created_at &lt; #{to} " +
+            "<if test='paymentMethod != null'>AND payment_method = #{paymentMethod} </if></where>" +
+            "ORDER BY created_at, id";
+
+    /**
+     * Keyset condition after the last row of the previous page ordered by created_at, id descending
+     */
+    String AFTER_CURSOR = "<if test='cursorAt != null'>AND (created_at &lt; #{cursorAt} " +
+            "OR (created_at = #{cursorAt} AND id &lt; #{cursorId})) </if>";
+
     /**
      * Find transaction by platform transaction ID
      * 
      * @param platformTransactionId Transaction ID from payment platform
      * @return Transaction if found, null otherwise
      */
+    @AllShards
     @Select("SELECT * FROM transactions WHERE platform_transaction_id = #{platformTransactionId} " +
             "AND deleted = 0 LIMIT 1")
     Transaction findByPlatformTransactionId(@Param("platformTransactionId") String platformTransactionId);
 
     /**
      * Find all transactions for a user
+     * Unbounded and loads full rows; the user-facing history pages with findSummaryPage.
      * 
      * @param userId User ID
      * @return List of transactions ordered by creation date (newest first)
@@ -39,6 +84,7 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
 
     /**
      * Find transactions for a subscription
+     * Unbounded and loads full rows; the user-facing history pages with findSummaryPage.
      * 
      * @param subscriptionId Subscription ID
      * @return List of transactions ordered by creation date (newest first)
@@ -53,6 +99,7 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      * @param verificationStatus Verification status (pending, verified, failed)
      * @return List of transactions
      */
+    @AllShards
     @Select("SELECT * FROM transactions WHERE verification_status = #{verificationStatus} " +
             "AND deleted = 0 ORDER BY created_at DESC")
     List<Transaction> findByVerificationStatus(@Param("verificationStatus") String verificationStatus);
@@ -99,12 +146,58 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
                                  @Param("verificationStatus") String verificationStatus,
                                  @Param("verificationMessage") String verificationMessage);
 
+    /**
+     * Find transactions for a set of platform transaction IDs
+     * 
+     * @param paymentMethod Payment method
+     * @param platformTransactionIds Transaction IDs from payment platform
+     * @return Matching transactions
+     */
+    @AllShards
+    @Select("<script>SELECT * FROM transactions WHERE payment_method = #{paymentMethod} " +
+            "AND platform_transaction_id IN " +
+            "<foreach collection='platformTransactionIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND deleted = 0</script>")
+    List<Transaction> findByPlatformTransactionIds(@Param("paymentMethod") String paymentMethod,
+                                                   @Param("platformTransactionIds") List<String> platformTransactionIds);
+
+    /**
+     * Update verification status for a batch of transactions
+     * 
+     * @param transactionIds Transaction IDs
+     * @param verificationStatus New verification status
+     * @param verificationMessage Verification message
+     * @return Number of rows affected
+     */
+    @Update("<script>UPDATE transactions SET verification_status = #{verificationStatus}, " +
+            "verification_message = #{verificationMessage}, updated_at = NOW() WHERE id IN " +
+            "<foreach collection='transactionIds' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND deleted = 0</script>")
+    int updateVerificationStatusBatch(@Param("transactionIds") List<Long> transactionIds,
+                                      @Param("verificationStatus") String verificationStatus,
+                                      @Param("verificationMessage") String verificationMessage);
+
+    /**
+     * Link a transaction to the subscription it paid for
+     * 
+     * @param transactionId Transaction ID
+     * @param userId Owner of the transaction
+     * @param subscriptionId Subscription ID
+     * @return Number of rows affected
+     */
+    @Update("UPDATE transactions SET subscription_id = #{subscriptionId}, updated_at = NOW() " +
+            "WHERE id = #{transactionId} AND user_id = #{userId} AND deleted = 0")
+    int updateSubscriptionId(@Param("transactionId") Long transactionId,
+                             @Param("userId") Long userId,
+                             @Param("subscriptionId") Long subscriptionId);
+
     /**
      * Check if transaction exists by platform transaction ID
      * 
      * @param platformTransactionId Transaction ID from payment platform
      * @return true if exists, false otherwise
      */
+    @AllShards(merge = AllShards.Merge.ANY)
     @Select("SELECT COUNT(*) > 0 FROM transactions " +
             "WHERE platform_transaction_id = #{platformTransactionId} AND deleted = 0")
     boolean existsByPlatformTransactionId(@Param("platformTransactionId") String platformTransactionId);
@@ -115,6 +208,7 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      * @param paymentMethod Payment method
      * @return Count of transactions
      */
+    @AllShards(merge = AllShards.Merge.SUM)
     @Select("SELECT COUNT(*) FROM transactions WHERE payment_method = #{paymentMethod} " +
             "AND deleted = 0")
     long countByPaymentMethod(@Param("paymentMethod") String paymentMethod);
@@ -135,7 +229,166 @@ public interface TransactionMapper extends BaseMapper<Transaction> {
      * @param olderThan Timestamp threshold
      * @return List of pending transactions
      */
+    @AllShards
     @Select("SELECT * FROM transactions WHERE verification_status = 'pending' " +
             "AND created_at < #{olderThan} AND deleted = 0 ORDER BY created_at ASC")
     List<Transaction> findPendingVerificationOlderThan(@Param("olderThan") LocalDateTime olderThan);
+
+    /**
+     * Find transactions for a user across the hot and archive tables
+     * 
+     * @param userId User ID
+     * @return List of transactions ordered by creation date (newest first)
+     */
+    @Select("(SELECT " + COLUMNS + " FROM transactions WHERE user_id = #{userId} AND deleted = 0) " +
+            "UNION ALL (SELECT " + COLUMNS + " FROM transactions_archive WHERE user_id = #{userId} AND deleted = 0) " +
+            "ORDER BY created_at DESC")
+    List<Transaction> findAllByUserIdWithArchive(@Param("userId") Long userId);
+
+    /**
+     * Find transactions within date range across the hot and archive tables
+     * 
+     * @param userId User ID
+     * @param startDate Start date
+     * @param endDate End date
+     * @return List of transactions
+     */
+    @Select("(SELECT " + COLUMNS + " FROM transactions WHERE user_id = #{userId} " +
+            "AND created_at BETWEEN #{startDate} AND #{endDate} AND deleted = 0) " +
+            "UNION ALL (SELECT " + COLUMNS + " FROM transactions_archive WHERE user_id = #{userId} " +
+            "AND created_at BETWEEN #{startDate} AND #{endDate} AND deleted = 0) " +
+            "ORDER BY created_at DESC")
+    List<Transaction> findByUserIdAndDateRangeWithArchive(@Param("userId") Long userId,
+                                                         @Param("startDate") LocalDateTime startDate,
+                                                         @Param("endDate") LocalDateTime endDate);
+
+    /**
+     * Find transactions by verification status across the hot and archive tables
+     * 
+     * @param verificationStatus Verification status (verified, failed)
+     * @return List of transactions
+     */
+    @AllShards
+    @Select("(SELECT " + COLUMNS + " FROM transactions WHERE verification_status = #{verificationStatus} " +
+            "AND deleted = 0) UNION ALL (SELECT " + COLUMNS + " FROM transactions_archive " +
+            "WHERE verification_status = #{verificationStatus} AND deleted = 0) ORDER BY created_at DESC")
+    List<Transaction> findByVerificationStatusWithArchive(@Param("verificationStatus") String verificationStatus);
+
+    /**
+     * Count archived transactions by payment method
+     * 
+     * @param paymentMethod Payment method
+     * @return Count of archived transactions
+     */
+    @AllShards(merge = AllShards.Merge.SUM)
+    @Select("SELECT COUNT(*) FROM transactions_archive WHERE payment_method = #{paymentMethod} " +
+            "AND deleted = 0")
+    long countArchivedByPaymentMethod(@Param("paymentMethod") String paymentMethod);
+
+    /**
+     * Find an archived transaction by platform transaction ID
+     * 
+     * @param platformTransactionId Transaction ID from payment platform
+     * @return Transaction if found, null otherwise
+     */
+    @AllShards
+    @Select("SELECT " + COLUMNS + " FROM transactions_archive " +
+            "WHERE platform_transaction_id = #{platformTransactionId} AND deleted = 0 LIMIT 1")
+    Transaction findArchivedByPlatformTransactionId(@Param("platformTransactionId") String platformTransactionId);
+
+    /**
+     * Find IDs of settled transactions older than the horizon, in primary key order
+     * Pending transactions stay in the hot table for the verification retry job.
+     * 
+     * @param afterId Only IDs greater than this
+     * @param horizon Transactions created before this time qualify
+     * @param limit Maximum number of IDs
+     * @return Archivable transaction IDs, ascending
+     */
+    @Select("SELECT id FROM transactions WHERE id > #{afterId} AND created_at < #{horizon} " +
+            "AND verification_status <> 'pending' ORDER BY id LIMIT #{limit}")
+    List<Long> findArchivableIds(@Param("afterId") long afterId,
+                                 @Param("horizon") LocalDateTime horizon,
+                                 @Param("limit") int limit);
+
+    /**
+     * Copy transactions into the archive table
+     * Re-checks the archival predicate so a row changed since it was selected stays hot.
+     * 
+     * @param ids Transaction IDs from findArchivableIds
+     * @param horizon Same horizon used to select the IDs
+     * @return Number of rows copied
+     */
+    @Insert("<script>INSERT INTO transactions_archive (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM transactions WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            " AND created_at &lt; #{horizon} AND verification_status &lt;&gt; 'pending'</script>")
+    int copyToArchive(@Param("ids") List<Long> ids, @Param("horizon") LocalDateTime horizon);
+
+    /**
+     * Physically delete hot rows that have been copied to the archive table
+     * 
+     * @param ids Transaction IDs passed to copyToArchive
+     * @return Number of rows deleted
+     */
+    @Delete("<script>DELETE t FROM transactions t JOIN transactions_archive a ON a.id = t.id WHERE t.id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteArchived(@Param("ids") List<Long> ids);
+
+    /**
+     * Find one page of a user's transaction summaries across the hot and archive tables
+     * Each tier is read as an idx_user_deleted_created range scan limited to the page size, so
+     * the cost of a page does not grow with the length of the history.
+     * 
+     * @param userId User ID
+     * @param cursorAt created_at of the last row of the previous page, or null for the first page
+     * @param cursorId ID of the last row of the previous page
+     * @param limit Maximum number of rows
+     * @return Summaries ordered by created_at, id descending
+     */
+    @Select("<script>(SELECT " + SUMMARY_COLUMNS + " FROM transactions WHERE user_id = #{userId} AND deleted = 0 " +
+            AFTER_CURSOR + "ORDER BY created_at DESC, id DESC LIMIT #{limit}) " +
+            "UNION ALL (SELECT " + SUMMARY_COLUMNS + " FROM transactions_archive WHERE user_id = #{userId} " +
+            "AND deleted = 0 " + AFTER_CURSOR + "ORDER BY created_at DESC, id DESC LIMIT #{limit}) " +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}</script>")
+    List<TransactionSummary> findSummaryPage(@Param("userId") Long userId,
+                                             @Param("cursorAt") LocalDateTime cursorAt,
+                                             @Param("cursorId") Long cursorId,
+                                             @Param("limit") int limit);
+
+    /**
+     * Stream transactions created within a time range for export, oldest first
+     * Integer.MIN_VALUE makes MySQL Connector/J stream rows instead of buffering the result.
+     * 
+     * @param from Start time (inclusive)
+     * @param to End time (exclusive)
+     * @param paymentMethod Payment method, or null for all
+     * @param handler Receives each row
+     */
+    @AllShards
+    @Select("<script>SELECT " + EXPORT_COLUMNS + " FROM transactions " + EXPORT_FILTER + "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Transaction.class)
+    void streamForExport(@Param("from") LocalDateTime from,
+                         @Param("to") LocalDateTime to,
+                         @Param("paymentMethod") String paymentMethod,
+                         ResultHandler<Transaction> handler);
+
+    /**
+     * Stream archived transactions created within a time range for export, oldest first
+     * 
+     * @param from Start time (inclusive)
+     * @param to End time (exclusive)
+     * @param paymentMethod Payment method, or null for all
+     * @param handler Receives each row
+     */
+    @AllShards
+    @Select("<script>SELECT " + EXPORT_COLUMNS + " FROM transactions_archive " + EXPORT_FILTER + "</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    @ResultType(Transaction.class)
+    void streamArchivedForExport(@Param("from") LocalDateTime from,
+                                 @Param("to") LocalDateTime to,
+                                 @Param("paymentMethod") String paymentMethod,
+                                 ResultHandler<Transaction> handler);
 }
@@ -0,0 +1,56 @@
+package com.lightgallery.backend.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.entity.UserIdentity;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+/**
+ * UserIdentityMapper
+ * MyBatis-Plus mapper for the OAuth identity directory on shard 0
+ */
+@Mapper
+public interface UserIdentityMapper extends BaseMapper<UserIdentity> {
+
+    /**
+     * Claim an identity for a user unless it is already claimed
+     *
+     * @param identity Identity and the user ID to claim it for
+     * @return 1 if claimed, 0 if the identity already belongs to a user
+     */
+    @Insert("INSERT IGNORE INTO user_identities (auth_provider, provider_user_id, user_id) " +
+            "VALUES (#{authProvider}, #{providerUserId}, #{userId})")
+    int insertIgnore(UserIdentity identity);
+
+    /**
+     * Find the user an identity belongs to
+     *
+     * @param authProvider OAuth provider
+     * @param providerUserId User ID from OAuth provider
+     * @return User ID, or null if the identity was never claimed
+     */
+    @Select("SELECT user_id FROM user_identities WHERE auth_provider = #{authProvider} " +
+            "AND provider_user_id = #{providerUserId}")
+    Long findUserId(@Param("authProvider") String authProvider,
+                    @Param("providerUserId") String providerUserId);
+
+    /**
+     * Point an identity at another user, if it still belongs to the expected one
+     *
+     * @param authProvider OAuth provider
+     * @param providerUserId User ID from OAuth provider
+     * @param expectedUserId User the identity is expected to belong to
+     * @param newUserId User to point it at
+     * @return 1 if updated, 0 if the identity belongs to someone else by now
+     */
+    @Update("UPDATE user_identities SET user_id = #{newUserId}, updated_at = NOW() " +
+            "WHERE auth_provider = #{authProvider} AND provider_user_id = #{providerUserId} " +
+            "AND user_id = #{expectedUserId}")
+    int reassign(@Param("authProvider") String authProvider,
+                 @Param("providerUserId") String providerUserId,
+                 @Param("expectedUserId") Long expectedUserId,
+                 @Param("newUserId") Long newUserId);
+}
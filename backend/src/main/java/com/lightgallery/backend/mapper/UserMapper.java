@@ -1,6 +1,8 @@
 package com.lightgallery.backend.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.lightgallery.backend.datasource.AllShards;
+import com.lightgallery.backend.datasource.ShardedByUser;
 import com.lightgallery.backend.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
@@ -15,6 +17,7 @@ import java.util.Optional;
  * MyBatis-Plus mapper for User entity with custom queries
  */
 @Mapper
+@ShardedByUser(property = "id", column = "id")
 public interface UserMapper extends BaseMapper<User> {
 
     /**
@@ -24,6 +27,7 @@ public interface UserMapper extends BaseMapper<User> {
      * @param providerUserId User ID from OAuth provider
      * @return User if found, null otherwise
      */
+    @AllShards
     @Select("SELECT * FROM users WHERE auth_provider = #{authProvider} " +
             "AND provider_user_id = #{providerUserId} AND deleted = 0")
     User findByProviderAndProviderId(@Param("authProvider") String authProvider,
@@ -35,6 +39,7 @@ public interface UserMapper extends BaseMapper<User> {
      * @param email User email address
      * @return User if found, null otherwise
      */
+    @AllShards
     @Select("SELECT * FROM users WHERE email = #{email} AND deleted = 0")
     User findByEmail(@Param("email") String email);
 
@@ -57,6 +62,7 @@ public interface UserMapper extends BaseMapper<User> {
      * @param providerUserId User ID from OAuth provider
      * @return true if user exists, false otherwise
      */
+    @AllShards(merge = AllShards.Merge.ANY)
     @Select("SELECT COUNT(*) > 0 FROM users WHERE auth_provider = #{authProvider} " +
             "AND provider_user_id = #{providerUserId} AND deleted = 0")
     boolean existsByProviderAndProviderId(@Param("authProvider") String authProvider,
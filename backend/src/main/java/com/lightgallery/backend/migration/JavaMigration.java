@@ -0,0 +1,29 @@
+package com.lightgallery.backend.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Java Migration
+ * Versioned migration implemented in code, for data changes SQL cannot express. Ordered with the
+ * SQL scripts by version and recorded in the history with type JAVA and no checksum.
+ */
+public interface JavaMigration {
+
+    /**
+     * Version, sharing one sequence with the SQL scripts
+     */
+    int version();
+
+    /**
+     * Description recorded in the history
+     */
+    String description();
+
+    /**
+     * Apply the migration
+     *
+     * @param connection Connection to the database being migrated, in auto-commit mode
+     */
+    void migrate(Connection connection) throws SQLException;
+}
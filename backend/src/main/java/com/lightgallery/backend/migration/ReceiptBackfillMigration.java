@@ -0,0 +1,116 @@
+package com.lightgallery.backend.migration;
+
+import com.lightgallery.backend.service.ReceiptStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Receipt Backfill Migration
+ * Moves transactions.receipt_data into the content-addressed receipt store: every receipt is
+ * hashed and compressed exactly as ReceiptStore does, inserted into receipts unless its hash is
+ * already there, and the transaction's receipt_hash is set. Rows are processed in id order and
+ * committed per chunk; only once every row has its hash is receipt_data dropped.
+ *
+ * Rows that already have a hash are skipped, so a run interrupted part-way resumes where it
+ * stopped. Empty receipts get no hash, as ReceiptStore stores nothing for them.
+ */
+@Slf4j
+public class ReceiptBackfillMigration implements JavaMigration {
+
+    static final int CHUNK_SIZE = 500;
+
+    private static final String SELECT_CHUNK = "SELECT id, receipt_data FROM transactions " +
+            "WHERE id > ? AND receipt_data IS NOT NULL AND receipt_hash IS NULL ORDER BY id LIMIT " + CHUNK_SIZE;
+    private static final String INSERT_RECEIPT = "INSERT IGNORE INTO receipts " +
+            "(receipt_hash, payload, original_size, compressed_size) VALUES (?, ?, ?, ?)";
+    private static final String SET_HASH = "UPDATE transactions SET receipt_hash = ? WHERE id = ?";
+
+    @Override
+    public int version() {
+        return 6;
+    }
+
+    @Override
+    public String description() {
+        return "receipt backfill";
+    }
+
+    @Override
+    public void migrate(Connection connection) throws SQLException {
+        if (!hasReceiptData(connection)) {
+            log.info("transactions.receipt_data already dropped, nothing to backfill");
+            return;
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        long moved = 0;
+        try (PreparedStatement select = connection.prepareStatement(SELECT_CHUNK);
+             PreparedStatement insertReceipt = connection.prepareStatement(INSERT_RECEIPT);
+             PreparedStatement setHash = connection.prepareStatement(SET_HASH)) {
+            long lastId = 0;
+            int rows;
+            do {
+                rows = 0;
+                select.setLong(1, lastId);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        rows++;
+                        String receiptData = rs.getString(2);
+                        if (receiptData.isEmpty()) {
+                            continue;
+                        }
+                        byte[] raw = receiptData.getBytes(StandardCharsets.UTF_8);
+                        String hash = ReceiptStore.hash(raw);
+                        byte[] compressed = ReceiptStore.compress(raw);
+                        insertReceipt.setString(1, hash);
+                        insertReceipt.setBytes(2, compressed);
+                        insertReceipt.setInt(3, raw.length);
+                        insertReceipt.setInt(4, compressed.length);
+                        insertReceipt.addBatch();
+                        setHash.setString(1, hash);
+                        setHash.setLong(2, lastId);
+                        setHash.addBatch();
+                        moved++;
+                    }
+                }
+                // Receipts first, so no committed transaction row points at a missing receipt
+                insertReceipt.executeBatch();
+                setHash.executeBatch();
+                connection.commit();
+            } while (rows == CHUNK_SIZE);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        log.info("Moved {} receipts from transactions.receipt_data into receipts", moved);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE transactions DROP COLUMN receipt_data");
+        }
+    }
+
+    private boolean hasReceiptData(Connection connection) throws SQLException {
+        for (String table : List.of("transactions", "TRANSACTIONS")) {
+            for (String column : List.of("receipt_data", "RECEIPT_DATA")) {
+                try (ResultSet rs = connection.getMetaData().getColumns(connection.getCatalog(),
+                        connection.getSchema(), table, column)) {
+                    if (rs.next()) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,305 @@
+package com.lightgallery.backend.migration;
+
+import com.lightgallery.backend.datasource.ShardRoutingDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Schema Migrator
+ * Applies versioned SQL migrations ({@code V<version>__<description>.sql}) in version order at
+ * startup and records each one in {@code schema_version} with a CRC32 of its script. A migration
+ * that was already applied but whose script has since changed fails startup. Data migrations
+ * SQL cannot express are {@link JavaMigration}s listed in {@link #shippedJavaMigrations()} and
+ * run in the same version sequence.
+ *
+ * A database that already has tables but no history (one created from schema.sql before
+ * migrations existed) is recorded as a baseline at {@code db.migration.baseline-version}
+ * without running anything; schema.sql itself records a baseline of the latest version.
+ * On MySQL a named lock keeps concurrently starting instances from migrating twice. Migrations
+ * always run on the primary pool, never through read/write routing, and on every shard in turn.
+ */
+@Slf4j
+@Component
+public class SchemaMigrator implements InitializingBean {
+
+    static final String HISTORY_TABLE = "schema_version";
+
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final String LOCK_NAME = "lightgallery_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+    private static final String TYPE_SQL = "SQL";
+    private static final String TYPE_JAVA = "JAVA";
+    private static final String TYPE_BASELINE = "BASELINE";
+
+    private final List<DataSource> dataSources;
+    private final List<JavaMigration> javaMigrations;
+    private final boolean enabled;
+    private final String location;
+    private final int baselineVersion;
+
+    @Autowired
+    public SchemaMigrator(ShardRoutingDataSource shards,
+                          @Value("${db.migration.enabled:true}") boolean enabled,
+                          @Value("${db.migration.location:classpath:db/migration}") String location,
+                          @Value("${db.migration.baseline-version:1}") int baselineVersion) {
+        this(shards.primaries(), shippedJavaMigrations(), enabled, location, baselineVersion);
+    }
+
+    public SchemaMigrator(DataSource dataSource, boolean enabled, String location, int baselineVersion) {
+        this(List.of(dataSource), List.of(), enabled, location, baselineVersion);
+    }
+
+    public SchemaMigrator(DataSource dataSource, List<JavaMigration> javaMigrations, boolean enabled,
+                          String location, int baselineVersion) {
+        this(List.of(dataSource), javaMigrations, enabled, location, baselineVersion);
+    }
+
+    private SchemaMigrator(List<DataSource> dataSources, List<JavaMigration> javaMigrations, boolean enabled,
+                           String location, int baselineVersion) {
+        this.dataSources = dataSources;
+        this.javaMigrations = javaMigrations;
+        this.enabled = enabled;
+        this.location = location;
+        this.baselineVersion = baselineVersion;
+    }
+
+    /**
+     * Java migrations that ship with the application, next to the scripts in db/migration
+     */
+    public static List<JavaMigration> shippedJavaMigrations() {
+        return List.of(new ReceiptBackfillMigration());
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        if (enabled) {
+            migrate();
+        }
+    }
+
+    /**
+     * Apply pending migrations
+     *
+     * @return Number of migrations applied, summed over shards
+     */
+    public int migrate() throws IOException, SQLException {
+        List<Migration> migrations = loadMigrations();
+        int applied = 0;
+        for (DataSource dataSource : dataSources) {
+            applied += migrate(dataSource, migrations);
+        }
+        return applied;
+    }
+
+    private int migrate(DataSource dataSource, List<Migration> migrations) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean mysql = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("mysql");
+            if (mysql) {
+                acquireLock(connection);
+            }
+            try {
+                return migrate(connection, migrations);
+            } finally {
+                if (mysql) {
+                    releaseLock(connection);
+                }
+            }
+        }
+    }
+
+    private int migrate(Connection connection, List<Migration> migrations) throws SQLException {
+        if (!historyTableExists(connection)) {
+            boolean existingSchema = hasTables(connection);
+            createHistoryTable(connection);
+            if (existingSchema) {
+                record(connection, baselineVersion, "<< Baseline >>", TYPE_BASELINE, null, 0);
+                log.info("Baselined existing schema at version {}", baselineVersion);
+            }
+        }
+
+        Map<Integer, Long> appliedChecksums = new HashMap<>();
+        int baseline = 0;
+        int current = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT version, type, checksum FROM " + HISTORY_TABLE)) {
+            while (rs.next()) {
+                int version = rs.getInt(1);
+                if (TYPE_BASELINE.equals(rs.getString(2))) {
+                    baseline = Math.max(baseline, version);
+                } else {
+                    long checksum = rs.getLong(3);
+                    appliedChecksums.put(version, rs.wasNull() ? null : checksum);
+                }
+                current = Math.max(current, version);
+            }
+        }
+
+        for (Migration migration : migrations) {
+            Long checksum = appliedChecksums.get(migration.version());
+            if (checksum != null && migration.checksum() != null && !checksum.equals(migration.checksum())) {
+                throw new IllegalStateException("Migration V" + migration.version()
+                        + " was changed after it was applied (checksum " + checksum + " != "
+                        + migration.checksum() + ")");
+            }
+        }
+
+        int applied = 0;
+        for (Migration migration : migrations) {
+            if (migration.version() <= baseline || appliedChecksums.containsKey(migration.version())) {
+                continue;
+            }
+            if (migration.version() < current) {
+                throw new IllegalStateException("Migration V" + migration.version()
+                        + " is older than the current schema version " + current);
+            }
+            log.info("Applying schema migration V{} ({})", migration.version(), migration.description());
+            long start = System.nanoTime();
+            if (migration.java() != null) {
+                migration.java().migrate(connection);
+            } else {
+                ScriptUtils.executeSqlScript(connection,
+                        new EncodedResource(migration.resource(), StandardCharsets.UTF_8));
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            record(connection, migration.version(), migration.description(),
+                    migration.java() != null ? TYPE_JAVA : TYPE_SQL, migration.checksum(), elapsedMs);
+            current = migration.version();
+            applied++;
+        }
+
+        if (applied > 0) {
+            log.info("Applied {} schema migrations, schema is at version {}", applied, current);
+        }
+        return applied;
+    }
+
+    /**
+     * Migration scripts at the configured location and Java migrations, in version order
+     */
+    List<Migration> loadMigrations() throws IOException {
+        Resource[] resources = new PathMatchingResourcePatternResolver()
+                .getResources(location + "/V*__*.sql");
+        List<Migration> migrations = new ArrayList<>();
+        for (Resource resource : resources) {
+            Matcher matcher = FILE_NAME.matcher(resource.getFilename() != null ? resource.getFilename() : "");
+            if (!matcher.matches()) {
+                throw new IllegalStateException("Invalid migration file name: " + resource.getFilename());
+            }
+            String script = resource.getContentAsString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+            CRC32 crc = new CRC32();
+            crc.update(script.getBytes(StandardCharsets.UTF_8));
+            migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                    matcher.group(2).replace('_', ' '), resource, crc.getValue(), null));
+        }
+        for (JavaMigration java : javaMigrations) {
+            migrations.add(new Migration(java.version(), java.description(), null, null, java));
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version() == migrations.get(i - 1).version()) {
+                throw new IllegalStateException("Duplicate migration version V" + migrations.get(i).version());
+            }
+        }
+        return migrations;
+    }
+
+    private boolean historyTableExists(Connection connection) throws SQLException {
+        for (String name : List.of(HISTORY_TABLE, HISTORY_TABLE.toUpperCase())) {
+            try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), connection.getSchema(),
+                    name, new String[]{"TABLE"})) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean hasTables(Connection connection) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), connection.getSchema(),
+                "%", new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+                    + "version INT NOT NULL PRIMARY KEY, "
+                    + "description VARCHAR(200) NOT NULL, "
+                    + "type VARCHAR(20) NOT NULL, "
+                    + "checksum BIGINT, "
+                    + "installed_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                    + "execution_ms BIGINT NOT NULL DEFAULT 0)");
+        }
+    }
+
+    private void record(Connection connection, int version, String description, String type,
+                        Long checksum, long executionMs) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + HISTORY_TABLE
+                + " (version, description, type, checksum, execution_ms) VALUES (?, ?, ?, ?, ?)")) {
+            statement.setInt(1, version);
+            statement.setString(2, description);
+            statement.setString(3, type);
+            if (checksum != null) {
+                statement.setLong(4, checksum);
+            } else {
+                statement.setNull(4, Types.BIGINT);
+            }
+            statement.setLong(5, executionMs);
+            statement.executeUpdate();
+        }
+    }
+
+    private void acquireLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new IllegalStateException("Timed out waiting for the schema migration lock");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            log.warn("Failed to release schema migration lock: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Migration script found on the classpath, or a Java migration (no resource and no checksum)
+     */
+    record Migration(int version, String description, Resource resource, Long checksum, JavaMigration java) {
+    }
+}
@@ -0,0 +1,163 @@
+package com.lightgallery.backend.perf;
+
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded Schema Translator
+ * Turns schema.sql into statements H2 accepts in MySQL compatibility mode, so the embedded
+ * database always has the same tables, columns and indexes as MySQL without a second schema
+ * file to keep in step.
+ *
+ * Translation drops what H2 has no equivalent for or does not need: table options (engine,
+ * charset, row format, table comment), partitioning, column comments and index prefix lengths.
+ * JSON columns become TEXT so values read back exactly as written, and index names are prefixed
+ * with their table because H2 index names are unique per schema rather than per table. Only the
+ * DROP and CREATE statements and the schema_version baseline are kept; sample rows are left to
+ * the data generator.
+ *
+ * Secondary indexes and foreign keys come out as separate statements to run after bulk loading:
+ * building an index over loaded rows is much cheaper than maintaining it row by row. Primary and
+ * unique keys stay in the table definitions so loaded data is still checked against them.
+ */
+public final class EmbeddedSchemaTranslator {
+
+    private static final Pattern CREATE_TABLE = Pattern.compile("^CREATE TABLE\\s+(\\w+)\\s*\\(",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern COLUMN_COMMENT = Pattern.compile("\\s+COMMENT\\s+'(?:[^']|'')*'",
+            Pattern.CASE_INSENSITIVE);
+    private static final Pattern JSON_TYPE = Pattern.compile("\\bJSON\\b", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INDEX_DEFINITION = Pattern.compile(
+            "^(UNIQUE\\s+KEY|UNIQUE\\s+INDEX|INDEX|KEY)\\s+(\\w+)\\s*\\((.*)\\)$", Pattern.CASE_INSENSITIVE);
+    private static final Pattern FOREIGN_KEY = Pattern.compile("^FOREIGN\\s+KEY\\b.*", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PREFIX_LENGTH = Pattern.compile("(\\w+)\\s*\\(\\d+\\)");
+
+    private EmbeddedSchemaTranslator() {
+    }
+
+    /**
+     * Translate a MySQL schema script
+     *
+     * @param script Contents of schema.sql
+     * @return Table statements and the index statements to run after loading
+     */
+    public static EmbeddedSchema translate(String script) {
+        List<String> statements = new ArrayList<>();
+        ScriptUtils.splitSqlScript(script, ";", statements);
+
+        List<String> tables = new ArrayList<>();
+        List<String> indexes = new ArrayList<>();
+        List<String> foreignKeys = new ArrayList<>();
+        for (String statement : statements) {
+            String sql = statement.trim();
+            String upper = sql.toUpperCase(Locale.ROOT);
+            if (upper.startsWith("DROP TABLE")) {
+                tables.add(sql);
+            } else if (upper.startsWith("CREATE TABLE")) {
+                tables.add(translateCreateTable(sql, indexes, foreignKeys));
+            } else if (upper.startsWith("INSERT INTO SCHEMA_VERSION")) {
+                tables.add(sql);
+            }
+        }
+        // Foreign keys last so H2 finds the secondary index for each instead of creating its own
+        indexes.addAll(foreignKeys);
+        return new EmbeddedSchema(tables, indexes);
+    }
+
+    private static String translateCreateTable(String sql, List<String> indexes, List<String> foreignKeys) {
+        Matcher matcher = CREATE_TABLE.matcher(sql);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Unrecognized CREATE TABLE statement: " + sql);
+        }
+        String table = matcher.group(1);
+        int open = matcher.end() - 1;
+        int close = matchingParenthesis(sql, open);
+
+        List<String> definitions = new ArrayList<>();
+        for (String definition : splitDefinitions(sql.substring(open + 1, close))) {
+            String translated = COLUMN_COMMENT.matcher(definition).replaceAll("");
+            Matcher index = INDEX_DEFINITION.matcher(translated);
+            if (index.matches()) {
+                String name = table + "_" + index.group(2);
+                String columns = PREFIX_LENGTH.matcher(index.group(3)).replaceAll("$1");
+                if (index.group(1).toUpperCase(Locale.ROOT).startsWith("UNIQUE")) {
+                    definitions.add(index.group(1) + " " + name + " (" + columns + ")");
+                } else {
+                    indexes.add("CREATE INDEX " + name + " ON " + table + " (" + columns + ")");
+                }
+            } else if (FOREIGN_KEY.matcher(translated).matches()) {
+                foreignKeys.add("ALTER TABLE " + table + " ADD " + translated);
+            } else {
+                definitions.add(JSON_TYPE.matcher(translated).replaceAll("TEXT"));
+            }
+        }
+        return "CREATE TABLE " + table + " (\n    " + String.join(",\n    ", definitions) + "\n)";
+    }
+
+    /**
+     * Split a column list on top-level commas
+     */
+    private static List<String> splitDefinitions(String body) {
+        List<String> definitions = new ArrayList<>();
+        int depth = 0;
+        boolean quoted = false;
+        int start = 0;
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')') {
+                depth--;
+            } else if (!quoted && depth == 0 && c == ',') {
+                definitions.add(body.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        String last = body.substring(start).trim();
+        if (!last.isEmpty()) {
+            definitions.add(last);
+        }
+        return definitions;
+    }
+
+    private static int matchingParenthesis(String sql, int open) {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = open; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unbalanced parentheses in: " + sql);
+    }
+
+    /**
+     * Translated schema
+     *
+     * @param tables DROP and CREATE TABLE statements and the schema_version baseline
+     * @param indexes Secondary indexes, then foreign keys
+     */
+    public record EmbeddedSchema(List<String> tables, List<String> indexes) {
+
+        /**
+         * Every statement, for creating an empty schema
+         */
+        public List<String> statements() {
+            List<String> statements = new ArrayList<>(tables);
+            statements.addAll(indexes);
+            return statements;
+        }
+    }
+}
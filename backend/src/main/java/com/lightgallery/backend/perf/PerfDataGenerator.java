@@ -0,0 +1,262 @@
+package com.lightgallery.backend.perf;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Perf Data Generator
+ * Seeds users, one subscription per user and a transaction history per user through batched
+ * JDBC inserts, committing once per batch. The tables must be empty: AUTO_INCREMENT then hands
+ * out IDs 1..n in insert order, so subscriptions and transactions can reference their user
+ * without reading keys back (explicit IDs would make H2 rewrite the identity sequence on every
+ * row). A fixed random seed makes every run produce the same data set.
+ *
+ * Transactions are spread over the configured history. Settled ones older than the archive
+ * horizon are then moved to {@code transactions_archive} with one INSERT...SELECT and DELETE,
+ * leaving the tiers as TransactionArchiveService would have. Works against H2 in MySQL mode and
+ * against MySQL (add {@code rewriteBatchedStatements=true}).
+ */
+@Slf4j
+public class PerfDataGenerator {
+
+    private static final String[] PROVIDERS = {"apple", "wechat", "alipay"};
+    private static final String[] TIERS = {"free", "pro", "max"};
+    private static final String[] BILLING_PERIODS = {"monthly", "yearly"};
+    private static final String[] PAYMENT_METHODS = {"apple_iap", "wechat_pay", "alipay"};
+    private static final String[] TRANSACTION_TYPES = {"purchase", "renewal", "renewal", "renewal", "upgrade", "refund"};
+
+    private static final String INSERT_USER = "INSERT INTO users " +
+            "(display_name, email, auth_provider, provider_user_id, last_login_at, created_at, updated_at, deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_SUBSCRIPTION = "INSERT INTO subscriptions " +
+            "(user_id, tier, billing_period, status, payment_method, start_date, expiry_date, auto_renew, " +
+            "product_id, original_transaction_id, version, created_at, updated_at, deleted) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, 0)";
+    private static final String INSERT_TRANSACTION = "INSERT INTO transactions " +
+            "(user_id, subscription_id, transaction_type, payment_method, amount, currency, platform_transaction_id, " +
+            "verification_status, tier, billing_period, created_at, updated_at, deleted) " +
+            "VALUES (?, ?, ?, ?, ?, 'CNY', ?, ?, ?, ?, ?, ?, 0)";
+    private static final String ARCHIVE_COLUMNS = "id, user_id, subscription_id, transaction_type, payment_method, " +
+            "amount, currency, platform_transaction_id, receipt_hash, verification_status, verification_message, " +
+            "tier, billing_period, metadata, created_at, updated_at, deleted";
+    private static final String SETTLED_BEFORE = " FROM transactions " +
+            "WHERE created_at < ? AND verification_status IN ('verified', 'failed')";
+    private static final String ARCHIVE_TRANSACTIONS = "INSERT INTO transactions_archive (" + ARCHIVE_COLUMNS +
+            ", archived_at) SELECT " + ARCHIVE_COLUMNS + ", ?" + SETTLED_BEFORE;
+    private static final String DELETE_ARCHIVED = "DELETE" + SETTLED_BEFORE;
+
+    private final DataSource dataSource;
+    private final Clock clock;
+    private final int batchSize;
+    private final Duration history;
+    private final Duration archiveHorizon;
+
+    public PerfDataGenerator(DataSource dataSource, Clock clock, int batchSize,
+                             Duration history, Duration archiveHorizon) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be at least 1");
+        }
+        this.dataSource = dataSource;
+        this.clock = clock;
+        this.batchSize = batchSize;
+        this.history = history;
+        this.archiveHorizon = archiveHorizon;
+    }
+
+    /**
+     * Seed the database
+     *
+     * @param users Number of users (each gets one subscription)
+     * @param transactionsPerUser Transactions generated for every user
+     * @param seed Random seed
+     * @return Rows written per table
+     */
+    public SeedResult seed(int users, int transactionsPerUser, long seed) throws SQLException {
+        Random random = new Random(seed);
+        LocalDateTime now = LocalDateTime.now(clock).withNano(0);
+        long historySeconds = Math.max(1, history.toSeconds());
+        long start = System.nanoTime();
+
+        long transactions = 0;
+        long archived;
+        try (Connection connection = dataSource.getConnection()) {
+            if (hasUsers(connection)) {
+                throw new IllegalStateException("PerfDataGenerator needs empty tables");
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement insertUser = connection.prepareStatement(INSERT_USER);
+                 PreparedStatement insertSubscription = connection.prepareStatement(INSERT_SUBSCRIPTION);
+                 PreparedStatement insertTransaction = connection.prepareStatement(INSERT_TRANSACTION)) {
+                int pending = 0;
+                for (long userId = 1; userId <= users; userId++) {
+                    LocalDateTime createdAt = now.minusSeconds(random.nextLong(historySeconds));
+                    String tier = TIERS[random.nextInt(TIERS.length)];
+                    String billingPeriod = BILLING_PERIODS[random.nextInt(BILLING_PERIODS.length)];
+                    String paymentMethod = PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)];
+
+                    addUser(insertUser, userId, createdAt, now, random);
+                    addSubscription(insertSubscription, userId, tier, billingPeriod, paymentMethod, createdAt, now, random);
+                    pending += 2;
+
+                    long ageLimit = Math.max(1, Duration.between(createdAt, now).toSeconds());
+                    for (int i = 0; i < transactionsPerUser; i++) {
+                        transactions++;
+                        LocalDateTime occurredAt = now.minusSeconds(random.nextLong(ageLimit));
+                        addTransaction(insertTransaction, transactions, userId, tier, billingPeriod, paymentMethod,
+                                occurredAt, now, random);
+                        pending++;
+                    }
+
+                    if (pending >= batchSize) {
+                        flush(connection, insertUser, insertSubscription, insertTransaction);
+                        pending = 0;
+                    }
+                    if (userId % 100_000 == 0) {
+                        log.info("Seeded {} of {} users", userId, users);
+                    }
+                }
+                flush(connection, insertUser, insertSubscription, insertTransaction);
+                archived = archive(connection, now);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+
+        SeedResult result = new SeedResult(users, users, transactions - archived, archived,
+                Duration.ofNanos(System.nanoTime() - start));
+        log.info("Seeded {} users, {} subscriptions, {} transactions and {} archived transactions in {} ms ({} rows/s)",
+                result.users(), result.subscriptions(), result.transactions(), result.archivedTransactions(),
+                result.elapsed().toMillis(), Math.round(result.rowsPerSecond()));
+        return result;
+    }
+
+    private void addUser(PreparedStatement statement, long userId, LocalDateTime createdAt,
+                         LocalDateTime now, Random random) throws SQLException {
+        String provider = PROVIDERS[random.nextInt(PROVIDERS.length)];
+        statement.setString(1, "Perf User " + userId);
+        statement.setString(2, "perf" + userId + "@example.com");
+        statement.setString(3, provider);
+        statement.setString(4, provider + "_perf_" + userId);
+        statement.setTimestamp(5, Timestamp.valueOf(now.minusMinutes(random.nextInt(60 * 24 * 30))));
+        statement.setTimestamp(6, Timestamp.valueOf(createdAt));
+        statement.setTimestamp(7, Timestamp.valueOf(createdAt));
+        statement.addBatch();
+    }
+
+    private void addSubscription(PreparedStatement statement, long userId, String tier, String billingPeriod,
+                                 String paymentMethod, LocalDateTime createdAt, LocalDateTime now,
+                                 Random random) throws SQLException {
+        // About one in ten paid subscriptions has lapsed
+        boolean free = "free".equals(tier);
+        boolean expired = !free && random.nextInt(10) == 0;
+        LocalDateTime expiry = expired
+                ? now.minusDays(1 + random.nextInt(90))
+                : now.plusDays(1 + random.nextInt("yearly".equals(billingPeriod) ? 365 : 30));
+        statement.setLong(1, userId);
+        statement.setString(2, tier);
+        statement.setString(3, billingPeriod);
+        statement.setString(4, expired ? "expired" : "active");
+        statement.setString(5, paymentMethod);
+        statement.setTimestamp(6, Timestamp.valueOf(createdAt));
+        statement.setTimestamp(7, Timestamp.valueOf(expiry));
+        statement.setInt(8, expired ? 0 : 1);
+        statement.setString(9, free ? null : "com.lightgallery." + tier + "." + billingPeriod);
+        statement.setString(10, free ? null : "perf-otx-" + userId);
+        statement.setTimestamp(11, Timestamp.valueOf(createdAt));
+        statement.setTimestamp(12, Timestamp.valueOf(createdAt));
+        statement.addBatch();
+    }
+
+    private void addTransaction(PreparedStatement statement, long transactionId, long userId, String tier,
+                                String billingPeriod, String paymentMethod, LocalDateTime occurredAt,
+                                LocalDateTime now, Random random) throws SQLException {
+        String type = TRANSACTION_TYPES[random.nextInt(TRANSACTION_TYPES.length)];
+        // Only the last day's transactions may still be awaiting verification
+        boolean recent = occurredAt.isAfter(now.minusDays(1));
+        String status = recent && random.nextInt(5) == 0 ? "pending"
+                : random.nextInt(20) == 0 ? "failed" : "verified";
+        statement.setLong(1, userId);
+        statement.setLong(2, userId);
+        statement.setString(3, type);
+        statement.setString(4, paymentMethod);
+        statement.setBigDecimal(5, BigDecimal.valueOf(600 + random.nextInt(29400), 2));
+        statement.setString(6, "perf-tx-" + transactionId);
+        statement.setString(7, status);
+        statement.setString(8, tier);
+        statement.setString(9, billingPeriod);
+        statement.setTimestamp(10, Timestamp.valueOf(occurredAt));
+        statement.setTimestamp(11, Timestamp.valueOf(occurredAt));
+        statement.addBatch();
+    }
+
+    /**
+     * Execute the pending batches parents first, then commit
+     */
+    private void flush(Connection connection, PreparedStatement... statements) throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
+        }
+        connection.commit();
+    }
+
+    /**
+     * Move settled transactions older than the horizon to the archive in one database transaction
+     *
+     * @return Rows moved
+     */
+    private long archive(Connection connection, LocalDateTime now) throws SQLException {
+        Timestamp horizon = Timestamp.valueOf(now.minus(archiveHorizon));
+        long moved;
+        try (PreparedStatement copy = connection.prepareStatement(ARCHIVE_TRANSACTIONS);
+             PreparedStatement delete = connection.prepareStatement(DELETE_ARCHIVED)) {
+            copy.setTimestamp(1, Timestamp.valueOf(now));
+            copy.setTimestamp(2, horizon);
+            moved = copy.executeUpdate();
+            delete.setTimestamp(1, horizon);
+            if (delete.executeUpdate() != moved) {
+                throw new SQLException("Archived and deleted row counts differ");
+            }
+        }
+        connection.commit();
+        return moved;
+    }
+
+    private boolean hasUsers(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT 1 FROM users LIMIT 1")) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Rows written by one seed run
+     */
+    public record SeedResult(long users, long subscriptions, long transactions, long archivedTransactions,
+                             Duration elapsed) {
+
+        public long rows() {
+            return users + subscriptions + transactions + archivedTransactions;
+        }
+
+        public double rowsPerSecond() {
+            double seconds = elapsed.toNanos() / 1_000_000_000.0;
+            return seconds > 0 ? rows() / seconds : 0;
+        }
+    }
+}
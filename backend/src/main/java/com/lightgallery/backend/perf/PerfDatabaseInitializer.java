@@ -0,0 +1,109 @@
+package com.lightgallery.backend.perf;
+
+import com.lightgallery.backend.perf.EmbeddedSchemaTranslator.EmbeddedSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Perf Database Initializer
+ * Builds the embedded database of the {@code perf} profile at startup: creates the tables from
+ * schema.sql through {@link EmbeddedSchemaTranslator}, seeds them with {@link PerfDataGenerator}
+ * and only then adds the secondary indexes and foreign keys. A file-backed database that already
+ * holds users is reused as it is, so large data sets only have to be generated once.
+ *
+ * Runs on the primary pool and only against H2, since creating the schema drops every table.
+ */
+@Slf4j
+@Component
+@Profile("perf")
+public class PerfDatabaseInitializer implements InitializingBean {
+
+    private final DataSource dataSource;
+    private final boolean seedEnabled;
+    private final int users;
+    private final int transactionsPerUser;
+    private final int batchSize;
+    private final long randomSeed;
+    private final Duration history;
+    private final Duration archiveHorizon;
+
+    public PerfDatabaseInitializer(@Qualifier("primaryDataSource") DataSource dataSource,
+                                   @Value("${perf.seed.enabled:true}") boolean seedEnabled,
+                                   @Value("${perf.seed.users:100000}") int users,
+                                   @Value("${perf.seed.transactions-per-user:10}") int transactionsPerUser,
+                                   @Value("${perf.seed.batch-size:5000}") int batchSize,
+                                   @Value("${perf.seed.random-seed:42}") long randomSeed,
+                                   @Value("${perf.seed.history:730d}") Duration history,
+                                   @Value("${transactions.archive.horizon:365d}") Duration archiveHorizon) {
+        this.dataSource = dataSource;
+        this.seedEnabled = seedEnabled;
+        this.users = users;
+        this.transactionsPerUser = transactionsPerUser;
+        this.batchSize = batchSize;
+        this.randomSeed = randomSeed;
+        this.history = history;
+        this.archiveHorizon = archiveHorizon;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            String product = connection.getMetaData().getDatabaseProductName();
+            if (!product.toLowerCase(Locale.ROOT).contains("h2")) {
+                throw new IllegalStateException("The perf profile only initializes an embedded H2 database, not "
+                        + product);
+            }
+            if (userCount(connection) > 0) {
+                log.info("Reusing existing perf database");
+                return;
+            }
+        }
+
+        String script = new ClassPathResource("schema.sql").getContentAsString(StandardCharsets.UTF_8);
+        EmbeddedSchema schema = EmbeddedSchemaTranslator.translate(script);
+        execute(schema.tables());
+        if (seedEnabled) {
+            new PerfDataGenerator(dataSource, Clock.systemDefaultZone(), batchSize, history, archiveHorizon)
+                    .seed(users, transactionsPerUser, randomSeed);
+        }
+        long start = System.nanoTime();
+        execute(schema.indexes());
+        log.info("Created perf indexes and foreign keys in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void execute(List<String> statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Users in an existing database, or 0 when the schema has not been created yet
+     */
+    private long userCount(Connection connection) {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM users")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            return 0;
+        }
+    }
+}
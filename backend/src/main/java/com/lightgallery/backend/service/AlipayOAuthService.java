@@ -1,5 +1,7 @@
 package com.lightgallery.backend.service;
 
+import com.lightgallery.backend.exception.ProviderUnavailableException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
@@ -17,7 +19,8 @@ import java.util.Map;
  */
 @Slf4j
 @Service
-public class AlipayOAuthService {
+@RequiredArgsConstructor
+public class AlipayOAuthService implements OAuthProvider {
 
     @Value("${oauth.alipay.app-id}")
     private String appId;
@@ -28,7 +31,13 @@ public class AlipayOAuthService {
     @Value("${oauth.alipay.public-key}")
     private String publicKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final ProviderCallGuard providerCallGuard;
+
+    @Override
+    public String getName() {
+        return "alipay";
+    }
 
     /**
      * Validate Alipay OAuth token
@@ -38,6 +47,7 @@ public class AlipayOAuthService {
      * @param providerUserId Expected user ID from Alipay
      * @return true if token is valid, false otherwise
      */
+    @Override
     public boolean validateToken(String code, String providerUserId) {
         log.info("Validating Alipay OAuth token");
 
@@ -56,12 +66,8 @@ public class AlipayOAuthService {
             // 2. Verify the response signature with Alipay's public key
             // 3. Use the official Alipay SDK for proper implementation
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    null,
-                    Map.class
-            );
+            ResponseEntity<Map> response = providerCallGuard.call(ProviderCallGuard.ALIPAY_OAUTH,
+                    () -> restTemplate.exchange(url, HttpMethod.POST, null, Map.class));
 
             Map<String, Object> body = response.getBody();
             if (body == null) {
@@ -86,6 +92,8 @@ public class AlipayOAuthService {
             log.info("Alipay OAuth token validated successfully");
             return true;
 
+        } catch (ProviderUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Alipay OAuth validation error: {}", e.getMessage(), e);
             return false;
@@ -106,12 +114,8 @@ public class AlipayOAuthService {
             );
 
             // Note: In production, you need to sign this request properly
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    null,
-                    Map.class
-            );
+            ResponseEntity<Map> response = providerCallGuard.call(ProviderCallGuard.ALIPAY_OAUTH,
+                    () -> restTemplate.exchange(url, HttpMethod.POST, null, Map.class));
 
             return response.getBody();
 
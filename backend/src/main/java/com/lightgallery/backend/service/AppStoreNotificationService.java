@@ -0,0 +1,424 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.entity.AppStoreNotification;
+import com.lightgallery.backend.entity.Subscription;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import com.lightgallery.backend.mapper.AppStoreNotificationMapper;
+import com.lightgallery.backend.mapper.SubscriptionMapper;
+import com.lightgallery.backend.util.AppleJwsVerifier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * App Store Notification Service
+ * Ingests App Store Server Notifications V2 into an inbox table and applies them to
+ * subscriptions and transactions in batches grouped by original transaction ID.
+ *
+ * Ingestion only verifies the JWS locally and performs a single INSERT IGNORE keyed by the
+ * notification UUID, so Apple retries and duplicate deliveries are dropped at the database.
+ *
+ * The inbox lives on shard 0 and subscriptions on their user's shard, so a batch is applied one
+ * shard at a time: each shard's subscriptions and transactions are written in one transaction on
+ * that shard. Notifications for shard 0 are marked in that same transaction; those for any other
+ * shard are marked right after its transaction commits, so a crash between the two commits
+ * leaves them pending and they are applied again.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AppStoreNotificationService {
+
+    static final String STATUS_APPLIED = "applied";
+    static final String STATUS_IGNORED = "ignored";
+
+    private final AppStoreNotificationMapper notificationMapper;
+    private final SubscriptionMapper subscriptionMapper;
+    private final TransactionWriter transactionWriter;
+    private final AppleJwsVerifier appleJwsVerifier;
+    private final AuditLogService auditLogService;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${apple.iap.bundle-id:}")
+    private String bundleId;
+
+    @Value("${notifications.app-store.batch-size:200}")
+    private int batchSize;
+
+    @Value("${notifications.app-store.max-attempts:10}")
+    private int maxAttempts;
+
+    /**
+     * Verify and store a signed notification
+     *
+     * @param signedPayload JWS signed notification payload
+     * @return true if stored, false if the notification UUID was already received
+     * @throws PaymentVerificationException if the payload is not signed by Apple
+     */
+    public boolean ingest(String signedPayload) {
+        JsonNode payload = appleJwsVerifier.verifyAndDecode(signedPayload);
+        JsonNode data = payload.path("data");
+
+        String notificationBundleId = data.path("bundleId").asText(null);
+        if (bundleId != null && !bundleId.isEmpty() && !bundleId.equals(notificationBundleId)) {
+            throw new PaymentVerificationException("Notification bundle ID mismatch", "apple_iap", null,
+                    "INVALID_BUNDLE_ID");
+        }
+
+        String notificationUuid = payload.path("notificationUUID").asText(null);
+        if (notificationUuid == null || notificationUuid.isEmpty()) {
+            throw new PaymentVerificationException("Notification UUID is missing", "apple_iap", null,
+                    "INVALID_NOTIFICATION");
+        }
+
+        AppStoreNotification notification = new AppStoreNotification();
+        notification.setNotificationUuid(notificationUuid);
+        notification.setNotificationType(payload.path("notificationType").asText());
+        notification.setSubtype(payload.path("subtype").asText(null));
+        notification.setSignedDate(toLocalDateTime(payload.path("signedDate")));
+        notification.setEnvironment(data.path("environment").asText(null));
+        notification.setSignedPayload(signedPayload);
+
+        String signedTransactionInfo = data.path("signedTransactionInfo").asText(null);
+        if (signedTransactionInfo != null && !signedTransactionInfo.isEmpty()) {
+            JsonNode transactionInfo = appleJwsVerifier.verifyAndDecode(signedTransactionInfo);
+            notification.setOriginalTransactionId(transactionInfo.path("originalTransactionId").asText(null));
+            notification.setTransactionId(transactionInfo.path("transactionId").asText(null));
+            notification.setProductId(transactionInfo.path("productId").asText(null));
+            notification.setExpiresDate(toLocalDateTime(transactionInfo.path("expiresDate")));
+        }
+
+        boolean stored = notificationMapper.insertIgnore(notification) > 0;
+        if (stored) {
+            log.info("Stored App Store notification: type={}, subtype={}, uuid={}",
+                    notification.getNotificationType(), notification.getSubtype(), notificationUuid);
+        } else {
+            log.info("Duplicate App Store notification ignored: uuid={}", notificationUuid);
+        }
+        return stored;
+    }
+
+    /**
+     * Apply one batch of pending notifications
+     * Notifications are grouped by original transaction ID and applied in signing order, so each
+     * subscription is read and written once per batch. The subscription remembers the signing time
+     * of the newest notification applied to it, and a notification signed before that, such as a
+     * DID_RENEW delivered late after an EXPIRED, is ignored rather than rolling the state back. The
+     * write is version-checked; a group that loses to a concurrent update is re-applied to the
+     * reloaded subscription. Groups are applied per shard of the subscription's user, each shard in
+     * its own READ COMMITTED transaction.
+     *
+     * @return Number of notifications processed
+     */
+    @Scheduled(fixedDelayString = "${notifications.app-store.apply-interval-ms:5000}")
+    public int applyPendingNotifications() {
+        List<AppStoreNotification> pending = notificationMapper.findPending(batchSize);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, List<AppStoreNotification>> byOriginalTransaction = new LinkedHashMap<>();
+        Outcome unsharded = new Outcome();
+        for (AppStoreNotification notification : pending) {
+            if (notification.getOriginalTransactionId() == null) {
+                unsharded.ignored.add(notification.getId());
+                continue;
+            }
+            byOriginalTransaction
+                    .computeIfAbsent(notification.getOriginalTransactionId(), key -> new ArrayList<>())
+                    .add(notification);
+        }
+
+        // Find each group's subscription, which decides the shard the group is applied on
+        Map<Integer, List<Group>> groupsByShard = new TreeMap<>();
+        for (Map.Entry<String, List<AppStoreNotification>> entry : byOriginalTransaction.entrySet()) {
+            Subscription subscription = subscriptionMapper.findByOriginalTransactionId(entry.getKey());
+            if (subscription == null) {
+                entry.getValue().forEach(notification -> unsharded.unmatched.add(notification.getId()));
+                continue;
+            }
+            groupsByShard.computeIfAbsent(shardOf(subscription.getUserId()), key -> new ArrayList<>())
+                    .add(new Group(entry.getKey(), subscription, entry.getValue()));
+        }
+
+        Outcome total = new Outcome();
+        for (Map.Entry<Integer, List<Group>> entry : groupsByShard.entrySet()) {
+            int shard = entry.getKey();
+            if (shard == ShardRouter.DEFAULT_SHARD) {
+                continue;
+            }
+            Outcome outcome = shardRouter.onShard(shard, () -> inTransaction(() -> applyGroups(entry.getValue())));
+            inTransaction(() -> markProcessed(outcome));
+            total.add(outcome);
+        }
+        List<Group> local = groupsByShard.getOrDefault(ShardRouter.DEFAULT_SHARD, List.of());
+        Outcome outcome = shardRouter.onShard(ShardRouter.DEFAULT_SHARD, () -> inTransaction(() -> {
+            Outcome applied = applyGroups(local);
+            applied.add(unsharded);
+            return markProcessed(applied);
+        }));
+        total.add(outcome);
+
+        log.info("Applied App Store notifications: applied={}, ignored={}, unmatched={}",
+                total.applied.size(), total.ignored.size(), total.unmatched.size());
+        return pending.size();
+    }
+
+    /**
+     * Apply groups whose subscriptions are on the current shard and insert their transactions
+     */
+    private Outcome applyGroups(List<Group> groups) {
+        Outcome outcome = new Outcome();
+        List<Transaction> transactions = new ArrayList<>();
+
+        for (Group group : groups) {
+            List<AppStoreNotification> notifications = group.notifications();
+            notifications.sort(Comparator.comparing(AppStoreNotification::getSignedDate,
+                    Comparator.nullsFirst(Comparator.naturalOrder())));
+
+            // Re-apply the group to a fresh copy if a concurrent update wins the version check;
+            // after the last attempt the notifications stay pending for the next batch
+            Subscription subscription = group.subscription();
+            for (int attempt = 1; subscription != null; attempt++) {
+                List<Long> groupApplied = new ArrayList<>();
+                List<Long> groupIgnored = new ArrayList<>();
+                List<Transaction> groupTransactions = new ArrayList<>();
+                List<Runnable> groupAuditEvents = new ArrayList<>();
+                for (AppStoreNotification notification : notifications) {
+                    if (isSuperseded(subscription, notification)) {
+                        log.info("Ignoring App Store notification {} signed at {}, not after the last applied one at {}",
+                                notification.getNotificationUuid(), notification.getSignedDate(),
+                                subscription.getLastNotificationSignedAt());
+                        groupIgnored.add(notification.getId());
+                    } else if (applyToSubscription(subscription, notification, groupTransactions, groupAuditEvents)) {
+                        if (notification.getSignedDate() != null) {
+                            subscription.setLastNotificationSignedAt(notification.getSignedDate());
+                        }
+                        groupApplied.add(notification.getId());
+                    } else {
+                        groupIgnored.add(notification.getId());
+                    }
+                }
+
+                boolean saved = groupApplied.isEmpty();
+                if (!saved) {
+                    LocalDateTime now = LocalDateTime.now();
+                    subscription.setLastSyncedAt(now);
+                    subscription.setUpdatedAt(now);
+                    saved = subscriptionMapper.updateById(subscription) > 0;
+                }
+                if (saved) {
+                    outcome.applied.addAll(groupApplied);
+                    outcome.ignored.addAll(groupIgnored);
+                    transactions.addAll(groupTransactions);
+                    groupAuditEvents.forEach(Runnable::run);
+                    break;
+                }
+                if (attempt >= SubscriptionService.MAX_UPDATE_ATTEMPTS) {
+                    log.warn("Subscription {} kept changing concurrently, leaving {} notifications pending",
+                            subscription.getId(), notifications.size());
+                    break;
+                }
+                subscription = subscriptionMapper.findByOriginalTransactionId(group.originalTransactionId());
+            }
+        }
+
+        if (!transactions.isEmpty()) {
+            transactionWriter.insertBatch(transactions);
+        }
+        return outcome;
+    }
+
+    /**
+     * Record the outcome in the inbox on shard 0
+     */
+    private Outcome markProcessed(Outcome outcome) {
+        if (!outcome.applied.isEmpty()) {
+            notificationMapper.markProcessed(outcome.applied, STATUS_APPLIED);
+        }
+        if (!outcome.ignored.isEmpty()) {
+            notificationMapper.markProcessed(outcome.ignored, STATUS_IGNORED);
+        }
+        if (!outcome.unmatched.isEmpty()) {
+            notificationMapper.recordUnmatched(outcome.unmatched, maxAttempts);
+        }
+        return outcome;
+    }
+
+    /**
+     * Shard of a user; a row without one is left on shard 0
+     */
+    private int shardOf(Long userId) {
+        return userId != null ? shardRouter.shardFor(userId) : ShardRouter.DEFAULT_SHARD;
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        TransactionTemplate template = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        template.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        return template.execute(status -> work.get());
+    }
+
+    /**
+     * Whether this notification, or a newer one, has already been applied to the subscription
+     * A notification signed at the last applied time is the same one being replayed after a crash
+     * between saving the subscription and marking it processed, so it is not applied twice.
+     * Notifications without a signing time cannot be ordered and are applied as they come.
+     */
+    static boolean isSuperseded(Subscription subscription, AppStoreNotification notification) {
+        LocalDateTime lastApplied = subscription.getLastNotificationSignedAt();
+        return lastApplied != null && notification.getSignedDate() != null
+                && !notification.getSignedDate().isAfter(lastApplied);
+    }
+
+    /**
+     * Apply a single notification to its subscription
+     *
+     * @param subscription Subscription to update in memory
+     * @param notification Notification to apply
+     * @param transactions Collector for transaction records to insert
+     * @param auditEvents Collector for audit events to log once the subscription is saved
+     * @return true if the notification changed the subscription
+     */
+    boolean applyToSubscription(Subscription subscription, AppStoreNotification notification,
+                                List<Transaction> transactions, List<Runnable> auditEvents) {
+        String type = notification.getNotificationType();
+        switch (type) {
+            case "SUBSCRIBED":
+            case "DID_RENEW":
+            case "OFFER_REDEEMED":
+                if (notification.getExpiresDate() != null) {
+                    subscription.setExpiryDate(notification.getExpiresDate());
+                }
+                updateProduct(subscription, notification.getProductId());
+                subscription.setStatus("active");
+                if ("DID_RENEW".equals(type)) {
+                    transactions.add(buildTransaction(subscription, notification, "renewal", Transaction.STATUS_VERIFIED));
+                    Long userId = subscription.getUserId();
+                    String tier = subscription.getTier();
+                    auditEvents.add(() -> auditLogService.logSubscriptionRenewal(userId, subscription.getId(),
+                            tier, notification.getTransactionId()));
+                } else {
+                    logUpdate(subscription, notification, auditEvents);
+                }
+                return true;
+            case "DID_CHANGE_RENEWAL_STATUS":
+                subscription.setAutoRenew(!"AUTO_RENEW_DISABLED".equals(notification.getSubtype()));
+                logUpdate(subscription, notification, auditEvents);
+                return true;
+            case "EXPIRED":
+            case "GRACE_PERIOD_EXPIRED":
+                subscription.setStatus("expired");
+                subscription.setAutoRenew(false);
+                logUpdate(subscription, notification, auditEvents);
+                return true;
+            case "REFUND":
+            case "REVOKE":
+                subscription.setStatus("cancelled");
+                subscription.setAutoRenew(false);
+                subscription.setExpiryDate(LocalDateTime.now());
+                transactions.add(buildTransaction(subscription, notification, "refund", Transaction.STATUS_REFUNDED));
+                Long userId = subscription.getUserId();
+                String tier = subscription.getTier();
+                auditEvents.add(() -> auditLogService.logSubscriptionCancellation(userId, subscription.getId(),
+                        tier, "App Store " + type));
+                return true;
+            default:
+                log.debug("Ignoring App Store notification type {}", type);
+                return false;
+        }
+    }
+
+    private void updateProduct(Subscription subscription, String productId) {
+        if (productId == null) {
+            return;
+        }
+        try {
+            subscription.setTier(SubscriptionService.extractTierFromProductId(productId));
+            subscription.setBillingPeriod(SubscriptionService.extractBillingPeriodFromProductId(productId));
+            subscription.setProductId(productId);
+        } catch (RuntimeException e) {
+            log.warn("Unknown product ID in App Store notification: {}", productId);
+        }
+    }
+
+    private Transaction buildTransaction(Subscription subscription, AppStoreNotification notification,
+                                         String transactionType, String status) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(subscription.getUserId());
+        transaction.setSubscriptionId(subscription.getId());
+        transaction.setTransactionType(transactionType);
+        transaction.setPaymentMethod("apple_iap");
+        transaction.setAmount(subscription.getTier() != null
+                ? SubscriptionService.calculateAmount(subscription.getTier(), subscription.getBillingPeriod())
+                : BigDecimal.ZERO);
+        transaction.setCurrency("CNY");
+        transaction.setPlatformTransactionId(notification.getTransactionId() != null
+                ? notification.getTransactionId() : notification.getOriginalTransactionId());
+        transaction.setVerificationStatus(status);
+        transaction.setVerificationMessage("App Store notification " + notification.getNotificationType());
+        transaction.setTier(subscription.getTier());
+        transaction.setBillingPeriod(subscription.getBillingPeriod());
+        transaction.setCreatedAt(LocalDateTime.now());
+        transaction.setUpdatedAt(LocalDateTime.now());
+        return transaction;
+    }
+
+    private void logUpdate(Subscription subscription, AppStoreNotification notification,
+                           List<Runnable> auditEvents) {
+        Long userId = subscription.getUserId();
+        String tier = subscription.getTier();
+        String status = subscription.getStatus();
+        auditEvents.add(() -> auditLogService.logSubscriptionUpdate(userId, subscription.getId(),
+                tier, status, "apple_iap", notification.getTransactionId()));
+    }
+
+    private static LocalDateTime toLocalDateTime(JsonNode epochMillis) {
+        if (epochMillis == null || !epochMillis.canConvertToLong()) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis.asLong()), ZoneId.systemDefault());
+    }
+
+    /**
+     * Notifications for one original transaction and the subscription they apply to
+     */
+    private record Group(String originalTransactionId, Subscription subscription,
+                         List<AppStoreNotification> notifications) {
+    }
+
+    /**
+     * Notification IDs by how a batch, or part of it, was processed
+     */
+    private static final class Outcome {
+
+        private final List<Long> applied = new ArrayList<>();
+        private final List<Long> ignored = new ArrayList<>();
+        private final List<Long> unmatched = new ArrayList<>();
+
+        private void add(Outcome other) {
+            applied.addAll(other.applied);
+            ignored.addAll(other.ignored);
+            unmatched.addAll(other.unmatched);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.lightgallery.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.math.BigInteger;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Apple JWKS Cache
+ * Caches Sign in with Apple public keys, parsed and indexed by key ID (kid).
+ *
+ * Keys are refreshed in the background before they expire, so logins never wait on
+ * appleid.apple.com. A token signed with an unknown kid triggers a forced refresh, limited to
+ * one per configured interval so unknown kids cannot be used to hammer Apple. If a refresh
+ * fails the previous key set stays in use.
+ */
+@Slf4j
+@Service
+public class AppleJwksCache {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    private final RestTemplate restTemplate;
+    private final ProviderCallGuard providerCallGuard;
+    private final Clock clock;
+    private final String jwksUrl;
+    private final Duration defaultTtl;
+    private final Duration minForcedRefreshInterval;
+
+    private volatile Map<String, PublicKey> keys = Map.of();
+    private volatile Instant fetchedAt = Instant.EPOCH;
+    private volatile Instant expiresAt = Instant.EPOCH;
+    private volatile Instant lastForcedRefresh = Instant.EPOCH;
+
+    @Autowired
+    public AppleJwksCache(RestTemplate restTemplate,
+                          ProviderCallGuard providerCallGuard,
+                          @Value("${oauth.apple.jwks.url:https://appleid.apple.com/auth/keys}") String jwksUrl,
+                          @Value("${oauth.apple.jwks.ttl:6h}") Duration defaultTtl,
+                          @Value("${oauth.apple.jwks.min-forced-refresh-interval:60s}") Duration minForcedRefreshInterval) {
+        this(restTemplate, providerCallGuard, Clock.systemUTC(), jwksUrl, defaultTtl, minForcedRefreshInterval);
+    }
+
+    AppleJwksCache(RestTemplate restTemplate, ProviderCallGuard providerCallGuard, Clock clock, String jwksUrl,
+                   Duration defaultTtl, Duration minForcedRefreshInterval) {
+        this.restTemplate = restTemplate;
+        this.providerCallGuard = providerCallGuard;
+        this.clock = clock;
+        this.jwksUrl = jwksUrl;
+        this.defaultTtl = defaultTtl;
+        this.minForcedRefreshInterval = minForcedRefreshInterval;
+    }
+
+    /**
+     * Get the public key for a key ID
+     * Unknown key IDs trigger a rate-limited forced refresh.
+     *
+     * @param kid Key ID from the token header
+     * @return Public key, or null if Apple does not publish the key ID
+     */
+    public PublicKey getKey(String kid) {
+        PublicKey key = keys.get(kid);
+        if (key != null) {
+            return key;
+        }
+        if (forceRefresh()) {
+            return keys.get(kid);
+        }
+        return null;
+    }
+
+    /**
+     * Refresh the key set ahead of expiry
+     * Runs in the background; refreshes once 80% of the cache lifetime has elapsed. Nothing is
+     * fetched until the first Apple login has loaded the key set.
+     */
+    @Scheduled(fixedDelayString = "${oauth.apple.jwks.check-interval-ms:60000}")
+    public void refreshIfStale() {
+        if (keys.isEmpty()) {
+            return;
+        }
+        Instant now = clock.instant();
+        Duration lifetime = Duration.between(fetchedAt, expiresAt);
+        if (!now.isBefore(fetchedAt.plus(lifetime.multipliedBy(4).dividedBy(5)))) {
+            refresh();
+        }
+    }
+
+    /**
+     * Number of cached keys
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    /**
+     * Refresh immediately unless a forced refresh ran within the minimum interval
+     *
+     * @return true if a refresh was attempted
+     */
+    private synchronized boolean forceRefresh() {
+        Instant now = clock.instant();
+        if (now.isBefore(lastForcedRefresh.plus(minForcedRefreshInterval))) {
+            log.debug("Apple JWKS forced refresh suppressed by rate limit");
+            return false;
+        }
+        lastForcedRefresh = now;
+        refresh();
+        return true;
+    }
+
+    /**
+     * Fetch and parse the key set, keeping the previous keys on failure
+     */
+    synchronized void refresh() {
+        try {
+            ResponseEntity<Map> response = providerCallGuard.call(ProviderCallGuard.APPLE_OAUTH,
+                    () -> restTemplate.exchange(jwksUrl, HttpMethod.GET, null, Map.class));
+
+            Map<String, PublicKey> parsed = parseKeys(response.getBody());
+            if (parsed.isEmpty()) {
+                log.error("Apple JWKS response contained no usable keys, keeping {} cached keys", keys.size());
+                return;
+            }
+
+            Instant now = clock.instant();
+            keys = Map.copyOf(parsed);
+            fetchedAt = now;
+            expiresAt = now.plus(ttl(response.getHeaders().getCacheControl()));
+            log.info("Refreshed Apple JWKS: {} keys, valid until {}", parsed.size(), expiresAt);
+
+        } catch (Exception e) {
+            log.error("Failed to refresh Apple JWKS, keeping {} cached keys: {}", keys.size(), e.getMessage());
+        }
+    }
+
+    private Duration ttl(String cacheControl) {
+        if (cacheControl != null) {
+            Matcher matcher = MAX_AGE.matcher(cacheControl);
+            if (matcher.find()) {
+                return Duration.ofSeconds(Long.parseLong(matcher.group(1)));
+            }
+        }
+        return defaultTtl;
+    }
+
+    private Map<String, PublicKey> parseKeys(Map<String, Object> body) {
+        Map<String, PublicKey> parsed = new HashMap<>();
+        if (body == null || !(body.get("keys") instanceof List<?> entries)) {
+            return parsed;
+        }
+        for (Object entry : entries) {
+            if (!(entry instanceof Map<?, ?> jwk) || !"RSA".equals(jwk.get("kty"))) {
+                continue;
+            }
+            PublicKey key = createPublicKey((String) jwk.get("n"), (String) jwk.get("e"));
+            if (key != null && jwk.get("kid") != null) {
+                parsed.put((String) jwk.get("kid"), key);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Create RSA public key from modulus and exponent
+     *
+     * @param modulus Key modulus (base64url encoded)
+     * @param exponent Key exponent (base64url encoded)
+     * @return RSA PublicKey
+     */
+    private PublicKey createPublicKey(String modulus, String exponent) {
+        try {
+            BigInteger modulusBigInt = new BigInteger(1, Base64.getUrlDecoder().decode(modulus));
+            BigInteger exponentBigInt = new BigInteger(1, Base64.getUrlDecoder().decode(exponent));
+            return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulusBigInt, exponentBigInt));
+        } catch (Exception e) {
+            log.error("Failed to create RSA public key: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -1,30 +1,34 @@
 package com.lightgallery.backend.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.math.BigInteger;
-import java.security.KeyFactory;
 import java.security.PublicKey;
-import java.security.spec.RSAPublicKeySpec;
 import java.util.Base64;
-import java.util.Map;
 
 /**
  * Apple OAuth Service
- * Validates Apple Sign In tokens (identity tokens)
+ * Validates Apple Sign In tokens (identity tokens) locally against Apple's cached public keys
  */
 @Slf4j
 @Service
-public class AppleOAuthService {
+@RequiredArgsConstructor
+public class AppleOAuthService implements OAuthProvider {
+
+    static final String APPLE_ISSUER = "https://appleid.apple.com";
+
+    /**
+     * Allowed clock skew when checking exp/iat
+     */
+    private static final long CLOCK_SKEW_SECONDS = 60;
 
     @Value("${oauth.apple.client-id}")
     private String clientId;
@@ -32,50 +36,62 @@ public class AppleOAuthService {
     @Value("${oauth.apple.team-id}")
     private String teamId;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final AppleJwksCache appleJwksCache;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public String getName() {
+        return "apple";
+    }
 
     /**
      * Validate Apple identity token
-     * Verifies the JWT token signature and claims
+     * Verifies the RS256 signature with the key matching the token's kid, then the
+     * iss, aud, exp and sub claims
      *
      * @param identityToken Apple identity token (JWT)
      * @param providerUserId Expected user ID from Apple
      * @return true if token is valid, false otherwise
      */
+    @Override
     public boolean validateToken(String identityToken, String providerUserId) {
         log.info("Validating Apple identity token");
 
         try {
-            // Get Apple's public keys
-            Map<String, Object> applePublicKeys = getApplePublicKeys();
-            if (applePublicKeys == null) {
-                log.error("Failed to retrieve Apple public keys");
+            String[] parts = identityToken.split("\\.");
+            if (parts.length != 3) {
+                log.error("Invalid Apple identity token format");
+                return false;
+            }
+
+            JsonNode header = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[0]));
+            if (!"RS256".equals(header.path("alg").asText())) {
+                log.error("Unsupported Apple identity token algorithm: {}", header.path("alg").asText());
                 return false;
             }
 
-            // Parse and verify the identity token
-            // Note: In production, you should:
-            // 1. Verify the token signature using Apple's public key
-            // 2. Verify the token claims (iss, aud, exp, etc.)
-            // 3. Use a proper JWT library for verification
+            String kid = header.path("kid").asText(null);
+            PublicKey publicKey = kid != null ? appleJwksCache.getKey(kid) : null;
+            if (publicKey == null) {
+                log.error("No Apple public key for kid {}", kid);
+                return false;
+            }
 
-            // For now, we'll do basic validation
-            String[] parts = identityToken.split("\\.");
-            if (parts.length != 3) {
-                log.error("Invalid Apple identity token format");
+            Claims claims = verifyIdentityToken(identityToken, publicKey);
+            if (claims == null) {
                 return false;
             }
 
-            // Decode payload (without verification for demo purposes)
-            String payload = new String(Base64.getUrlDecoder().decode(parts[1]));
-            log.debug("Apple token payload: {}", payload);
+            if (providerUserId != null && !providerUserId.equals(claims.getSubject())) {
+                log.error("Apple identity token subject does not match provider user ID");
+                return false;
+            }
 
-            // In production, verify signature and claims properly
-            // For now, we'll just check if the token is well-formed
-            
             log.info("Apple identity token validated successfully");
             return true;
 
+        } catch (ProviderUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Apple OAuth validation error: {}", e.getMessage(), e);
             return false;
@@ -83,71 +99,24 @@ public class AppleOAuthService {
     }
 
     /**
-     * Get Apple's public keys for token verification
-     *
-     * @return Map of Apple public keys
-     */
-    private Map<String, Object> getApplePublicKeys() {
-        try {
-            String url = "https://appleid.apple.com/auth/keys";
-            
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    Map.class
-            );
-
-            return response.getBody();
-
-        } catch (Exception e) {
-            log.error("Failed to get Apple public keys: {}", e.getMessage(), e);
-            return null;
-        }
-    }
-
-    /**
-     * Verify Apple identity token (production-ready implementation would go here)
-     * This is a placeholder for proper JWT verification
+     * Verify Apple identity token signature and standard claims
      *
      * @param identityToken Apple identity token
      * @param publicKey Apple public key
-     * @return Claims from the token
+     * @return Claims from the token, or null if verification fails
      */
     private Claims verifyIdentityToken(String identityToken, PublicKey publicKey) {
         try {
             return Jwts.parser()
-                    .setSigningKey(publicKey)
+                    .verifyWith(publicKey)
+                    .requireIssuer(APPLE_ISSUER)
+                    .requireAudience(clientId)
+                    .clockSkewSeconds(CLOCK_SKEW_SECONDS)
                     .build()
-                    .parseClaimsJws(identityToken)
-                    .getBody();
-        } catch (Exception e) {
-            log.error("Failed to verify Apple identity token: {}", e.getMessage(), e);
-            return null;
-        }
-    }
-
-    /**
-     * Create RSA public key from modulus and exponent
-     *
-     * @param modulus Key modulus (base64url encoded)
-     * @param exponent Key exponent (base64url encoded)
-     * @return RSA PublicKey
-     */
-    private PublicKey createPublicKey(String modulus, String exponent) {
-        try {
-            byte[] modulusBytes = Base64.getUrlDecoder().decode(modulus);
-            byte[] exponentBytes = Base64.getUrlDecoder().decode(exponent);
-
-            BigInteger modulusBigInt = new BigInteger(1, modulusBytes);
-            BigInteger exponentBigInt = new BigInteger(1, exponentBytes);
-
-            RSAPublicKeySpec spec = new RSAPublicKeySpec(modulusBigInt, exponentBigInt);
-            KeyFactory factory = KeyFactory.getInstance("RSA");
-            return factory.generatePublic(spec);
-
-        } catch (Exception e) {
-            log.error("Failed to create RSA public key: {}", e.getMessage(), e);
+                    .parseSignedClaims(identityToken)
+                    .getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            log.error("Failed to verify Apple identity token: {}", e.getMessage());
             return null;
         }
     }
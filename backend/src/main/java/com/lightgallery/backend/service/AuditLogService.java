@@ -1,21 +1,25 @@
 package com.lightgallery.backend.service;
 
-import lombok.extern.slf4j.Slf4j;
+import com.lightgallery.backend.audit.AuditEvent;
+import com.lightgallery.backend.audit.AuditEventPublisher;
+import com.lightgallery.backend.util.LogSanitizer;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Audit Log Service
  * Records subscription updates and payment verifications with sanitized data
  * Requirements: 8.5, 10.5
+ *
+ * Events are sanitized here and handed to the asynchronous audit pipeline; the calling thread
+ * only pays for the enqueue.
  */
-@Slf4j
 @Service
+@RequiredArgsConstructor
 public class AuditLogService {
 
+    private final AuditEventPublisher auditEventPublisher;
+
     /**
      * Log subscription update
      * Requirements: 8.5
@@ -29,18 +33,8 @@ public class AuditLogService {
      */
     public void logSubscriptionUpdate(Long userId, Long subscriptionId, String tier, 
                                      String status, String paymentMethod, String transactionId) {
-        Map<String, Object> auditData = new HashMap<>();
-        auditData.put("timestamp", LocalDateTime.now());
-        auditData.put("eventType", "SUBSCRIPTION_UPDATE");
-        auditData.put("userId", userId);
-        auditData.put("subscriptionId", subscriptionId);
-        auditData.put("tier", tier);
-        auditData.put("status", status);
-        auditData.put("paymentMethod", paymentMethod);
-        auditData.put("transactionId", sanitizeTransactionId(transactionId));
-        
-        log.info("AUDIT: Subscription update - userId={}, subscriptionId={}, tier={}, status={}, paymentMethod={}, transactionId={}", 
-                userId, subscriptionId, tier, status, paymentMethod, sanitizeTransactionId(transactionId));
+        auditEventPublisher.publish(AuditEvent.subscriptionUpdate(userId, subscriptionId, tier, status,
+                paymentMethod, sanitizeTransactionId(transactionId)));
     }
 
     /**
@@ -56,19 +50,8 @@ public class AuditLogService {
      */
     public void logPaymentVerification(Long userId, String paymentMethod, String transactionId, 
                                       Double amount, String currency, boolean verificationResult) {
-        Map<String, Object> auditData = new HashMap<>();
-        auditData.put("timestamp", LocalDateTime.now());
-        auditData.put("eventType", "PAYMENT_VERIFICATION");
-        auditData.put("userId", userId);
-        auditData.put("paymentMethod", paymentMethod);
-        auditData.put("transactionId", sanitizeTransactionId(transactionId));
-        auditData.put("amount", amount);
-        auditData.put("currency", currency);
-        auditData.put("verificationResult", verificationResult ? "SUCCESS" : "FAILURE");
-        
-        log.info("AUDIT: Payment verification - userId={}, paymentMethod={}, transactionId={}, amount={}, currency={}, result={}", 
-                userId, paymentMethod, sanitizeTransactionId(transactionId), amount, currency, 
-                verificationResult ? "SUCCESS" : "FAILURE");
+        auditEventPublisher.publish(AuditEvent.paymentVerification(userId, paymentMethod,
+                sanitizeTransactionId(transactionId), amount, currency, verificationResult));
     }
 
     /**
@@ -82,16 +65,8 @@ public class AuditLogService {
      */
     public void logPaymentVerificationFailure(Long userId, String paymentMethod, 
                                              String transactionId, String errorReason) {
-        Map<String, Object> auditData = new HashMap<>();
-        auditData.put("timestamp", LocalDateTime.now());
-        auditData.put("eventType", "PAYMENT_VERIFICATION_FAILURE");
-        auditData.put("userId", userId);
-        auditData.put("paymentMethod", paymentMethod);
-        auditData.put("transactionId", sanitizeTransactionId(transactionId));
-        auditData.put("errorReason", sanitizeErrorMessage(errorReason));
-        
-        log.warn("AUDIT: Payment verification failure - userId={}, paymentMethod={}, transactionId={}, errorReason={}", 
-                userId, paymentMethod, sanitizeTransactionId(transactionId), sanitizeErrorMessage(errorReason));
+        auditEventPublisher.publish(AuditEvent.paymentVerificationFailure(userId, paymentMethod,
+                sanitizeTransactionId(transactionId), sanitizeErrorMessage(errorReason)));
     }
 
     /**
@@ -104,16 +79,8 @@ public class AuditLogService {
      * @param reason Cancellation reason
      */
     public void logSubscriptionCancellation(Long userId, Long subscriptionId, String tier, String reason) {
-        Map<String, Object> auditData = new HashMap<>();
-        auditData.put("timestamp", LocalDateTime.now());
-        auditData.put("eventType", "SUBSCRIPTION_CANCELLATION");
-        auditData.put("userId", userId);
-        auditData.put("subscriptionId", subscriptionId);
-        auditData.put("tier", tier);
-        auditData.put("reason", sanitizeErrorMessage(reason));
-        
-        log.info("AUDIT: Subscription cancellation - userId={}, subscriptionId={}, tier={}, reason={}", 
-                userId, subscriptionId, tier, sanitizeErrorMessage(reason));
+        auditEventPublisher.publish(AuditEvent.subscriptionCancellation(userId, subscriptionId, tier,
+                sanitizeErrorMessage(reason)));
     }
 
     /**
@@ -126,16 +93,8 @@ public class AuditLogService {
      * @param transactionId Transaction ID (sanitized)
      */
     public void logSubscriptionRenewal(Long userId, Long subscriptionId, String tier, String transactionId) {
-        Map<String, Object> auditData = new HashMap<>();
-        auditData.put("timestamp", LocalDateTime.now());
-        auditData.put("eventType", "SUBSCRIPTION_RENEWAL");
-        auditData.put("userId", userId);
-        auditData.put("subscriptionId", subscriptionId);
-        auditData.put("tier", tier);
-        auditData.put("transactionId", sanitizeTransactionId(transactionId));
-        
-        log.info("AUDIT: Subscription renewal - userId={}, subscriptionId={}, tier={}, transactionId={}", 
-                userId, subscriptionId, tier, sanitizeTransactionId(transactionId));
+        auditEventPublisher.publish(AuditEvent.subscriptionRenewal(userId, subscriptionId, tier,
+                sanitizeTransactionId(transactionId)));
     }
 
     /**
@@ -145,20 +104,8 @@ public class AuditLogService {
      * Shows only first 4 and last 4 characters, masks the middle
      * Example: "1234567890abcdef" -> "1234****cdef"
      */
-    private String sanitizeTransactionId(String transactionId) {
-        if (transactionId == null || transactionId.isEmpty()) {
-            return "N/A";
-        }
-        
-        if (transactionId.length() <= 8) {
-            // For short IDs, mask everything except first 2 chars
-            return transactionId.substring(0, Math.min(2, transactionId.length())) + "****";
-        }
-        
-        // For longer IDs, show first 4 and last 4, mask the middle
-        String prefix = transactionId.substring(0, 4);
-        String suffix = transactionId.substring(transactionId.length() - 4);
-        return prefix + "****" + suffix;
+    private static String sanitizeTransactionId(String transactionId) {
+        return LogSanitizer.maskTransactionId(transactionId);
     }
 
     /**
@@ -167,29 +114,8 @@ public class AuditLogService {
      * 
      * Removes potential tokens, passwords, credit card numbers, etc.
      */
-    private String sanitizeErrorMessage(String message) {
-        if (message == null || message.isEmpty()) {
-            return "N/A";
-        }
-        
-        // Remove potential tokens (long alphanumeric strings)
-        String sanitized = message.replaceAll("\\b[A-Za-z0-9]{32,}\\b", "[TOKEN_REDACTED]");
-        
-        // Remove potential credit card numbers (sequences of 13-19 digits)
-        sanitized = sanitized.replaceAll("\\b\\d{13,19}\\b", "[CARD_REDACTED]");
-        
-        // Remove potential passwords (after "password=" or "pwd=")
-        sanitized = sanitized.replaceAll("(?i)(password|pwd)=[^&\\s]+", "$1=[REDACTED]");
-        
-        // Remove potential API keys (after "key=" or "apikey=")
-        sanitized = sanitized.replaceAll("(?i)(key|apikey|api_key)=[^&\\s]+", "$1=[REDACTED]");
-        
-        // Limit message length to prevent log flooding
-        if (sanitized.length() > 500) {
-            sanitized = sanitized.substring(0, 497) + "...";
-        }
-        
-        return sanitized;
+    private static String sanitizeErrorMessage(String message) {
+        return LogSanitizer.sanitize(message);
     }
 
     /**
@@ -201,15 +127,7 @@ public class AuditLogService {
      * @param success Authentication success/failure
      */
     public void logAuthenticationEvent(Long userId, String provider, boolean success) {
-        Map<String, Object> auditData = new HashMap<>();
-        auditData.put("timestamp", LocalDateTime.now());
-        auditData.put("eventType", "AUTHENTICATION");
-        auditData.put("userId", userId);
-        auditData.put("provider", provider);
-        auditData.put("result", success ? "SUCCESS" : "FAILURE");
-        
-        log.info("AUDIT: Authentication - userId={}, provider={}, result={}", 
-                userId, provider, success ? "SUCCESS" : "FAILURE");
+        auditEventPublisher.publish(AuditEvent.authentication(userId, provider, success));
     }
 
     /**
@@ -220,13 +138,6 @@ public class AuditLogService {
      * @param reason Deletion reason
      */
     public void logAccountDeletion(Long userId, String reason) {
-        Map<String, Object> auditData = new HashMap<>();
-        auditData.put("timestamp", LocalDateTime.now());
-        auditData.put("eventType", "ACCOUNT_DELETION");
-        auditData.put("userId", userId);
-        auditData.put("reason", sanitizeErrorMessage(reason));
-        
-        log.info("AUDIT: Account deletion - userId={}, reason={}", 
-                userId, sanitizeErrorMessage(reason));
+        auditEventPublisher.publish(AuditEvent.accountDeletion(userId, sanitizeErrorMessage(reason)));
     }
 }
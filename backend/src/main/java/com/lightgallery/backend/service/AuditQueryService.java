@@ -0,0 +1,125 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.audit.AuditEventType;
+import com.lightgallery.backend.dto.AuditEventPage;
+import com.lightgallery.backend.dto.AuditEventQuery;
+import com.lightgallery.backend.dto.KeysetCursor;
+import com.lightgallery.backend.entity.AuditEventRecord;
+import com.lightgallery.backend.mapper.AuditEventMapper;
+import com.lightgallery.backend.util.LogSanitizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Audit Query Service
+ * Searches persisted audit events for support investigations. Pages are fetched with a
+ * (occurred_at, id) keyset cursor so every page costs the same index range scan regardless of
+ * depth; exports stream rows straight from the result set.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AuditQueryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final AuditEventMapper auditEventMapper;
+
+    /**
+     * Find one page of audit events, newest first
+     *
+     * @param query Filters
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param limit Page size, capped at MAX_PAGE_SIZE
+     * @return Events and the cursor for the next page
+     */
+    @Transactional(readOnly = true)
+    public AuditEventPage findEvents(AuditEventQuery query, String cursor, int limit) {
+        AuditEventQuery normalized = normalize(query);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // One extra row tells whether another page exists
+        List<AuditEventRecord> rows = auditEventMapper.findPage(normalized,
+                after != null ? after.timestamp() : null,
+                after != null ? after.id() : null,
+                pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            AuditEventRecord last = rows.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getOccurredAt(), last.getId()).encode();
+        }
+        return AuditEventPage.builder()
+                .events(List.copyOf(rows))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Stream every matching audit event, newest first, without holding the result in memory
+     *
+     * @param query Filters
+     * @param consumer Receives each event
+     * @return Number of events streamed
+     */
+    @Transactional(readOnly = true)
+    public long streamEvents(AuditEventQuery query, Consumer<AuditEventRecord> consumer) {
+        long[] count = {0};
+        auditEventMapper.streamEvents(normalize(query), context -> {
+            consumer.accept(context.getResultObject());
+            count[0]++;
+        });
+        log.info("Streamed {} audit events", count[0]);
+        return count[0];
+    }
+
+    /**
+     * Validate the filters and mask a raw transaction ID the way it was stored
+     *
+     * @param query Filters as received
+     * @return Filters as matched against the table
+     * @throws IllegalArgumentException if the time range or event type is invalid
+     */
+    public AuditEventQuery normalize(AuditEventQuery query) {
+        if (query.getFrom() != null && query.getTo() != null && !query.getFrom().isBefore(query.getTo())) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+
+        String eventType = query.getEventType();
+        if (eventType != null && !eventType.isBlank()) {
+            try {
+                eventType = AuditEventType.valueOf(eventType.trim().toUpperCase(Locale.ROOT)).name();
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown event type: " + eventType);
+            }
+        } else {
+            eventType = null;
+        }
+
+        String transactionId = query.getTransactionId();
+        if (transactionId != null && !transactionId.isBlank()) {
+            transactionId = transactionId.contains("****")
+                    ? transactionId.trim()
+                    : LogSanitizer.maskTransactionId(transactionId.trim());
+        } else {
+            transactionId = null;
+        }
+
+        return AuditEventQuery.builder()
+                .userId(query.getUserId())
+                .eventType(eventType)
+                .transactionId(transactionId)
+                .from(query.getFrom())
+                .to(query.getTo())
+                .build();
+    }
+}
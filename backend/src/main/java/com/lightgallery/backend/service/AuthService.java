@@ -1,19 +1,31 @@
 package com.lightgallery.backend.service;
 
+import com.lightgallery.backend.datasource.ReadYourWritesTracker;
 import com.lightgallery.backend.dto.AuthResponse;
+import com.lightgallery.backend.dto.OAuthProfile;
 import com.lightgallery.backend.dto.OAuthExchangeRequest;
 import com.lightgallery.backend.entity.AuthToken;
 import com.lightgallery.backend.entity.User;
+import com.lightgallery.backend.entity.UserIdentity;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
 import com.lightgallery.backend.mapper.AuthTokenMapper;
+import com.lightgallery.backend.mapper.UserIdentityMapper;
 import com.lightgallery.backend.mapper.UserMapper;
+import com.lightgallery.backend.service.LoginIdentityCache.CachedIdentity;
 import com.lightgallery.backend.util.JwtUtil;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.incrementer.IdentifierGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Authentication Service
@@ -25,72 +37,67 @@ import java.time.LocalDateTime;
 public class AuthService {
 
     private final UserMapper userMapper;
+    private final UserIdentityMapper userIdentityMapper;
     private final AuthTokenMapper authTokenMapper;
     private final JwtUtil jwtUtil;
     private final OAuthProviderService oauthProviderService;
     private final AuditLogService auditLogService;
+    private final TransactionTemplate transactionTemplate;
+    private final LoginIdentityCache loginIdentityCache;
+    private final IdentifierGenerator idGenerator;
+    private final ReadYourWritesTracker readYourWritesTracker;
 
     /**
      * Exchange OAuth token for app JWT token
-     * Validates OAuth token with provider, creates or updates user, generates JWT tokens
+     * Validates the OAuth token with the provider while the existing user is resolved (from the
+     * login identity cache when possible), then applies the user and token writes in one short
+     * transaction. No database connection is held while waiting on the provider.
      *
      * @param request OAuth exchange request
      * @return AuthResponse with JWT tokens and user info
      */
-    @Transactional
     public AuthResponse exchangeOAuthToken(OAuthExchangeRequest request) {
         log.info("Exchanging OAuth token for provider: {}", request.getProvider());
 
-        // Validate OAuth token with provider
-        boolean isValid = oauthProviderService.validateOAuthToken(
+        // Phase 1: validate with provider and look up the user concurrently, no transaction
+        CompletableFuture<OAuthProfile> authentication = oauthProviderService.authenticate(
                 request.getProvider(),
                 request.getCode(),
                 request.getProviderUserId()
         );
 
-        if (!isValid) {
+        boolean identityKnown = request.getProviderUserId() != null;
+        CachedIdentity identity = identityKnown ? resolveIdentity(request) : null;
+
+        OAuthProfile profile = awaitAuthentication(authentication);
+        if (profile == null) {
             // Log failed authentication
             auditLogService.logAuthenticationEvent(null, request.getProvider(), false);
             throw new RuntimeException("Invalid OAuth token");
         }
 
-        // Find or create user
-        User user = findOrCreateUser(request);
-        
-        // Log successful authentication
-        auditLogService.logAuthenticationEvent(user.getId(), request.getProvider(), true);
+        // Fill in anything the client did not send from the provider's profile
+        applyProviderProfile(request, profile);
+        if (request.getProviderUserId() == null) {
+            auditLogService.logAuthenticationEvent(null, request.getProvider(), false);
+            throw new RuntimeException("Provider user ID is required");
+        }
+        if (!identityKnown) {
+            identity = resolveIdentity(request);
+        }
 
-        // Update last login time
-        user.setLastLoginAt(LocalDateTime.now());
-        userMapper.updateById(user);
+        // Phase 2: one short write transaction; a first login claims its user ID beforehand
+        LocalDateTime now = LocalDateTime.now();
+        Login login = identity == null ? firstLogin(request, now) : returningLogin(identity, request, now);
 
-        // Generate JWT tokens
-        String accessToken = jwtUtil.generateAccessToken(user.getId());
-        String refreshToken = jwtUtil.generateRefreshToken(user.getId());
+        loginIdentityCache.put(login.identity());
+        // The request is not authenticated yet, so the write is not recorded automatically; this
+        // keeps the new or updated user's first authenticated reads on the primary
+        readYourWritesTracker.recordWrite(login.response().getUserId());
 
-        // Calculate expiration times
-        LocalDateTime accessTokenExpiry = LocalDateTime.now()
-                .plusSeconds(jwtUtil.getAccessTokenExpiration() / 1000);
-        LocalDateTime refreshTokenExpiry = LocalDateTime.now()
-                .plusSeconds(jwtUtil.getRefreshTokenExpiration() / 1000);
-
-        // Save tokens to database
-        saveAuthToken(user.getId(), accessToken, refreshToken, 
-                accessTokenExpiry, refreshTokenExpiry, request);
-
-        // Build response
-        return AuthResponse.builder()
-                .userId(user.getId())
-                .displayName(user.getDisplayName())
-                .email(user.getEmail())
-                .avatarUrl(user.getAvatarUrl())
-                .authProvider(user.getAuthProvider())
-                .accessToken(accessToken)
-                .refreshToken(refreshToken)
-                .tokenType("Bearer")
-                .expiresAt(accessTokenExpiry)
-                .refreshExpiresAt(refreshTokenExpiry)
-                .build();
+        // Log successful authentication
+        auditLogService.logAuthenticationEvent(login.response().getUserId(), request.getProvider(), true);
+        return login.response();
     }
 
     /**
@@ -151,6 +158,7 @@ public class AuthService {
         authToken.setRefreshExpiresAt(refreshTokenExpiry);
         authToken.setUpdatedAt(LocalDateTime.now());
         authTokenMapper.updateById(authToken);
+        readYourWritesTracker.recordWrite(userId);
 
         // Build response
         return AuthResponse.builder()
@@ -200,6 +208,7 @@ public class AuthService {
 
         // Soft delete user (using MyBatis-Plus logic delete)
         userMapper.deleteById(userId);
+        loginIdentityCache.invalidateUser(userId);
         
         // Log account deletion
         auditLogService.logAccountDeletion(userId, "User requested account deletion");
@@ -208,57 +217,330 @@ public class AuthService {
     }
 
     /**
-     * Find or create user based on OAuth provider information
+     * Wait for provider authentication
+     * A provider error or interruption counts as an invalid token; an unavailable provider
+     * (open circuit or full bulkhead) is rethrown so the client gets a 503.
+     *
+     * @param authentication Pending authentication
+     * @return Verified profile, or null if the provider rejected the token
+     * @throws ProviderUnavailableException if the provider refused the call
+     */
+    private OAuthProfile awaitAuthentication(CompletableFuture<OAuthProfile> authentication) {
+        try {
+            return authentication.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof ProviderUnavailableException unavailable) {
+                throw unavailable;
+            }
+            log.error("OAuth token validation failed: {}", e.getMessage());
+            return null;
+        } catch (CancellationException e) {
+            log.error("OAuth token validation failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Copy the provider-verified user ID and any missing profile fields onto the request
      *
      * @param request OAuth exchange request
-     * @return User entity
+     * @param profile Profile returned by the provider
      */
-    private User findOrCreateUser(OAuthExchangeRequest request) {
-        // Try to find existing user by provider and provider user ID
-        LambdaQueryWrapper<User> queryWrapper = new LambdaQueryWrapper<>();
-        queryWrapper.eq(User::getAuthProvider, request.getProvider())
-                .eq(User::getProviderUserId, request.getProviderUserId());
+    private void applyProviderProfile(OAuthExchangeRequest request, OAuthProfile profile) {
+        if (request.getProviderUserId() == null) {
+            request.setProviderUserId(profile.getProviderUserId());
+        }
+        if (request.getDisplayName() == null) {
+            request.setDisplayName(profile.getDisplayName());
+        }
+        if (request.getEmail() == null) {
+            request.setEmail(profile.getEmail());
+        }
+        if (request.getAvatarUrl() == null) {
+            request.setAvatarUrl(profile.getAvatarUrl());
+        }
+    }
 
-        User user = userMapper.selectOne(queryWrapper);
+    /**
+     * Resolve the user for a login identity from the cache, or with one lookup
+     *
+     * @param request OAuth exchange request
+     * @return Identity, or null if the user has not logged in before
+     */
+    private CachedIdentity resolveIdentity(OAuthExchangeRequest request) {
+        return loginIdentityCache.getOrLoad(request.getProvider(), request.getProviderUserId(), () -> {
+            User user = findUser(request.getProvider(), request.getProviderUserId());
+            return user != null ? CachedIdentity.of(user) : null;
+        });
+    }
 
-        if (user == null) {
-            // Create new user
-            user = new User();
-            user.setAuthProvider(request.getProvider());
-            user.setProviderUserId(request.getProviderUserId());
-            user.setDisplayName(request.getDisplayName());
-            user.setEmail(request.getEmail());
-            user.setAvatarUrl(request.getAvatarUrl());
-            user.setLastLoginAt(LocalDateTime.now());
-            user.setCreatedAt(LocalDateTime.now());
-            user.setUpdatedAt(LocalDateTime.now());
+    /**
+     * Find user by OAuth provider and provider user ID
+     * Runs outside any transaction as a single read, on every shard since the user ID is not
+     * known yet.
+     *
+     * @param provider OAuth provider
+     * @param providerUserId User ID from provider
+     * @return User entity, or null if the user has not logged in before
+     */
+    private User findUser(String provider, String providerUserId) {
+        return userMapper.findByProviderAndProviderId(provider, providerUserId);
+    }
+
+    /**
+     * Apply a returning user's login in the login write transaction
+     * If the user no longer exists (e.g. deleted on another instance) the stale cache entry is
+     * dropped and the user is looked up or created again.
+     *
+     * @param identity Identity from phase 1
+     * @param request OAuth exchange request
+     * @param now Login time
+     * @return Identity as written and the response
+     */
+    private Login returningLogin(CachedIdentity identity, OAuthExchangeRequest request, LocalDateTime now) {
+        Login login = transactionTemplate.execute(status -> applyLogin(identity, request, now));
+        if (login != null) {
+            return login;
+        }
+
+        log.warn("Cached user {} no longer exists, resolving login again", identity.getUserId());
+        loginIdentityCache.invalidateUser(identity.getUserId());
+        User existing = findUser(request.getProvider(), request.getProviderUserId());
+        if (existing == null) {
+            return firstLogin(request, now);
+        }
+        login = transactionTemplate.execute(status -> applyLogin(CachedIdentity.of(existing), request, now));
+        if (login == null) {
+            throw new RuntimeException("User not found");
+        }
+        return login;
+    }
+
+    /**
+     * Apply a first login
+     * The identity is first claimed in the directory on shard 0, outside any transaction, which
+     * decides the user ID; the user is then created on its shard in the login write transaction.
+     * Concurrent first logins, on any instance and whichever shard their candidate ID fell on,
+     * therefore converge on one account. If the directory still names an account that was
+     * deleted, the identity is pointed at a new user and the transaction runs again.
+     *
+     * @param request OAuth exchange request
+     * @param now Login time
+     * @return Identity as written and the response
+     */
+    private Login firstLogin(OAuthExchangeRequest request, LocalDateTime now) {
+        Long userId = claimIdentity(request.getProvider(), request.getProviderUserId());
+        Login login = transactionTemplate.execute(status -> applyFirstLogin(userId, request, now));
+        if (login != null) {
+            return login;
+        }
+
+        // The claimed ID belongs to a deleted account; a concurrent login may have reassigned it first
+        Long newUserId = nextUserId();
+        Long reassignedId = userIdentityMapper.reassign(request.getProvider(), request.getProviderUserId(),
+                userId, newUserId) > 0
+                ? newUserId
+                : userIdentityMapper.findUserId(request.getProvider(), request.getProviderUserId());
+        log.info("Pointing an identity of deleted user {} at user {}", userId, reassignedId);
+        login = transactionTemplate.execute(status -> applyFirstLogin(reassignedId, request, now));
+        if (login == null) {
+            throw new IllegalStateException("Identity still names a deleted user: " + request.getProvider());
+        }
+        return login;
+    }
+
+    /**
+     * Apply a returning user's login
+     * Runs inside the login write transaction.
+     *
+     * @param identity Resolved identity
+     * @param request OAuth exchange request
+     * @param now Login time
+     * @return Identity as written and the response, or null if the user no longer exists
+     */
+    private Login applyLogin(CachedIdentity identity, OAuthExchangeRequest request, LocalDateTime now) {
+        CachedIdentity current = touchUser(identity, request, now);
+        return current != null ? issueTokens(current, request, now) : null;
+    }
+
+    /**
+     * Apply a first login
+     * Runs inside the login write transaction.
+     *
+     * @param userId User ID claimed for the identity
+     * @param request OAuth exchange request
+     * @param now Login time
+     * @return Identity as written and the response, or null if the ID belongs to a deleted account
+     */
+    private Login applyFirstLogin(Long userId, OAuthExchangeRequest request, LocalDateTime now) {
+        CachedIdentity created = createUser(userId, request, now);
+        return created != null ? issueTokens(created, request, now) : null;
+    }
+
+    /**
+     * Replace the user's auth tokens
+     *
+     * @param current Identity as written
+     * @param request OAuth exchange request
+     * @param now Login time
+     * @return Identity and the response with JWT tokens and user info
+     */
+    private Login issueTokens(CachedIdentity current, OAuthExchangeRequest request, LocalDateTime now) {
+        // Generate JWT tokens
+        String accessToken = jwtUtil.generateAccessToken(current.getUserId());
+        String refreshToken = jwtUtil.generateRefreshToken(current.getUserId());
+
+        // Calculate expiration times
+        LocalDateTime accessTokenExpiry = now.plusSeconds(jwtUtil.getAccessTokenExpiration() / 1000);
+        LocalDateTime refreshTokenExpiry = now.plusSeconds(jwtUtil.getRefreshTokenExpiration() / 1000);
+
+        // Save tokens to database
+        saveAuthToken(current.getUserId(), accessToken, refreshToken,
+                accessTokenExpiry, refreshTokenExpiry, request);
+
+        // Build response
+        return new Login(current, AuthResponse.builder()
+                .userId(current.getUserId())
+                .displayName(current.getDisplayName())
+                .email(current.getEmail())
+                .avatarUrl(current.getAvatarUrl())
+                .authProvider(current.getProvider())
+                .accessToken(accessToken)
+                .refreshToken(refreshToken)
+                .tokenType("Bearer")
+                .expiresAt(accessTokenExpiry)
+                .refreshExpiresAt(refreshTokenExpiry)
+                .build());
+    }
+
+    /**
+     * Record a returning user's login
+     * Issues at most one UPDATE by primary key, containing the profile fields that changed and
+     * the login time when the last recorded one is older than the cache's last-login interval.
+     * With nothing to write, no statement is issued.
+     *
+     * @param identity Identity as last written
+     * @param request OAuth exchange request
+     * @param now Login time
+     * @return Identity with the profile and login time as written, or null if the user no longer exists
+     */
+    private CachedIdentity touchUser(CachedIdentity identity, OAuthExchangeRequest request, LocalDateTime now) {
+        CachedIdentity updated = identity.withProfile(
+                request.getDisplayName(), request.getEmail(), request.getAvatarUrl());
+        boolean profileChanged = !updated.sameProfile(identity);
+        boolean recordLogin = !loginIdentityCache.loginRecentlyRecorded(identity, now);
+        if (!profileChanged && !recordLogin) {
+            return updated;
+        }
 
+        User user = new User();
+        user.setId(identity.getUserId());
+        if (profileChanged) {
+            user.setDisplayName(updated.getDisplayName());
+            user.setEmail(updated.getEmail());
+            user.setAvatarUrl(updated.getAvatarUrl());
+            log.info("Updated user information: {}", user.getId());
+        }
+        if (recordLogin) {
+            user.setLastLoginAt(now);
+        }
+        user.setUpdatedAt(now);
+
+        if (userMapper.updateById(user) == 0) {
+            return null;
+        }
+        return recordLogin ? updated.withLastLoginAt(now) : updated;
+    }
+
+    /**
+     * Create the user for a claimed identity
+     * If a concurrent first login already inserted the user, its insert has committed by the time
+     * ours fails, and the existing user is loaded and updated instead.
+     *
+     * @param userId User ID claimed for the identity
+     * @param request OAuth exchange request
+     * @param now Login time
+     * @return Identity as written, or null if the ID belongs to a deleted account
+     */
+    private CachedIdentity createUser(Long userId, OAuthExchangeRequest request, LocalDateTime now) {
+        User user = new User();
+        user.setId(userId);
+        user.setAuthProvider(request.getProvider());
+        user.setProviderUserId(request.getProviderUserId());
+        user.setDisplayName(request.getDisplayName());
+        user.setEmail(request.getEmail());
+        user.setAvatarUrl(request.getAvatarUrl());
+        user.setLastLoginAt(now);
+        user.setCreatedAt(now);
+        user.setUpdatedAt(now);
+
+        try {
             userMapper.insert(user);
             log.info("Created new user: {}", user.getId());
-        } else {
-            // Update existing user information if provided
-            boolean updated = false;
-            if (request.getDisplayName() != null && !request.getDisplayName().equals(user.getDisplayName())) {
-                user.setDisplayName(request.getDisplayName());
-                updated = true;
-            }
-            if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
-                user.setEmail(request.getEmail());
-                updated = true;
-            }
-            if (request.getAvatarUrl() != null && !request.getAvatarUrl().equals(user.getAvatarUrl())) {
-                user.setAvatarUrl(request.getAvatarUrl());
-                updated = true;
+            return CachedIdentity.of(user);
+        } catch (DuplicateKeyException e) {
+            User existing = userMapper.selectById(userId);
+            if (existing == null) {
+                return null;
             }
+            applyProfile(existing, request);
+            existing.setLastLoginAt(now);
+            existing.setUpdatedAt(now);
+            userMapper.updateById(existing);
+            return CachedIdentity.of(existing);
+        }
+    }
 
-            if (updated) {
-                user.setUpdatedAt(LocalDateTime.now());
-                userMapper.updateById(user);
-                log.info("Updated user information: {}", user.getId());
-            }
+    /**
+     * Claim an identity in the directory for a new user ID
+     * Runs outside any transaction, as the directory lives on shard 0.
+     *
+     * @param provider OAuth provider
+     * @param providerUserId User ID from provider
+     * @return User ID the identity belongs to: the new ID, or the one a concurrent login claimed
+     */
+    private Long claimIdentity(String provider, String providerUserId) {
+        UserIdentity identity = new UserIdentity();
+        identity.setAuthProvider(provider);
+        identity.setProviderUserId(providerUserId);
+        identity.setUserId(nextUserId());
+        if (userIdentityMapper.insertIgnore(identity) > 0) {
+            return identity.getUserId();
+        }
+        Long userId = userIdentityMapper.findUserId(provider, providerUserId);
+        if (userId == null) {
+            throw new IllegalStateException("Identity claimed but not found: " + provider);
         }
+        return userId;
+    }
+
+    private Long nextUserId() {
+        return idGenerator.nextId(new User()).longValue();
+    }
 
-        return user;
+    /**
+     * Copy profile fields provided by the client onto the user
+     *
+     * @param user User entity
+     * @param request OAuth exchange request
+     */
+    private void applyProfile(User user, OAuthExchangeRequest request) {
+        boolean updated = false;
+        if (request.getDisplayName() != null && !request.getDisplayName().equals(user.getDisplayName())) {
+            user.setDisplayName(request.getDisplayName());
+            updated = true;
+        }
+        if (request.getEmail() != null && !request.getEmail().equals(user.getEmail())) {
+            user.setEmail(request.getEmail());
+            updated = true;
+        }
+        if (request.getAvatarUrl() != null && !request.getAvatarUrl().equals(user.getAvatarUrl())) {
+            user.setAvatarUrl(request.getAvatarUrl());
+            updated = true;
+        }
+        if (updated) {
+            log.info("Updated user information: {}", user.getId());
+        }
     }
 
     /**
@@ -295,4 +577,10 @@ public class AuthService {
         authTokenMapper.insert(authToken);
         log.info("Saved auth token for user: {}", userId);
     }
+
+    /**
+     * Identity as written by a login, and the response returned to the client
+     */
+    private record Login(CachedIdentity identity, AuthResponse response) {
+    }
 }
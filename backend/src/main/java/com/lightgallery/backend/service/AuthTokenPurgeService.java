@@ -0,0 +1,171 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.mapper.AuthTokenMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Auth Token Purge Service
+ * Physically deletes auth_tokens rows whose refresh token has expired or that have been
+ * soft-deleted for longer than the grace period. Logout and every login leave soft-deleted rows
+ * behind, so without this the table grows without bound.
+ *
+ * Rows are deleted in small chunks walked in primary key order: each chunk selects the next IDs
+ * and deletes exactly those rows, keeping transactions and row locks short, and the job pauses
+ * between chunks so replicas can keep up. A pass walks the shards one after another.
+ *
+ * Metrics: {@code auth.tokens.purged}, {@code auth.tokens.purge.chunk} (timer),
+ * {@code auth.tokens.table.rows} and {@code auth.tokens.table.bytes} (estimates, refreshed after
+ * each run).
+ */
+@Slf4j
+@Service
+public class AuthTokenPurgeService {
+
+    private final AuthTokenMapper authTokenMapper;
+    private final ShardRouter shardRouter;
+    private final Clock clock;
+    private final Duration grace;
+    private final int chunkSize;
+    private final Duration pause;
+    private final int maxChunksPerRun;
+
+    private final Counter purged;
+    private final Timer chunkTimer;
+    private final AtomicLong tableRows = new AtomicLong();
+    private final AtomicLong tableBytes = new AtomicLong();
+
+    @Autowired
+    public AuthTokenPurgeService(AuthTokenMapper authTokenMapper,
+                                 ShardRouter shardRouter,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${auth.token-purge.grace:1d}") Duration grace,
+                                 @Value("${auth.token-purge.chunk-size:500}") int chunkSize,
+                                 @Value("${auth.token-purge.pause:200ms}") Duration pause,
+                                 @Value("${auth.token-purge.max-chunks-per-run:1000}") int maxChunksPerRun) {
+        this(authTokenMapper, shardRouter, meterRegistry, Clock.systemDefaultZone(), grace, chunkSize, pause,
+                maxChunksPerRun);
+    }
+
+    AuthTokenPurgeService(AuthTokenMapper authTokenMapper, ShardRouter shardRouter, MeterRegistry meterRegistry,
+                          Clock clock, Duration grace, int chunkSize, Duration pause, int maxChunksPerRun) {
+        this.authTokenMapper = authTokenMapper;
+        this.shardRouter = shardRouter;
+        this.clock = clock;
+        this.grace = grace;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.maxChunksPerRun = maxChunksPerRun;
+
+        this.purged = Counter.builder("auth.tokens.purged")
+                .description("auth_tokens rows physically deleted")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("auth.tokens.purge.chunk")
+                .description("Time to select and delete one chunk of auth_tokens rows")
+                .register(meterRegistry);
+        Gauge.builder("auth.tokens.table.rows", tableRows, AtomicLong::get)
+                .description("Estimated auth_tokens row count")
+                .register(meterRegistry);
+        Gauge.builder("auth.tokens.table.bytes", tableBytes, AtomicLong::get)
+                .description("Estimated auth_tokens data and index size")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Purge expired and soft-deleted tokens
+     */
+    @Scheduled(initialDelayString = "${auth.token-purge.initial-delay-ms:300000}",
+            fixedDelayString = "${auth.token-purge.interval-ms:3600000}")
+    public void scheduledPurge() {
+        try {
+            purge();
+        } catch (Exception e) {
+            log.error("Auth token purge failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run one purge pass over every shard
+     *
+     * @return Number of rows deleted
+     */
+    public long purge() {
+        LocalDateTime threshold = LocalDateTime.now(clock).minus(grace);
+        long total = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            total += shardRouter.onShard(shard, () -> purge(threshold));
+        }
+        refreshTableStats();
+        return total;
+    }
+
+    /**
+     * Purge one shard, the one pinned by the caller
+     */
+    private long purge(LocalDateTime threshold) {
+        long afterId = 0;
+        long total = 0;
+        int chunks = 0;
+
+        while (chunks < maxChunksPerRun) {
+            long start = System.nanoTime();
+            List<Long> ids = authTokenMapper.findPurgeableIds(afterId, threshold, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            int deleted = authTokenMapper.purgeByIds(ids);
+            chunkTimer.record(Duration.ofNanos(System.nanoTime() - start));
+
+            purged.increment(deleted);
+            total += deleted;
+            chunks++;
+            afterId = ids.get(ids.size() - 1);
+
+            if (ids.size() < chunkSize || !pauseBetweenChunks()) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("Purged {} auth_tokens rows in {} chunks", total, chunks);
+        }
+        return total;
+    }
+
+    private boolean pauseBetweenChunks() {
+        if (pause.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void refreshTableStats() {
+        Long rows = authTokenMapper.estimateRowCount();
+        Long bytes = authTokenMapper.tableSizeBytes();
+        tableRows.set(rows != null ? rows : 0);
+        tableBytes.set(bytes != null ? bytes : 0);
+    }
+}
@@ -2,26 +2,44 @@ package com.lightgallery.backend.service;
 
 import com.lightgallery.backend.entity.User;
 import com.lightgallery.backend.mapper.UserMapper;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Custom UserDetailsService implementation
  * Loads user details for Spring Security authentication
+ *
+ * Users listed in {@code auth.admin-user-ids} are also granted ROLE_ADMIN.
+ *
+ * The lookup runs outside any read-only transaction so it goes to the primary: a user who has
+ * just signed in may not have reached the replica yet, and their first request would be refused.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
+    private static final List<GrantedAuthority> USER_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"));
+    private static final List<GrantedAuthority> ADMIN_AUTHORITIES =
+            List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN"));
+
     private final UserMapper userMapper;
+    private final Set<Long> adminUserIds;
+
+    public CustomUserDetailsService(UserMapper userMapper,
+                                    @Value("${auth.admin-user-ids:}") Set<Long> adminUserIds) {
+        this.userMapper = userMapper;
+        this.adminUserIds = adminUserIds;
+    }
 
     @Override
     public UserDetails loadUserByUsername(String userId) throws UsernameNotFoundException {
@@ -37,7 +55,7 @@ public class CustomUserDetailsService implements UserDetailsService {
         return org.springframework.security.core.userdetails.User.builder()
                 .username(user.getId().toString())
                 .password("") // No password needed for OAuth users
-                .authorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")))
+                .authorities(adminUserIds.contains(user.getId()) ? ADMIN_AUTHORITIES : USER_AUTHORITIES)
                 .accountExpired(false)
                 .accountLocked(false)
                 .credentialsExpired(false)
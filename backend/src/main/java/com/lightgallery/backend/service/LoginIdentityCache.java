@@ -0,0 +1,229 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Login Identity Cache
+ * Bounded LRU cache from (provider, providerUserId) to the user ID and profile last written for
+ * that identity. Returning users skip the user lookup, and the profile UPDATE is skipped when
+ * the profile fingerprint has not changed. The login time is written at most once per
+ * {@code last-login-interval}.
+ *
+ * Entries are only invalidated on the instance that deleted the account, so the TTL is kept
+ * short: another instance may serve a deleted account's identity until its entry expires.
+ *
+ * Concurrent loads of the same identity are coalesced: only the first caller runs the loader
+ * and the others wait for its result.
+ */
+@Slf4j
+@Service
+public class LoginIdentityCache {
+
+    private final Clock clock;
+    private final int maxSize;
+    private final Duration ttl;
+    private final Duration lastLoginInterval;
+
+    private final Map<Key, Entry> entries;
+    private final Map<Key, CompletableFuture<CachedIdentity>> inFlight = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LoginIdentityCache(@Value("${auth.login-cache.max-size:10000}") int maxSize,
+                              @Value("${auth.login-cache.ttl:5m}") Duration ttl,
+                              @Value("${auth.login-cache.last-login-interval:15m}") Duration lastLoginInterval) {
+        this(Clock.systemUTC(), maxSize, ttl, lastLoginInterval);
+    }
+
+    LoginIdentityCache(Clock clock, int maxSize, Duration ttl, Duration lastLoginInterval) {
+        this.clock = clock;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.lastLoginInterval = lastLoginInterval;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > LoginIdentityCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the cached identity
+     *
+     * @param provider OAuth provider
+     * @param providerUserId User ID from provider
+     * @return Cached identity, or null if absent or expired
+     */
+    public CachedIdentity get(String provider, String providerUserId) {
+        Key key = new Key(provider, providerUserId);
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.instant().isAfter(entry.expiresAt)) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.identity;
+        }
+    }
+
+    /**
+     * Get the cached identity, loading it on a miss
+     * Concurrent misses for the same identity share one loader call. A null result is not cached.
+     *
+     * @param provider OAuth provider
+     * @param providerUserId User ID from provider
+     * @param loader Loads the identity, returning null if the user does not exist
+     * @return Identity, or null if the loader found none
+     */
+    public CachedIdentity getOrLoad(String provider, String providerUserId, Supplier<CachedIdentity> loader) {
+        CachedIdentity cached = get(provider, providerUserId);
+        if (cached != null) {
+            return cached;
+        }
+
+        Key key = new Key(provider, providerUserId);
+        CompletableFuture<CachedIdentity> pending = new CompletableFuture<>();
+        CompletableFuture<CachedIdentity> existing = inFlight.putIfAbsent(key, pending);
+        if (existing != null) {
+            log.debug("Joining in-flight load for {} identity", provider);
+            return existing.join();
+        }
+
+        try {
+            CachedIdentity identity = loader.get();
+            if (identity != null) {
+                put(identity);
+            }
+            pending.complete(identity);
+            return identity;
+        } catch (RuntimeException e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    /**
+     * Cache the identity as last written to the database
+     */
+    public void put(CachedIdentity identity) {
+        Key key = new Key(identity.getProvider(), identity.getProviderUserId());
+        synchronized (entries) {
+            entries.put(key, new Entry(identity, clock.instant().plus(ttl)));
+        }
+    }
+
+    /**
+     * Remove every cached identity of a user
+     *
+     * @param userId User ID
+     */
+    public void invalidateUser(Long userId) {
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.identity.getUserId().equals(userId));
+        }
+    }
+
+    /**
+     * True if the identity's last login was recorded recently enough to skip recording this one
+     *
+     * @param identity Identity as last written
+     * @param now Login time
+     */
+    public boolean loginRecentlyRecorded(CachedIdentity identity, LocalDateTime now) {
+        return identity.getLastLoginAt() != null && identity.getLastLoginAt().isAfter(now.minus(lastLoginInterval));
+    }
+
+    /**
+     * Number of cached identities
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * User ID and profile of one login identity
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class CachedIdentity {
+
+        private final Long userId;
+        private final String provider;
+        private final String providerUserId;
+        private final String displayName;
+        private final String email;
+        private final String avatarUrl;
+        private final LocalDateTime lastLoginAt;
+
+        public static CachedIdentity of(User user) {
+            return new CachedIdentity(user.getId(), user.getAuthProvider(), user.getProviderUserId(),
+                    user.getDisplayName(), user.getEmail(), user.getAvatarUrl(), user.getLastLoginAt());
+        }
+
+        /**
+         * Fingerprint of the profile fields written on login
+         */
+        public int fingerprint() {
+            return Objects.hash(displayName, email, avatarUrl);
+        }
+
+        /**
+         * This identity with client-provided profile fields applied; null fields keep the cached value
+         */
+        public CachedIdentity withProfile(String newDisplayName, String newEmail, String newAvatarUrl) {
+            return new CachedIdentity(userId, provider, providerUserId,
+                    newDisplayName != null ? newDisplayName : displayName,
+                    newEmail != null ? newEmail : email,
+                    newAvatarUrl != null ? newAvatarUrl : avatarUrl,
+                    lastLoginAt);
+        }
+
+        /**
+         * This identity with the login time as written
+         */
+        public CachedIdentity withLastLoginAt(LocalDateTime newLastLoginAt) {
+            return new CachedIdentity(userId, provider, providerUserId, displayName, email, avatarUrl,
+                    newLastLoginAt);
+        }
+
+        /**
+         * True if the profile fields equal the other identity's
+         */
+        public boolean sameProfile(CachedIdentity other) {
+            return fingerprint() == other.fingerprint()
+                    && Objects.equals(displayName, other.displayName)
+                    && Objects.equals(email, other.email)
+                    && Objects.equals(avatarUrl, other.avatarUrl);
+        }
+    }
+
+    private record Key(String provider, String providerUserId) {
+    }
+
+    private record Entry(CachedIdentity identity, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.dto.OAuthProfile;
+
+/**
+ * OAuth Provider
+ * A login provider registered with {@link OAuthProviderService} under its name. Implementations
+ * are plain blocking validators; the registry runs them on the provider's own executor.
+ */
+public interface OAuthProvider {
+
+    /**
+     * Provider name used in login requests (e.g. wechat, alipay, apple)
+     *
+     * @return Lower-case provider name
+     */
+    String getName();
+
+    /**
+     * Validate an authorization code or token with the provider
+     *
+     * @param code Authorization code or token
+     * @param providerUserId User ID the client claims to be
+     * @return true if the provider accepts the token for that user
+     */
+    boolean validateToken(String code, String providerUserId);
+
+    /**
+     * Validate the token and return the verified identity
+     * Providers that can return profile data (name, avatar) override this; the default only
+     * confirms the client-supplied user ID.
+     *
+     * @param code Authorization code or token
+     * @param providerUserId User ID the client claims to be, may be null if the provider returns it
+     * @return Verified profile, or null if the token is invalid
+     */
+    default OAuthProfile authenticate(String code, String providerUserId) {
+        return validateToken(code, providerUserId)
+                ? OAuthProfile.builder().providerUserId(providerUserId).build()
+                : null;
+    }
+}
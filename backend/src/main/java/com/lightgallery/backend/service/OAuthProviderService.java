@@ -1,48 +1,188 @@
 package com.lightgallery.backend.service;
 
-import lombok.RequiredArgsConstructor;
+import com.lightgallery.backend.config.OAuthProviderProperties;
+import com.lightgallery.backend.dto.OAuthProfile;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * OAuth Provider Service
- * Validates OAuth tokens from different providers (WeChat, Alipay, Apple)
+ * Registry of {@link OAuthProvider} beans keyed by name. Each provider validates on its own
+ * bounded executor with its own deadline, so a slow provider only exhausts its own threads and
+ * never blocks request threads or logins through the other providers.
+ *
+ * Validation latency is published as the {@code oauth.provider.validation} timer (with
+ * percentile histogram), tagged by provider and outcome.
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class OAuthProviderService {
 
-    private final WeChatOAuthService weChatOAuthService;
-    private final AlipayOAuthService alipayOAuthService;
-    private final AppleOAuthService appleOAuthService;
+    static final String VALIDATION_TIMER = "oauth.provider.validation";
+
+    static final String OUTCOME_VALID = "valid";
+    static final String OUTCOME_INVALID = "invalid";
+    static final String OUTCOME_ERROR = "error";
+    static final String OUTCOME_TIMEOUT = "timeout";
+    static final String OUTCOME_REJECTED = "rejected";
+    static final String OUTCOME_UNAVAILABLE = "unavailable";
+
+    private final Map<String, Registration> registrations = new LinkedHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public OAuthProviderService(List<OAuthProvider> providers, OAuthProviderProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (OAuthProvider provider : providers) {
+            String name = provider.getName().toLowerCase(Locale.ROOT);
+            if (registrations.containsKey(name)) {
+                throw new IllegalStateException("Duplicate OAuth provider: " + name);
+            }
+            registrations.put(name, new Registration(provider, properties.resolve(name)));
+        }
+        log.info("Registered OAuth providers: {}", registrations.keySet());
+    }
 
     /**
      * Validate OAuth token with the appropriate provider
      *
-     * @param provider OAuth provider (wechat, alipay, apple)
+     * @param provider OAuth provider name (e.g. wechat, alipay, apple)
      * @param code Authorization code or token
      * @param providerUserId User ID from provider
-     * @return true if token is valid, false otherwise
+     * @return Future completed with true if the token is valid
      */
-    public boolean validateOAuthToken(String provider, String code, String providerUserId) {
+    public CompletableFuture<Boolean> validateOAuthToken(String provider, String code, String providerUserId) {
+        return authenticate(provider, code, providerUserId).thenApply(Objects::nonNull);
+    }
+
+    /**
+     * Authenticate with the appropriate provider
+     * Unknown providers, invalid tokens, provider errors, a full executor and a missed deadline
+     * all complete the returned future with null. Only a provider whose circuit breaker or
+     * bulkhead refuses the call completes it exceptionally, with {@link ProviderUnavailableException},
+     * so the client gets a 503 rather than a rejected login.
+     *
+     * @param provider OAuth provider name (e.g. wechat, alipay, apple)
+     * @param code Authorization code or token
+     * @param providerUserId User ID from provider, may be null if the provider returns it
+     * @return Future completed with the verified profile, or null
+     */
+    public CompletableFuture<OAuthProfile> authenticate(String provider, String code, String providerUserId) {
         log.info("Validating OAuth token for provider: {}", provider);
 
-        try {
-            switch (provider.toLowerCase()) {
-                case "wechat":
-                    return weChatOAuthService.validateToken(code, providerUserId);
-                case "alipay":
-                    return alipayOAuthService.validateToken(code, providerUserId);
-                case "apple":
-                    return appleOAuthService.validateToken(code, providerUserId);
-                default:
-                    log.error("Unknown OAuth provider: {}", provider);
-                    return false;
+        Registration registration = provider != null ? registrations.get(provider.toLowerCase(Locale.ROOT)) : null;
+        if (registration == null) {
+            log.error("Unknown OAuth provider: {}", provider);
+            return CompletableFuture.completedFuture(null);
+        }
+        return registration.authenticate(code, providerUserId);
+    }
+
+    /**
+     * Names of the registered providers
+     */
+    public Set<String> getProviderNames() {
+        return registrations.keySet();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        registrations.values().forEach(registration -> registration.executor.shutdownNow());
+    }
+
+    /**
+     * One registered provider with its executor and deadline
+     */
+    private final class Registration {
+
+        private final OAuthProvider provider;
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final Duration deadline;
+
+        Registration(OAuthProvider provider, OAuthProviderProperties.Settings settings) {
+            this.provider = provider;
+            this.name = provider.getName().toLowerCase(Locale.ROOT);
+            this.deadline = settings.getDeadline();
+            this.executor = new ThreadPoolExecutor(
+                    settings.getMaxConcurrentCalls(), settings.getMaxConcurrentCalls(),
+                    60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(settings.getQueueCapacity()),
+                    threadFactory(name));
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        CompletableFuture<OAuthProfile> authenticate(String code, String providerUserId) {
+            long start = System.nanoTime();
+            CompletableFuture<OAuthProfile> result;
+            try {
+                result = CompletableFuture.supplyAsync(() -> provider.authenticate(code, providerUserId), executor);
+            } catch (RejectedExecutionException e) {
+                log.warn("OAuth provider {} is saturated, rejecting validation", name);
+                record(OUTCOME_REJECTED, start);
+                return CompletableFuture.completedFuture(null);
             }
-        } catch (Exception e) {
-            log.error("OAuth token validation failed for provider {}: {}", provider, e.getMessage(), e);
-            return false;
+
+            return result
+                    .orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS)
+                    .handle((profile, error) -> {
+                        if (error == null) {
+                            record(profile != null ? OUTCOME_VALID : OUTCOME_INVALID, start);
+                            return profile;
+                        }
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        if (cause instanceof ProviderUnavailableException unavailable) {
+                            record(OUTCOME_UNAVAILABLE, start);
+                            throw unavailable;
+                        }
+                        if (cause instanceof TimeoutException) {
+                            log.error("OAuth token validation for provider {} exceeded deadline of {}", name, deadline);
+                            record(OUTCOME_TIMEOUT, start);
+                        } else {
+                            log.error("OAuth token validation failed for provider {}: {}", name, cause.getMessage(), cause);
+                            record(OUTCOME_ERROR, start);
+                        }
+                        return null;
+                    });
         }
+
+        private void record(String outcome, long start) {
+            Timer.builder(VALIDATION_TIMER)
+                    .description("OAuth token validation latency")
+                    .tag("provider", name)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static ThreadFactory threadFactory(String provider) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "oauth-" + provider + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
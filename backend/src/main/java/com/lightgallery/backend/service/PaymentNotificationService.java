@@ -0,0 +1,427 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.entity.PaymentNotification;
+import com.lightgallery.backend.entity.Subscription;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import com.lightgallery.backend.mapper.PaymentNotificationMapper;
+import com.lightgallery.backend.mapper.SubscriptionMapper;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import com.lightgallery.backend.util.AlipayNotifyVerifier;
+import com.lightgallery.backend.util.WeChatPayNotifyVerifier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Payment Notification Service
+ * Ingests WeChat Pay v3 and Alipay asynchronous notifications into an inbox table and applies
+ * them to transactions and subscriptions in batches.
+ *
+ * Ingestion verifies the provider signature locally and performs a single INSERT IGNORE keyed by
+ * the provider notification ID, so callbacks are acknowledged without touching the gateways.
+ *
+ * The inbox lives on shard 0 and transactions on their user's shard, so a batch is applied one
+ * shard at a time, each in one transaction on that shard. Notifications for shard 0 are marked in
+ * that same transaction; those for any other shard right after its transaction commits.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentNotificationService {
+
+    public static final String OUTCOME_VERIFIED = "verified";
+    public static final String OUTCOME_FAILED = "failed";
+    public static final String OUTCOME_REFUNDED = "refunded";
+    public static final String OUTCOME_IGNORED = "ignored";
+
+    static final String STATUS_APPLIED = "applied";
+    static final String STATUS_IGNORED = "ignored";
+
+    private final PaymentNotificationMapper notificationMapper;
+    private final TransactionMapper transactionMapper;
+    private final SubscriptionMapper subscriptionMapper;
+    private final SubscriptionService subscriptionService;
+    private final WeChatPayNotifyVerifier weChatPayNotifyVerifier;
+    private final AlipayNotifyVerifier alipayNotifyVerifier;
+    private final AuditLogService auditLogService;
+    private final ObjectMapper objectMapper;
+    private final ShardRouter shardRouter;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${notifications.payment.batch-size:200}")
+    private int batchSize;
+
+    @Value("${notifications.payment.max-attempts:10}")
+    private int maxAttempts;
+
+    /**
+     * Verify, decrypt and store a WeChat Pay v3 notification
+     *
+     * @param timestamp Wechatpay-Timestamp header
+     * @param nonce Wechatpay-Nonce header
+     * @param signature Wechatpay-Signature header
+     * @param serial Wechatpay-Serial header
+     * @param body Raw request body
+     * @return true if stored, false if the notification was already received
+     * @throws PaymentVerificationException if the signature or resource is invalid
+     */
+    public boolean ingestWeChatPay(String timestamp, String nonce, String signature, String serial, String body) {
+        weChatPayNotifyVerifier.verifySignature(timestamp, nonce, signature, serial, body);
+
+        JsonNode envelope = readJson(body, ProviderCallGuard.WECHAT_PAY);
+        JsonNode resource = envelope.path("resource");
+        String plaintext = weChatPayNotifyVerifier.decryptResource(
+                resource.path("associated_data").asText(null),
+                resource.path("nonce").asText(),
+                resource.path("ciphertext").asText());
+        JsonNode content = readJson(plaintext, ProviderCallGuard.WECHAT_PAY);
+
+        String eventType = envelope.path("event_type").asText();
+        boolean refund = eventType.startsWith("REFUND.");
+        JsonNode amount = content.path("amount");
+
+        PaymentNotification notification = new PaymentNotification();
+        notification.setProvider(ProviderCallGuard.WECHAT_PAY);
+        notification.setNotifyId(envelope.path("id").asText(null));
+        notification.setEventType(eventType);
+        notification.setPlatformTransactionId(content.path("transaction_id").asText(null));
+        notification.setTradeState(content.path(refund ? "refund_status" : "trade_state").asText(null));
+        JsonNode fen = amount.path(refund ? "refund" : "total");
+        notification.setAmount(fen.canConvertToLong() ? BigDecimal.valueOf(fen.asLong(), 2) : null);
+        notification.setOutcome(resolveWeChatOutcome(eventType, notification.getTradeState()));
+        notification.setPayload(plaintext);
+
+        return store(notification);
+    }
+
+    /**
+     * Verify and store an Alipay asynchronous notification
+     *
+     * @param params Notification form parameters
+     * @return true if stored, false if the notification was already received
+     * @throws PaymentVerificationException if the signature is invalid
+     */
+    public boolean ingestAlipay(Map<String, String> params) {
+        alipayNotifyVerifier.verify(params);
+
+        String tradeStatus = params.get("trade_status");
+        boolean refunded = hasText(params.get("refund_fee")) || hasText(params.get("gmt_refund"));
+
+        Map<String, String> content = new TreeMap<>(params);
+        content.remove("sign");
+
+        PaymentNotification notification = new PaymentNotification();
+        notification.setProvider(ProviderCallGuard.ALIPAY);
+        notification.setNotifyId(params.get("notify_id"));
+        notification.setEventType(params.get("notify_type"));
+        notification.setPlatformTransactionId(params.get("out_trade_no"));
+        notification.setTradeState(tradeStatus);
+        notification.setAmount(hasText(params.get("total_amount")) ? new BigDecimal(params.get("total_amount")) : null);
+        notification.setOutcome(resolveAlipayOutcome(tradeStatus, refunded));
+        try {
+            notification.setPayload(objectMapper.writeValueAsString(content));
+        } catch (JsonProcessingException e) {
+            notification.setPayload(content.toString());
+        }
+
+        return store(notification);
+    }
+
+    /**
+     * Apply one batch of pending notifications
+     * Matching transactions are loaded with one query per provider and grouped by their user's
+     * shard. On each shard, verification status changes and refund cancellations are written as
+     * one UPDATE per resulting status. A purchase the provider confirms after it was recorded as
+     * failed or pending grants its subscription through SubscriptionService and is linked to it.
+     * A refunded transaction stays refunded.
+     *
+     * @return Number of notifications processed
+     */
+    @Scheduled(fixedDelayString = "${notifications.payment.apply-interval-ms:5000}")
+    public int applyPendingNotifications() {
+        List<PaymentNotification> pending = notificationMapper.findPending(batchSize);
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Set<String>> idsByProvider = new HashMap<>();
+        for (PaymentNotification notification : pending) {
+            if (notification.getPlatformTransactionId() != null) {
+                idsByProvider.computeIfAbsent(notification.getProvider(), key -> new LinkedHashSet<>())
+                        .add(notification.getPlatformTransactionId());
+            }
+        }
+
+        Map<String, Transaction> transactions = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : idsByProvider.entrySet()) {
+            for (Transaction transaction : transactionMapper.findByPlatformTransactionIds(
+                    entry.getKey(), new ArrayList<>(entry.getValue()))) {
+                transactions.put(key(entry.getKey(), transaction.getPlatformTransactionId()), transaction);
+            }
+        }
+
+        // Last notification in arrival order wins for each transaction
+        Map<Integer, ShardBatch> byShard = new TreeMap<>();
+        List<Long> ignored = new ArrayList<>();
+        List<Long> unmatched = new ArrayList<>();
+
+        for (PaymentNotification notification : pending) {
+            if (OUTCOME_IGNORED.equals(notification.getOutcome()) || notification.getPlatformTransactionId() == null) {
+                ignored.add(notification.getId());
+                continue;
+            }
+            Transaction transaction = transactions.get(
+                    key(notification.getProvider(), notification.getPlatformTransactionId()));
+            if (transaction == null) {
+                unmatched.add(notification.getId());
+                continue;
+            }
+            if (Transaction.STATUS_REFUNDED.equals(transaction.getVerificationStatus())) {
+                ignored.add(notification.getId());
+                continue;
+            }
+            ShardBatch batch = byShard.computeIfAbsent(shardOf(transaction.getUserId()), shard -> new ShardBatch());
+            batch.finalOutcome.put(transaction.getId(), notification);
+            batch.matched.put(transaction.getId(), transaction);
+            batch.applied.add(notification.getId());
+        }
+
+        int applied = 0;
+        for (Map.Entry<Integer, ShardBatch> entry : byShard.entrySet()) {
+            ShardBatch batch = entry.getValue();
+            if (entry.getKey() == ShardRouter.DEFAULT_SHARD) {
+                continue;
+            }
+            shardRouter.onShard(entry.getKey(), () -> inTransaction(() -> apply(batch)));
+            inTransaction(() -> markProcessed(batch.applied, List.of(), List.of()));
+            applied += batch.applied.size();
+        }
+        ShardBatch local = byShard.getOrDefault(ShardRouter.DEFAULT_SHARD, new ShardBatch());
+        shardRouter.onShard(ShardRouter.DEFAULT_SHARD, () -> inTransaction(() -> {
+            apply(local);
+            return markProcessed(local.applied, ignored, unmatched);
+        }));
+        applied += local.applied.size();
+
+        log.info("Applied payment notifications: applied={}, ignored={}, unmatched={}",
+                applied, ignored.size(), unmatched.size());
+        return pending.size();
+    }
+
+    /**
+     * Apply the final outcome of each matched transaction on the current shard
+     */
+    private ShardBatch apply(ShardBatch batch) {
+        Map<String, List<Long>> transactionsByStatus = new LinkedHashMap<>();
+        List<Transaction> toGrant = new ArrayList<>();
+        List<Long> subscriptionsToCancel = new ArrayList<>();
+
+        for (Map.Entry<Long, PaymentNotification> entry : batch.finalOutcome.entrySet()) {
+            Transaction transaction = batch.matched.get(entry.getKey());
+            PaymentNotification notification = entry.getValue();
+            String outcome = notification.getOutcome();
+            String verificationStatus = verificationStatus(outcome);
+
+            transactionsByStatus.computeIfAbsent(verificationStatus + '|' + outcome, key -> new ArrayList<>())
+                    .add(transaction.getId());
+
+            if (OUTCOME_VERIFIED.equals(outcome)
+                    && !Transaction.STATUS_VERIFIED.equals(transaction.getVerificationStatus())) {
+                toGrant.add(transaction);
+            } else if (OUTCOME_REFUNDED.equals(outcome) && transaction.getSubscriptionId() != null) {
+                subscriptionsToCancel.add(transaction.getSubscriptionId());
+            }
+
+            auditLogService.logPaymentVerification(transaction.getUserId(), notification.getProvider(),
+                    notification.getPlatformTransactionId(),
+                    transaction.getAmount() != null ? transaction.getAmount().doubleValue() : null,
+                    transaction.getCurrency(), OUTCOME_VERIFIED.equals(outcome));
+        }
+
+        for (Map.Entry<String, List<Long>> entry : transactionsByStatus.entrySet()) {
+            String[] parts = entry.getKey().split("\\|", 2);
+            transactionMapper.updateVerificationStatusBatch(entry.getValue(), parts[0],
+                    "Provider notification: " + parts[1]);
+        }
+        for (Transaction transaction : toGrant) {
+            grant(transaction);
+        }
+        if (!subscriptionsToCancel.isEmpty()) {
+            subscriptionMapper.updateStatusBatch(subscriptionsToCancel, "cancelled");
+        }
+        return batch;
+    }
+
+    /**
+     * Record processed notifications in the inbox on shard 0
+     */
+    private Void markProcessed(List<Long> applied, List<Long> ignored, List<Long> unmatched) {
+        if (!applied.isEmpty()) {
+            notificationMapper.markProcessed(applied, STATUS_APPLIED);
+        }
+        if (!ignored.isEmpty()) {
+            notificationMapper.markProcessed(ignored, STATUS_IGNORED);
+        }
+        if (!unmatched.isEmpty()) {
+            notificationMapper.recordUnmatched(unmatched, maxAttempts);
+        }
+        return null;
+    }
+
+    /**
+     * Shard of a user; a row without one is left on shard 0
+     */
+    private int shardOf(Long userId) {
+        return userId != null ? shardRouter.shardFor(userId) : ShardRouter.DEFAULT_SHARD;
+    }
+
+    private <T> T inTransaction(Supplier<T> work) {
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    /**
+     * Grant the subscription a newly verified purchase paid for and link the transaction to it
+     */
+    private void grant(Transaction transaction) {
+        if (transaction.getTier() == null || transaction.getBillingPeriod() == null) {
+            log.warn("Verified transaction {} records no tier or billing period, no subscription granted",
+                    transaction.getId());
+            return;
+        }
+        Subscription subscription = subscriptionService.grantVerifiedTransaction(transaction);
+        if (!subscription.getId().equals(transaction.getSubscriptionId())) {
+            transactionMapper.updateSubscriptionId(transaction.getId(), transaction.getUserId(),
+                    subscription.getId());
+        }
+    }
+
+    /**
+     * Transaction verification status recorded for a notification outcome
+     */
+    static String verificationStatus(String outcome) {
+        switch (outcome) {
+            case OUTCOME_VERIFIED:
+                return Transaction.STATUS_VERIFIED;
+            case OUTCOME_REFUNDED:
+                return Transaction.STATUS_REFUNDED;
+            default:
+                return Transaction.STATUS_FAILED;
+        }
+    }
+
+    /**
+     * Map a WeChat Pay event to an outcome
+     *
+     * @param eventType Notification event type
+     * @param state trade_state or refund_status
+     * @return Outcome
+     */
+    static String resolveWeChatOutcome(String eventType, String state) {
+        if (eventType != null && eventType.startsWith("REFUND.")) {
+            return "SUCCESS".equals(state) ? OUTCOME_REFUNDED : OUTCOME_IGNORED;
+        }
+        if (state == null) {
+            return OUTCOME_IGNORED;
+        }
+        switch (state) {
+            case "SUCCESS":
+                return OUTCOME_VERIFIED;
+            case "CLOSED":
+            case "REVOKED":
+            case "PAYERROR":
+                return OUTCOME_FAILED;
+            case "REFUND":
+                return OUTCOME_REFUNDED;
+            default:
+                return OUTCOME_IGNORED;
+        }
+    }
+
+    /**
+     * Map an Alipay trade status to an outcome
+     *
+     * @param tradeStatus trade_status parameter
+     * @param refunded Whether the notification carries refund details
+     * @return Outcome
+     */
+    static String resolveAlipayOutcome(String tradeStatus, boolean refunded) {
+        if (refunded) {
+            return OUTCOME_REFUNDED;
+        }
+        if (tradeStatus == null) {
+            return OUTCOME_IGNORED;
+        }
+        switch (tradeStatus) {
+            case "TRADE_SUCCESS":
+            case "TRADE_FINISHED":
+                return OUTCOME_VERIFIED;
+            case "TRADE_CLOSED":
+                return OUTCOME_FAILED;
+            default:
+                return OUTCOME_IGNORED;
+        }
+    }
+
+    private boolean store(PaymentNotification notification) {
+        if (!hasText(notification.getNotifyId())) {
+            throw new PaymentVerificationException("Notification ID is missing", notification.getProvider(),
+                    notification.getPlatformTransactionId(), "INVALID_NOTIFICATION");
+        }
+        boolean stored = notificationMapper.insertIgnore(notification) > 0;
+        if (stored) {
+            log.info("Stored payment notification: provider={}, event={}, outcome={}, notifyId={}",
+                    notification.getProvider(), notification.getEventType(), notification.getOutcome(),
+                    notification.getNotifyId());
+        } else {
+            log.info("Duplicate payment notification ignored: provider={}, notifyId={}",
+                    notification.getProvider(), notification.getNotifyId());
+        }
+        return stored;
+    }
+
+    private JsonNode readJson(String json, String provider) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new PaymentVerificationException("Malformed notification body", provider, null,
+                    "INVALID_NOTIFICATION");
+        }
+    }
+
+    private static String key(String provider, String platformTransactionId) {
+        return provider + ':' + platformTransactionId;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    /**
+     * Matched notifications whose transactions belong to users on one shard
+     */
+    private static final class ShardBatch {
+
+        private final Map<Long, PaymentNotification> finalOutcome = new LinkedHashMap<>();
+        private final Map<Long, Transaction> matched = new HashMap<>();
+        private final List<Long> applied = new ArrayList<>();
+    }
+}
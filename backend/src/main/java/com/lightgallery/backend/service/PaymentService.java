@@ -1,6 +1,12 @@
 package com.lightgallery.backend.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.lightgallery.backend.dto.AppleSignedTransaction;
 import com.lightgallery.backend.dto.PaymentVerificationRequest;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
+import com.lightgallery.backend.mapper.PaymentNotificationMapper;
+import com.lightgallery.backend.util.AppleJwsVerifier;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,6 +14,9 @@ import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
@@ -23,11 +32,17 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PaymentService {
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final ProviderCallGuard providerCallGuard;
+    private final PaymentNotificationMapper paymentNotificationMapper;
+    private final AppleJwsVerifier appleJwsVerifier;
 
     @Value("${apple.iap.shared-secret:}")
     private String appleSharedSecret;
 
+    @Value("${apple.iap.bundle-id:}")
+    private String appleBundleId;
+
     @Value("${apple.iap.sandbox-url:https://sandbox.itunes.apple.com/verifyReceipt}")
     private String appleSandboxUrl;
 
@@ -57,6 +72,7 @@ public class PaymentService {
      * 
      * @param request Payment verification request
      * @return true if payment is verified, false otherwise
+     * @throws ProviderUnavailableException if the provider's circuit is open or its bulkhead is full
      */
     public boolean verifyPayment(PaymentVerificationRequest request) {
         log.info("Verifying payment: method={}, transactionId={}, platform={}", 
@@ -86,6 +102,8 @@ public class PaymentService {
                     log.error("Unknown payment method: {}", request.getPaymentMethod());
                     return false;
             }
+        } catch (ProviderUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Payment verification failed: method={}, transactionId={}, error={}", 
                     request.getPaymentMethod(), request.getTransactionId(), e.getMessage(), e);
@@ -93,6 +111,49 @@ public class PaymentService {
         }
     }
 
+    /**
+     * Verify a StoreKit 2 signed transaction locally
+     * Checks the x5c certificate chain and ES256 signature without calling Apple, then
+     * extracts the purchase details from the verified payload.
+     * 
+     * @param signedTransaction JWS signed transaction from StoreKit 2
+     * @return Verified transaction details
+     * @throws PaymentVerificationException if the JWS is invalid, revoked, expired or for another app
+     */
+    public AppleSignedTransaction verifySignedTransaction(String signedTransaction) {
+        JsonNode payload = appleJwsVerifier.verifyAndDecode(signedTransaction);
+
+        AppleSignedTransaction transaction = AppleSignedTransaction.builder()
+                .transactionId(payload.path("transactionId").asText(null))
+                .originalTransactionId(payload.path("originalTransactionId").asText(null))
+                .productId(payload.path("productId").asText(null))
+                .bundleId(payload.path("bundleId").asText(null))
+                .expiresDate(toLocalDateTime(payload.path("expiresDate")))
+                .environment(payload.path("environment").asText(null))
+                .build();
+
+        if (transaction.getTransactionId() == null || transaction.getProductId() == null) {
+            throw new PaymentVerificationException("Signed transaction is missing required fields",
+                    "apple_iap", transaction.getTransactionId(), "INVALID_TRANSACTION");
+        }
+        if (appleBundleId != null && !appleBundleId.isEmpty() && !appleBundleId.equals(transaction.getBundleId())) {
+            throw new PaymentVerificationException("Signed transaction bundle ID mismatch",
+                    "apple_iap", transaction.getTransactionId(), "INVALID_BUNDLE_ID");
+        }
+        if (payload.hasNonNull("revocationDate")) {
+            throw new PaymentVerificationException("Signed transaction has been revoked",
+                    "apple_iap", transaction.getTransactionId(), "TRANSACTION_REVOKED");
+        }
+        if (transaction.getExpiresDate() != null && transaction.getExpiresDate().isBefore(LocalDateTime.now())) {
+            throw new PaymentVerificationException("Signed transaction has expired",
+                    "apple_iap", transaction.getTransactionId(), "TRANSACTION_EXPIRED");
+        }
+
+        log.info("Apple signed transaction verified locally: transactionId={}, productId={}, environment={}",
+                transaction.getTransactionId(), transaction.getProductId(), transaction.getEnvironment());
+        return transaction;
+    }
+
     /**
      * Verify Apple IAP receipt
      * Validates receipt with Apple's verification servers
@@ -150,12 +211,8 @@ public class PaymentService {
             HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
 
             // Send request to Apple
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    verifyUrl,
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
+            ResponseEntity<Map> response = providerCallGuard.call(ProviderCallGuard.APPLE_IAP,
+                    () -> restTemplate.exchange(verifyUrl, HttpMethod.POST, entity, Map.class));
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -178,6 +235,9 @@ public class PaymentService {
             log.error("Apple receipt verification failed: invalid response");
             return false;
 
+        } catch (ProviderUnavailableException e) {
+            log.error("Apple receipt verification unavailable: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
             log.error("Error verifying Apple receipt: {}", e.getMessage(), e);
             return false;
@@ -196,6 +256,12 @@ public class PaymentService {
     private boolean verifyWeChatPayment(PaymentVerificationRequest request) {
         log.info("Verifying WeChat payment: transactionId={}", request.getTransactionId());
 
+        // A signed notify callback already settled this payment, no need to poll the gateway
+        Boolean notified = notifiedOutcome(ProviderCallGuard.WECHAT_PAY, request.getTransactionId());
+        if (notified != null) {
+            return notified;
+        }
+
         // Check if WeChat credentials are configured
         if (wechatAppId == null || wechatAppId.isEmpty() || 
             wechatAppSecret == null || wechatAppSecret.isEmpty()) {
@@ -217,12 +283,8 @@ public class PaymentService {
             HttpEntity<Void> entity = new HttpEntity<>(headers);
 
             // Send request to WeChat
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    verifyUrl,
-                    HttpMethod.GET,
-                    entity,
-                    Map.class
-            );
+            ResponseEntity<Map> response = providerCallGuard.call(ProviderCallGuard.WECHAT_PAY,
+                    () -> restTemplate.exchange(verifyUrl, HttpMethod.GET, entity, Map.class));
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -241,11 +303,12 @@ public class PaymentService {
             log.error("WeChat payment verification failed: invalid response");
             return false;
 
+        } catch (ProviderUnavailableException e) {
+            log.error("WeChat Pay unavailable: transactionId={}", request.getTransactionId());
+            throw e;
         } catch (Exception e) {
             log.error("Error verifying WeChat payment: {}", e.getMessage(), e);
-            // In development, allow unverified payments if API is not available
-            log.warn("Allowing WeChat payment due to verification error (development mode)");
-            return true;
+            return false;
         }
     }
 
@@ -261,6 +324,12 @@ public class PaymentService {
     private boolean verifyAlipayPayment(PaymentVerificationRequest request) {
         log.info("Verifying Alipay payment: transactionId={}", request.getTransactionId());
 
+        // A signed notify callback already settled this payment, no need to poll the gateway
+        Boolean notified = notifiedOutcome(ProviderCallGuard.ALIPAY, request.getTransactionId());
+        if (notified != null) {
+            return notified;
+        }
+
         // Check if Alipay credentials are configured
         if (alipayAppId == null || alipayAppId.isEmpty()) {
             log.warn("Alipay credentials not configured, skipping verification");
@@ -300,7 +369,8 @@ public class PaymentService {
             String verifyUrl = alipayGatewayUrl + "?" + queryString.toString();
 
             // Send request to Alipay
-            ResponseEntity<Map> response = restTemplate.getForEntity(verifyUrl, Map.class);
+            ResponseEntity<Map> response = providerCallGuard.call(ProviderCallGuard.ALIPAY,
+                    () -> restTemplate.getForEntity(verifyUrl, Map.class));
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Map<String, Object> responseBody = response.getBody();
@@ -324,11 +394,35 @@ public class PaymentService {
             log.error("Alipay payment verification failed: invalid response");
             return false;
 
+        } catch (ProviderUnavailableException e) {
+            log.error("Alipay unavailable: transactionId={}", request.getTransactionId());
+            throw e;
         } catch (Exception e) {
             log.error("Error verifying Alipay payment: {}", e.getMessage(), e);
-            // In development, allow unverified payments if API is not available
-            log.warn("Allowing Alipay payment due to verification error (development mode)");
-            return true;
+            return false;
+        }
+    }
+
+    /**
+     * Look up the outcome of a previously received notify callback
+     * 
+     * @param provider Payment provider
+     * @param transactionId Platform transaction ID
+     * @return true/false if a callback settled the payment, null if the gateway must be queried
+     */
+    private Boolean notifiedOutcome(String provider, String transactionId) {
+        String outcome = paymentNotificationMapper.findLatestOutcome(provider, transactionId);
+        if (outcome == null || PaymentNotificationService.OUTCOME_IGNORED.equals(outcome)) {
+            return null;
+        }
+        log.info("Payment settled by {} notification: transactionId={}, outcome={}", provider, transactionId, outcome);
+        return PaymentNotificationService.OUTCOME_VERIFIED.equals(outcome);
+    }
+
+    private static LocalDateTime toLocalDateTime(JsonNode epochMillis) {
+        if (epochMillis == null || !epochMillis.canConvertToLong()) {
+            return null;
         }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis.asLong()), ZoneId.systemDefault());
     }
 }
@@ -0,0 +1,110 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.exception.ProviderUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Provider Call Guard
+ * Runs remote calls to payment and OAuth providers through a per-provider circuit breaker
+ * and bulkhead. Rejected calls fail fast with {@link ProviderUnavailableException} instead
+ * of waiting on a degraded provider.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ProviderCallGuard {
+
+    public static final String APPLE_IAP = "apple_iap";
+    public static final String WECHAT_PAY = "wechat_pay";
+    public static final String ALIPAY = "alipay";
+    public static final String APPLE_OAUTH = "apple_oauth";
+    public static final String WECHAT_OAUTH = "wechat_oauth";
+    public static final String ALIPAY_OAUTH = "alipay_oauth";
+
+    /**
+     * All guarded providers
+     */
+    public static final List<String> PROVIDERS = List.of(
+            APPLE_IAP, WECHAT_PAY, ALIPAY, APPLE_OAUTH, WECHAT_OAUTH, ALIPAY_OAUTH);
+
+    private final CircuitBreakerRegistry providerCircuitBreakerRegistry;
+    private final BulkheadRegistry providerBulkheadRegistry;
+
+    /**
+     * Execute a remote call to a provider
+     * Exceptions thrown by the call are recorded by the circuit breaker and rethrown.
+     *
+     * @param provider Provider name (one of {@link #PROVIDERS})
+     * @param remoteCall Remote call to execute
+     * @return Result of the remote call
+     * @throws ProviderUnavailableException if the circuit is open or the bulkhead is full
+     */
+    public <T> T call(String provider, Supplier<T> remoteCall) {
+        CircuitBreaker circuitBreaker = providerCircuitBreakerRegistry.circuitBreaker(provider);
+        Bulkhead bulkhead = providerBulkheadRegistry.bulkhead(provider);
+
+        // Circuit breaker outermost so an open circuit never takes a bulkhead permit
+        Supplier<T> guarded = CircuitBreaker.decorateSupplier(circuitBreaker,
+                Bulkhead.decorateSupplier(bulkhead, remoteCall));
+
+        try {
+            return guarded.get();
+        } catch (CallNotPermittedException e) {
+            log.warn("Circuit open for provider {}, failing fast", provider);
+            throw new ProviderUnavailableException("Provider temporarily unavailable: " + provider, provider, e);
+        } catch (BulkheadFullException e) {
+            log.warn("Bulkhead full for provider {}, failing fast", provider);
+            throw new ProviderUnavailableException("Provider concurrency limit reached: " + provider, provider, e);
+        }
+    }
+
+    /**
+     * Current circuit breaker state per provider
+     *
+     * @return Provider name to breaker snapshot
+     */
+    public Map<String, Map<String, Object>> getProviderStates() {
+        Map<String, Map<String, Object>> states = new LinkedHashMap<>();
+        for (String provider : PROVIDERS) {
+            CircuitBreaker circuitBreaker = providerCircuitBreakerRegistry.circuitBreaker(provider);
+            Bulkhead bulkhead = providerBulkheadRegistry.bulkhead(provider);
+            CircuitBreaker.Metrics metrics = circuitBreaker.getMetrics();
+
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("state", circuitBreaker.getState().name());
+            state.put("failureRate", metrics.getFailureRate());
+            state.put("slowCallRate", metrics.getSlowCallRate());
+            state.put("availableConcurrentCalls", bulkhead.getMetrics().getAvailableConcurrentCalls());
+            states.put(provider, state);
+        }
+        return states;
+    }
+
+    /**
+     * Check whether every provider circuit is accepting calls
+     *
+     * @return true if no circuit is open
+     */
+    public boolean allProvidersAvailable() {
+        for (String provider : PROVIDERS) {
+            CircuitBreaker.State state = providerCircuitBreakerRegistry.circuitBreaker(provider).getState();
+            if (state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
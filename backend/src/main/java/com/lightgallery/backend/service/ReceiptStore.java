@@ -0,0 +1,127 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.entity.Receipt;
+import com.lightgallery.backend.mapper.ReceiptMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Receipt Store
+ * Stores payment receipts content-addressed by SHA-256, deflate-compressed. A receipt that has
+ * already been stored costs a single INSERT IGNORE that writes nothing, so repeated verification
+ * attempts with the same receipt no longer duplicate it per transaction.
+ *
+ * Receipts live on the shard of the user whose transaction refers to them, so a receipt is stored
+ * and loaded inside that user's transaction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReceiptStore {
+
+    private final ReceiptMapper receiptMapper;
+
+    /**
+     * Store a receipt if its hash is new
+     *
+     * @param userId User whose transaction refers to the receipt
+     * @param receiptData Receipt content (e.g. base64 App Store receipt or signed transaction)
+     * @return SHA-256 hex of the receipt, or null if there is nothing to store
+     */
+    public String store(Long userId, String receiptData) {
+        if (receiptData == null || receiptData.isEmpty()) {
+            return null;
+        }
+
+        byte[] raw = receiptData.getBytes(StandardCharsets.UTF_8);
+        String hash = hash(raw);
+        byte[] compressed = compress(raw);
+
+        Receipt receipt = new Receipt();
+        receipt.setReceiptHash(hash);
+        receipt.setPayload(compressed);
+        receipt.setOriginalSize(raw.length);
+        receipt.setCompressedSize(compressed.length);
+
+        if (receiptMapper.insertIgnore(userId, receipt) > 0) {
+            log.debug("Stored receipt {}: {} bytes compressed to {}", hash, raw.length, compressed.length);
+        }
+        return hash;
+    }
+
+    /**
+     * Load a receipt by hash
+     *
+     * @param userId User whose transaction refers to the receipt
+     * @param receiptHash SHA-256 hex of the receipt
+     * @return Receipt content, or null if not found
+     */
+    public String load(Long userId, String receiptHash) {
+        if (receiptHash == null) {
+            return null;
+        }
+        byte[] compressed = receiptMapper.findPayloadByHash(userId, receiptHash);
+        return compressed == null ? null : new String(decompress(compressed), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * SHA-256 of the receipt bytes, hex encoded
+     */
+    public static String hash(byte[] raw) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(raw));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Deflate-compress the receipt bytes
+     */
+    public static byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] decompress(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated receipt payload");
+                }
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt receipt payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.lightgallery.backend.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.dto.AppleSignedTransaction;
 import com.lightgallery.backend.dto.PaymentVerificationRequest;
 import com.lightgallery.backend.dto.SubscriptionDTO;
 import com.lightgallery.backend.dto.SubscriptionProductDTO;
@@ -8,33 +10,52 @@ import com.lightgallery.backend.dto.SubscriptionSyncRequest;
 import com.lightgallery.backend.entity.Subscription;
 import com.lightgallery.backend.entity.Transaction;
 import com.lightgallery.backend.entity.User;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import com.lightgallery.backend.exception.SubscriptionException;
 import com.lightgallery.backend.mapper.SubscriptionMapper;
 import com.lightgallery.backend.mapper.TransactionMapper;
 import com.lightgallery.backend.mapper.UserMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * Subscription Service
  * Handles subscription product retrieval, status checks, creation, updates, and sync
+ *
+ * Subscription rows are changed with optimistic concurrency control instead of row locks: each
+ * update only matches the version that was read, and on a conflict the row is reloaded and the
+ * change applied again, a bounded number of times. Provider calls never run while a row lock is
+ * held. Writing transactions use READ COMMITTED so a reload sees the competing write.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class SubscriptionService {
 
+    /**
+     * Maximum attempts of an optimistic read-modify-write before giving up
+     */
+    static final int MAX_UPDATE_ATTEMPTS = 3;
+
     private final SubscriptionMapper subscriptionMapper;
     private final TransactionMapper transactionMapper;
+    private final TransactionWriter transactionWriter;
     private final UserMapper userMapper;
     private final PaymentService paymentService;
     private final AuditLogService auditLogService;
+    private final ReceiptStore receiptStore;
+    private final ShardRouter shardRouter;
 
     /**
      * Get available subscription products
@@ -149,6 +170,12 @@ public class SubscriptionService {
             throw new RuntimeException("User not found");
         }
         
+        // Common case: an active, unexpired subscription, read from the replica when one is configured
+        Subscription current = subscriptionMapper.findCurrentActiveByUserId(userId);
+        if (current != null) {
+            return convertToDTO(current);
+        }
+        
         // Try to find active subscription
         Subscription subscription = subscriptionMapper.findActiveByUserId(userId);
         
@@ -168,13 +195,17 @@ public class SubscriptionService {
         }
         
         // Check if subscription is expired and update status
-        if ("active".equals(subscription.getStatus()) && 
-            subscription.getExpiryDate() != null && 
-            subscription.getExpiryDate().isBefore(LocalDateTime.now())) {
+        if (isExpiredButActive(subscription)) {
             log.info("Subscription {} is expired, updating status", subscription.getId());
-            subscription.setStatus("expired");
-            subscription.setUpdatedAt(LocalDateTime.now());
-            subscriptionMapper.updateById(subscription);
+            Long subscriptionId = subscription.getId();
+            // No transaction here, so the reload by ID has to be told which shard the user is on
+            Subscription updated = updateWithRetry(subscription,
+                    () -> shardRouter.onShard(shardRouter.shardFor(userId),
+                            () -> subscriptionMapper.selectById(subscriptionId)),
+                    this::markExpired);
+            if (updated != null) {
+                subscription = updated;
+            }
         }
         
         return convertToDTO(subscription);
@@ -188,7 +219,7 @@ public class SubscriptionService {
      * @param request Payment verification request
      * @return Updated subscription
      */
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public SubscriptionDTO verifyAndUpdateSubscription(Long userId, PaymentVerificationRequest request) {
         log.info("Verifying payment for user {}: method={}, productId={}", 
                 userId, request.getPaymentMethod(), request.getProductId());
@@ -199,12 +230,27 @@ public class SubscriptionService {
             throw new RuntimeException("User not found");
         }
         
+        // StoreKit 2: verify the signed transaction locally and take purchase details from it
+        boolean useSignedTransaction = "apple_iap".equalsIgnoreCase(request.getPaymentMethod())
+                && request.getSignedTransaction() != null && !request.getSignedTransaction().isEmpty();
+        AppleSignedTransaction signedTransaction = null;
+        if (useSignedTransaction) {
+            signedTransaction = verifySignedTransaction(request);
+        }
+        
         // Check if transaction already exists (prevent duplicate processing)
-        LambdaQueryWrapper<Transaction> transactionQuery = new LambdaQueryWrapper<>();
-        transactionQuery.eq(Transaction::getPlatformTransactionId, request.getTransactionId());
-        Transaction existingTransaction = transactionMapper.selectOne(transactionQuery);
+        // Looked up on every shard: a platform transaction verified for another user is refused
+        Transaction existingTransaction = transactionMapper.findByPlatformTransactionId(request.getTransactionId());
+        if (existingTransaction == null) {
+            // Settled transactions past the archive horizon live in transactions_archive
+            existingTransaction = transactionMapper.findArchivedByPlatformTransactionId(request.getTransactionId());
+        }
         
-        if (existingTransaction != null && "verified".equals(existingTransaction.getVerificationStatus())) {
+        if (existingTransaction != null
+                && Transaction.STATUS_VERIFIED.equals(existingTransaction.getVerificationStatus())) {
+            if (!userId.equals(existingTransaction.getUserId())) {
+                rejectReusedTransaction(userId, request);
+            }
             log.warn("Transaction {} already processed successfully", request.getTransactionId());
             // Return existing subscription
             Subscription subscription = subscriptionMapper.selectById(existingTransaction.getSubscriptionId());
@@ -220,14 +266,16 @@ public class SubscriptionService {
         
         // Verify payment with payment platform using PaymentService
         // Requirements: 4.3, 8.4
-        boolean paymentVerified = paymentService.verifyPayment(request);
+        boolean paymentVerified = useSignedTransaction
+                ? signedTransaction != null
+                : paymentService.verifyPayment(request);
         
         if (!paymentVerified) {
             // Create failed transaction record for audit
             // Requirement: 8.5
             log.error("Payment verification failed for user {}: transactionId={}", 
                     userId, request.getTransactionId());
-            createTransactionRecord(userId, null, request, amount, "failed");
+            createTransactionRecord(userId, null, request, tier, billingPeriod, amount, Transaction.STATUS_FAILED);
             
             // Log payment verification failure
             // Requirement: 8.5
@@ -248,44 +296,35 @@ public class SubscriptionService {
         // Find or create subscription
         Subscription subscription = findOrCreateSubscription(userId, request);
         
-        // Update subscription details
-        subscription.setTier(tier);
-        subscription.setBillingPeriod(billingPeriod);
-        subscription.setStatus("active");
-        subscription.setPaymentMethod(request.getPaymentMethod());
-        subscription.setProductId(request.getProductId());
-        subscription.setAutoRenew(true);
-        
-        // Set dates
+        // Use the signed expiry for StoreKit 2 transactions, otherwise derive it from the billing period
         LocalDateTime now = LocalDateTime.now();
-        if (subscription.getStartDate() == null) {
-            subscription.setStartDate(now);
-        }
-        
-        // Calculate expiry date based on billing period
-        LocalDateTime expiryDate = calculateExpiryDate(now, billingPeriod);
-        subscription.setExpiryDate(expiryDate);
-        
-        // Set original transaction ID for tracking renewals
-        if (request.getOriginalTransactionId() != null) {
-            subscription.setOriginalTransactionId(request.getOriginalTransactionId());
-        } else {
-            subscription.setOriginalTransactionId(request.getTransactionId());
-        }
+        LocalDateTime expiryDate = signedTransaction != null && signedTransaction.getExpiresDate() != null
+                ? signedTransaction.getExpiresDate()
+                : calculateExpiryDate(now, billingPeriod);
         
-        subscription.setLastSyncedAt(now);
-        subscription.setUpdatedAt(now);
-        
-        // Save subscription
+        // Save subscription, re-applying the purchase if another request updated it first
         if (subscription.getId() == null) {
+            applyPurchase(subscription, tier, billingPeriod, expiryDate, request, now);
             subscriptionMapper.insert(subscription);
         } else {
-            subscriptionMapper.updateById(subscription);
+            Long subscriptionId = subscription.getId();
+            subscription = updateWithRetry(subscription,
+                    () -> subscriptionMapper.selectById(subscriptionId),
+                    current -> {
+                        applyPurchase(current, tier, billingPeriod, expiryDate, request, now);
+                        return true;
+                    });
+            if (subscription == null) {
+                throw new RuntimeException("Subscription no longer exists");
+            }
         }
         
         // Create successful transaction record for audit
         // Requirement: 8.5
-        createTransactionRecord(userId, subscription.getId(), request, amount, "success");
+        createTransactionRecord(userId, subscription.getId(), request, tier, billingPeriod, amount,
+                Transaction.STATUS_VERIFIED);
+        // Insert it now rather than at commit, so an insert failure is raised here
+        transactionWriter.flushCurrentTransaction();
         
         // Log subscription update
         // Requirement: 8.5
@@ -306,7 +345,7 @@ public class SubscriptionService {
      * @param request Sync request
      * @return Synced subscription
      */
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public SubscriptionDTO syncSubscription(Long userId, SubscriptionSyncRequest request) {
         log.info("Syncing subscription for user {}: platform={}, forceRefresh={}", 
                 userId, request.getPlatform(), request.getForceRefresh());
@@ -321,31 +360,14 @@ public class SubscriptionService {
             return convertToDTO(subscription);
         }
         
-        // Check if sync is needed
-        boolean needsSync = request.getForceRefresh() != null && request.getForceRefresh();
-        if (!needsSync && subscription.getLastSyncedAt() != null) {
-            // Check if last sync was within 1 hour
-            LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-            needsSync = subscription.getLastSyncedAt().isBefore(oneHourAgo);
-        }
-        
-        if (needsSync) {
-            log.info("Syncing subscription {} with payment platform", subscription.getId());
-            // In production, this should query the payment platform for latest status
-            // For now, just update the last synced timestamp
-            subscription.setLastSyncedAt(LocalDateTime.now());
-            subscription.setUpdatedAt(LocalDateTime.now());
-            subscriptionMapper.updateById(subscription);
-        }
-        
-        // Check if subscription is expired
-        if ("active".equals(subscription.getStatus()) && 
-            subscription.getExpiryDate() != null && 
-            subscription.getExpiryDate().isBefore(LocalDateTime.now())) {
-            log.info("Subscription {} is expired during sync, updating status", subscription.getId());
-            subscription.setStatus("expired");
-            subscription.setUpdatedAt(LocalDateTime.now());
-            subscriptionMapper.updateById(subscription);
+        // Refresh the sync timestamp and expiry status in a single conditional update
+        boolean forceRefresh = request.getForceRefresh() != null && request.getForceRefresh();
+        Long subscriptionId = subscription.getId();
+        Subscription synced = updateWithRetry(subscription,
+                () -> subscriptionMapper.selectById(subscriptionId),
+                current -> applySync(current, forceRefresh));
+        if (synced != null) {
+            subscription = synced;
         }
         
         log.info("Subscription synced for user {}: tier={}, status={}", 
@@ -374,6 +396,7 @@ public class SubscriptionService {
         subscription.setLastSyncedAt(LocalDateTime.now());
         subscription.setCreatedAt(LocalDateTime.now());
         subscription.setUpdatedAt(LocalDateTime.now());
+        subscription.setVersion(0);
         
         subscriptionMapper.insert(subscription);
         log.info("Created free subscription for user: {}", userId);
@@ -381,6 +404,42 @@ public class SubscriptionService {
         return subscription;
     }
 
+    /**
+     * Verify a StoreKit 2 signed transaction and copy its verified fields onto the request
+     *
+     * @param request Payment verification request carrying the signed transaction
+     * @return Verified transaction, or null if verification failed
+     */
+    private AppleSignedTransaction verifySignedTransaction(PaymentVerificationRequest request) {
+        try {
+            AppleSignedTransaction signedTransaction = paymentService.verifySignedTransaction(
+                    request.getSignedTransaction());
+            request.setProductId(signedTransaction.getProductId());
+            request.setTransactionId(signedTransaction.getTransactionId());
+            request.setOriginalTransactionId(signedTransaction.getOriginalTransactionId());
+            return signedTransaction;
+        } catch (PaymentVerificationException e) {
+            log.error("Signed transaction verification failed: transactionId={}, error={}",
+                    request.getTransactionId(), e.getErrorCode());
+            return null;
+        }
+    }
+
+    /**
+     * Refuse a purchase whose platform transaction already belongs to another user
+     *
+     * @param userId User ID of the caller
+     * @param request Payment verification request
+     * @throws SubscriptionException always
+     */
+    private void rejectReusedTransaction(Long userId, PaymentVerificationRequest request) {
+        log.warn("Transaction {} belongs to another user, refusing it for user {}",
+                request.getTransactionId(), userId);
+        auditLogService.logPaymentVerificationFailure(userId, request.getPaymentMethod(),
+                request.getTransactionId(), "Transaction belongs to another user");
+        throw new SubscriptionException("Transaction already used by another account", "TRANSACTION_ALREADY_USED");
+    }
+
     /**
      * Find or create subscription for user
      *
@@ -394,6 +453,10 @@ public class SubscriptionService {
             Subscription subscription = subscriptionMapper.findByOriginalTransactionId(
                     request.getOriginalTransactionId());
             if (subscription != null) {
+                // Looked up on every shard, so it may be another user's purchase
+                if (!userId.equals(subscription.getUserId())) {
+                    rejectReusedTransaction(userId, request);
+                }
                 return subscription;
             }
         }
@@ -408,34 +471,118 @@ public class SubscriptionService {
         subscription = new Subscription();
         subscription.setUserId(userId);
         subscription.setCreatedAt(LocalDateTime.now());
+        subscription.setVersion(0);
+        return subscription;
+    }
+
+    /**
+     * Grant the subscription paid for by a transaction the provider confirmed later
+     * Used when a payment notification verifies a purchase that was recorded as failed or pending.
+     * The user's subscription is set to the transaction's tier and billing period and extended by
+     * one period, from its current expiry if it is still running on the same tier and from now
+     * otherwise; a user without a subscription gets a new one.
+     *
+     * @param transaction Newly verified purchase, with user, tier and billing period
+     * @return Subscription as written
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public Subscription grantVerifiedTransaction(Transaction transaction) {
+        Long userId = transaction.getUserId();
+        LocalDateTime now = LocalDateTime.now();
+        Subscription subscription = findLiveSubscription(userId);
+        if (subscription == null) {
+            subscription = new Subscription();
+            subscription.setUserId(userId);
+            subscription.setCreatedAt(now);
+            subscription.setVersion(0);
+            applyGrant(subscription, transaction, now);
+            subscriptionMapper.insert(subscription);
+        } else {
+            subscription = updateWithRetry(subscription, () -> findLiveSubscription(userId),
+                    current -> {
+                        applyGrant(current, transaction, now);
+                        return true;
+                    });
+            if (subscription == null) {
+                throw new RuntimeException("Subscription no longer exists");
+            }
+        }
+
+        auditLogService.logSubscriptionUpdate(userId, subscription.getId(), subscription.getTier(),
+                subscription.getStatus(), transaction.getPaymentMethod(), transaction.getPlatformTransactionId());
+        log.info("Granted {} {} subscription to user {} for transaction {}: expiryDate={}",
+                subscription.getTier(), subscription.getBillingPeriod(), userId,
+                transaction.getPlatformTransactionId(), subscription.getExpiryDate());
         return subscription;
     }
 
+    /**
+     * The user's subscription row, whatever its status (one live row per user)
+     */
+    private Subscription findLiveSubscription(Long userId) {
+        List<Subscription> subscriptions = subscriptionMapper.findAllByUserId(userId);
+        return subscriptions.isEmpty() ? null : subscriptions.get(0);
+    }
+
+    /**
+     * Copy a purchase confirmed by notification onto a subscription
+     */
+    private void applyGrant(Subscription subscription, Transaction transaction, LocalDateTime now) {
+        boolean running = "active".equals(subscription.getStatus())
+                && transaction.getTier().equals(subscription.getTier())
+                && subscription.getExpiryDate() != null && subscription.getExpiryDate().isAfter(now);
+        subscription.setExpiryDate(calculateExpiryDate(running ? subscription.getExpiryDate() : now,
+                transaction.getBillingPeriod()));
+        subscription.setTier(transaction.getTier());
+        subscription.setBillingPeriod(transaction.getBillingPeriod());
+        subscription.setStatus("active");
+        subscription.setPaymentMethod(transaction.getPaymentMethod());
+        subscription.setAutoRenew(true);
+        if (subscription.getStartDate() == null || !running) {
+            subscription.setStartDate(now);
+        }
+        if (subscription.getOriginalTransactionId() == null) {
+            subscription.setOriginalTransactionId(transaction.getPlatformTransactionId());
+        }
+        subscription.setLastSyncedAt(now);
+        subscription.setUpdatedAt(now);
+    }
+
     /**
      * Create transaction record for audit
+     * The record is buffered by the TransactionWriter and inserted in one batch with the
+     * transaction's other records when it commits, so it has no ID on return and an insert failure
+     * surfaces at commit. Callers that need either call {@code flushCurrentTransaction()}.
      *
      * @param userId User ID
      * @param subscriptionId Subscription ID
      * @param request Payment verification request
+     * @param tier Tier purchased
+     * @param billingPeriod Billing period purchased
      * @param amount Transaction amount
-     * @param status Transaction status
+     * @param status Verification status (Transaction.STATUS_*)
      */
     private void createTransactionRecord(Long userId, Long subscriptionId, 
                                         PaymentVerificationRequest request, 
+                                        String tier, String billingPeriod,
                                         BigDecimal amount, String status) {
         Transaction transaction = new Transaction();
         transaction.setUserId(userId);
         transaction.setSubscriptionId(subscriptionId);
+        transaction.setTransactionType("purchase");
+        transaction.setTier(tier);
+        transaction.setBillingPeriod(billingPeriod);
         transaction.setPaymentMethod(request.getPaymentMethod());
         transaction.setAmount(amount);
         transaction.setCurrency("CNY");
         transaction.setPlatformTransactionId(request.getTransactionId());
-        transaction.setReceiptData(request.getReceiptData());
+        transaction.setReceiptHash(receiptStore.store(userId, request.getReceiptData() != null
+                ? request.getReceiptData() : request.getSignedTransaction()));
         transaction.setVerificationStatus(status);
         transaction.setCreatedAt(LocalDateTime.now());
         transaction.setUpdatedAt(LocalDateTime.now());
         
-        transactionMapper.insert(transaction);
+        transactionWriter.write(transaction);
         log.info("Created transaction record: userId={}, transactionId={}, status={}", 
                 userId, request.getTransactionId(), status);
     }
@@ -446,7 +593,7 @@ public class SubscriptionService {
      * @param productId Product ID
      * @return Tier (pro or max)
      */
-    private String extractTierFromProductId(String productId) {
+    static String extractTierFromProductId(String productId) {
         if (productId.contains(".pro.")) {
             return "pro";
         } else if (productId.contains(".max.")) {
@@ -461,7 +608,7 @@ public class SubscriptionService {
      * @param productId Product ID
      * @return Billing period (monthly or yearly)
      */
-    private String extractBillingPeriodFromProductId(String productId) {
+    static String extractBillingPeriodFromProductId(String productId) {
         if (productId.endsWith(".monthly")) {
             return "monthly";
         } else if (productId.endsWith(".yearly")) {
@@ -477,7 +624,7 @@ public class SubscriptionService {
      * @param billingPeriod Billing period
      * @return Amount in CNY
      */
-    private BigDecimal calculateAmount(String tier, String billingPeriod) {
+    static BigDecimal calculateAmount(String tier, String billingPeriod) {
         if ("pro".equals(tier)) {
             return "monthly".equals(billingPeriod) ? 
                     new BigDecimal("10.00") : new BigDecimal("100.00");
@@ -642,7 +789,7 @@ public class SubscriptionService {
      * @param userId User ID
      * @return Updated subscription with cancelled status
      */
-    @Transactional
+    @Transactional(isolation = Isolation.READ_COMMITTED)
     public SubscriptionDTO cancelSubscription(Long userId) {
         log.info("Cancelling subscription for user {}", userId);
         
@@ -653,11 +800,21 @@ public class SubscriptionService {
         }
         
         // Update subscription status to cancelled
-        subscription.setStatus("cancelled");
-        subscription.setAutoRenew(false);
-        subscription.setUpdatedAt(LocalDateTime.now());
-        
-        subscriptionMapper.updateById(subscription);
+        Long subscriptionId = subscription.getId();
+        subscription = updateWithRetry(subscription,
+                () -> subscriptionMapper.selectById(subscriptionId),
+                current -> {
+                    if ("cancelled".equals(current.getStatus()) && Boolean.FALSE.equals(current.getAutoRenew())) {
+                        return false;
+                    }
+                    current.setStatus("cancelled");
+                    current.setAutoRenew(false);
+                    current.setUpdatedAt(LocalDateTime.now());
+                    return true;
+                });
+        if (subscription == null) {
+            throw new RuntimeException("No active subscription found");
+        }
         
         // Log cancellation
         auditLogService.logSubscriptionCancellation(userId, subscription.getId(), 
@@ -669,6 +826,106 @@ public class SubscriptionService {
         return convertToDTO(subscription);
     }
 
+    /**
+     * Apply a change to a subscription under optimistic concurrency control
+     * The change is written with updateById, which only matches the version that was read. If
+     * another request updated the row first, the row is reloaded and the change applied again.
+     *
+     * @param subscription Subscription as already loaded
+     * @param reload Reloads the current row; may return null if it no longer exists
+     * @param change Applies the change in place and returns false if nothing needs writing
+     * @return Subscription as written, or as loaded if unchanged; null if the row disappeared
+     * @throws OptimisticLockingFailureException if every attempt lost to a concurrent update
+     */
+    private Subscription updateWithRetry(Subscription subscription, Supplier<Subscription> reload,
+                                         Predicate<Subscription> change) {
+        for (int attempt = 1; subscription != null; attempt++) {
+            if (!change.test(subscription) || subscriptionMapper.updateById(subscription) > 0) {
+                return subscription;
+            }
+            if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                throw new OptimisticLockingFailureException("Subscription " + subscription.getId()
+                        + " was updated concurrently " + attempt + " times");
+            }
+            log.warn("Subscription {} was updated concurrently, retrying (attempt {})",
+                    subscription.getId(), attempt);
+            subscription = reload.get();
+        }
+        return null;
+    }
+
+    /**
+     * Copy a verified purchase onto a subscription
+     */
+    private void applyPurchase(Subscription subscription, String tier, String billingPeriod,
+                               LocalDateTime expiryDate, PaymentVerificationRequest request, LocalDateTime now) {
+        subscription.setTier(tier);
+        subscription.setBillingPeriod(billingPeriod);
+        subscription.setStatus("active");
+        subscription.setPaymentMethod(request.getPaymentMethod());
+        subscription.setProductId(request.getProductId());
+        subscription.setAutoRenew(true);
+        if (subscription.getStartDate() == null) {
+            subscription.setStartDate(now);
+        }
+        subscription.setExpiryDate(expiryDate);
+        
+        // Set original transaction ID for tracking renewals
+        if (request.getOriginalTransactionId() != null) {
+            subscription.setOriginalTransactionId(request.getOriginalTransactionId());
+        } else {
+            subscription.setOriginalTransactionId(request.getTransactionId());
+        }
+        
+        subscription.setLastSyncedAt(now);
+        subscription.setUpdatedAt(now);
+    }
+
+    /**
+     * Refresh the sync timestamp if it is stale (or a refresh is forced) and flag expiry
+     *
+     * @return true if the subscription changed
+     */
+    private boolean applySync(Subscription subscription, boolean forceRefresh) {
+        LocalDateTime now = LocalDateTime.now();
+        boolean needsSync = forceRefresh || (subscription.getLastSyncedAt() != null
+                && subscription.getLastSyncedAt().isBefore(now.minusHours(1)));
+        
+        if (needsSync) {
+            log.info("Syncing subscription {} with payment platform", subscription.getId());
+            // In production, this should query the payment platform for latest status
+            // For now, just update the last synced timestamp
+            subscription.setLastSyncedAt(now);
+            subscription.setUpdatedAt(now);
+        }
+        
+        boolean expired = markExpired(subscription);
+        if (expired) {
+            log.info("Subscription {} is expired during sync, updating status", subscription.getId());
+        }
+        return needsSync || expired;
+    }
+
+    /**
+     * Flag an active subscription past its expiry date as expired
+     *
+     * @return true if the subscription changed
+     */
+    private boolean markExpired(Subscription subscription) {
+        if (!isExpiredButActive(subscription)) {
+            return false;
+        }
+        subscription.setStatus("expired");
+        subscription.setUpdatedAt(LocalDateTime.now());
+        return true;
+    }
+
+    private boolean isExpiredButActive(Subscription subscription) {
+        return "active".equals(subscription.getStatus())
+                && subscription.getExpiryDate() != null
+                && subscription.getExpiryDate().isBefore(LocalDateTime.now());
+    }
+
     /**
      * Convert Subscription entity to DTO
      *
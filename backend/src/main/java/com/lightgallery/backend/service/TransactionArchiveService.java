@@ -0,0 +1,162 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Transaction Archive Service
+ * Moves settled transactions older than the archive horizon from {@code transactions} to the
+ * compressed {@code transactions_archive} table, so the hot table (and its indexes) only holds
+ * recent rows and stays in the buffer pool.
+ *
+ * Rows move in small chunks walked in primary key order. Each chunk is one database transaction
+ * of INSERT...SELECT into the archive followed by DELETE of the copied rows, so a row is always in
+ * exactly one of the two tables. The job pauses between chunks so replicas can keep up.
+ * {@link TransactionHistoryService} reads the archive only when a query reaches past the horizon.
+ * Each shard keeps its own archive table, so a pass walks the shards one after another.
+ *
+ * Metrics: {@code transactions.archived} and {@code transactions.archive.chunk} (timer).
+ */
+@Slf4j
+@Service
+public class TransactionArchiveService {
+
+    private final TransactionMapper transactionMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final Clock clock;
+    private final Duration horizon;
+    private final int chunkSize;
+    private final Duration pause;
+    private final int maxChunksPerRun;
+
+    private final Counter archived;
+    private final Timer chunkTimer;
+
+    @Autowired
+    public TransactionArchiveService(TransactionMapper transactionMapper,
+                                     TransactionTemplate transactionTemplate,
+                                     ShardRouter shardRouter,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${transactions.archive.horizon:365d}") Duration horizon,
+                                     @Value("${transactions.archive.chunk-size:500}") int chunkSize,
+                                     @Value("${transactions.archive.pause:100ms}") Duration pause,
+                                     @Value("${transactions.archive.max-chunks-per-run:1000}") int maxChunksPerRun) {
+        this(transactionMapper, transactionTemplate, shardRouter, meterRegistry, Clock.systemDefaultZone(),
+                horizon, chunkSize, pause, maxChunksPerRun);
+    }
+
+    TransactionArchiveService(TransactionMapper transactionMapper, TransactionTemplate transactionTemplate,
+                              ShardRouter shardRouter, MeterRegistry meterRegistry, Clock clock, Duration horizon, int chunkSize,
+                              Duration pause, int maxChunksPerRun) {
+        this.transactionMapper = transactionMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.clock = clock;
+        this.horizon = horizon;
+        this.chunkSize = chunkSize;
+        this.pause = pause;
+        this.maxChunksPerRun = maxChunksPerRun;
+
+        this.archived = Counter.builder("transactions.archived")
+                .description("Transactions moved to the archive table")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("transactions.archive.chunk")
+                .description("Time to move one chunk of transactions to the archive table")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Archive transactions older than the horizon
+     */
+    @Scheduled(initialDelayString = "${transactions.archive.initial-delay-ms:600000}",
+            fixedDelayString = "${transactions.archive.interval-ms:3600000}")
+    public void scheduledArchive() {
+        try {
+            archive();
+        } catch (Exception e) {
+            log.error("Transaction archival failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Run one archival pass over every shard
+     *
+     * @return Number of transactions moved
+     */
+    public long archive() {
+        LocalDateTime cutoff = LocalDateTime.now(clock).minus(horizon);
+        long total = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            total += shardRouter.onShard(shard, () -> archive(cutoff));
+        }
+        return total;
+    }
+
+    /**
+     * Archive one shard, the one pinned by the caller
+     */
+    private long archive(LocalDateTime cutoff) {
+        long afterId = 0;
+        long total = 0;
+        int chunks = 0;
+
+        while (chunks < maxChunksPerRun) {
+            List<Long> ids = transactionMapper.findArchivableIds(afterId, cutoff, chunkSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            long start = System.nanoTime();
+            Integer moved = transactionTemplate.execute(status -> {
+                transactionMapper.copyToArchive(ids, cutoff);
+                return transactionMapper.deleteArchived(ids);
+            });
+            chunkTimer.record(Duration.ofNanos(System.nanoTime() - start));
+
+            int count = moved != null ? moved : 0;
+            archived.increment(count);
+            total += count;
+            chunks++;
+            afterId = ids.get(ids.size() - 1);
+
+            if (ids.size() < chunkSize || !pauseBetweenChunks()) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("Archived {} transactions older than {} in {} chunks", total, cutoff, chunks);
+        }
+        return total;
+    }
+
+    private boolean pauseBetweenChunks() {
+        if (pause.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
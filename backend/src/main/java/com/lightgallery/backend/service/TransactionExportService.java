@@ -0,0 +1,441 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Transaction Export Service
+ * Exports the transactions created within a time range, optionally for one payment method, as
+ * CSV or newline-delimited JSON for finance. Rows are streamed from the database (MySQL
+ * server-side streaming) through a fixed-size buffer into the output, optionally gzip-compressed,
+ * so memory stays constant however many rows are exported. Ranges reaching past the archive
+ * horizon also export transactions_archive, before the hot table; rows are in creation order
+ * within each tier.
+ *
+ * When {@code transactions.export.monthly.enabled} is set, the previous calendar month is
+ * exported to a gzip file in {@code transactions.export.directory} at the start of each month.
+ *
+ * Metrics: {@code transactions.export.rows}, {@code transactions.export.bytes} and
+ * {@code transactions.export} (timer).
+ */
+@Slf4j
+@Service
+public class TransactionExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String[] COLUMNS = {
+            "id", "user_id", "subscription_id", "transaction_type", "payment_method", "amount", "currency",
+            "platform_transaction_id", "verification_status", "tier", "billing_period", "created_at"
+    };
+    private static final boolean[] NUMERIC_COLUMNS = {
+            true, true, true, false, false, true, false, false, false, false, false, false
+    };
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmm");
+
+    /**
+     * Export file format
+     */
+    public enum Format {
+        CSV("csv", "text/csv"),
+        NDJSON("ndjson", "application/x-ndjson");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * Parse a format name, case-insensitively
+         *
+         * @throws IllegalArgumentException if the format is not supported
+         */
+        public static Format parse(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name) || format.extension.equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + name);
+        }
+    }
+
+    /**
+     * Outcome of one export
+     *
+     * @param rows Rows written
+     * @param bytes Bytes written to the output (after compression)
+     * @param elapsed Time taken
+     */
+    public record ExportResult(long rows, long bytes, Duration elapsed) {
+
+        public long rowsPerSecond() {
+            long millis = Math.max(1, elapsed.toMillis());
+            return rows * 1000 / millis;
+        }
+    }
+
+    private final TransactionMapper transactionMapper;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Duration horizon;
+    private final boolean monthlyEnabled;
+    private final Path directory;
+
+    private final Counter exportedRows;
+    private final Counter exportedBytes;
+    private final Timer exportTimer;
+
+    @Autowired
+    public TransactionExportService(TransactionMapper transactionMapper,
+                                    ObjectMapper objectMapper,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${transactions.archive.horizon:365d}") Duration horizon,
+                                    @Value("${transactions.export.monthly.enabled:false}") boolean monthlyEnabled,
+                                    @Value("${transactions.export.directory:exports}") String directory) {
+        this(transactionMapper, objectMapper, meterRegistry, Clock.systemDefaultZone(), horizon,
+                monthlyEnabled, Path.of(directory));
+    }
+
+    TransactionExportService(TransactionMapper transactionMapper, ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry, Clock clock, Duration horizon,
+                             boolean monthlyEnabled, Path directory) {
+        this.transactionMapper = transactionMapper;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.horizon = horizon;
+        this.monthlyEnabled = monthlyEnabled;
+        this.directory = directory;
+
+        this.exportedRows = Counter.builder("transactions.export.rows")
+                .description("Transactions written by exports")
+                .register(meterRegistry);
+        this.exportedBytes = Counter.builder("transactions.export.bytes")
+                .description("Bytes written by transaction exports")
+                .register(meterRegistry);
+        this.exportTimer = Timer.builder("transactions.export")
+                .description("Time to export one range of transactions")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Export the previous calendar month to a file
+     */
+    @Scheduled(cron = "${transactions.export.monthly.cron:0 30 2 1 * *}")
+    @Transactional(readOnly = true)
+    public void scheduledMonthlyExport() {
+        if (!monthlyEnabled) {
+            return;
+        }
+        LocalDateTime to = LocalDate.now(clock).withDayOfMonth(1).atStartOfDay();
+        try {
+            exportToFile(to.minusMonths(1), to, null, Format.CSV);
+        } catch (Exception e) {
+            log.error("Monthly transaction export failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stream an export to an output stream
+     * The stream is flushed and, when compressed, finished but not closed.
+     *
+     * @param from Start time (inclusive)
+     * @param to End time (exclusive)
+     * @param paymentMethod Payment method, or null for all
+     * @param format Output format
+     * @param gzip Whether to gzip the output
+     * @param out Destination
+     * @return Rows and bytes written
+     * @throws IllegalArgumentException if the range is invalid
+     */
+    @Transactional(readOnly = true)
+    public ExportResult export(LocalDateTime from, LocalDateTime to, String paymentMethod,
+                               Format format, boolean gzip, OutputStream out) throws IOException {
+        validateRange(from, to);
+        String method = normalizePaymentMethod(paymentMethod);
+        long start = System.nanoTime();
+
+        CountingOutputStream counting = new CountingOutputStream(out);
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(counting, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                compressed != null ? compressed : counting, StandardCharsets.UTF_8), BUFFER_SIZE);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer, objectMapper);
+
+        try {
+            rows.begin();
+            if (!isHotOnly(from)) {
+                transactionMapper.streamArchivedForExport(from, to, method,
+                        context -> rows.write(context.getResultObject()));
+            }
+            transactionMapper.streamForExport(from, to, method,
+                    context -> rows.write(context.getResultObject()));
+            rows.end();
+            writer.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        ExportResult result = new ExportResult(rows.count(), counting.count(),
+                Duration.ofNanos(System.nanoTime() - start));
+        exportTimer.record(result.elapsed());
+        exportedRows.increment(result.rows());
+        exportedBytes.increment(result.bytes());
+        log.info("Exported {} transactions from {} to {} (paymentMethod={}) as {}: {} bytes in {} ms, {} rows/s",
+                result.rows(), from, to, method, format, result.bytes(), result.elapsed().toMillis(),
+                result.rowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Export to a gzip-compressed file in the export directory
+     * The file is written under a temporary name and renamed once complete.
+     *
+     * @param from Start time (inclusive)
+     * @param to End time (exclusive)
+     * @param paymentMethod Payment method, or null for all
+     * @param format Output format
+     * @return Path of the written file
+     * @throws IllegalArgumentException if the range is invalid
+     */
+    @Transactional(readOnly = true)
+    public Path exportToFile(LocalDateTime from, LocalDateTime to, String paymentMethod,
+                             Format format) throws IOException {
+        Files.createDirectories(directory);
+        Path target = directory.resolve(fileName(from, to, paymentMethod, format) + ".gz");
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            export(from, to, paymentMethod, format, true, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Wrote transaction export {}", target);
+        return target;
+    }
+
+    /**
+     * File name for an export, without compression suffix
+     */
+    public String fileName(LocalDateTime from, LocalDateTime to, String paymentMethod, Format format) {
+        validateRange(from, to);
+        String method = normalizePaymentMethod(paymentMethod);
+        return "transactions-" + FILE_TIMESTAMP.format(from) + "-" + FILE_TIMESTAMP.format(to)
+                + (method != null ? "-" + method : "") + "." + format.getExtension();
+    }
+
+    /**
+     * Validate an export range
+     *
+     * @throws IllegalArgumentException if either bound is missing or from is not before to
+     */
+    public void validateRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("'from' and 'to' are required");
+        }
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+    }
+
+    private String normalizePaymentMethod(String paymentMethod) {
+        if (paymentMethod == null || paymentMethod.isBlank()) {
+            return null;
+        }
+        String method = paymentMethod.trim().toLowerCase(Locale.ROOT);
+        if (!method.matches("[a-z_]{1,20}")) {
+            throw new IllegalArgumentException("Invalid payment method: " + paymentMethod);
+        }
+        return method;
+    }
+
+    /**
+     * Whether no row created at or after the given time can have been archived
+     */
+    private boolean isHotOnly(LocalDateTime from) {
+        return !from.isBefore(LocalDateTime.now(clock).minus(horizon));
+    }
+
+    private static String[] values(Transaction t) {
+        return new String[]{
+                str(t.getId()), str(t.getUserId()), str(t.getSubscriptionId()), t.getTransactionType(),
+                t.getPaymentMethod(), t.getAmount() != null ? t.getAmount().toPlainString() : null,
+                t.getCurrency(), t.getPlatformTransactionId(), t.getVerificationStatus(), t.getTier(),
+                t.getBillingPeriod(), str(t.getCreatedAt())
+        };
+    }
+
+    private static String str(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Writes rows in one format, wrapping I/O failures so they can pass through a ResultHandler
+     */
+    private abstract static class RowWriter {
+
+        private long count;
+
+        void begin() throws IOException {
+        }
+
+        void end() throws IOException {
+        }
+
+        abstract void writeRow(String[] values) throws IOException;
+
+        final void write(Transaction transaction) {
+            try {
+                writeRow(values(transaction));
+                count++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        final long count() {
+            return count;
+        }
+    }
+
+    private static final class CsvRowWriter extends RowWriter {
+
+        private final Writer writer;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        void begin() throws IOException {
+            writeRow(COLUMNS);
+        }
+
+        @Override
+        void writeRow(String[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeField(values[i]);
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static final class NdjsonRowWriter extends RowWriter {
+
+        private final JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer, ObjectMapper objectMapper) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        void writeRow(String[] values) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                generator.writeFieldName(COLUMNS[i]);
+                if (values[i] == null) {
+                    generator.writeNull();
+                } else if (NUMERIC_COLUMNS[i]) {
+                    generator.writeNumber(values[i]);
+                } else {
+                    generator.writeString(values[i]);
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        void end() throws IOException {
+            generator.close();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+}
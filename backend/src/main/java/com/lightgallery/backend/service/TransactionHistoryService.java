@@ -0,0 +1,151 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.dto.KeysetCursor;
+import com.lightgallery.backend.dto.TransactionHistoryPage;
+import com.lightgallery.backend.dto.TransactionSummary;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Transaction History Service
+ * Reads transactions across the hot {@code transactions} table and {@code transactions_archive}.
+ * Nothing created after the archive horizon is ever archived, so queries whose range starts after
+ * the horizon (and queries for pending transactions, which are never archived) only touch the hot
+ * table; everything else is a UNION ALL of both tiers. Reads are read-only transactions and so
+ * are served by the replica when one is configured.
+ *
+ * The user-facing history is paged with a (created_at, id) keyset cursor over a slim projection,
+ * so memory and latency per request stay flat however long a user's history grows.
+ */
+@Service
+@Transactional(readOnly = true)
+public class TransactionHistoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final TransactionMapper transactionMapper;
+    private final Clock clock;
+    private final Duration horizon;
+
+    @Autowired
+    public TransactionHistoryService(TransactionMapper transactionMapper,
+                                     @Value("${transactions.archive.horizon:365d}") Duration horizon) {
+        this(transactionMapper, Clock.systemDefaultZone(), horizon);
+    }
+
+    TransactionHistoryService(TransactionMapper transactionMapper, Clock clock, Duration horizon) {
+        this.transactionMapper = transactionMapper;
+        this.clock = clock;
+        this.horizon = horizon;
+    }
+
+    /**
+     * Find all transactions for a user, newest first
+     *
+     * @param userId User ID
+     * @return Transactions from both tiers
+     */
+    public List<Transaction> findAllByUserId(Long userId) {
+        return transactionMapper.findAllByUserIdWithArchive(userId);
+    }
+
+    /**
+     * Find one page of a user's transactions, newest first
+     *
+     * @param userId User ID
+     * @param cursor Cursor from the previous page, or null for the first page
+     * @param limit Page size, capped at MAX_PAGE_SIZE
+     * @return Transaction summaries and the cursor for the next page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public TransactionHistoryPage findPage(Long userId, String cursor, int limit) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        // One extra row tells whether another page exists
+        List<TransactionSummary> rows = transactionMapper.findSummaryPage(userId,
+                after != null ? after.timestamp() : null,
+                after != null ? after.id() : null,
+                pageSize + 1);
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            TransactionSummary last = rows.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+        return TransactionHistoryPage.builder()
+                .transactions(List.copyOf(rows))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Find a user's transactions created within a date range, newest first
+     *
+     * @param userId User ID
+     * @param startDate Start date (inclusive)
+     * @param endDate End date (inclusive)
+     * @return Transactions, read from the archive only if the range reaches past the horizon
+     */
+    public List<Transaction> findByUserIdAndDateRange(Long userId, LocalDateTime startDate, LocalDateTime endDate) {
+        if (isHotOnly(startDate)) {
+            return transactionMapper.findByUserIdAndDateRange(userId, startDate, endDate);
+        }
+        return transactionMapper.findByUserIdAndDateRangeWithArchive(userId, startDate, endDate);
+    }
+
+    /**
+     * Find transactions by verification status, newest first
+     *
+     * @param verificationStatus Verification status (pending, verified, failed)
+     * @return Transactions; pending ones are never archived
+     */
+    public List<Transaction> findByVerificationStatus(String verificationStatus) {
+        if ("pending".equals(verificationStatus)) {
+            return transactionMapper.findByVerificationStatus(verificationStatus);
+        }
+        return transactionMapper.findByVerificationStatusWithArchive(verificationStatus);
+    }
+
+    /**
+     * Count transactions by payment method across both tiers
+     *
+     * @param paymentMethod Payment method
+     * @return Count of transactions
+     */
+    public long countByPaymentMethod(String paymentMethod) {
+        return transactionMapper.countByPaymentMethod(paymentMethod)
+                + transactionMapper.countArchivedByPaymentMethod(paymentMethod);
+    }
+
+    /**
+     * Find a transaction by platform transaction ID, falling back to the archive
+     *
+     * @param platformTransactionId Transaction ID from payment platform
+     * @return Transaction if found, null otherwise
+     */
+    public Transaction findByPlatformTransactionId(String platformTransactionId) {
+        Transaction transaction = transactionMapper.findByPlatformTransactionId(platformTransactionId);
+        return transaction != null
+                ? transaction
+                : transactionMapper.findArchivedByPlatformTransactionId(platformTransactionId);
+    }
+
+    /**
+     * Whether no row created at or after the given time can have been archived
+     */
+    boolean isHotOnly(LocalDateTime from) {
+        return from != null && !from.isBefore(LocalDateTime.now(clock).minus(horizon));
+    }
+}
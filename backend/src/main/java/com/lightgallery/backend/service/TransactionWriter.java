@@ -0,0 +1,337 @@
+package com.lightgallery.backend.service;
+
+import com.baomidou.mybatisplus.core.batch.BatchMethod;
+import com.baomidou.mybatisplus.core.batch.MybatisBatch;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Transaction Writer
+ * Inserts transaction records through the MyBatis BATCH executor instead of one round trip per
+ * row. With {@code rewriteBatchedStatements=true} Connector/J sends each batch as one multi-row
+ * INSERT, and the generated IDs are set on the entities when the batch is flushed.
+ *
+ * Writes are grouped in two ways. Inside a Spring transaction, {@link #write} buffers rows until
+ * the transaction commits and flushes them as one batch just before the commit, so they still
+ * commit or roll back with the caller's work. Until then a buffered row has no ID, and a
+ * constraint violation is raised by the commit rather than by {@code write}; a caller that needs
+ * either inside its method calls {@link #flushCurrentTransaction}. Outside a transaction, rows from concurrent callers
+ * are collected for up to {@code transactions.writer.linger} (or until a batch is full) by a
+ * single flusher thread that inserts them in a transaction per shard; each caller waits for its
+ * batch, for at most {@code transactions.writer.write-timeout}. If a batch fails, its rows are
+ * retried one at a time so only the failing row fails its caller. Batches that are already in hand go through {@link #insertBatch} directly.
+ *
+ * Metrics: {@code transactions.writer.batch.size}, {@code transactions.writer.flush} (timer) and
+ * {@code transactions.writer.queue.depth}.
+ */
+@Slf4j
+@Service
+public class TransactionWriter {
+
+    private static final long IDLE_POLL_MS = 100;
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final BatchMethod<Transaction> insert;
+    private final Duration linger;
+    private final Duration writeTimeout;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingWrite> queue;
+
+    private final DistributionSummary batchSizes;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    public TransactionWriter(SqlSessionFactory sqlSessionFactory,
+                             TransactionTemplate transactionTemplate,
+                             ShardRouter shardRouter,
+                             MeterRegistry meterRegistry,
+                             @Value("${transactions.writer.linger:5ms}") Duration linger,
+                             @Value("${transactions.writer.max-batch-size:100}") int maxBatchSize,
+                             @Value("${transactions.writer.queue-capacity:10000}") int queueCapacity,
+                             @Value("${transactions.writer.write-timeout:30s}") Duration writeTimeout) {
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.transactionTemplate = transactionTemplate;
+        this.shardRouter = shardRouter;
+        this.insert = new MybatisBatch.Method<Transaction>(TransactionMapper.class).insert();
+        this.linger = linger;
+        this.writeTimeout = writeTimeout;
+        this.maxBatchSize = maxBatchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.batchSizes = DistributionSummary.builder("transactions.writer.batch.size")
+                .description("Rows per batched transaction insert")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("transactions.writer.flush")
+                .description("Time to insert one batch of transactions")
+                .register(meterRegistry);
+        Gauge.builder("transactions.writer.queue.depth", queue, BlockingQueue::size)
+                .description("Transactions waiting for the flusher")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        flusher = new Thread(this::flushLoop, "transaction-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Stop the flusher after writing everything still queued
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (flusher != null) {
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Write one transaction record
+     * Inside a Spring transaction the row is inserted when that transaction commits (its ID is set
+     * then, and an insert failure fails the commit) or at {@link #flushCurrentTransaction};
+     * otherwise this waits until the row's batch has been committed.
+     *
+     * @param transaction Transaction to insert
+     * @throws IllegalStateException if the row was not written within the write timeout; a row
+     *         whose batch was already being inserted may still be written after that
+     */
+    public void write(Transaction transaction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingInCurrentTransaction().add(transaction);
+            return;
+        }
+        PendingWrite write = enqueue(transaction);
+        try {
+            write.result().get(writeTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Failed to insert transaction", e.getCause());
+        } catch (TimeoutException e) {
+            queue.remove(write);
+            throw new IllegalStateException("Transaction not written within " + writeTimeout);
+        } catch (InterruptedException e) {
+            queue.remove(write);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the transaction writer", e);
+        }
+    }
+
+    /**
+     * Insert the rows buffered for the current Spring transaction now
+     * Sets their IDs and raises any insert failure in the caller instead of at commit. Does nothing
+     * outside a transaction or when nothing is buffered.
+     */
+    public void flushCurrentTransaction() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<Transaction> pending = (List<Transaction>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null || pending.isEmpty()) {
+            return;
+        }
+        insertBatch(pending);
+        pending.clear();
+    }
+
+    /**
+     * Queue one transaction record for the next cross-request batch
+     * Falls back to an immediate insert when the writer is stopped or its queue is full.
+     *
+     * @param transaction Transaction to insert
+     * @return Completes with the inserted transaction (ID set) once its batch has committed
+     */
+    public CompletableFuture<Transaction> submit(Transaction transaction) {
+        return enqueue(transaction).result();
+    }
+
+    private PendingWrite enqueue(Transaction transaction) {
+        PendingWrite write = new PendingWrite(transaction, new CompletableFuture<>());
+        if (!running || !queue.offer(write)) {
+            flush(List.of(write));
+        }
+        return write;
+    }
+
+    /**
+     * Insert transactions as one batch
+     * Joins the caller's transaction if there is one, so the rows must all belong to users on the
+     * same shard.
+     *
+     * @param transactions Transactions to insert; their IDs are set on return
+     * @return Number of rows inserted
+     */
+    public int insertBatch(Collection<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        new MybatisBatch<>(sqlSessionFactory, transactions, maxBatchSize).execute(insert);
+        flushTimer.record(Duration.ofNanos(System.nanoTime() - start));
+        batchSizes.record(transactions.size());
+        return transactions.size();
+    }
+
+    /**
+     * Rows buffered for the current Spring transaction, flushed before it commits
+     */
+    @SuppressWarnings("unchecked")
+    private List<Transaction> pendingInCurrentTransaction() {
+        List<Transaction> pending = (List<Transaction>) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+        List<Transaction> created = new ArrayList<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void suspend() {
+                TransactionSynchronizationManager.unbindResource(TransactionWriter.this);
+            }
+
+            @Override
+            public void resume() {
+                TransactionSynchronizationManager.bindResource(TransactionWriter.this, created);
+            }
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                insertBatch(created);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(TransactionWriter.this);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * Flusher loop: wait for a first row, give others the linger time to join it, insert them
+     * If interrupted, new rows are inserted by their callers and everything already queued is
+     * inserted before the loop returns.
+     */
+    private void flushLoop() {
+        long lingerNanos = linger.toNanos();
+        while (running || !queue.isEmpty()) {
+            List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+            try {
+                PendingWrite first = running ? queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = running && remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                // The batch in hand has not been flushed yet; take the rest of the queue with it
+                running = false;
+                queue.drainTo(batch);
+                if (!batch.isEmpty()) {
+                    log.warn("Transaction writer interrupted, inserting {} queued transactions", batch.size());
+                    flush(batch);
+                }
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Insert a batch, split by shard since one database transaction holds one shard's connection
+     */
+    private void flush(List<PendingWrite> batch) {
+        if (shardRouter.shardCount() == 1) {
+            flushShard(batch);
+            return;
+        }
+        Map<Integer, List<PendingWrite>> byShard = batch.stream()
+                .collect(Collectors.groupingBy(write -> shardOf(write.transaction())));
+        byShard.values().forEach(this::flushShard);
+    }
+
+    /**
+     * Shard of a row's user; a row without one is left for the insert to reject
+     */
+    private int shardOf(Transaction transaction) {
+        Long userId = transaction.getUserId();
+        return userId != null ? shardRouter.shardFor(userId) : ShardRouter.DEFAULT_SHARD;
+    }
+
+    /**
+     * Insert one shard's rows in a transaction; if that fails, retry each row in its own
+     */
+    private void flushShard(List<PendingWrite> batch) {
+        List<Transaction> transactions = batch.stream().map(PendingWrite::transaction).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertBatch(transactions));
+            batch.forEach(write -> write.result().complete(write.transaction()));
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.error("Failed to insert transaction: {}", e.getMessage());
+                batch.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.warn("Failed to insert a batch of {} transactions, retrying them one at a time: {}",
+                    batch.size(), e.getMessage());
+            batch.forEach(write -> flushShard(List.of(write)));
+        }
+    }
+
+    /**
+     * Queued row and the future its caller waits on
+     */
+    private record PendingWrite(Transaction transaction, CompletableFuture<Transaction> result) {
+    }
+}
@@ -1,23 +1,40 @@
 package com.lightgallery.backend.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.dto.OAuthProfile;
+import com.lightgallery.backend.dto.WeChatAccessToken;
+import com.lightgallery.backend.dto.WeChatUserInfo;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WeChat OAuth Service
- * Validates WeChat OAuth tokens
+ * Authenticates WeChat logins: exchanges the authorization code, then fetches the user's
+ * profile with the returned access token, so clients no longer need to send display name and
+ * avatar themselves. Profiles are cached per openid for a short TTL so repeated logins do not
+ * re-fetch them.
  */
 @Slf4j
 @Service
-public class WeChatOAuthService {
+public class WeChatOAuthService implements OAuthProvider {
+
+    private static final String ACCESS_TOKEN_URL = "https://api.weixin.qq.com/sns/oauth2/access_token";
+    private static final String USER_INFO_URL = "https://api.weixin.qq.com/sns/userinfo";
+
+    private static final int MAX_PROFILE_CACHE_SIZE = 10_000;
 
     @Value("${oauth.wechat.app-id}")
     private String appId;
@@ -25,7 +42,35 @@ public class WeChatOAuthService {
     @Value("${oauth.wechat.app-secret}")
     private String appSecret;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
+    private final ProviderCallGuard providerCallGuard;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Duration profileTtl;
+
+    private final Map<String, CachedProfile> profileCache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public WeChatOAuthService(RestTemplate restTemplate,
+                              ProviderCallGuard providerCallGuard,
+                              ObjectMapper objectMapper,
+                              @Value("${oauth.wechat.profile-cache-ttl:10m}") Duration profileTtl) {
+        this(restTemplate, providerCallGuard, objectMapper, Clock.systemUTC(), profileTtl);
+    }
+
+    WeChatOAuthService(RestTemplate restTemplate, ProviderCallGuard providerCallGuard, ObjectMapper objectMapper,
+                       Clock clock, Duration profileTtl) {
+        this.restTemplate = restTemplate;
+        this.providerCallGuard = providerCallGuard;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.profileTtl = profileTtl;
+    }
+
+    @Override
+    public String getName() {
+        return "wechat";
+    }
 
     /**
      * Validate WeChat OAuth token
@@ -35,71 +80,130 @@ public class WeChatOAuthService {
      * @param providerUserId Expected user ID from WeChat
      * @return true if token is valid, false otherwise
      */
+    @Override
     public boolean validateToken(String code, String providerUserId) {
+        return authenticate(code, providerUserId) != null;
+    }
+
+    /**
+     * Authenticate a WeChat login
+     * Exchanges the code for an access token, checks the openid, then attaches the user's
+     * profile (cached, or fetched with the new token when the snsapi_userinfo scope was
+     * granted). A failed profile fetch does not fail the login.
+     *
+     * @param code Authorization code from WeChat
+     * @param providerUserId Expected openid, or null to accept the openid WeChat returns
+     * @return Verified profile, or null if the code is invalid
+     */
+    @Override
+    public OAuthProfile authenticate(String code, String providerUserId) {
         log.info("Validating WeChat OAuth token");
 
         try {
-            // Exchange code for access token
-            String url = String.format(
-                    "https://api.weixin.qq.com/sns/oauth2/access_token?appid=%s&secret=%s&code=%s&grant_type=authorization_code",
-                    appId, appSecret, code
-            );
-
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    Map.class
-            );
-
-            Map<String, Object> body = response.getBody();
-            if (body == null || body.containsKey("errcode")) {
-                log.error("WeChat OAuth token exchange failed: {}", body);
-                return false;
+            WeChatAccessToken token = exchangeCode(code);
+            if (token == null || token.getErrcode() != null || token.getOpenid() == null) {
+                log.error("WeChat OAuth token exchange failed: {}",
+                        token != null ? token.getErrcode() + " " + token.getErrmsg() : "empty response");
+                return null;
             }
 
             // Verify user ID matches
-            String openid = (String) body.get("openid");
-            if (providerUserId != null && !providerUserId.equals(openid)) {
-                log.error("WeChat user ID mismatch. Expected: {}, Got: {}", providerUserId, openid);
-                return false;
+            if (providerUserId != null && !providerUserId.equals(token.getOpenid())) {
+                log.error("WeChat user ID mismatch. Expected: {}, Got: {}", providerUserId, token.getOpenid());
+                return null;
             }
 
             log.info("WeChat OAuth token validated successfully");
-            return true;
 
+            WeChatUserInfo userInfo = getUserInfo(token);
+            return OAuthProfile.builder()
+                    .providerUserId(token.getOpenid())
+                    .displayName(userInfo != null ? userInfo.getNickname() : null)
+                    .avatarUrl(userInfo != null ? userInfo.getHeadimgurl() : null)
+                    .build();
+
+        } catch (ProviderUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             log.error("WeChat OAuth validation error: {}", e.getMessage(), e);
-            return false;
+            return null;
         }
     }
 
     /**
-     * Get WeChat user info
+     * Exchange an authorization code for an access token
+     *
+     * @param code Authorization code from WeChat
+     * @return Token response
+     */
+    private WeChatAccessToken exchangeCode(String code) throws JsonProcessingException {
+        URI uri = UriComponentsBuilder.fromHttpUrl(ACCESS_TOKEN_URL)
+                .queryParam("appid", appId)
+                .queryParam("secret", appSecret)
+                .queryParam("code", code)
+                .queryParam("grant_type", "authorization_code")
+                .encode()
+                .build()
+                .toUri();
+        return get(uri, WeChatAccessToken.class);
+    }
+
+    /**
+     * Get WeChat user info for a freshly exchanged token
+     * Served from the profile cache when possible.
      *
-     * @param accessToken WeChat access token
-     * @param openid WeChat user openid
-     * @return User info map
+     * @param token WeChat access token response
+     * @return User info, or null if unavailable
      */
-    public Map<String, Object> getUserInfo(String accessToken, String openid) {
-        try {
-            String url = String.format(
-                    "https://api.weixin.qq.com/sns/userinfo?access_token=%s&openid=%s&lang=zh_CN",
-                    accessToken, openid
-            );
+    private WeChatUserInfo getUserInfo(WeChatAccessToken token) {
+        Instant now = clock.instant();
+        CachedProfile cached = profileCache.get(token.getOpenid());
+        if (cached != null && now.isBefore(cached.expiresAt())) {
+            return cached.userInfo();
+        }
+        if (!token.hasUserInfoScope()) {
+            return null;
+        }
 
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.GET,
-                    null,
-                    Map.class
-            );
+        try {
+            URI uri = UriComponentsBuilder.fromHttpUrl(USER_INFO_URL)
+                    .queryParam("access_token", token.getAccessToken())
+                    .queryParam("openid", token.getOpenid())
+                    .queryParam("lang", "zh_CN")
+                    .encode()
+                    .build()
+                    .toUri();
+            WeChatUserInfo userInfo = get(uri, WeChatUserInfo.class);
+            if (userInfo == null || userInfo.getErrcode() != null) {
+                log.warn("Failed to get WeChat user info: {}", userInfo != null ? userInfo.getErrmsg() : "empty response");
+                return null;
+            }
 
-            return response.getBody();
+            if (profileCache.size() >= MAX_PROFILE_CACHE_SIZE) {
+                profileCache.values().removeIf(entry -> !now.isBefore(entry.expiresAt()));
+                if (profileCache.size() >= MAX_PROFILE_CACHE_SIZE) {
+                    profileCache.clear();
+                }
+            }
+            profileCache.put(token.getOpenid(), new CachedProfile(userInfo, now.plus(profileTtl)));
+            return userInfo;
 
         } catch (Exception e) {
-            log.error("Failed to get WeChat user info: {}", e.getMessage(), e);
+            log.warn("Failed to get WeChat user info: {}", e.getMessage());
             return null;
         }
     }
+
+    /**
+     * GET a WeChat API and map the JSON body
+     * WeChat answers with text/plain, so the body is read as a string and mapped here.
+     */
+    private <T> T get(URI uri, Class<T> type) throws JsonProcessingException {
+        String body = providerCallGuard.call(ProviderCallGuard.WECHAT_OAUTH,
+                () -> restTemplate.getForObject(uri, String.class));
+        return body != null ? objectMapper.readValue(body, type) : null;
+    }
+
+    private record CachedProfile(WeChatUserInfo userInfo, Instant expiresAt) {
+    }
 }
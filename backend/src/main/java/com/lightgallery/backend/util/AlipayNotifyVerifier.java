@@ -0,0 +1,116 @@
+package com.lightgallery.backend.util;
+
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Alipay Notify Verifier
+ * Verifies RSA2 (SHA256withRSA) signatures on Alipay asynchronous notifications.
+ *
+ * The signed content is every parameter except {@code sign} and {@code sign_type}, with empty
+ * values dropped, sorted by name and joined as {@code key=value} pairs separated by {@code &}.
+ */
+@Slf4j
+@Component
+public class AlipayNotifyVerifier {
+
+    private final PublicKey alipayPublicKey;
+    private final String appId;
+
+    public AlipayNotifyVerifier(@Value("${alipay.public-key:}") String alipayPublicKey,
+                                @Value("${alipay.app-id:}") String appId) {
+        this.alipayPublicKey = parsePublicKey(alipayPublicKey);
+        this.appId = appId;
+        if (this.alipayPublicKey == null) {
+            log.warn("Alipay public key not configured, notifications will be rejected");
+        }
+    }
+
+    /**
+     * Verify the signature and app ID of a notification
+     *
+     * @param params Notification parameters as received
+     * @throws PaymentVerificationException if the signature is missing or invalid
+     */
+    public void verify(Map<String, String> params) {
+        if (alipayPublicKey == null) {
+            throw invalid("Alipay public key not configured");
+        }
+        String sign = params.get("sign");
+        if (sign == null || sign.isEmpty()) {
+            throw invalid("Alipay notification signature is missing");
+        }
+        String signType = params.get("sign_type");
+        if (signType != null && !"RSA2".equalsIgnoreCase(signType)) {
+            throw invalid("Unsupported Alipay sign type: " + signType);
+        }
+
+        try {
+            Signature verifier = Signature.getInstance("SHA256withRSA");
+            verifier.initVerify(alipayPublicKey);
+            verifier.update(signContent(params).getBytes(StandardCharsets.UTF_8));
+            if (!verifier.verify(Base64.getDecoder().decode(sign))) {
+                throw invalid("Alipay notification signature verification failed");
+            }
+        } catch (PaymentVerificationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to verify Alipay notification signature: {}", e.getMessage());
+            throw invalid("Invalid Alipay notification signature");
+        }
+
+        if (appId != null && !appId.isEmpty() && !appId.equals(params.get("app_id"))) {
+            throw new PaymentVerificationException("Alipay notification app ID mismatch", "alipay", null,
+                    "INVALID_APP_ID");
+        }
+    }
+
+    /**
+     * Build the canonical content that Alipay signs
+     *
+     * @param params Notification parameters
+     * @return Sorted key=value pairs joined by &
+     */
+    public static String signContent(Map<String, String> params) {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(params).entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            if ("sign".equals(key) || "sign_type".equals(key) || value == null || value.isEmpty()) {
+                continue;
+            }
+            if (content.length() > 0) {
+                content.append('&');
+            }
+            content.append(key).append('=').append(value);
+        }
+        return content.toString();
+    }
+
+    private static PaymentVerificationException invalid(String message) {
+        return new PaymentVerificationException(message, "alipay", null, "INVALID_SIGNATURE");
+    }
+
+    private static PublicKey parsePublicKey(String base64Key) {
+        if (base64Key == null || base64Key.isBlank()) {
+            return null;
+        }
+        try {
+            byte[] encoded = Base64.getMimeDecoder().decode(base64Key.trim());
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(encoded));
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid Alipay public key", e);
+        }
+    }
+}
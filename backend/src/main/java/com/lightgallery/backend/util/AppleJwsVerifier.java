@@ -0,0 +1,212 @@
+package com.lightgallery.backend.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Apple JWS Verifier
+ * Verifies JWS payloads signed by the App Store (StoreKit 2 transactions, renewal info and
+ * App Store Server Notifications V2) locally against Apple's certificate chain.
+ *
+ * The x5c header must carry leaf, intermediate and root certificates. The root must match the
+ * configured Apple root CA, and the leaf and intermediate must carry Apple's marker extensions.
+ * Parsed certificates and already validated chains are cached, so after the first payload from
+ * a given signing certificate only the ES256 signature check remains.
+ */
+@Slf4j
+@Component
+public class AppleJwsVerifier {
+
+    /**
+     * Marker extension on App Store receipt signing (leaf) certificates
+     */
+    static final String LEAF_MARKER_OID = "1.2.840.113635.100.6.11.1";
+
+    /**
+     * Marker extension on Apple Worldwide Developer Relations intermediate certificates
+     */
+    static final String INTERMEDIATE_MARKER_OID = "1.2.840.113635.100.6.2.1";
+
+    private static final int MAX_CACHE_SIZE = 256;
+
+    private final ObjectMapper objectMapper;
+    private final X509Certificate trustedRoot;
+
+    private final Map<String, X509Certificate> certificateCache = new ConcurrentHashMap<>();
+    private final Set<String> verifiedChains = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public AppleJwsVerifier(ObjectMapper objectMapper,
+                            ResourceLoader resourceLoader,
+                            @Value("${apple.iap.root-ca-path:}") String rootCaPath) {
+        this(objectMapper, loadRootCertificate(resourceLoader, rootCaPath));
+    }
+
+    public AppleJwsVerifier(ObjectMapper objectMapper, X509Certificate trustedRoot) {
+        this.objectMapper = objectMapper;
+        this.trustedRoot = trustedRoot;
+        if (trustedRoot == null) {
+            log.warn("Apple root CA not configured, signed App Store payloads will be rejected");
+        }
+    }
+
+    /**
+     * Verify a JWS signed by the App Store and decode its payload
+     *
+     * @param jws Compact JWS (header.payload.signature)
+     * @return Decoded payload
+     * @throws PaymentVerificationException if the JWS is malformed or not signed by Apple
+     */
+    public JsonNode verifyAndDecode(String jws) {
+        if (trustedRoot == null) {
+            throw invalid("Apple root CA not configured");
+        }
+        if (jws == null || jws.isEmpty()) {
+            throw invalid("Signed payload is missing");
+        }
+
+        int firstDot = jws.indexOf('.');
+        int secondDot = jws.indexOf('.', firstDot + 1);
+        if (firstDot <= 0 || secondDot <= firstDot + 1 || secondDot == jws.length() - 1
+                || jws.indexOf('.', secondDot + 1) >= 0) {
+            throw invalid("Malformed JWS");
+        }
+
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            JsonNode header = objectMapper.readTree(decoder.decode(jws.substring(0, firstDot)));
+
+            if (!"ES256".equals(header.path("alg").asText())) {
+                throw invalid("Unsupported JWS algorithm: " + header.path("alg").asText());
+            }
+
+            JsonNode x5c = header.path("x5c");
+            if (!x5c.isArray() || x5c.size() != 3) {
+                throw invalid("JWS x5c chain must contain 3 certificates");
+            }
+
+            X509Certificate leaf = parseCertificate(x5c.get(0).asText());
+            X509Certificate intermediate = parseCertificate(x5c.get(1).asText());
+            X509Certificate root = parseCertificate(x5c.get(2).asText());
+
+            verifyChain(x5c, leaf, intermediate, root);
+
+            Signature signature = Signature.getInstance("SHA256withECDSAinP1363Format");
+            signature.initVerify(leaf.getPublicKey());
+            signature.update(jws.substring(0, secondDot).getBytes(StandardCharsets.US_ASCII));
+            if (!signature.verify(decoder.decode(jws.substring(secondDot + 1)))) {
+                throw invalid("JWS signature verification failed");
+            }
+
+            return objectMapper.readTree(decoder.decode(jws.substring(firstDot + 1, secondDot)));
+
+        } catch (PaymentVerificationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to verify Apple signed payload: {}", e.getMessage());
+            throw new PaymentVerificationException("Invalid Apple signed payload", e);
+        }
+    }
+
+    /**
+     * Validate the certificate chain, consulting the cache of previously validated chains
+     */
+    private void verifyChain(JsonNode x5c, X509Certificate leaf, X509Certificate intermediate,
+                             X509Certificate root) throws GeneralSecurityException {
+        Date now = new Date();
+        leaf.checkValidity(now);
+        intermediate.checkValidity(now);
+
+        String chainKey = x5c.get(0).asText() + '.' + x5c.get(1).asText() + '.' + x5c.get(2).asText();
+        if (verifiedChains.contains(chainKey)) {
+            return;
+        }
+
+        if (!Arrays.equals(root.getEncoded(), trustedRoot.getEncoded())) {
+            throw invalid("JWS root certificate is not the trusted Apple root");
+        }
+        if (intermediate.getBasicConstraints() < 0) {
+            throw invalid("JWS intermediate certificate is not a CA");
+        }
+        if (leaf.getExtensionValue(LEAF_MARKER_OID) == null) {
+            throw invalid("JWS leaf certificate is missing the App Store marker");
+        }
+        if (intermediate.getExtensionValue(INTERMEDIATE_MARKER_OID) == null) {
+            throw invalid("JWS intermediate certificate is missing the Apple WWDR marker");
+        }
+
+        intermediate.verify(trustedRoot.getPublicKey());
+        leaf.verify(intermediate.getPublicKey());
+
+        if (verifiedChains.size() >= MAX_CACHE_SIZE) {
+            verifiedChains.clear();
+        }
+        verifiedChains.add(chainKey);
+    }
+
+    /**
+     * Parse a base64 DER certificate, reusing a cached instance when available
+     */
+    private X509Certificate parseCertificate(String base64Der) {
+        X509Certificate cached = certificateCache.get(base64Der);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            X509Certificate certificate = (X509Certificate) factory.generateCertificate(
+                    new ByteArrayInputStream(Base64.getDecoder().decode(base64Der)));
+            if (certificateCache.size() >= MAX_CACHE_SIZE) {
+                certificateCache.clear();
+            }
+            certificateCache.put(base64Der, certificate);
+            return certificate;
+        } catch (Exception e) {
+            throw new PaymentVerificationException("Invalid certificate in JWS x5c header", e);
+        }
+    }
+
+    private static PaymentVerificationException invalid(String message) {
+        return new PaymentVerificationException(message, "apple_iap", null, "INVALID_SIGNATURE");
+    }
+
+    /**
+     * Load the trusted Apple root certificate (PEM or DER)
+     *
+     * @param resourceLoader Resource loader
+     * @param path Resource path, e.g. classpath:certs/AppleRootCA-G3.cer
+     * @return Root certificate, or null if not configured
+     */
+    private static X509Certificate loadRootCertificate(ResourceLoader resourceLoader, String path) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        Resource resource = resourceLoader.getResource(path);
+        try (InputStream in = resource.getInputStream()) {
+            return (X509Certificate) CertificateFactory.getInstance("X.509").generateCertificate(in);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load Apple root CA from " + path, e);
+        }
+    }
+}
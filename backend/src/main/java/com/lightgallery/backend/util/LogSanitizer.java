@@ -0,0 +1,238 @@
+package com.lightgallery.backend.util;
+
+/**
+ * Log Sanitizer
+ * Masks sensitive values in text that is logged, audited or echoed back to clients.
+ * Requirements: 10.5
+ *
+ * {@link #sanitize(String)} makes a single left-to-right pass and produces the same output as
+ * applying, in order:
+ * <pre>
+ *   \b[A-Za-z0-9]{32,}\b                  -> [TOKEN_REDACTED]
+ *   \b\d{13,19}\b                         -> [CARD_REDACTED]
+ *   (?i)(password|pwd)=[^&amp;\s]+            -> $1=[REDACTED]
+ *   (?i)(key|apikey|api_key)=[^&amp;\s]+      -> $1=[REDACTED]
+ * </pre>
+ * followed by truncation to 500 characters. Word boundaries follow java.util.regex on Java 17
+ * (letters, digits and underscore are word characters, and a non-spacing mark counts as one
+ * when attached to a letter or digit). Text with nothing to mask is returned as is; otherwise
+ * the output is built in one StringBuilder.
+ */
+public final class LogSanitizer {
+
+    public static final String NOT_AVAILABLE = "N/A";
+
+    static final int MAX_LENGTH = 500;
+
+    private static final String TOKEN_REDACTED = "[TOKEN_REDACTED]";
+    private static final String CARD_REDACTED = "[CARD_REDACTED]";
+    private static final String REDACTED = "[REDACTED]";
+    private static final String ELLIPSIS = "...";
+
+    private static final int MIN_TOKEN_LENGTH = 32;
+    private static final int MIN_CARD_LENGTH = 13;
+    private static final int MAX_CARD_LENGTH = 19;
+
+    private LogSanitizer() {
+    }
+
+    /**
+     * Mask a transaction ID
+     * Shows only the first 4 and last 4 characters; IDs of 8 characters or fewer keep only the
+     * first 2. Example: "1234567890abcdef" -> "1234****cdef"
+     *
+     * @param transactionId Transaction ID
+     * @return Masked ID, or N/A if null or empty
+     */
+    public static String maskTransactionId(String transactionId) {
+        if (transactionId == null || transactionId.isEmpty()) {
+            return NOT_AVAILABLE;
+        }
+        int length = transactionId.length();
+        if (length <= 8) {
+            return new StringBuilder(6)
+                    .append(transactionId, 0, Math.min(2, length))
+                    .append("****")
+                    .toString();
+        }
+        return new StringBuilder(12)
+                .append(transactionId, 0, 4)
+                .append("****")
+                .append(transactionId, length - 4, length)
+                .toString();
+    }
+
+    /**
+     * Remove tokens, card numbers, passwords and API keys from a message and limit its length
+     *
+     * @param message Message, e.g. an exception message
+     * @return Sanitized message, or N/A if null or empty
+     */
+    public static String sanitize(String message) {
+        if (message == null || message.isEmpty()) {
+            return NOT_AVAILABLE;
+        }
+
+        int length = message.length();
+        StringBuilder out = null;
+        // Input before copyFrom has been written to out
+        int copyFrom = 0;
+        // Input before maskedUntil has been replaced and cannot form a parameter name
+        int maskedUntil = 0;
+
+        int i = 0;
+        while (i < length) {
+            char c = message.charAt(i);
+
+            if (isAsciiLetterOrDigit(c) && !isWordBefore(message, i)) {
+                int end = i;
+                boolean allDigits = true;
+                while (end < length && isAsciiLetterOrDigit(message.charAt(end))) {
+                    allDigits &= isAsciiDigit(message.charAt(end));
+                    end++;
+                }
+                int run = end - i;
+                String replacement = null;
+                if (!isWordAt(message, end)) {
+                    if (run >= MIN_TOKEN_LENGTH) {
+                        replacement = TOKEN_REDACTED;
+                    } else if (allDigits && run >= MIN_CARD_LENGTH && run <= MAX_CARD_LENGTH) {
+                        replacement = CARD_REDACTED;
+                    }
+                }
+                if (replacement != null) {
+                    if (out == null) {
+                        out = new StringBuilder(length + 16);
+                    }
+                    out.append(message, copyFrom, i).append(replacement);
+                    copyFrom = end;
+                    maskedUntil = end;
+                }
+                i = end;
+                continue;
+            }
+
+            if (c == '=' && hasValueAt(message, i + 1) && endsWithSecretName(message, i, maskedUntil)) {
+                int end = i + 1;
+                while (end < length && !isValueTerminator(message.charAt(end))) {
+                    end++;
+                }
+                if (out == null) {
+                    out = new StringBuilder(length + 16);
+                }
+                out.append(message, copyFrom, i + 1).append(REDACTED);
+                copyFrom = end;
+                maskedUntil = end;
+                i = end;
+                continue;
+            }
+
+            i++;
+        }
+
+        if (out == null) {
+            if (length <= MAX_LENGTH) {
+                return message;
+            }
+            return new StringBuilder(MAX_LENGTH)
+                    .append(message, 0, MAX_LENGTH - ELLIPSIS.length())
+                    .append(ELLIPSIS)
+                    .toString();
+        }
+
+        out.append(message, copyFrom, length);
+        if (out.length() > MAX_LENGTH) {
+            out.setLength(MAX_LENGTH - ELLIPSIS.length());
+            out.append(ELLIPSIS);
+        }
+        return out.toString();
+    }
+
+    /**
+     * True if the text before '=' at index ends with password, pwd or key (ASCII, any case)
+     * that has not been masked. apikey and api_key end with key, so they need no check of their own.
+     */
+    private static boolean endsWithSecretName(String s, int index, int maskedUntil) {
+        return endsWithIgnoreCase(s, index, "password", maskedUntil)
+                || endsWithIgnoreCase(s, index, "pwd", maskedUntil)
+                || endsWithIgnoreCase(s, index, "key", maskedUntil);
+    }
+
+    /**
+     * ASCII-only case-insensitive match of a lowercase name ending at index
+     */
+    private static boolean endsWithIgnoreCase(String s, int index, String lowerName, int from) {
+        int start = index - lowerName.length();
+        if (start < from) {
+            return false;
+        }
+        for (int k = 0; k < lowerName.length(); k++) {
+            char c = s.charAt(start + k);
+            if (c != lowerName.charAt(k) && (c | 0x20) != lowerName.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasValueAt(String s, int index) {
+        return index < s.length() && !isValueTerminator(s.charAt(index));
+    }
+
+    /**
+     * '&amp;' or a regex \s character
+     */
+    private static boolean isValueTerminator(char c) {
+        return c == '&' || c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isAsciiLetterOrDigit(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isAsciiDigit(c);
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * True if the character before index counts as a word character for \b
+     */
+    private static boolean isWordBefore(String s, int index) {
+        if (index == 0) {
+            return false;
+        }
+        int ch = s.codePointBefore(index);
+        return isWord(ch) || (Character.getType(ch) == Character.NON_SPACING_MARK && hasBaseCharacter(s, index - 1));
+    }
+
+    /**
+     * True if the character at index counts as a word character for \b
+     */
+    private static boolean isWordAt(String s, int index) {
+        if (index >= s.length()) {
+            return false;
+        }
+        int ch = s.codePointAt(index);
+        return isWord(ch) || (Character.getType(ch) == Character.NON_SPACING_MARK && hasBaseCharacter(s, index));
+    }
+
+    private static boolean isWord(int ch) {
+        return ch == '_' || Character.isLetterOrDigit(ch);
+    }
+
+    /**
+     * Non-spacing marks only count as word characters if they follow a letter or digit
+     */
+    private static boolean hasBaseCharacter(String s, int index) {
+        for (int x = index; x >= 0; x--) {
+            int ch = s.codePointAt(x);
+            if (Character.isLetterOrDigit(ch)) {
+                return true;
+            }
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
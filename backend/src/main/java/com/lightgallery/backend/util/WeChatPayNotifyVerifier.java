@@ -0,0 +1,168 @@
+package com.lightgallery.backend.util;
+
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * WeChat Pay Notify Verifier
+ * Verifies WeChat Pay v3 callback signatures against the configured platform certificates
+ * and decrypts the AEAD_AES_256_GCM encrypted notification resource with the APIv3 key.
+ *
+ * The signed message is {@code timestamp\nnonce\nbody\n}, signed with SHA256withRSA by the
+ * platform certificate identified by the Wechatpay-Serial header.
+ */
+@Slf4j
+@Component
+public class WeChatPayNotifyVerifier {
+
+    /**
+     * Maximum accepted clock skew between the callback timestamp and local time
+     */
+    private static final Duration MAX_TIMESTAMP_SKEW = Duration.ofMinutes(5);
+
+    private static final int GCM_TAG_BITS = 128;
+
+    private final byte[] apiV3Key;
+    private final Map<String, PublicKey> platformKeys = new HashMap<>();
+
+    @Autowired
+    public WeChatPayNotifyVerifier(ResourceLoader resourceLoader,
+                                   @Value("${wechat.pay.api-v3-key:}") String apiV3Key,
+                                   @Value("${wechat.pay.platform-cert-path:}") String platformCertPath) {
+        this(apiV3Key, loadCertificates(resourceLoader, platformCertPath));
+    }
+
+    public WeChatPayNotifyVerifier(String apiV3Key, Collection<X509Certificate> platformCertificates) {
+        this.apiV3Key = apiV3Key == null ? new byte[0] : apiV3Key.getBytes(StandardCharsets.UTF_8);
+        for (X509Certificate certificate : platformCertificates) {
+            platformKeys.put(normalizeSerial(certificate.getSerialNumber().toString(16)), certificate.getPublicKey());
+        }
+        if (platformKeys.isEmpty() || this.apiV3Key.length != 32) {
+            log.warn("WeChat Pay platform certificates or APIv3 key not configured, callbacks will be rejected");
+        }
+    }
+
+    /**
+     * Verify the callback signature headers against the raw request body
+     *
+     * @param timestamp Wechatpay-Timestamp header (epoch seconds)
+     * @param nonce Wechatpay-Nonce header
+     * @param signature Wechatpay-Signature header (base64)
+     * @param serial Wechatpay-Serial header (platform certificate serial number)
+     * @param body Raw request body
+     * @throws PaymentVerificationException if the signature is missing, stale or invalid
+     */
+    public void verifySignature(String timestamp, String nonce, String signature, String serial, String body) {
+        if (timestamp == null || nonce == null || signature == null || serial == null || body == null) {
+            throw invalid("WeChat Pay signature headers are missing");
+        }
+
+        PublicKey platformKey = platformKeys.get(normalizeSerial(serial));
+        if (platformKey == null) {
+            throw invalid("Unknown WeChat Pay platform certificate: " + serial);
+        }
+
+        try {
+            Instant signedAt = Instant.ofEpochSecond(Long.parseLong(timestamp));
+            if (Duration.between(signedAt, Instant.now()).abs().compareTo(MAX_TIMESTAMP_SKEW) > 0) {
+                throw invalid("WeChat Pay callback timestamp outside allowed window");
+            }
+
+            Signature verifier = Signature.getInstance("SHA256withRSA");
+            verifier.initVerify(platformKey);
+            verifier.update((timestamp + "\n" + nonce + "\n" + body + "\n").getBytes(StandardCharsets.UTF_8));
+            if (!verifier.verify(Base64.getDecoder().decode(signature))) {
+                throw invalid("WeChat Pay callback signature verification failed");
+            }
+        } catch (PaymentVerificationException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Failed to verify WeChat Pay callback signature: {}", e.getMessage());
+            throw invalid("Invalid WeChat Pay callback signature");
+        }
+    }
+
+    /**
+     * Decrypt an AEAD_AES_256_GCM notification resource
+     *
+     * @param associatedData Resource associated_data (may be null)
+     * @param nonce Resource nonce
+     * @param ciphertext Resource ciphertext (base64)
+     * @return Decrypted plaintext JSON
+     * @throws PaymentVerificationException if the resource cannot be decrypted
+     */
+    public String decryptResource(String associatedData, String nonce, String ciphertext) {
+        if (apiV3Key.length != 32) {
+            throw invalid("WeChat Pay APIv3 key not configured");
+        }
+        try {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(apiV3Key, "AES"),
+                    new GCMParameterSpec(GCM_TAG_BITS, nonce.getBytes(StandardCharsets.UTF_8)));
+            if (associatedData != null) {
+                cipher.updateAAD(associatedData.getBytes(StandardCharsets.UTF_8));
+            }
+            return new String(cipher.doFinal(Base64.getDecoder().decode(ciphertext)), StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            log.error("Failed to decrypt WeChat Pay notification resource: {}", e.getMessage());
+            throw invalid("Unable to decrypt WeChat Pay notification resource");
+        }
+    }
+
+    private static String normalizeSerial(String serial) {
+        String normalized = serial.trim().toUpperCase(Locale.ROOT);
+        int start = 0;
+        while (start < normalized.length() - 1 && normalized.charAt(start) == '0') {
+            start++;
+        }
+        return normalized.substring(start);
+    }
+
+    private static PaymentVerificationException invalid(String message) {
+        return new PaymentVerificationException(message, "wechat_pay", null, "INVALID_SIGNATURE");
+    }
+
+    /**
+     * Load platform certificates from one or more comma-separated PEM resources
+     */
+    private static List<X509Certificate> loadCertificates(ResourceLoader resourceLoader, String paths) {
+        List<X509Certificate> certificates = new ArrayList<>();
+        if (paths == null || paths.isBlank()) {
+            return certificates;
+        }
+        for (String path : paths.split(",")) {
+            try (InputStream in = resourceLoader.getResource(path.trim()).getInputStream()) {
+                for (Certificate certificate : CertificateFactory.getInstance("X.509").generateCertificates(in)) {
+                    certificates.add((X509Certificate) certificate);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Failed to load WeChat Pay platform certificate from " + path, e);
+            }
+        }
+        return certificates;
+    }
+}
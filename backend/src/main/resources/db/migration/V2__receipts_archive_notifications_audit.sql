@@ -0,0 +1,141 @@
+-- V2: Receipts, archive, notification inboxes and audit trail
+-- Tables and columns added on top of the baseline schema: the content-addressed receipt store
+-- with transactions.receipt_hash, the transaction archive tier, the App Store and WeChat Pay /
+-- Alipay notification inboxes and the partitioned audit trail. receipt_data stays until its
+-- contents have been moved into receipts.
+
+-- Receipts Table
+-- Content-addressed receipt store: one deflate-compressed row per distinct receipt
+CREATE TABLE receipts (
+    receipt_hash CHAR(64) PRIMARY KEY COMMENT '收据SHA-256 (十六进制)',
+    payload MEDIUMBLOB NOT NULL COMMENT 'Deflate压缩的收据内容',
+    original_size INT NOT NULL COMMENT '原始大小(字节)',
+    compressed_size INT NOT NULL COMMENT '压缩后大小(字节)',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '首次存储时间'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Content-addressed payment receipts';
+
+ALTER TABLE transactions
+    ADD COLUMN receipt_hash CHAR(64) COMMENT '收据SHA-256 (receipts表)' AFTER receipt_data,
+    ADD INDEX idx_receipt_hash (receipt_hash),
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+-- Transactions Archive Table
+-- Cold tier for settled transactions older than the archive horizon (see TransactionArchiveService)
+CREATE TABLE transactions_archive (
+    id BIGINT PRIMARY KEY COMMENT '交易ID (与transactions表相同)',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    subscription_id BIGINT COMMENT '订阅ID',
+    transaction_type VARCHAR(50) NOT NULL COMMENT '交易类型: purchase, renewal, upgrade, cancellation, refund',
+    payment_method VARCHAR(20) NOT NULL COMMENT '支付方式: apple_iap, wechat_pay, alipay',
+    amount DECIMAL(10, 2) COMMENT '交易金额',
+    currency VARCHAR(10) DEFAULT 'CNY' COMMENT '货币代码',
+    platform_transaction_id VARCHAR(255) NOT NULL COMMENT '支付平台的交易ID',
+    receipt_hash CHAR(64) COMMENT '收据SHA-256 (receipts表)',
+    verification_status VARCHAR(20) NOT NULL COMMENT '验证状态: verified, failed',
+    verification_message TEXT COMMENT '验证结果消息',
+    tier VARCHAR(20) COMMENT '交易时的订阅层级',
+    billing_period VARCHAR(20) COMMENT '交易时的计费周期',
+    metadata JSON COMMENT '额外的交易元数据',
+    created_at DATETIME NOT NULL COMMENT '交易时间',
+    updated_at DATETIME NOT NULL COMMENT '最后更新时间',
+    deleted INT DEFAULT 0 COMMENT '逻辑删除标志 (0: 正常, 1: 已删除)',
+    archived_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '归档时间',
+    
+    -- Foreign keys
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (subscription_id) REFERENCES subscriptions(id) ON DELETE SET NULL,
+    
+    -- Indexes
+    INDEX idx_user_created_at (user_id, created_at),
+    INDEX idx_subscription_id (subscription_id),
+    INDEX idx_payment_method (payment_method),
+    INDEX idx_platform_transaction_id (platform_transaction_id),
+    INDEX idx_verification_status (verification_status),
+    INDEX idx_created_at (created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci ROW_FORMAT=COMPRESSED KEY_BLOCK_SIZE=8
+  COMMENT='Archived transactions (cold tier)';
+
+-- App Store Notifications Table
+-- Inbox for App Store Server Notifications V2, deduplicated by notification UUID
+CREATE TABLE app_store_notifications (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '通知ID',
+    notification_uuid VARCHAR(64) NOT NULL COMMENT 'Apple通知UUID',
+    notification_type VARCHAR(50) NOT NULL COMMENT '通知类型: SUBSCRIBED, DID_RENEW, EXPIRED, REFUND 等',
+    subtype VARCHAR(50) COMMENT '通知子类型',
+    original_transaction_id VARCHAR(255) COMMENT '原始交易ID',
+    transaction_id VARCHAR(255) COMMENT '交易ID',
+    product_id VARCHAR(100) COMMENT '产品ID',
+    expires_date DATETIME COMMENT '订阅到期时间',
+    signed_date DATETIME COMMENT 'Apple签名时间',
+    environment VARCHAR(20) COMMENT '环境: Production, Sandbox',
+    signed_payload MEDIUMTEXT COMMENT '原始签名载荷',
+    process_status VARCHAR(20) NOT NULL DEFAULT 'pending' COMMENT '处理状态: pending, applied, ignored, unmatched',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '匹配尝试次数',
+    processed_at DATETIME COMMENT '处理时间',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '接收时间',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后更新时间',
+    deleted INT DEFAULT 0 COMMENT '逻辑删除标志 (0: 正常, 1: 已删除)',
+    
+    -- Indexes
+    UNIQUE KEY uk_notification_uuid (notification_uuid),
+    INDEX idx_process_status_id (process_status, id),
+    INDEX idx_original_transaction_id (original_transaction_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='App Store server notification inbox';
+
+-- Payment Notifications Table
+-- Inbox for WeChat Pay and Alipay asynchronous notifications, deduplicated by provider notify ID
+CREATE TABLE payment_notifications (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '通知ID',
+    provider VARCHAR(20) NOT NULL COMMENT '支付渠道: wechat_pay, alipay',
+    notify_id VARCHAR(128) NOT NULL COMMENT '渠道通知ID',
+    event_type VARCHAR(50) COMMENT '通知事件类型',
+    platform_transaction_id VARCHAR(255) COMMENT '支付平台的交易ID',
+    trade_state VARCHAR(50) COMMENT '渠道交易状态',
+    outcome VARCHAR(20) NOT NULL COMMENT '处理结果: verified, failed, refunded, ignored',
+    amount DECIMAL(10, 2) COMMENT '通知金额',
+    payload TEXT COMMENT '解密后的通知内容',
+    process_status VARCHAR(20) NOT NULL DEFAULT 'pending' COMMENT '处理状态: pending, applied, ignored, unmatched',
+    attempts INT NOT NULL DEFAULT 0 COMMENT '匹配尝试次数',
+    processed_at DATETIME COMMENT '处理时间',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '接收时间',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后更新时间',
+    deleted INT DEFAULT 0 COMMENT '逻辑删除标志 (0: 正常, 1: 已删除)',
+    
+    -- Indexes
+    UNIQUE KEY uk_provider_notify_id (provider, notify_id),
+    INDEX idx_process_status_id (process_status, id),
+    INDEX idx_provider_platform_transaction_id (provider, platform_transaction_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Payment provider notification inbox';
+
+-- Audit Events Table
+-- Durable audit trail written in batches by the audit pipeline. Range-partitioned by month on
+-- occurred_at; upcoming months are split off p_future and expired months are dropped by
+-- AuditPartitionMaintainer. The primary key includes occurred_at as partitioning requires.
+CREATE TABLE audit_events (
+    id BIGINT AUTO_INCREMENT COMMENT '审计事件ID',
+    event_type VARCHAR(40) NOT NULL COMMENT '事件类型: SUBSCRIPTION_UPDATE, PAYMENT_VERIFICATION, PAYMENT_VERIFICATION_FAILURE, SUBSCRIPTION_CANCELLATION, SUBSCRIPTION_RENEWAL, AUTHENTICATION, ACCOUNT_DELETION',
+    occurred_at DATETIME(3) NOT NULL COMMENT '事件发生时间',
+    user_id BIGINT COMMENT '用户ID',
+    subscription_id BIGINT COMMENT '订阅ID',
+    tier VARCHAR(20) COMMENT '订阅层级',
+    status VARCHAR(20) COMMENT '订阅状态',
+    payment_method VARCHAR(20) COMMENT '支付方式',
+    transaction_id VARCHAR(255) COMMENT '脱敏后的交易ID',
+    provider VARCHAR(20) COMMENT 'OAuth提供商',
+    amount DECIMAL(10, 2) COMMENT '金额',
+    currency VARCHAR(3) COMMENT '货币代码',
+    success TINYINT(1) COMMENT '验证或认证结果',
+    reason VARCHAR(500) COMMENT '脱敏后的原因或错误信息',
+    
+    -- Indexes
+    -- Secondary indexes end in (occurred_at, id) so filtered keyset pages read in index order
+    PRIMARY KEY (id, occurred_at),
+    INDEX idx_user_occurred_at (user_id, occurred_at, id),
+    INDEX idx_event_type_occurred_at (event_type, occurred_at, id),
+    INDEX idx_transaction_occurred_at (transaction_id, occurred_at, id),
+    INDEX idx_occurred_at (occurred_at, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Audit trail'
+PARTITION BY RANGE (TO_DAYS(occurred_at)) (
+    PARTITION p_history VALUES LESS THAN (TO_DAYS('2026-01-01')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
@@ -0,0 +1,73 @@
+-- V3: Index redesign
+-- Replaces single-column and low-selectivity indexes (deleted, tier, status, payment_method, ...)
+-- with composite indexes derived from the mapper queries. Every remaining index serves at least
+-- one statement in the mapper package; MapperPlanRegressionTest checks the plans with EXPLAIN.
+-- New indexes are added before the indexes they replace are dropped, so foreign keys always keep
+-- a usable index.
+
+-- users: uk_provider_user already serves findByProviderAndProviderId/existsByProviderAndProviderId
+ALTER TABLE users
+    DROP INDEX idx_provider_user,
+    DROP INDEX idx_created_at,
+    DROP INDEX idx_deleted,
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+-- auth_tokens: findActiveTokensByUserId/findAllTokensByUserId filter (user_id, deleted) and
+-- order by created_at
+ALTER TABLE auth_tokens
+    ADD INDEX idx_user_deleted_created (user_id, deleted, created_at),
+    ALGORITHM=INPLACE, LOCK=NONE;
+ALTER TABLE auth_tokens
+    DROP INDEX idx_user_id,
+    DROP INDEX idx_deleted,
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+-- subscriptions: uk_user_active (user_id, deleted) allows one live row per user, so the per-user
+-- lookups (findActiveByUserId, hasActiveSubscription, getUserTier, findByUserIdAndStatus,
+-- findAllByUserId) are single-row const lookups on it and need no further index.
+-- findExpiredActiveSubscriptions scans (status, deleted, expiry_date); countByTier is answered
+-- from (tier, status, deleted) alone.
+ALTER TABLE subscriptions
+    ADD INDEX idx_status_deleted_expiry (status, deleted, expiry_date),
+    ADD INDEX idx_tier_status_deleted (tier, status, deleted),
+    ALGORITHM=INPLACE, LOCK=NONE;
+ALTER TABLE subscriptions
+    DROP INDEX idx_user_id,
+    DROP INDEX idx_tier,
+    DROP INDEX idx_status,
+    DROP INDEX idx_expiry_date,
+    DROP INDEX idx_payment_method,
+    DROP INDEX idx_deleted,
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+-- transactions: per-user and per-subscription history, verification status sweeps and
+-- payment method counts, each ending in the ORDER BY column
+ALTER TABLE transactions
+    ADD INDEX idx_user_deleted_created (user_id, deleted, created_at),
+    ADD INDEX idx_subscription_deleted_created (subscription_id, deleted, created_at),
+    ADD INDEX idx_status_deleted_created (verification_status, deleted, created_at),
+    ADD INDEX idx_payment_method_deleted (payment_method, deleted),
+    ALGORITHM=INPLACE, LOCK=NONE;
+ALTER TABLE transactions
+    DROP INDEX idx_user_id,
+    DROP INDEX idx_subscription_id,
+    DROP INDEX idx_transaction_type,
+    DROP INDEX idx_payment_method,
+    DROP INDEX idx_receipt_hash,
+    DROP INDEX idx_verification_status,
+    DROP INDEX idx_created_at,
+    DROP INDEX idx_deleted,
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+-- transactions_archive: same access paths as the hot table for the UNION ALL reads
+ALTER TABLE transactions_archive
+    ADD INDEX idx_user_deleted_created (user_id, deleted, created_at),
+    ADD INDEX idx_status_deleted_created (verification_status, deleted, created_at),
+    ADD INDEX idx_payment_method_deleted (payment_method, deleted),
+    ALGORITHM=INPLACE, LOCK=NONE;
+ALTER TABLE transactions_archive
+    DROP INDEX idx_user_created_at,
+    DROP INDEX idx_payment_method,
+    DROP INDEX idx_verification_status,
+    DROP INDEX idx_created_at,
+    ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,21 @@
+-- V4: Transaction export indexes
+-- The finance export streams a creation time range, optionally for one payment method, in
+-- created_at order. (deleted, created_at) serves the unfiltered range; extending
+-- idx_payment_method_deleted with created_at serves the filtered one and still answers
+-- countByPaymentMethod from its prefix.
+
+ALTER TABLE transactions
+    ADD INDEX idx_deleted_created (deleted, created_at),
+    ADD INDEX idx_payment_method_deleted_created (payment_method, deleted, created_at),
+    ALGORITHM=INPLACE, LOCK=NONE;
+ALTER TABLE transactions
+    DROP INDEX idx_payment_method_deleted,
+    ALGORITHM=INPLACE, LOCK=NONE;
+
+ALTER TABLE transactions_archive
+    ADD INDEX idx_deleted_created (deleted, created_at),
+    ADD INDEX idx_payment_method_deleted_created (payment_method, deleted, created_at),
+    ALGORITHM=INPLACE, LOCK=NONE;
+ALTER TABLE transactions_archive
+    DROP INDEX idx_payment_method_deleted,
+    ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,7 @@
+-- V5: Subscription version
+-- Optimistic lock column for subscriptions: every update increments it, and read-modify-write
+-- updates only succeed if it still holds the value that was read.
+
+ALTER TABLE subscriptions
+    ADD COLUMN version INT NOT NULL DEFAULT 0 COMMENT '乐观锁版本号' AFTER last_synced_at,
+    ALGORITHM=INPLACE, LOCK=NONE;
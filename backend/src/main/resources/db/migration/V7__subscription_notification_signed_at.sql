@@ -0,0 +1,8 @@
+-- V7: Subscription notification signed at
+-- Signing time of the newest App Store notification applied to each subscription. Notifications
+-- are applied in signing order within a batch; this carries the order across batches so a late
+-- delivery of an older notification is ignored instead of overwriting newer state.
+
+ALTER TABLE subscriptions
+    ADD COLUMN last_notification_signed_at DATETIME COMMENT '最后应用的App Store通知签名时间' AFTER last_synced_at,
+    ALGORITHM=INPLACE, LOCK=NONE;
@@ -0,0 +1,22 @@
+-- V8: Transaction status vocabulary
+-- verification_status takes exactly pending, verified, failed and refunded. Purchases used to be
+-- stored as "success" and refunds as "failed"; rewrite both so payment notifications can tell a
+-- verified purchase from a failed one and never revive a refunded transaction.
+
+UPDATE transactions SET verification_status = 'verified'
+WHERE verification_status = 'success';
+
+UPDATE transactions SET verification_status = 'refunded'
+WHERE transaction_type = 'refund' AND verification_status = 'verified';
+
+UPDATE transactions SET verification_status = 'refunded'
+WHERE verification_status = 'failed' AND verification_message = 'Provider notification: refunded';
+
+UPDATE transactions_archive SET verification_status = 'verified'
+WHERE verification_status = 'success';
+
+UPDATE transactions_archive SET verification_status = 'refunded'
+WHERE transaction_type = 'refund' AND verification_status = 'verified';
+
+UPDATE transactions_archive SET verification_status = 'refunded'
+WHERE verification_status = 'failed' AND verification_message = 'Provider notification: refunded';
@@ -0,0 +1,20 @@
+-- V9: User identity directory
+-- Global directory from OAuth identity to user ID, used on shard 0. A first login claims its
+-- identity here before creating the user on the user's shard; the unique key makes concurrent
+-- first logins on different shards agree on one account. Existing users, all created before
+-- sharding, are entered from the users table.
+
+CREATE TABLE user_identities (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY COMMENT '目录ID',
+    auth_provider VARCHAR(20) NOT NULL COMMENT 'OAuth提供商: apple, wechat, alipay',
+    provider_user_id VARCHAR(255) NOT NULL COMMENT 'OAuth提供商的用户ID',
+    user_id BIGINT NOT NULL COMMENT '用户ID',
+    created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '最后更新时间',
+    
+    -- Unique constraint for provider + provider_user_id
+    UNIQUE KEY uk_provider_user (auth_provider, provider_user_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='OAuth identity directory';
+
+INSERT IGNORE INTO user_identities (auth_provider, provider_user_id, user_id, created_at)
+SELECT auth_provider, provider_user_id, id, created_at FROM users WHERE deleted = 0;
@@ -0,0 +1,202 @@
+package com.lightgallery.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.config.AuditPipelineProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AuditEventPublisher
+ * Tests batching to enabled sinks, back-pressure policies and the ring buffer under contention
+ */
+class AuditEventPublisherTest {
+
+    @TempDir
+    Path tempDir;
+
+    private AuditPipelineProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private RecordingSink recordingSink;
+    private AuditEventPublisher publisher;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AuditPipelineProperties();
+        properties.setCapacity(4);
+        properties.setBatchSize(2);
+        properties.setIdleWait(Duration.ofMillis(1));
+        properties.setBlockTimeout(Duration.ofMillis(20));
+        properties.setSpillPath(tempDir.resolve("spill.jsonl").toString());
+        properties.setSinks(List.of("recording"));
+        meterRegistry = new SimpleMeterRegistry();
+        recordingSink = new RecordingSink();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.stop();
+        }
+    }
+
+    @Test
+    void testPublish_DeliversBatchesToEnabledSinksOnly() throws Exception {
+        RecordingSink disabledSink = new RecordingSink() {
+            @Override
+            public String getName() {
+                return "disabled";
+            }
+        };
+        properties.setBackPressure(BackPressurePolicy.BLOCK);
+        properties.setBlockTimeout(Duration.ofSeconds(5));
+        publisher = newPublisher(List.of(recordingSink, disabledSink));
+        publisher.start();
+
+        for (long i = 0; i < 5; i++) {
+            publisher.publish(AuditEvent.authentication(i, "apple", true));
+        }
+
+        recordingSink.awaitEvents(5);
+        assertTrue(recordingSink.batches.stream().allMatch(batch -> batch.size() <= 2));
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), recordingSink.userIds());
+        assertTrue(disabledSink.events.isEmpty());
+    }
+
+    @Test
+    void testPublish_DropOldest_KeepsNewestEvents() {
+        properties.setBackPressure(BackPressurePolicy.DROP_OLDEST);
+        publisher = newPublisher(List.of(recordingSink));
+
+        // Consumer not started: the buffer fills up
+        for (long i = 0; i < 6; i++) {
+            publisher.publish(AuditEvent.authentication(i, "apple", true));
+        }
+
+        assertEquals(4, publisher.getQueueDepth());
+        assertEquals(2.0, meterRegistry.get("audit.events.dropped").tag("reason", "drop_oldest").counter().count());
+
+        publisher.start();
+        recordingSink.awaitEvents(4);
+        assertEquals(List.of(2L, 3L, 4L, 5L), recordingSink.userIds());
+    }
+
+    @Test
+    void testPublish_Block_DropsAfterTimeout() {
+        properties.setBackPressure(BackPressurePolicy.BLOCK);
+        publisher = newPublisher(List.of(recordingSink));
+
+        for (long i = 0; i < 5; i++) {
+            publisher.publish(AuditEvent.authentication(i, "apple", true));
+        }
+
+        assertEquals(1.0, meterRegistry.get("audit.events.dropped").tag("reason", "block_timeout").counter().count());
+        assertEquals(4.0, meterRegistry.get("audit.queue.depth").gauge().value());
+    }
+
+    @Test
+    void testPublish_Spill_ReplaysAfterDrain() throws Exception {
+        properties.setBackPressure(BackPressurePolicy.SPILL);
+        publisher = newPublisher(List.of(recordingSink));
+
+        for (long i = 0; i < 7; i++) {
+            publisher.publish(AuditEvent.paymentVerificationFailure(i, "apple_iap", "1234****cdef", "timeout"));
+        }
+        assertEquals(3.0, meterRegistry.get("audit.events.spilled").counter().count());
+        assertTrue(Files.exists(tempDir.resolve("spill.jsonl")));
+
+        publisher.start();
+        recordingSink.awaitEvents(7);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L, 5L, 6L), recordingSink.userIds());
+        assertEquals("timeout", recordingSink.events.get(6).reason());
+        assertFalse(Files.exists(tempDir.resolve("spill.jsonl")));
+    }
+
+    @Test
+    void testRingBuffer_ConcurrentProducers_NoLossOrDuplicates() throws Exception {
+        AuditRingBuffer ringBuffer = new AuditRingBuffer(1024);
+        int producers = 4;
+        int perProducer = 5000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        Set<Long> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch done = new CountDownLatch(producers);
+
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p * perProducer;
+            executor.execute(() -> {
+                for (long i = 0; i < perProducer; i++) {
+                    AuditEvent event = AuditEvent.authentication(base + i, "wechat", true);
+                    while (!ringBuffer.offer(event)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            });
+        }
+
+        int received = 0;
+        while (received < producers * perProducer) {
+            AuditEvent event = ringBuffer.poll();
+            if (event != null) {
+                assertTrue(seen.add(event.userId()), "duplicate event " + event.userId());
+                received++;
+            }
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertNull(ringBuffer.poll());
+        assertEquals(producers * perProducer, seen.size());
+    }
+
+    private AuditEventPublisher newPublisher(List<AuditSink> sinks) {
+        return new AuditEventPublisher(sinks, properties, new ObjectMapper().findAndRegisterModules(), meterRegistry);
+    }
+
+    private static class RecordingSink implements AuditSink {
+
+        final List<List<AuditEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+        final List<AuditEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String getName() {
+            return "recording";
+        }
+
+        @Override
+        public void write(List<AuditEvent> batch) {
+            batches.add(batch);
+            events.addAll(batch);
+        }
+
+        void awaitEvents(int count) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            assertEquals(count, events.size());
+        }
+
+        List<Long> userIds() {
+            synchronized (events) {
+                return events.stream().map(AuditEvent::userId).toList();
+            }
+        }
+    }
+}
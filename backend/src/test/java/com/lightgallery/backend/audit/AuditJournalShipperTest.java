@@ -0,0 +1,151 @@
+package com.lightgallery.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.config.AuditJournalProperties;
+import com.lightgallery.backend.config.AuditPipelineProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AuditJournalShipper
+ * Tests checkpointed shipping, backfill after a sink outage and segment retention
+ */
+class AuditJournalShipperTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Instant now = Instant.parse("2026-10-18T08:00:00Z");
+    private AuditJournalProperties properties;
+    private AuditPipelineProperties pipelineProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private FlakySink dbSink;
+    private AuditJournal journal;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AuditJournalProperties();
+        properties.setDirectory(tempDir.toString());
+        properties.setSegmentSize(DataSize.ofKilobytes(4));
+        properties.setReplayBatchSize(10);
+        properties.setRetention(Duration.ofDays(1));
+        pipelineProperties = new AuditPipelineProperties();
+        pipelineProperties.setSinks(List.of("log", "journal"));
+        meterRegistry = new SimpleMeterRegistry();
+        dbSink = new FlakySink();
+        journal = new AuditJournal(properties, objectMapper);
+    }
+
+    @Test
+    void testShip_DeliversOnceAndCheckpoints() throws Exception {
+        journal.write(events(0, 25));
+        AuditJournalShipper shipper = newShipper();
+
+        shipper.ship();
+        shipper.ship();
+
+        assertEquals(LongStream.range(0, 25).boxed().toList(), dbSink.userIds());
+        assertEquals(25.0, meterRegistry.get("audit.journal.shipped").counter().count());
+
+        // A new shipper resumes from the persisted checkpoint
+        journal.write(events(25, 30));
+        newShipper().ship();
+        assertEquals(30, dbSink.userIds().size());
+    }
+
+    @Test
+    void testShip_SinkOutage_BackfillsAfterRecovery() throws Exception {
+        AuditJournalShipper shipper = newShipper();
+        dbSink.down = true;
+        journal.write(events(0, 15));
+
+        shipper.ship();
+        assertTrue(dbSink.userIds().isEmpty());
+        assertEquals(1.0, meterRegistry.get("audit.journal.ship.failures").counter().count());
+
+        journal.write(events(15, 20));
+        dbSink.down = false;
+        assertEquals(20, shipper.backfill());
+        assertEquals(LongStream.range(0, 20).boxed().toList(), dbSink.userIds());
+    }
+
+    @Test
+    void testShip_JournalSinkDisabled_DoesNothing() throws Exception {
+        pipelineProperties.setSinks(List.of("log"));
+        journal.write(events(0, 5));
+
+        newShipper().ship();
+
+        assertTrue(dbSink.userIds().isEmpty());
+    }
+
+    @Test
+    void testDeleteExpiredSegments_KeepsUnshippedAndRecentSegments() throws Exception {
+        journal.write(events(0, 100));
+        List<Long> segments = AuditJournal.listSegments(tempDir);
+        assertTrue(segments.size() >= 3);
+        for (long segment : segments) {
+            Files.setLastModifiedTime(AuditJournal.segmentPath(tempDir, segment),
+                    FileTime.from(now.minus(Duration.ofDays(2))));
+        }
+        AuditJournalShipper shipper = newShipper();
+
+        // Nothing shipped yet: nothing may be deleted
+        shipper.deleteExpiredSegments();
+        assertEquals(segments, AuditJournal.listSegments(tempDir));
+
+        shipper.ship();
+        shipper.deleteExpiredSegments();
+        List<Long> remaining = AuditJournal.listSegments(tempDir);
+        assertEquals(List.of(segments.get(segments.size() - 1)), remaining);
+    }
+
+    private AuditJournalShipper newShipper() {
+        return new AuditJournalShipper(List.of(dbSink, journal), journal, pipelineProperties, properties,
+                objectMapper, meterRegistry, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static List<AuditEvent> events(long from, long to) {
+        return LongStream.range(from, to).mapToObj(i -> AuditEvent.authentication(i, "alipay", true)).toList();
+    }
+
+    private static class FlakySink implements AuditSink {
+
+        final List<AuditEvent> events = new ArrayList<>();
+        boolean down;
+
+        @Override
+        public String getName() {
+            return "db";
+        }
+
+        @Override
+        public void write(List<AuditEvent> batch) {
+            if (down) {
+                throw new IllegalStateException("database unavailable");
+            }
+            events.addAll(batch);
+        }
+
+        List<Long> userIds() {
+            return events.stream().map(AuditEvent::userId).toList();
+        }
+    }
+}
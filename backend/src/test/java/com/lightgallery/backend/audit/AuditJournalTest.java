@@ -0,0 +1,125 @@
+package com.lightgallery.backend.audit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.config.AuditJournalProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AuditJournal and AuditJournalReader
+ * Tests framing round trips, segment rotation and recovery from torn frames
+ */
+class AuditJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private AuditJournalProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AuditJournalProperties();
+        properties.setDirectory(tempDir.toString());
+        properties.setSegmentSize(DataSize.ofKilobytes(4));
+    }
+
+    @Test
+    void testWriteAndRead_RoundTripsEvents() throws Exception {
+        AuditJournal journal = new AuditJournal(properties, objectMapper);
+        journal.write(List.of(
+                AuditEvent.paymentVerification(1L, "apple_iap", "1234****cdef", 9.99, "USD", true),
+                AuditEvent.accountDeletion(2L, "user request")));
+        journal.force();
+
+        AuditJournalReader.Batch batch = reader().read(AuditJournalReader.Position.START, 10);
+
+        assertEquals(2, batch.events().size());
+        AuditEvent first = batch.events().get(0);
+        assertEquals(AuditEventType.PAYMENT_VERIFICATION, first.type());
+        assertEquals(9.99, first.amount());
+        assertEquals("user request", batch.events().get(1).reason());
+
+        // Reading from the returned position finds nothing new
+        assertTrue(reader().read(batch.next(), 10).events().isEmpty());
+    }
+
+    @Test
+    void testWrite_RotatesFullSegments() throws Exception {
+        AuditJournal journal = new AuditJournal(properties, objectMapper);
+        List<AuditEvent> events = LongStream.range(0, 100)
+                .mapToObj(i -> AuditEvent.authentication(i, "wechat", true))
+                .toList();
+        journal.write(events);
+
+        assertTrue(AuditJournal.listSegments(tempDir).size() > 1);
+        assertEquals(AuditJournal.listSegments(tempDir).get(AuditJournal.listSegments(tempDir).size() - 1),
+                journal.getActiveSegment());
+
+        AuditJournalReader.Batch first = reader().read(AuditJournalReader.Position.START, 60);
+        AuditJournalReader.Batch rest = reader().read(first.next(), 60);
+        assertEquals(60, first.events().size());
+        assertEquals(40, rest.events().size());
+        assertEquals(99L, rest.events().get(39).userId());
+    }
+
+    @Test
+    void testRead_SkipsTornFrameInOlderSegment() throws Exception {
+        AuditJournal crashed = new AuditJournal(properties, objectMapper);
+        crashed.write(List.of(AuditEvent.authentication(1L, "apple", true),
+                AuditEvent.authentication(2L, "apple", true)));
+        crashed.force();
+        corruptLastFrame(AuditJournal.segmentPath(tempDir, 1));
+
+        // A restarted writer opens a new segment instead of appending after the torn frame
+        AuditJournal restarted = new AuditJournal(properties, objectMapper);
+        restarted.write(List.of(AuditEvent.authentication(3L, "apple", true)));
+        assertEquals(2, restarted.getActiveSegment());
+
+        AuditJournalReader.Batch batch = reader().read(AuditJournalReader.Position.START, 10);
+        assertEquals(List.of(1L, 3L), batch.events().stream().map(AuditEvent::userId).toList());
+    }
+
+    @Test
+    void testRead_IncompleteFrameInActiveSegment_WaitsForIt() throws Exception {
+        AuditJournal journal = new AuditJournal(properties, objectMapper);
+        journal.write(List.of(AuditEvent.authentication(1L, "apple", true),
+                AuditEvent.authentication(2L, "apple", true)));
+        corruptLastFrame(AuditJournal.segmentPath(tempDir, 1));
+
+        AuditJournalReader.Batch batch = reader().read(AuditJournalReader.Position.START, 10);
+
+        assertEquals(1, batch.events().size());
+        assertEquals(1, batch.next().segment());
+        assertTrue(batch.next().offset() > AuditJournal.SEGMENT_HEADER_SIZE);
+    }
+
+    private AuditJournalReader reader() {
+        return new AuditJournalReader(tempDir, objectMapper);
+    }
+
+    /**
+     * Flip a payload byte of the second frame so its CRC no longer matches
+     */
+    private static void corruptLastFrame(Path segment) throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(AuditJournal.SEGMENT_HEADER_SIZE);
+            int firstLength = file.readInt();
+            long secondPayload = AuditJournal.SEGMENT_HEADER_SIZE + AuditJournal.FRAME_HEADER_SIZE + firstLength
+                    + AuditJournal.FRAME_HEADER_SIZE;
+            file.seek(secondPayload);
+            int b = file.read();
+            file.seek(secondPayload);
+            file.write(b ^ 0xFF);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.lightgallery.backend.audit;
+
+import com.lightgallery.backend.config.AuditJournalProperties;
+import com.lightgallery.backend.config.AuditPipelineProperties;
+import com.lightgallery.backend.mapper.AuditEventMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AuditPartitionMaintainer
+ * Tests creation of upcoming monthly partitions and retention by partition drop
+ */
+class AuditPartitionMaintainerTest {
+
+    private AuditEventMapper auditEventMapper;
+    private AuditPipelineProperties properties;
+    private AuditPartitionMaintainer maintainer;
+
+    @BeforeEach
+    void setUp() {
+        auditEventMapper = mock(AuditEventMapper.class);
+        properties = new AuditPipelineProperties();
+        properties.setSinks(List.of("log", "db"));
+        Clock clock = Clock.fixed(Instant.parse("2026-10-18T08:00:00Z"), ZoneOffset.UTC);
+        maintainer = new AuditPartitionMaintainer(auditEventMapper, properties, new AuditJournalProperties(), clock,
+                3, 2);
+    }
+
+    @Test
+    void testMaintain_CreatesMissingMonthsInOrder() {
+        when(auditEventMapper.findPartitions()).thenReturn(List.of(
+                partition("p_history", LocalDate.of(2026, 1, 1)),
+                partition("p202610", LocalDate.of(2026, 11, 1)),
+                partition("p_future", null)));
+
+        maintainer.maintain();
+
+        InOrder inOrder = inOrder(auditEventMapper);
+        inOrder.verify(auditEventMapper).addPartition("p202611", "2026-12-01");
+        inOrder.verify(auditEventMapper).addPartition("p202612", "2027-01-01");
+        verify(auditEventMapper, times(2)).addPartition(anyString(), anyString());
+    }
+
+    @Test
+    void testMaintain_DropsPartitionsOlderThanRetention() {
+        when(auditEventMapper.findPartitions()).thenReturn(List.of(
+                partition("p_history", LocalDate.of(2026, 1, 1)),
+                partition("p202606", LocalDate.of(2026, 7, 1)),
+                partition("p202607", LocalDate.of(2026, 8, 1)),
+                partition("p202612", LocalDate.of(2027, 1, 1)),
+                partition("p_future", null)));
+
+        maintainer.maintain();
+
+        // Retention of 3 months from October keeps July onwards
+        verify(auditEventMapper).dropPartition("p_history");
+        verify(auditEventMapper).dropPartition("p202606");
+        verify(auditEventMapper, never()).dropPartition("p202607");
+        verify(auditEventMapper, never()).dropPartition("p_future");
+        verify(auditEventMapper, never()).addPartition(anyString(), anyString());
+    }
+
+    @Test
+    void testMaintain_DbSinkDisabled_DoesNothing() {
+        properties.setSinks(List.of("log"));
+
+        maintainer.maintain();
+
+        verifyNoInteractions(auditEventMapper);
+    }
+
+    @Test
+    void testMaintain_DbFedThroughJournal_Runs() {
+        properties.setSinks(List.of("log", "journal"));
+        when(auditEventMapper.findPartitions()).thenReturn(List.of(
+                partition("p202701", LocalDate.of(2027, 2, 1)),
+                partition("p_future", null)));
+
+        maintainer.maintain();
+
+        verify(auditEventMapper).findPartitions();
+    }
+
+    private static AuditPartition partition(String name, LocalDate upperBound) {
+        AuditPartition partition = new AuditPartition();
+        partition.setName(name);
+        partition.setUpperBound(upperBound);
+        return partition;
+    }
+}
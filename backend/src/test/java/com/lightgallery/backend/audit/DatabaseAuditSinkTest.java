@@ -0,0 +1,87 @@
+package com.lightgallery.backend.audit;
+
+import com.lightgallery.backend.entity.AuditEventRecord;
+import com.lightgallery.backend.mapper.AuditEventMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DatabaseAuditSink
+ * Tests event-to-row mapping and chunked multi-row inserts
+ */
+class DatabaseAuditSinkTest {
+
+    private AuditEventMapper auditEventMapper;
+    private DatabaseAuditSink sink;
+
+    @BeforeEach
+    void setUp() {
+        auditEventMapper = mock(AuditEventMapper.class);
+        sink = new DatabaseAuditSink(auditEventMapper, 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWrite_SplitsBatchIntoChunks() {
+        List<AuditEvent> events = LongStream.range(0, 5)
+                .mapToObj(i -> AuditEvent.authentication(i, "apple", true))
+                .toList();
+
+        sink.write(events);
+
+        ArgumentCaptor<List<AuditEventRecord>> captor = ArgumentCaptor.forClass(List.class);
+        verify(auditEventMapper, times(3)).insertBatch(captor.capture());
+        assertEquals(List.of(2, 2, 1), captor.getAllValues().stream().map(List::size).toList());
+        assertEquals(4L, captor.getAllValues().get(2).get(0).getUserId());
+    }
+
+    @Test
+    void testWrite_EmptyBatch_NoInsert() {
+        sink.write(List.of());
+
+        verify(auditEventMapper, never()).insertBatch(anyList());
+    }
+
+    @Test
+    void testToRecord_PaymentVerification() {
+        AuditEvent event = AuditEvent.paymentVerification(1L, "apple_iap", "1234****cdef", 9.99, "USD", true);
+
+        AuditEventRecord record = DatabaseAuditSink.toRecord(event);
+
+        assertEquals("PAYMENT_VERIFICATION", record.getEventType());
+        assertEquals(LocalDateTime.ofInstant(event.occurredAt(), ZoneId.systemDefault()), record.getOccurredAt());
+        assertEquals("apple_iap", record.getPaymentMethod());
+        assertEquals("1234****cdef", record.getTransactionId());
+        assertEquals(new BigDecimal("9.99"), record.getAmount());
+        assertEquals("USD", record.getCurrency());
+        assertTrue(record.getSuccess());
+    }
+
+    @Test
+    void testToRecord_FailureAndDeletionKeepReason() {
+        AuditEventRecord failure = DatabaseAuditSink.toRecord(
+                AuditEvent.paymentVerificationFailure(2L, "wechat_pay", "wx12****7890", "signature mismatch"));
+        AuditEventRecord deletion = DatabaseAuditSink.toRecord(AuditEvent.accountDeletion(3L, "user request"));
+
+        assertEquals("PAYMENT_VERIFICATION_FAILURE", failure.getEventType());
+        assertFalse(failure.getSuccess());
+        assertEquals("signature mismatch", failure.getReason());
+        assertNull(failure.getAmount());
+
+        assertEquals("ACCOUNT_DELETION", deletion.getEventType());
+        assertEquals(3L, deletion.getUserId());
+        assertEquals("user request", deletion.getReason());
+        assertNull(deletion.getSuccess());
+    }
+}
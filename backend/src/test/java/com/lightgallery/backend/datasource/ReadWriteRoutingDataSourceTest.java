@@ -0,0 +1,121 @@
+package com.lightgallery.backend.datasource;
+
+import com.lightgallery.backend.mapper.SubscriptionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReadWriteRoutingDataSource
+ * Routes against two in-memory H2 databases standing in for the primary and the replica
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReadYourWritesTracker tracker;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new ReadYourWritesTracker(meterRegistry, Duration.ofSeconds(5));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                database("primary"), database("replica"), tracker, meterRegistry));
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        ReadWriteRoutingDataSource.clearReplicaRequest();
+    }
+
+    @Test
+    void testReadOnlyTransaction_UsesReplica() {
+        assertEquals("replica", readOnly.execute(status -> node()));
+        assertEquals(1.0, meterRegistry.get("datasource.route").tag("route", "replica").counter().count());
+    }
+
+    @Test
+    void testReadWriteTransactionAndAutoCommit_UsePrimary() {
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("primary", node());
+    }
+
+    @Test
+    void testReplicaRequest_UsesReplicaOutsideTransaction() {
+        ReadWriteRoutingDataSource.requestReplica();
+        assertEquals("replica", node());
+    }
+
+    @Test
+    void testRecentWriter_ReadsFromPrimary() {
+        authenticate(42L);
+        tracker.recordWrite();
+
+        assertEquals("primary", readOnly.execute(status -> node()));
+
+        authenticate(7L);
+        assertEquals("replica", readOnly.execute(status -> node()));
+    }
+
+    @Test
+    void testWithoutReplica_EverythingUsesPrimary() {
+        DataSource dataSource = new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                database("primary"), null, tracker, meterRegistry));
+        TransactionTemplate template = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        template.setReadOnly(true);
+
+        assertEquals("primary", template.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class)));
+    }
+
+    @Test
+    void testReplicaReadAnnotation_ResolvedFromStatementId() {
+        String mapper = SubscriptionMapper.class.getName();
+        assertTrue(ReplicaRoutingInterceptor.isReplicaRead(mapper + ".findCurrentActiveByUserId"));
+        assertFalse(ReplicaRoutingInterceptor.isReplicaRead(mapper + ".findActiveByUserId"));
+        assertFalse(ReplicaRoutingInterceptor.isReplicaRead(mapper + ".selectById"));
+    }
+
+    private String node() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+
+    private static void authenticate(Long userId) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                userId.toString(), "", List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+}
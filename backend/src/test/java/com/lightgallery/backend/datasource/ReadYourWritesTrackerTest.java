@@ -0,0 +1,100 @@
+package com.lightgallery.backend.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReadYourWritesTracker
+ * Tests the stickiness window and eviction
+ */
+class ReadYourWritesTrackerTest {
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private ReadYourWritesTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-10-18T08:00:00Z"));
+        meterRegistry = new SimpleMeterRegistry();
+        tracker = new ReadYourWritesTracker(clock, meterRegistry, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testStickyWithinWindowOnly() {
+        tracker.recordWrite(1L);
+
+        assertTrue(tracker.isSticky(1L));
+        assertFalse(tracker.isSticky(2L));
+
+        clock.advance(Duration.ofSeconds(6));
+        assertFalse(tracker.isSticky(1L));
+    }
+
+    @Test
+    void testWriteExtendsWindow() {
+        tracker.recordWrite(1L);
+        clock.advance(Duration.ofSeconds(4));
+        tracker.recordWrite(1L);
+        clock.advance(Duration.ofSeconds(4));
+
+        assertTrue(tracker.isSticky(1L));
+    }
+
+    @Test
+    void testEvictExpired() {
+        tracker.recordWrite(1L);
+        tracker.recordWrite(2L);
+        clock.advance(Duration.ofSeconds(3));
+        tracker.recordWrite(3L);
+        assertEquals(3.0, meterRegistry.get("datasource.sticky.users").gauge().value());
+
+        clock.advance(Duration.ofSeconds(3));
+        tracker.evictExpired();
+
+        assertEquals(1.0, meterRegistry.get("datasource.sticky.users").gauge().value());
+        assertTrue(tracker.isSticky(3L));
+    }
+
+    @Test
+    void testNoAuthenticatedUser_NotSticky() {
+        tracker.recordWrite();
+        assertFalse(tracker.isSticky());
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
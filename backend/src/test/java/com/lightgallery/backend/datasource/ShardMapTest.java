@@ -0,0 +1,73 @@
+package com.lightgallery.backend.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ShardMap
+ * Tests the spread of users over the ring and how few of them move when a shard is added
+ */
+class ShardMapTest {
+
+    private static final int USERS = 100_000;
+
+    @Test
+    void testShardFor_SpreadsSequentialIdsEvenly() {
+        ShardMap map = new ShardMap(List.of("shard0", "shard1", "shard2", "shard3"), 160);
+
+        int[] counts = new int[map.shardCount()];
+        for (long userId = 1; userId <= USERS; userId++) {
+            counts[map.shardFor(userId)]++;
+        }
+
+        for (int count : counts) {
+            assertEquals(USERS / 4.0, count, USERS / 4.0 * 0.15, "shard share too far from even");
+        }
+    }
+
+    @Test
+    void testAddingShard_MovesAFairShareToTheNewShardOnly() {
+        ShardMap before = new ShardMap(List.of("shard0", "shard1", "shard2"), 160);
+        ShardMap after = new ShardMap(List.of("shard0", "shard1", "shard2", "shard3"), 160);
+
+        int moved = 0;
+        for (long userId = 1; userId <= USERS; userId++) {
+            int from = before.shardFor(userId);
+            int to = after.shardFor(userId);
+            if (from != to) {
+                assertEquals(3, to, "a user moved between two existing shards");
+                moved++;
+            }
+        }
+
+        assertEquals(USERS / 4.0, moved, USERS / 4.0 * 0.15);
+    }
+
+    @Test
+    void testShardFor_DependsOnNamesNotOrder() {
+        ShardMap map = new ShardMap(List.of("a", "b"), 32);
+        ShardMap reversed = new ShardMap(List.of("b", "a"), 32);
+
+        for (long userId = 1; userId <= 1000; userId++) {
+            assertEquals(map.name(map.shardFor(userId)), reversed.name(reversed.shardFor(userId)));
+        }
+    }
+
+    @Test
+    void testSingleShard_TakesEveryone() {
+        ShardMap map = new ShardMap(List.of("shard0"), 1);
+
+        assertEquals(0, map.shardFor(Long.MAX_VALUE));
+        assertEquals(0, map.shardFor(-1));
+    }
+
+    @Test
+    void testInvalidConfiguration_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardMap(List.of(), 160));
+        assertThrows(IllegalArgumentException.class, () -> new ShardMap(List.of("shard0"), 0));
+        assertThrows(IllegalArgumentException.class, () -> new ShardMap(List.of("shard0", "shard0"), 160));
+    }
+}
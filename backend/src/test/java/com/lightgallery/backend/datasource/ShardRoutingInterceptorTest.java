@@ -0,0 +1,314 @@
+package com.lightgallery.backend.datasource;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.lightgallery.backend.dto.PaymentVerificationRequest;
+import com.lightgallery.backend.dto.SubscriptionDTO;
+import com.lightgallery.backend.entity.Subscription;
+import com.lightgallery.backend.entity.User;
+import com.lightgallery.backend.mapper.ReceiptMapper;
+import com.lightgallery.backend.mapper.SubscriptionMapper;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import com.lightgallery.backend.mapper.UserMapper;
+import com.lightgallery.backend.perf.EmbeddedSchemaTranslator;
+import com.lightgallery.backend.service.AuditLogService;
+import com.lightgallery.backend.service.PaymentService;
+import com.lightgallery.backend.service.ReceiptStore;
+import com.lightgallery.backend.service.SubscriptionService;
+import com.lightgallery.backend.service.TransactionWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for ShardRoutingInterceptor
+ * Routes real mapper statements, and a purchase through SubscriptionService, over two in-memory
+ * H2 databases, each with the translated schema
+ */
+class ShardRoutingInterceptorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 8, 0);
+
+    private final List<JdbcTemplate> shards = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private ShardRouter router;
+    private TransactionTemplate transactionTemplate;
+    private UserMapper userMapper;
+    private SubscriptionMapper subscriptionMapper;
+    private TransactionMapper transactionMapper;
+    private ReceiptMapper receiptMapper;
+    private SqlSessionFactory sqlSessionFactory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        List<ShardRoutingDataSource.Shard> shardList = new ArrayList<>();
+        for (String name : List.of("shard0", "shard1")) {
+            DataSource database = database();
+            shards.add(new JdbcTemplate(database));
+            shardList.add(new ShardRoutingDataSource.Shard(name, database, database));
+        }
+        ShardRoutingDataSource routingDataSource = new ShardRoutingDataSource(shardList, meterRegistry);
+        router = new ShardRouter(new ShardMap(routingDataSource.shardNames(), 64));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+
+        MybatisConfiguration configuration = new MybatisConfiguration(
+                new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addInterceptor(new ShardRoutingInterceptor(router, routingDataSource,
+                new SnowflakeIdGenerator(1), meterRegistry));
+        configuration.addMapper(UserMapper.class);
+        configuration.addMapper(SubscriptionMapper.class);
+        configuration.addMapper(TransactionMapper.class);
+        configuration.addMapper(ReceiptMapper.class);
+        sqlSessionFactory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+        SqlSessionTemplate sqlSession = new SqlSessionTemplate(sqlSessionFactory);
+        userMapper = sqlSession.getMapper(UserMapper.class);
+        subscriptionMapper = sqlSession.getMapper(SubscriptionMapper.class);
+        transactionMapper = sqlSession.getMapper(TransactionMapper.class);
+        receiptMapper = sqlSession.getMapper(ReceiptMapper.class);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    void testInsertUser_AssignsIdAndStoresOnItsShard() {
+        List<User> users = createUsers(20);
+
+        for (User user : users) {
+            assertNotNull(user.getId());
+            int shard = router.shardFor(user.getId());
+            assertEquals(1, countUsers(shard, user.getId()));
+            assertEquals(0, countUsers(1 - shard, user.getId()));
+        }
+        assertEquals(2, users.stream().map(user -> router.shardFor(user.getId())).distinct().count(),
+                "20 users should land on both shards");
+    }
+
+    @Test
+    void testUserStatements_FollowTheUser() {
+        User first = userOnShard(0);
+        User second = userOnShard(1);
+
+        // The foreign key to users only holds if the subscription went to its user's shard
+        subscriptionMapper.insert(subscription(first.getId(), "pro", NOW.plusDays(30)));
+        subscriptionMapper.insert(subscription(second.getId(), "max", NOW.plusDays(30)));
+
+        assertEquals("pro", subscriptionMapper.findActiveByUserId(first.getId()).getTier());
+        assertEquals("max", subscriptionMapper.findActiveByUserId(second.getId()).getTier());
+        assertEquals(second.getId(), userMapper.selectById(second.getId()).getId());
+    }
+
+    @Test
+    void testAllShards_MergesResults() {
+        User first = userOnShard(0);
+        User second = userOnShard(1);
+        User third = userOnShard(1);
+        subscriptionMapper.insert(subscription(first.getId(), "pro", NOW.minusDays(1)));
+        subscriptionMapper.insert(subscription(second.getId(), "pro", NOW.minusDays(1)));
+        subscriptionMapper.insert(subscription(third.getId(), "max", NOW.minusDays(2)));
+
+        assertEquals(2, subscriptionMapper.countByTier("pro"));
+        assertEquals(3, subscriptionMapper.findExpiredActiveSubscriptions().size());
+        assertEquals(second.getId(), userMapper.findByProviderAndProviderId("apple", "apple-" + second.getId())
+                .getId());
+        assertEquals(3.0, meterRegistry.get("datasource.shard.scatter").counter().count());
+    }
+
+    @Test
+    void testTransaction_RefusesSecondShard() {
+        User first = userOnShard(0);
+        User second = userOnShard(1);
+
+        assertRefused(() -> transactionTemplate.executeWithoutResult(status -> {
+            subscriptionMapper.insert(subscription(first.getId(), "pro", NOW.plusDays(30)));
+            subscriptionMapper.insert(subscription(second.getId(), "pro", NOW.plusDays(30)));
+        }));
+        assertNull(subscriptionMapper.findActiveByUserId(first.getId()));
+    }
+
+    @Test
+    void testUnkeyedStatement_RefusedUnlessPinned() {
+        User user = userOnShard(1);
+        Subscription subscription = subscription(user.getId(), "pro", NOW.plusDays(30));
+        subscriptionMapper.insert(subscription);
+
+        assertRefused(() -> subscriptionMapper.updateStatus(subscription.getId(), "cancelled"));
+        int updatedOnShard = router.onShard(1, () -> subscriptionMapper.updateStatus(subscription.getId(), "cancelled"));
+        int updatedElsewhere = router.onShard(0, () -> subscriptionMapper.updateStatus(subscription.getId(), "expired"));
+        assertEquals(1, updatedOnShard);
+        assertEquals(0, updatedElsewhere);
+        assertRefused(() -> router.onShard(0, () -> subscriptionMapper.findActiveByUserId(user.getId())));
+    }
+
+    @Test
+    void testTransaction_UnkeyedStatementFollowsTheUser() {
+        User user = userOnShard(1);
+        Subscription subscription = subscription(user.getId(), "pro", NOW.plusDays(30));
+        subscriptionMapper.insert(subscription);
+
+        int updated = transactionTemplate.execute(status -> {
+            subscriptionMapper.findActiveByUserId(user.getId());
+            return subscriptionMapper.updateStatus(subscription.getId(), "cancelled");
+        });
+
+        assertEquals(1, updated);
+    }
+
+    @Test
+    void testLegacyUser_StaysOnShardZero() {
+        // AUTO_INCREMENT IDs from before sharding, up to the largest such table could plausibly reach
+        for (long userId : List.of(1L, 2L, 3L, 1_000_000L, (long) Integer.MAX_VALUE, 1L << 39)) {
+            assertEquals(0, router.shardFor(userId));
+        }
+
+        User user = new User();
+        user.setId(5L);
+        user.setDisplayName("legacy");
+        user.setAuthProvider("apple");
+        user.setProviderUserId("apple-5");
+        user.setCreatedAt(NOW);
+        user.setUpdatedAt(NOW);
+        userMapper.insert(user);
+        subscriptionMapper.insert(subscription(5L, "pro", NOW.plusDays(30)));
+
+        assertEquals(1, countUsers(0, 5L));
+        assertEquals("pro", subscriptionMapper.findActiveByUserId(5L).getTier());
+    }
+
+    @Test
+    void testVerifyAndUpdateSubscription_UserOnSecondShard() {
+        User user = userOnShard(1);
+        PaymentService paymentService = mock(PaymentService.class);
+        when(paymentService.verifyPayment(any())).thenReturn(true);
+        TransactionWriter transactionWriter = new TransactionWriter(sqlSessionFactory, transactionTemplate, router,
+                meterRegistry, Duration.ZERO, 100, 100, Duration.ofSeconds(30));
+        SubscriptionService subscriptionService = new SubscriptionService(subscriptionMapper, transactionMapper,
+                transactionWriter, userMapper, paymentService, mock(AuditLogService.class),
+                new ReceiptStore(receiptMapper), router);
+        PaymentVerificationRequest request = new PaymentVerificationRequest();
+        request.setPaymentMethod("apple_iap");
+        request.setProductId("com.lightgallery.pro.monthly");
+        request.setTransactionId("apple-tx-1");
+        request.setReceiptData("MIIT-receipt-1");
+
+        // The service method runs in one transaction, bound to the user's shard by its first statement
+        SubscriptionDTO subscription = transactionTemplate.execute(status ->
+                subscriptionService.verifyAndUpdateSubscription(user.getId(), request));
+
+        assertEquals("pro", subscription.getTier());
+        assertEquals(1, count(1, "transactions"));
+        assertEquals(1, count(1, "receipts"));
+        assertEquals(0, count(0, "receipts"));
+        assertEquals(user.getId(), transactionMapper.findByPlatformTransactionId("apple-tx-1").getUserId());
+    }
+
+    @Test
+    void testMerge_SumAndAny() {
+        assertEquals(List.of(5L), ShardRoutingInterceptor.merge(AllShards.Merge.SUM, List.of(List.of(2L), List.of(3L))));
+        assertEquals(List.of(5), ShardRoutingInterceptor.merge(AllShards.Merge.SUM, List.of(List.of(2), List.of(3))));
+        assertEquals(List.of(new BigDecimal("3.5")), ShardRoutingInterceptor.merge(AllShards.Merge.SUM,
+                List.of(List.of(new BigDecimal("1.5")), List.of(new BigDecimal("2.0")))));
+        assertEquals(List.of(true), ShardRoutingInterceptor.merge(AllShards.Merge.ANY,
+                List.of(List.of(false), List.of(true))));
+        assertEquals(List.of(false), ShardRoutingInterceptor.merge(AllShards.Merge.ANY, List.of(List.of(), List.of(0))));
+    }
+
+    private List<User> createUsers(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setDisplayName("user " + i);
+            user.setAuthProvider("apple");
+            user.setProviderUserId(UUID.randomUUID().toString());
+            user.setCreatedAt(NOW);
+            user.setUpdatedAt(NOW);
+            userMapper.insert(user);
+            // Provider IDs derived from the user ID let tests look a user up on every shard
+            user.setProviderUserId("apple-" + user.getId());
+            userMapper.updateById(user);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private User userOnShard(int shard) {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            User user = createUsers(1).get(0);
+            if (router.shardFor(user.getId()) == shard) {
+                return user;
+            }
+        }
+        throw new AssertionError("No user landed on shard " + shard);
+    }
+
+    private Subscription subscription(long userId, String tier, LocalDateTime expiryDate) {
+        Subscription subscription = new Subscription();
+        subscription.setUserId(userId);
+        subscription.setTier(tier);
+        subscription.setBillingPeriod("monthly");
+        subscription.setStatus("active");
+        subscription.setPaymentMethod("apple_iap");
+        subscription.setStartDate(expiryDate.minusDays(30));
+        subscription.setExpiryDate(expiryDate);
+        subscription.setAutoRenew(true);
+        subscription.setCreatedAt(NOW);
+        subscription.setUpdatedAt(NOW);
+        return subscription;
+    }
+
+    private int countUsers(int shard, long userId) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM users WHERE id = ?", Integer.class, userId);
+    }
+
+    private int count(int shard, String table) {
+        return shards.get(shard).queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static void assertRefused(Executable executable) {
+        Throwable thrown = assertThrows(RuntimeException.class, executable);
+        while (thrown != null && !(thrown instanceof IllegalStateException)) {
+            thrown = thrown.getCause();
+        }
+        assertNotNull(thrown, "expected the statement to be refused by shard routing");
+    }
+
+    private static DataSource database() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        String script = new ClassPathResource("schema.sql").getContentAsString(StandardCharsets.UTF_8);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : EmbeddedSchemaTranslator.translate(script).tables()) {
+                statement.execute(sql);
+            }
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,136 @@
+package com.lightgallery.backend.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SnowflakeIdGenerator
+ * Tests ID layout, ordering and clock handling against a clock the test controls
+ */
+class SnowflakeIdGeneratorTest {
+
+    private static final Instant START = Instant.parse("2026-10-18T08:00:00Z");
+
+    @Test
+    void testNextId_UniqueAndIncreasing() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+        for (int i = 0; i < 50_000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "IDs must increase");
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void testNextId_EncodesWorkerAndTime() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(new StepClock(START.toEpochMilli()), 1023);
+
+        long id = generator.nextId();
+
+        assertTrue(id > 0);
+        assertEquals(1023, SnowflakeIdGenerator.workerIdOf(id));
+        assertEquals(START, SnowflakeIdGenerator.timestampOf(id));
+    }
+
+    @Test
+    void testNextId_SmallClockStepBackIsWaitedOut() {
+        StepClock clock = new StepClock(START.toEpochMilli());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(clock, 1);
+        long first = generator.nextId();
+
+        // Steps back 3 ms, then moves forward one millisecond per reading
+        clock.set(START.toEpochMilli() - 3);
+        clock.step = 1;
+        long second = generator.nextId();
+
+        assertTrue(second > first);
+        assertFalse(SnowflakeIdGenerator.timestampOf(second).isBefore(START));
+    }
+
+    @Test
+    void testNextId_LargeClockStepBackFails() {
+        StepClock clock = new StepClock(START.toEpochMilli());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(clock, 1);
+        generator.nextId();
+
+        clock.set(START.toEpochMilli() - 1000);
+
+        assertThrows(IllegalStateException.class, generator::nextId);
+    }
+
+    @Test
+    void testNextId_SequenceOverflowMovesToNextMillisecond() {
+        StepClock clock = new StepClock(START.toEpochMilli());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(clock, 1);
+
+        long last = 0;
+        for (int i = 0; i < 1 << SnowflakeIdGenerator.SEQUENCE_BITS; i++) {
+            last = generator.nextId();
+        }
+        assertEquals(START, SnowflakeIdGenerator.timestampOf(last));
+
+        clock.step = 1;
+        long overflow = generator.nextId();
+
+        assertTrue(overflow > last);
+        assertEquals(START.plusMillis(1), SnowflakeIdGenerator.timestampOf(overflow));
+    }
+
+    @Test
+    void testWorkerId_OutOfRangeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(1024));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertTrue(SnowflakeIdGenerator.forWorker(-1).workerId() <= SnowflakeIdGenerator.MAX_WORKER_ID);
+    }
+
+    /**
+     * Clock that stands still, or advances {@code step} ms on every reading
+     */
+    private static final class StepClock extends Clock {
+
+        private long millis;
+        private long step;
+
+        private StepClock(long millis) {
+            this.millis = millis;
+        }
+
+        private void set(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            long now = millis;
+            millis += step;
+            return now;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.lightgallery.backend.mapper;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.lightgallery.backend.dto.AuditEventQuery;
+import com.lightgallery.backend.migration.SchemaMigrator;
+import com.lightgallery.backend.perf.EmbeddedSchemaTranslator;
+import com.lightgallery.backend.perf.EmbeddedSchemaTranslator.EmbeddedSchema;
+import com.lightgallery.backend.perf.PerfDataGenerator;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.ParamNameResolver;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.ResultHandler;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Plan regression tests for mapper statements
+ * Binds every annotated statement in the mapper package with sample arguments and runs EXPLAIN
+ * on each against a seeded in-memory H2 database built from schema.sql, failing on any table
+ * scan. H2 does not report sorts, so when {@code -Dplan.jdbc-url} points at an empty scratch
+ * MySQL database the migrations are also applied there, the same data is seeded and a full
+ * table scan or a filesort fails the test; the final sort of a UNION ALL across the transaction
+ * tiers is expected and ignored.
+ *
+ * Example: {@code mvn test -Dtest=MapperPlanRegressionTest -Dplan.jdbc-url=jdbc:mysql://localhost:3306/plan_check
+ * -Dplan.username=root -Dplan.password=...}
+ */
+class MapperPlanRegressionTest {
+
+    private static final String MAPPER_PACKAGE = "com.lightgallery.backend.mapper";
+    private static final int SEED_USERS = 500;
+    private static final int SEED_TRANSACTIONS_PER_USER = 4;
+
+    /**
+     * Statements H2 cannot parse: multi-table DELETE is MySQL syntax
+     */
+    private static final Pattern H2_ACCESS = Pattern.compile("/\\* (public\\.[\\w.]+)(?:: (.*?))? \\*/",
+            Pattern.DOTALL);
+    private static final Pattern LIVE_ROWS_ONLY = Pattern.compile("\\s*deleted = 0\\s*");
+    private static final Set<String> H2_UNSUPPORTED = Set.of(MAPPER_PACKAGE + ".TransactionMapper.deleteArchived");
+
+    private static MybatisConfiguration configuration;
+    private static List<Statement> statements;
+
+    @BeforeAll
+    static void loadStatements() throws Exception {
+        configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        statements = new ArrayList<>();
+
+        for (Class<?> mapper : mapperInterfaces()) {
+            configuration.addMapper(mapper);
+            for (Method method : mapper.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Select.class) || method.isAnnotationPresent(Update.class)
+                        || method.isAnnotationPresent(Delete.class) || method.isAnnotationPresent(Insert.class)) {
+                    MappedStatement ms = configuration.getMappedStatement(mapper.getName() + "." + method.getName());
+                    Object parameter = new ParamNameResolver(configuration, method).getNamedParams(sampleArguments(method));
+                    statements.add(new Statement(ms, parameter, ms.getBoundSql(parameter)));
+                }
+            }
+        }
+    }
+
+    @Test
+    void testEveryMapperStatementBindsWithSampleArguments() {
+        assertFalse(statements.isEmpty());
+        for (Statement statement : statements) {
+            assertFalse(statement.boundSql().getSql().isBlank(), statement.ms().getId());
+            assertFalse(statement.boundSql().getSql().contains("#{"), statement.ms().getId());
+        }
+    }
+
+    @Test
+    void testNoStatementScansFullTableOnSeededH2() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        EmbeddedSchema schema = EmbeddedSchemaTranslator.translate(
+                new ClassPathResource("schema.sql").getContentAsString(StandardCharsets.UTF_8));
+        execute(dataSource, schema.tables());
+        seed(dataSource);
+        execute(dataSource, schema.indexes());
+        execute(dataSource, List.of("ANALYZE"));
+
+        List<String> problems = new ArrayList<>();
+        int explained = explain(dataSource, H2_UNSUPPORTED, (id, plan) -> {
+            String text = plan.getString(1);
+            Matcher access = H2_ACCESS.matcher(text);
+            while (access.find()) {
+                if (access.group(1).endsWith(".tableScan")) {
+                    problems.add(id + ": full scan of " + access.group(1));
+                } else if (access.group(2) != null && LIVE_ROWS_ONLY.matcher(access.group(2)).matches()) {
+                    // An index used only for "deleted = 0" still reads every live row
+                    problems.add(id + ": only deleted = 0 matched on " + access.group(1));
+                }
+            }
+        });
+
+        assertTrue(explained > 0);
+        assertTrue(problems.isEmpty(), "Plan regressions:\n" + String.join("\n", problems));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "plan.jdbc-url", matches = ".+")
+    void testNoStatementScansFullTableOrSortsWithoutIndex() throws Exception {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(System.getProperty("plan.jdbc-url"),
+                System.getProperty("plan.username", "root"), System.getProperty("plan.password", ""));
+        new SchemaMigrator(dataSource, SchemaMigrator.shippedJavaMigrations(), true, "classpath:db/migration", 1)
+                .migrate();
+        seed(dataSource);
+        execute(dataSource, List.of("ANALYZE TABLE users, auth_tokens, subscriptions, transactions, "
+                + "transactions_archive"));
+
+        List<String> problems = new ArrayList<>();
+        int explained = explain(dataSource, Set.of(), (id, plan) -> {
+            String table = plan.getString("table");
+            String type = plan.getString("type");
+            String extra = plan.getString("Extra");
+            if (table != null && table.startsWith("<union")) {
+                return;
+            }
+            if ("ALL".equals(type)) {
+                problems.add(id + ": full scan of " + table);
+            }
+            if (extra != null && extra.contains("Using filesort")) {
+                problems.add(id + ": filesort on " + table);
+            }
+        });
+
+        assertTrue(explained > 0);
+        assertTrue(problems.isEmpty(), "Plan regressions:\n" + String.join("\n", problems));
+    }
+
+    /**
+     * Run EXPLAIN for every explainable statement and hand each plan row to the checker
+     *
+     * @return Number of statements explained
+     */
+    private static int explain(DataSource dataSource, Set<String> skipped, PlanCheck check) throws SQLException {
+        int explained = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            for (Statement statement : statements) {
+                String sql = statement.boundSql().getSql().trim();
+                if (!isExplainable(sql) || skipped.contains(statement.ms().getId())) {
+                    continue;
+                }
+                try (PreparedStatement ps = connection.prepareStatement("EXPLAIN " + sql)) {
+                    new DefaultParameterHandler(statement.ms(), statement.parameter(), statement.boundSql())
+                            .setParameters(ps);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            check.check(statement.ms().getId(), rs);
+                        }
+                    }
+                }
+                explained++;
+            }
+        }
+        return explained;
+    }
+
+    /**
+     * Seed every table the generator fills, so plans are chosen over real rows rather than empty tables
+     */
+    private static void seed(DataSource dataSource) throws SQLException {
+        new PerfDataGenerator(dataSource, Clock.systemUTC(), 1_000, Duration.ofDays(730), Duration.ofDays(365))
+                .seed(SEED_USERS, SEED_TRANSACTIONS_PER_USER, 42L);
+    }
+
+    private static void execute(DataSource dataSource, List<String> statements) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             java.sql.Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * Statements with a query plan: schema changes, metadata lookups and plain INSERT ... VALUES have none
+     */
+    private static boolean isExplainable(String sql) {
+        String upper = sql.toUpperCase(Locale.ROOT);
+        if (upper.startsWith("ALTER") || upper.contains("INFORMATION_SCHEMA")) {
+            return false;
+        }
+        return !upper.startsWith("INSERT") || upper.contains("SELECT");
+    }
+
+    private static List<Class<?>> mapperInterfaces() throws ClassNotFoundException {
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+            @Override
+            protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                return beanDefinition.getMetadata().isInterface();
+            }
+        };
+        scanner.addIncludeFilter(new AnnotationTypeFilter(Mapper.class));
+        List<Class<?>> mappers = new ArrayList<>();
+        for (BeanDefinition definition : scanner.findCandidateComponents(MAPPER_PACKAGE)) {
+            mappers.add(Class.forName(definition.getBeanClassName()));
+        }
+        return mappers;
+    }
+
+    private static Object[] sampleArguments(Method method) throws ReflectiveOperationException {
+        Type[] types = method.getGenericParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            args[i] = sample(types[i]);
+        }
+        return args;
+    }
+
+    private static Object sample(Type type) throws ReflectiveOperationException {
+        if (type instanceof ParameterizedType parameterized) {
+            if (parameterized.getRawType() == List.class) {
+                return List.of(sample(parameterized.getActualTypeArguments()[0]));
+            }
+            if (parameterized.getRawType() == ResultHandler.class) {
+                return (ResultHandler<Object>) context -> { };
+            }
+            return sample(parameterized.getRawType());
+        }
+        Class<?> clazz = (Class<?>) type;
+        if (clazz == Long.class || clazz == long.class) {
+            return 1L;
+        }
+        if (clazz == Integer.class || clazz == int.class) {
+            return 10;
+        }
+        if (clazz == String.class) {
+            return "sample";
+        }
+        if (clazz == LocalDateTime.class) {
+            return LocalDateTime.now();
+        }
+        if (clazz == LocalDate.class) {
+            return LocalDate.now();
+        }
+        if (clazz == BigDecimal.class) {
+            return BigDecimal.ONE;
+        }
+        if (clazz == Boolean.class || clazz == boolean.class) {
+            return true;
+        }
+        if (clazz == AuditEventQuery.class) {
+            return AuditEventQuery.builder().userId(1L).build();
+        }
+        return clazz.getDeclaredConstructor().newInstance();
+    }
+
+    private record Statement(MappedStatement ms, Object parameter, BoundSql boundSql) {
+    }
+
+    @FunctionalInterface
+    private interface PlanCheck {
+        void check(String statementId, ResultSet plan) throws SQLException;
+    }
+}
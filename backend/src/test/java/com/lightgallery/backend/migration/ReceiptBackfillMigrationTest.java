@@ -0,0 +1,86 @@
+package com.lightgallery.backend.migration;
+
+import com.lightgallery.backend.service.ReceiptStore;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReceiptBackfillMigration
+ * Moves receipts out of transactions.receipt_data in an in-memory H2 database
+ */
+class ReceiptBackfillMigrationTest {
+
+    private JdbcDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE receipts (receipt_hash CHAR(64) PRIMARY KEY, payload BLOB NOT NULL, "
+                + "original_size INT NOT NULL, compressed_size INT NOT NULL)");
+        jdbc.execute("CREATE TABLE transactions (id BIGINT PRIMARY KEY, receipt_data TEXT, receipt_hash CHAR(64))");
+    }
+
+    @Test
+    void testMigrate_MovesEveryReceiptAcrossChunksAndDropsColumn() throws Exception {
+        int rows = ReceiptBackfillMigration.CHUNK_SIZE * 2 + 7;
+        for (int id = 1; id <= rows; id++) {
+            // Every third transaction reuses the first receipt
+            String receipt = id % 3 == 0 ? receipt(0) : receipt(id);
+            jdbc.update("INSERT INTO transactions (id, receipt_data) VALUES (?, ?)", id, receipt);
+        }
+
+        migrate();
+
+        assertEquals(0, (int) jdbc.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE receipt_hash IS NULL", Integer.class));
+        String hash = jdbc.queryForObject("SELECT receipt_hash FROM transactions WHERE id = 3", String.class);
+        byte[] raw = receipt(0).getBytes(StandardCharsets.UTF_8);
+        assertEquals(ReceiptStore.hash(raw), hash);
+        assertArrayEquals(ReceiptStore.compress(raw),
+                jdbc.queryForObject("SELECT payload FROM receipts WHERE receipt_hash = ?", byte[].class, hash));
+        assertEquals(rows - rows / 3 + 1, (int) jdbc.queryForObject("SELECT COUNT(*) FROM receipts", Integer.class));
+        assertEquals(0, (int) jdbc.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE LOWER(table_name) = 'transactions' AND LOWER(column_name) = 'receipt_data'", Integer.class));
+    }
+
+    @Test
+    void testMigrate_KeepsExistingHashesAndSkipsEmptyReceipts() throws Exception {
+        jdbc.update("INSERT INTO transactions (id, receipt_data, receipt_hash) VALUES (1, 'stale', 'existing')");
+        jdbc.update("INSERT INTO transactions (id, receipt_data) VALUES (2, '')");
+        jdbc.update("INSERT INTO transactions (id, receipt_data) VALUES (3, NULL)");
+
+        migrate();
+
+        assertEquals("existing", jdbc.queryForObject("SELECT receipt_hash FROM transactions WHERE id = 1", String.class));
+        assertNull(jdbc.queryForObject("SELECT receipt_hash FROM transactions WHERE id = 2", String.class));
+        assertEquals(0, (int) jdbc.queryForObject("SELECT COUNT(*) FROM receipts", Integer.class));
+    }
+
+    @Test
+    void testMigrate_ColumnAlreadyDroppedIsNoOp() throws Exception {
+        migrate();
+
+        assertDoesNotThrow(this::migrate);
+    }
+
+    private void migrate() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            new ReceiptBackfillMigration().migrate(connection);
+        }
+    }
+
+    private static String receipt(int id) {
+        return "MIIT" + "receipt-payload-".repeat(20) + id;
+    }
+}
@@ -0,0 +1,173 @@
+package com.lightgallery.backend.migration;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SchemaMigrator
+ * Tests ordering, history, checksum validation and baselining against an in-memory H2 database
+ */
+class SchemaMigratorTest {
+
+    @TempDir
+    Path migrations;
+
+    private JdbcDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+    }
+
+    @Test
+    void testMigrate_AppliesPendingMigrationsInVersionOrder() throws Exception {
+        write("V2__add_email.sql", "ALTER TABLE users ADD COLUMN email VARCHAR(255);");
+        write("V1__create_users.sql", "-- users\nCREATE TABLE users (id BIGINT PRIMARY KEY);");
+
+        assertEquals(2, newMigrator(1).migrate());
+
+        assertEquals(List.of("1 create users SQL", "2 add email SQL"), history());
+        execute("INSERT INTO users (id, email) VALUES (1, 'a@example.com')");
+    }
+
+    @Test
+    void testMigrate_SecondRunAppliesOnlyNewMigrations() throws Exception {
+        write("V1__create_users.sql", "CREATE TABLE users (id BIGINT PRIMARY KEY);");
+        newMigrator(1).migrate();
+        write("V2__add_email.sql", "ALTER TABLE users ADD COLUMN email VARCHAR(255);");
+
+        assertEquals(1, newMigrator(1).migrate());
+        assertEquals(0, newMigrator(1).migrate());
+        assertEquals(2, history().size());
+    }
+
+    @Test
+    void testMigrate_ChangedAppliedMigrationFails() throws Exception {
+        write("V1__create_users.sql", "CREATE TABLE users (id BIGINT PRIMARY KEY);");
+        newMigrator(1).migrate();
+        write("V1__create_users.sql", "CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(10));");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> newMigrator(1).migrate());
+        assertTrue(e.getMessage().contains("V1"));
+    }
+
+    @Test
+    void testMigrate_ExistingSchemaWithoutHistoryIsBaselined() throws Exception {
+        execute("CREATE TABLE users (id BIGINT PRIMARY KEY)");
+        write("V1__create_users.sql", "CREATE TABLE users (id BIGINT PRIMARY KEY);");
+        write("V2__add_email.sql", "ALTER TABLE users ADD COLUMN email VARCHAR(255);");
+
+        assertEquals(1, newMigrator(1).migrate());
+        assertEquals(List.of("1 << Baseline >> BASELINE", "2 add email SQL"), history());
+    }
+
+    @Test
+    void testMigrate_MigrationOlderThanCurrentVersionFails() throws Exception {
+        write("V2__create_users.sql", "CREATE TABLE users (id BIGINT PRIMARY KEY);");
+        newMigrator(1).migrate();
+        write("V1__create_accounts.sql", "CREATE TABLE accounts (id BIGINT PRIMARY KEY);");
+
+        assertThrows(IllegalStateException.class, () -> newMigrator(1).migrate());
+    }
+
+    @Test
+    void testMigrate_JavaMigrationRunsInVersionOrder() throws Exception {
+        write("V1__create_users.sql", "CREATE TABLE users (id BIGINT PRIMARY KEY);");
+        write("V3__add_email.sql", "ALTER TABLE users ADD COLUMN email VARCHAR(255);");
+        JavaMigration insertUser = new JavaMigration() {
+            @Override
+            public int version() {
+                return 2;
+            }
+
+            @Override
+            public String description() {
+                return "insert user";
+            }
+
+            @Override
+            public void migrate(Connection connection) throws SQLException {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("INSERT INTO users (id) VALUES (1)");
+                }
+            }
+        };
+
+        assertEquals(3, new SchemaMigrator(dataSource, List.of(insertUser), true, "file:" + migrations, 1).migrate());
+        assertEquals(0, new SchemaMigrator(dataSource, List.of(insertUser), true, "file:" + migrations, 1).migrate());
+
+        assertEquals(List.of("1 create users SQL", "2 insert user JAVA", "3 add email SQL"), history());
+    }
+
+    @Test
+    void testMigrate_DisabledDoesNothing() throws Exception {
+        write("V1__create_users.sql", "CREATE TABLE users (id BIGINT PRIMARY KEY);");
+
+        new SchemaMigrator(dataSource, false, "file:" + migrations, 1).afterPropertiesSet();
+
+        assertThrows(SQLException.class, this::history);
+    }
+
+    @Test
+    void testShippedMigrations_SchemaSqlBaselinesLatestVersion() throws IOException {
+        List<SchemaMigrator.Migration> shipped =
+                new SchemaMigrator(dataSource, SchemaMigrator.shippedJavaMigrations(), false,
+                        "classpath:db/migration", 1).loadMigrations();
+        assertFalse(shipped.isEmpty());
+        int latest = shipped.get(shipped.size() - 1).version();
+
+        String schema = new String(getClass().getResourceAsStream("/schema.sql").readAllBytes(),
+                StandardCharsets.UTF_8);
+        Matcher matcher = Pattern.compile("INSERT INTO schema_version \\(version, description, type\\) "
+                + "VALUES \\((\\d+), '<< schema.sql >>', 'BASELINE'\\)").matcher(schema);
+        assertTrue(matcher.find(), "schema.sql must record its baseline version");
+        assertEquals(latest, Integer.parseInt(matcher.group(1)),
+                "schema.sql must be updated together with the latest migration");
+    }
+
+    private SchemaMigrator newMigrator(int baselineVersion) {
+        return new SchemaMigrator(dataSource, true, "file:" + migrations, baselineVersion);
+    }
+
+    private void write(String name, String sql) throws IOException {
+        Files.writeString(migrations.resolve(name), sql, StandardCharsets.UTF_8);
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private List<String> history() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(
+                     "SELECT version, description, type FROM schema_version ORDER BY version")) {
+            while (rs.next()) {
+                rows.add(rs.getInt(1) + " " + rs.getString(2) + " " + rs.getString(3));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,107 @@
+package com.lightgallery.backend.perf;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EmbeddedSchemaTranslator
+ * Runs the translated schema.sql against an in-memory H2 database in MySQL mode
+ */
+class EmbeddedSchemaTranslatorTest {
+
+    @Test
+    void testTranslate_SchemaSqlRunsOnH2() throws Exception {
+        List<String> statements = EmbeddedSchemaTranslator.translate(schemaSql()).statements();
+
+        try (Connection connection = newDataSource().getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+
+            for (String table : List.of("users", "auth_tokens", "subscriptions", "receipts", "transactions",
+                    "transactions_archive", "app_store_notifications", "payment_notifications", "audit_events")) {
+                try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                    assertTrue(rs.next(), table);
+                    assertEquals(0, rs.getLong(1), table);
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT version, type FROM schema_version")) {
+                assertTrue(rs.next());
+                assertEquals("BASELINE", rs.getString(2));
+            }
+        }
+    }
+
+    @Test
+    void testTranslate_DropsMySqlOnlyClausesAndSampleRows() throws Exception {
+        String translated = String.join(";\n", EmbeddedSchemaTranslator.translate(schemaSql()).statements());
+
+        assertFalse(translated.contains("ENGINE="));
+        assertFalse(translated.contains("PARTITION"));
+        assertFalse(translated.contains("COMMENT"));
+        assertFalse(translated.contains("(255))"));
+        assertFalse(translated.contains(" JSON"));
+        assertFalse(translated.contains("INSERT INTO users"));
+        assertTrue(translated.contains("INDEX transactions_idx_user_deleted_created ON transactions"));
+        assertTrue(translated.contains("INDEX transactions_archive_idx_user_deleted_created ON transactions_archive"));
+    }
+
+    @Test
+    void testTranslate_DefersSecondaryIndexesAndForeignKeys() {
+        EmbeddedSchemaTranslator.EmbeddedSchema schema = EmbeddedSchemaTranslator.translate(
+                "CREATE TABLE t (\n"
+                        + "    id BIGINT PRIMARY KEY,\n"
+                        + "    user_id BIGINT NOT NULL,\n"
+                        + "    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,\n"
+                        + "    INDEX idx_user (user_id),\n"
+                        + "    UNIQUE KEY uk_user (user_id, id)\n"
+                        + ");");
+
+        assertEquals(List.of("CREATE TABLE t (\n"
+                + "    id BIGINT PRIMARY KEY,\n"
+                + "    user_id BIGINT NOT NULL,\n"
+                + "    UNIQUE KEY t_uk_user (user_id, id)\n"
+                + ")"), schema.tables());
+        assertEquals(List.of("CREATE INDEX t_idx_user ON t (user_id)",
+                "ALTER TABLE t ADD FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE"), schema.indexes());
+    }
+
+    @Test
+    void testTranslate_KeepsColumnDefaultsAndQuotedParentheses() {
+        EmbeddedSchemaTranslator.EmbeddedSchema schema = EmbeddedSchemaTranslator.translate(
+                "CREATE TABLE t (\n"
+                        + "    id BIGINT PRIMARY KEY COMMENT 'ID (主键)',\n"
+                        + "    code VARCHAR(10) DEFAULT 'a,b' COMMENT 'it''s, quoted',\n"
+                        + "    token VARCHAR(1000) NOT NULL,\n"
+                        + "    INDEX idx_token (token(255), code)\n"
+                        + ") ENGINE=InnoDB COMMENT='t';\n"
+                        + "INSERT INTO t (id) VALUES (1);");
+
+        assertEquals(List.of("CREATE TABLE t (\n"
+                + "    id BIGINT PRIMARY KEY,\n"
+                + "    code VARCHAR(10) DEFAULT 'a,b',\n"
+                + "    token VARCHAR(1000) NOT NULL\n"
+                + ")", "CREATE INDEX t_idx_token ON t (token, code)"), schema.statements());
+    }
+
+    private static String schemaSql() throws Exception {
+        return new ClassPathResource("schema.sql").getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private static JdbcDataSource newDataSource() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
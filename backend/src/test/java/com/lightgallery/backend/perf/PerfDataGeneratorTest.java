@@ -0,0 +1,133 @@
+package com.lightgallery.backend.perf;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PerfDataGenerator
+ * Seeds a small data set into the translated schema on an in-memory H2 database
+ */
+class PerfDataGeneratorTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2026-06-01T00:00:00Z"), ZoneId.of("UTC"));
+
+    private JdbcDataSource dataSource;
+    private EmbeddedSchemaTranslator.EmbeddedSchema schema;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        String script = new ClassPathResource("schema.sql").getContentAsString(StandardCharsets.UTF_8);
+        schema = EmbeddedSchemaTranslator.translate(script);
+        execute(schema.tables());
+    }
+
+    @Test
+    void testSeed_WritesEveryRowAcrossBatches() throws Exception {
+        PerfDataGenerator.SeedResult result = newGenerator(7).seed(50, 4, 42L);
+
+        assertEquals(50, result.users());
+        assertEquals(50, result.subscriptions());
+        assertEquals(200, result.transactions() + result.archivedTransactions());
+        assertEquals(50, count("SELECT COUNT(*) FROM users"));
+        assertEquals(50, count("SELECT COUNT(*) FROM subscriptions WHERE user_id = id"));
+        assertEquals(result.transactions(), count("SELECT COUNT(*) FROM transactions"));
+        assertEquals(result.archivedTransactions(), count("SELECT COUNT(*) FROM transactions_archive"));
+        assertEquals(200, count("SELECT COUNT(DISTINCT platform_transaction_id) FROM "
+                + "(SELECT platform_transaction_id FROM transactions UNION ALL "
+                + "SELECT platform_transaction_id FROM transactions_archive) t"));
+    }
+
+    @Test
+    void testSeed_RowsSatisfyDeferredForeignKeys() throws Exception {
+        newGenerator(25).seed(30, 3, 42L);
+
+        execute(schema.indexes());
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions t LEFT JOIN subscriptions s "
+                + "ON s.id = t.subscription_id AND s.user_id = t.user_id WHERE s.id IS NULL"));
+    }
+
+    @Test
+    void testSeed_RejectsNonEmptyTables() throws Exception {
+        newGenerator(10).seed(1, 1, 42L);
+
+        assertThrows(IllegalStateException.class, () -> newGenerator(10).seed(1, 1, 42L));
+    }
+
+    @Test
+    void testSeed_SplitsTransactionsAtTheArchiveHorizon() throws Exception {
+        PerfDataGenerator.SeedResult result = newGenerator(100).seed(100, 10, 42L);
+        LocalDateTime horizon = LocalDateTime.now(CLOCK).minusDays(365);
+
+        assertTrue(result.transactions() > 0);
+        assertTrue(result.archivedTransactions() > 0);
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions WHERE created_at < TIMESTAMP '" + horizon + "'"));
+        assertEquals(0, count("SELECT COUNT(*) FROM transactions_archive WHERE created_at >= TIMESTAMP '"
+                + horizon + "' OR verification_status = 'pending'"));
+    }
+
+    @Test
+    void testSeed_SameSeedProducesSameData() throws Exception {
+        PerfDataGenerator.SeedResult first = newGenerator(10).seed(20, 5, 7L);
+        String tiers = tiers();
+        setUp();
+        PerfDataGenerator.SeedResult second = newGenerator(10).seed(20, 5, 7L);
+
+        assertEquals(first.archivedTransactions(), second.archivedTransactions());
+        assertEquals(tiers, tiers());
+    }
+
+    @Test
+    void testConstructor_RejectsEmptyBatch() {
+        assertThrows(IllegalArgumentException.class, () -> newGenerator(0));
+    }
+
+    private PerfDataGenerator newGenerator(int batchSize) {
+        return new PerfDataGenerator(dataSource, CLOCK, batchSize, Duration.ofDays(730), Duration.ofDays(365));
+    }
+
+    private String tiers() throws Exception {
+        StringBuilder tiers = new StringBuilder();
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT tier, status FROM subscriptions ORDER BY id")) {
+            while (rs.next()) {
+                tiers.append(rs.getString(1)).append('/').append(rs.getString(2)).append(' ');
+            }
+        }
+        return tiers.toString();
+    }
+
+    private void execute(List<String> statements) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    private long count(String sql) throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
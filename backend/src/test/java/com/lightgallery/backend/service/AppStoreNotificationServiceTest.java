@@ -0,0 +1,321 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.datasource.ShardMap;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.datasource.SnowflakeIdGenerator;
+import com.lightgallery.backend.entity.AppStoreNotification;
+import com.lightgallery.backend.entity.Subscription;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import com.lightgallery.backend.mapper.AppStoreNotificationMapper;
+import com.lightgallery.backend.mapper.SubscriptionMapper;
+import com.lightgallery.backend.util.AppleJwsVerifier;
+import com.lightgallery.backend.util.AppleTestCertificates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AppStoreNotificationService
+ * Tests signed ingestion, deduplication, batched application grouped by original transaction,
+ * ordering across batches and application per shard
+ */
+class AppStoreNotificationServiceTest {
+
+    private AppStoreNotificationMapper notificationMapper;
+    private SubscriptionMapper subscriptionMapper;
+    private TransactionWriter transactionWriter;
+    private PlatformTransactionManager transactionManager;
+    private ShardRouter shardRouter;
+    private AppleTestCertificates certificates;
+    private AppStoreNotificationService service;
+
+    @BeforeEach
+    void setUp() {
+        notificationMapper = mock(AppStoreNotificationMapper.class);
+        subscriptionMapper = mock(SubscriptionMapper.class);
+        transactionWriter = mock(TransactionWriter.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        certificates = new AppleTestCertificates();
+        createService(new ShardRouter(new ShardMap(List.of("shard0"), 1)));
+    }
+
+    private void createService(ShardRouter router) {
+        shardRouter = spy(router);
+        service = new AppStoreNotificationService(notificationMapper, subscriptionMapper, transactionWriter,
+                new AppleJwsVerifier(new ObjectMapper(), certificates.getRoot()), mock(AuditLogService.class),
+                shardRouter, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(service, "bundleId", "com.lightgallery.app");
+        ReflectionTestUtils.setField(service, "batchSize", 200);
+        ReflectionTestUtils.setField(service, "maxAttempts", 10);
+    }
+
+    @Test
+    void testIngest_ValidNotification_StoresExtractedFields() {
+        when(notificationMapper.insertIgnore(any(AppStoreNotification.class))).thenReturn(1);
+
+        assertTrue(service.ingest(signedNotification("uuid-1", "com.lightgallery.app")));
+
+        ArgumentCaptor<AppStoreNotification> captor = ArgumentCaptor.forClass(AppStoreNotification.class);
+        verify(notificationMapper).insertIgnore(captor.capture());
+        AppStoreNotification stored = captor.getValue();
+        assertEquals("uuid-1", stored.getNotificationUuid());
+        assertEquals("DID_RENEW", stored.getNotificationType());
+        assertEquals("1000000001", stored.getOriginalTransactionId());
+        assertEquals("com.lightgallery.pro.monthly", stored.getProductId());
+        assertNotNull(stored.getExpiresDate());
+    }
+
+    @Test
+    void testIngest_DuplicateUuid_ReturnsFalse() {
+        when(notificationMapper.insertIgnore(any(AppStoreNotification.class))).thenReturn(0);
+
+        assertFalse(service.ingest(signedNotification("uuid-1", "com.lightgallery.app")));
+    }
+
+    @Test
+    void testIngest_WrongBundle_Rejected() {
+        assertThrows(PaymentVerificationException.class, () ->
+                service.ingest(signedNotification("uuid-1", "com.other.app")));
+        verify(notificationMapper, never()).insertIgnore(any(AppStoreNotification.class));
+    }
+
+    @Test
+    void testApplyPending_GroupsByOriginalTransaction() {
+        LocalDateTime now = LocalDateTime.now();
+        AppStoreNotification renew = pending(1L, "orig-1", "DID_RENEW", null, now.minusMinutes(2));
+        AppStoreNotification disable = pending(2L, "orig-1", "DID_CHANGE_RENEWAL_STATUS", "AUTO_RENEW_DISABLED",
+                now.minusMinutes(1));
+        AppStoreNotification orphan = pending(3L, "orig-2", "DID_RENEW", null, now);
+        when(notificationMapper.findPending(200)).thenReturn(List.of(renew, disable, orphan));
+
+        Subscription subscription = new Subscription();
+        subscription.setId(10L);
+        subscription.setUserId(1L);
+        subscription.setTier("pro");
+        subscription.setBillingPeriod("monthly");
+        subscription.setStatus("expired");
+        subscription.setAutoRenew(true);
+        when(subscriptionMapper.findByOriginalTransactionId("orig-1")).thenReturn(subscription);
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(1);
+
+        assertEquals(3, service.applyPendingNotifications());
+
+        verify(subscriptionMapper, times(1)).findByOriginalTransactionId("orig-1");
+        verify(subscriptionMapper, times(1)).updateById(any(Subscription.class));
+        assertEquals("active", subscription.getStatus());
+        assertFalse(subscription.getAutoRenew());
+        assertEquals(renew.getExpiresDate(), subscription.getExpiryDate());
+        assertEquals(disable.getSignedDate(), subscription.getLastNotificationSignedAt());
+
+        verify(transactionWriter).insertBatch(argThat(transactions -> transactions.size() == 1
+                && "renewal".equals(transactions.iterator().next().getTransactionType())));
+
+        verify(notificationMapper).markProcessed(List.of(1L, 2L), AppStoreNotificationService.STATUS_APPLIED);
+        verify(notificationMapper).recordUnmatched(List.of(3L), 10);
+    }
+
+    @Test
+    void testApplyPending_SignedBeforeLastApplied_Ignored() {
+        LocalDateTime now = LocalDateTime.now();
+        // A renewal delivered after the expiry that was signed later and applied in an earlier batch
+        AppStoreNotification lateRenew = pending(1L, "orig-1", "DID_RENEW", null, now.minusHours(1));
+        AppStoreNotification disable = pending(2L, "orig-1", "DID_CHANGE_RENEWAL_STATUS", "AUTO_RENEW_DISABLED", now);
+        when(notificationMapper.findPending(200)).thenReturn(List.of(lateRenew, disable));
+
+        Subscription subscription = new Subscription();
+        subscription.setId(10L);
+        subscription.setUserId(1L);
+        subscription.setStatus("expired");
+        subscription.setAutoRenew(true);
+        subscription.setExpiryDate(now.minusMinutes(30));
+        subscription.setLastNotificationSignedAt(now.minusMinutes(30));
+        when(subscriptionMapper.findByOriginalTransactionId("orig-1")).thenReturn(subscription);
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(1);
+
+        service.applyPendingNotifications();
+
+        assertEquals("expired", subscription.getStatus());
+        assertEquals(now.minusMinutes(30), subscription.getExpiryDate());
+        assertFalse(subscription.getAutoRenew());
+        assertEquals(now, subscription.getLastNotificationSignedAt());
+        verify(transactionWriter, never()).insertBatch(any());
+        verify(notificationMapper).markProcessed(List.of(2L), AppStoreNotificationService.STATUS_APPLIED);
+        verify(notificationMapper).markProcessed(List.of(1L), AppStoreNotificationService.STATUS_IGNORED);
+    }
+
+    @Test
+    void testApplyPending_SignedAtLastApplied_NotReapplied() {
+        LocalDateTime now = LocalDateTime.now();
+        // Applied and saved in an earlier run that crashed before marking it processed
+        AppStoreNotification renew = pending(1L, "orig-1", "DID_RENEW", null, now.minusMinutes(1));
+        when(notificationMapper.findPending(200)).thenReturn(List.of(renew));
+
+        Subscription subscription = new Subscription();
+        subscription.setId(10L);
+        subscription.setUserId(1L);
+        subscription.setStatus("active");
+        subscription.setExpiryDate(renew.getExpiresDate());
+        subscription.setLastNotificationSignedAt(renew.getSignedDate());
+        when(subscriptionMapper.findByOriginalTransactionId("orig-1")).thenReturn(subscription);
+
+        service.applyPendingNotifications();
+
+        verify(subscriptionMapper, never()).updateById(any(Subscription.class));
+        verify(transactionWriter, never()).insertBatch(any());
+        verify(notificationMapper).markProcessed(List.of(1L), AppStoreNotificationService.STATUS_IGNORED);
+    }
+
+    @Test
+    void testApplyPending_VersionConflict_ReappliesToReloadedSubscription() {
+        LocalDateTime now = LocalDateTime.now();
+        AppStoreNotification renew = pending(1L, "orig-1", "DID_RENEW", null, now.minusMinutes(1));
+        when(notificationMapper.findPending(200)).thenReturn(List.of(renew));
+
+        Subscription stale = new Subscription();
+        stale.setId(10L);
+        stale.setUserId(1L);
+        stale.setStatus("expired");
+        stale.setVersion(1);
+        Subscription fresh = new Subscription();
+        fresh.setId(10L);
+        fresh.setUserId(1L);
+        fresh.setStatus("cancelled");
+        fresh.setVersion(2);
+        when(subscriptionMapper.findByOriginalTransactionId("orig-1")).thenReturn(stale, fresh);
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(0, 1);
+
+        service.applyPendingNotifications();
+
+        verify(subscriptionMapper).updateById(stale);
+        verify(subscriptionMapper).updateById(fresh);
+        assertEquals("active", fresh.getStatus());
+        // The renewal is recorded once, not once per attempt
+        verify(transactionWriter).insertBatch(argThat(transactions -> transactions.size() == 1));
+        verify(notificationMapper).markProcessed(List.of(1L), AppStoreNotificationService.STATUS_APPLIED);
+    }
+
+    @Test
+    void testApplyPending_PersistentConflict_LeavesNotificationsPending() {
+        AppStoreNotification renew = pending(1L, "orig-1", "DID_RENEW", null, LocalDateTime.now());
+        when(notificationMapper.findPending(200)).thenReturn(List.of(renew));
+        when(subscriptionMapper.findByOriginalTransactionId("orig-1")).thenAnswer(invocation -> {
+            Subscription subscription = new Subscription();
+            subscription.setId(10L);
+            subscription.setStatus("expired");
+            return subscription;
+        });
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(0);
+
+        service.applyPendingNotifications();
+
+        verify(subscriptionMapper, times(SubscriptionService.MAX_UPDATE_ATTEMPTS)).updateById(any(Subscription.class));
+        verify(transactionWriter, never()).insertBatch(any());
+        verify(notificationMapper, never()).markProcessed(any(), any());
+    }
+
+    @Test
+    void testApplyPending_NothingPending_NoWrites() {
+        when(notificationMapper.findPending(anyInt())).thenReturn(List.of());
+
+        assertEquals(0, service.applyPendingNotifications());
+        verify(subscriptionMapper, never()).findByOriginalTransactionId(anyString());
+        verify(notificationMapper, never()).markProcessed(any(), eq(AppStoreNotificationService.STATUS_APPLIED));
+    }
+
+    @Test
+    void testApplyPending_SubscriptionOnOtherShard_AppliedThereThenMarked() {
+        createService(new ShardRouter(new ShardMap(List.of("shard0", "shard1"), 16)));
+        LocalDateTime now = LocalDateTime.now();
+        AppStoreNotification legacy = pending(1L, "orig-1", "DID_RENEW", null, now);
+        AppStoreNotification remote = pending(2L, "orig-2", "EXPIRED", null, now);
+        when(notificationMapper.findPending(200)).thenReturn(List.of(legacy, remote));
+        // A user created before sharding stays on shard 0
+        when(subscriptionMapper.findByOriginalTransactionId("orig-1")).thenReturn(subscription(10L, 1L));
+        Subscription remoteSubscription = subscription(20L, userOnShard(1));
+        when(subscriptionMapper.findByOriginalTransactionId("orig-2")).thenReturn(remoteSubscription);
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(1);
+
+        assertEquals(2, service.applyPendingNotifications());
+
+        verify(shardRouter).onShard(eq(1), any());
+        verify(shardRouter).onShard(eq(0), any());
+        // Shard 1 commits before its notification is marked on shard 0, then shard 0 in one transaction
+        InOrder inOrder = inOrder(subscriptionMapper, transactionManager, notificationMapper, transactionWriter);
+        inOrder.verify(subscriptionMapper).updateById(argThat((Subscription subscription) -> subscription.getId() == 20L));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(notificationMapper).markProcessed(List.of(2L), AppStoreNotificationService.STATUS_APPLIED);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(subscriptionMapper).updateById(argThat((Subscription subscription) -> subscription.getId() == 10L));
+        inOrder.verify(transactionWriter).insertBatch(argThat(transactions -> transactions.size() == 1));
+        inOrder.verify(notificationMapper).markProcessed(List.of(1L), AppStoreNotificationService.STATUS_APPLIED);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    private static Subscription subscription(Long id, Long userId) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        subscription.setUserId(userId);
+        subscription.setTier("pro");
+        subscription.setBillingPeriod("monthly");
+        subscription.setStatus("active");
+        subscription.setAutoRenew(true);
+        return subscription;
+    }
+
+    private long userOnShard(int shard) {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            long userId = generator.nextId();
+            if (shardRouter.shardFor(userId) == shard) {
+                return userId;
+            }
+        }
+        throw new AssertionError("No user ID on shard " + shard);
+    }
+
+    private String signedNotification(String uuid, String bundleId) {
+        String transactionInfo = certificates.sign(Map.of(
+                "transactionId", "2000000002",
+                "originalTransactionId", "1000000001",
+                "productId", "com.lightgallery.pro.monthly",
+                "expiresDate", System.currentTimeMillis() + 30L * 86_400_000L));
+        return certificates.sign(Map.of(
+                "notificationType", "DID_RENEW",
+                "notificationUUID", uuid,
+                "signedDate", System.currentTimeMillis(),
+                "data", Map.of(
+                        "bundleId", bundleId,
+                        "environment", "Sandbox",
+                        "signedTransactionInfo", transactionInfo)));
+    }
+
+    private static AppStoreNotification pending(Long id, String originalTransactionId, String type,
+                                                String subtype, LocalDateTime signedDate) {
+        AppStoreNotification notification = new AppStoreNotification();
+        notification.setId(id);
+        notification.setOriginalTransactionId(originalTransactionId);
+        notification.setTransactionId("txn-" + id);
+        notification.setNotificationType(type);
+        notification.setSubtype(subtype);
+        notification.setProductId("com.lightgallery.pro.monthly");
+        notification.setExpiresDate(signedDate.plusDays(30));
+        notification.setSignedDate(signedDate);
+        return notification;
+    }
+}
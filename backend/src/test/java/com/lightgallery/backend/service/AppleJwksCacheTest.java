@@ -0,0 +1,133 @@
+package com.lightgallery.backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.security.KeyPairGenerator;
+import java.security.interfaces.RSAPublicKey;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AppleJwksCache
+ * Tests kid lookup caching, rate-limited forced refresh and stale-on-error behaviour
+ */
+class AppleJwksCacheTest {
+
+    private RestTemplate restTemplate;
+    private MutableClock clock;
+    private AppleJwksCache cache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        restTemplate = mock(RestTemplate.class);
+        ProviderCallGuard providerCallGuard = mock(ProviderCallGuard.class);
+        when(providerCallGuard.call(anyString(), any(Supplier.class)))
+                .thenAnswer(invocation -> ((Supplier<?>) invocation.getArgument(1)).get());
+        clock = new MutableClock(Instant.parse("2024-12-07T10:00:00Z"));
+        cache = new AppleJwksCache(restTemplate, providerCallGuard, clock, "https://apple.test/auth/keys",
+                Duration.ofHours(6), Duration.ofSeconds(60));
+
+        when(restTemplate.exchange(eq("https://apple.test/auth/keys"), eq(HttpMethod.GET), isNull(), eq(Map.class)))
+                .thenReturn(jwks("kid-1"));
+    }
+
+    @Test
+    void testGetKey_KnownKid_FetchedOnce() {
+        assertNotNull(cache.getKey("kid-1"));
+        assertNotNull(cache.getKey("kid-1"));
+
+        verify(restTemplate, times(1)).exchange(anyString(), any(HttpMethod.class), isNull(), eq(Map.class));
+    }
+
+    @Test
+    void testGetKey_UnknownKid_ForcedRefreshIsRateLimited() {
+        assertNotNull(cache.getKey("kid-1"));
+
+        assertNull(cache.getKey("kid-unknown"), "Suppressed within the minimum refresh interval");
+        assertNull(cache.getKey("kid-unknown"));
+        verify(restTemplate, times(1)).exchange(anyString(), any(HttpMethod.class), isNull(), eq(Map.class));
+
+        clock.advance(Duration.ofSeconds(61));
+        assertNull(cache.getKey("kid-unknown"));
+        verify(restTemplate, times(2)).exchange(anyString(), any(HttpMethod.class), isNull(), eq(Map.class));
+    }
+
+    @Test
+    void testRefreshIfStale_RefreshesAheadOfExpiry_KeepsKeysOnError() {
+        assertNotNull(cache.getKey("kid-1"));
+
+        clock.advance(Duration.ofHours(4));
+        cache.refreshIfStale();
+        verify(restTemplate, times(1)).exchange(anyString(), any(HttpMethod.class), isNull(), eq(Map.class));
+
+        when(restTemplate.exchange(anyString(), any(HttpMethod.class), isNull(), eq(Map.class)))
+                .thenThrow(new ResourceAccessException("timeout"));
+        clock.advance(Duration.ofHours(1));
+        cache.refreshIfStale();
+
+        verify(restTemplate, times(2)).exchange(anyString(), any(HttpMethod.class), isNull(), eq(Map.class));
+        assertNotNull(cache.getKey("kid-1"), "Previous keys stay in use when a refresh fails");
+    }
+
+    private static ResponseEntity<Map> jwks(String kid) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        RSAPublicKey publicKey = (RSAPublicKey) generator.generateKeyPair().getPublic();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        Map<String, Object> key = Map.of(
+                "kty", "RSA",
+                "kid", kid,
+                "alg", "RS256",
+                "n", encoder.encodeToString(publicKey.getModulus().toByteArray()),
+                "e", encoder.encodeToString(publicKey.getPublicExponent().toByteArray()));
+        return new ResponseEntity<>(Map.of("keys", List.of(key)), new HttpHeaders(), HttpStatus.OK);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
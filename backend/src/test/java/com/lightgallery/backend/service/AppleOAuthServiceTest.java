@@ -0,0 +1,94 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AppleOAuthService
+ * Tests local identity token verification (signature, iss, aud, exp, sub)
+ */
+class AppleOAuthServiceTest {
+
+    private static final String CLIENT_ID = "com.lightgallery.app";
+
+    private KeyPair appleKeys;
+    private AppleJwksCache appleJwksCache;
+    private AppleOAuthService appleOAuthService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        appleKeys = generator.generateKeyPair();
+
+        appleJwksCache = mock(AppleJwksCache.class);
+        when(appleJwksCache.getKey("kid-1")).thenReturn(appleKeys.getPublic());
+
+        appleOAuthService = new AppleOAuthService(appleJwksCache, new ObjectMapper());
+        ReflectionTestUtils.setField(appleOAuthService, "clientId", CLIENT_ID);
+    }
+
+    @Test
+    void testValidateToken_ValidToken_ReturnsTrue() {
+        assertTrue(appleOAuthService.validateToken(
+                token("kid-1", AppleOAuthService.APPLE_ISSUER, CLIENT_ID, 600_000, appleKeys), "apple-user-123"));
+    }
+
+    @Test
+    void testValidateToken_WrongAudience_ReturnsFalse() {
+        assertFalse(appleOAuthService.validateToken(
+                token("kid-1", AppleOAuthService.APPLE_ISSUER, "com.other.app", 600_000, appleKeys), "apple-user-123"));
+    }
+
+    @Test
+    void testValidateToken_Expired_ReturnsFalse() {
+        assertFalse(appleOAuthService.validateToken(
+                token("kid-1", AppleOAuthService.APPLE_ISSUER, CLIENT_ID, -600_000, appleKeys), "apple-user-123"));
+    }
+
+    @Test
+    void testValidateToken_ForgedSignature_ReturnsFalse() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+
+        assertFalse(appleOAuthService.validateToken(
+                token("kid-1", AppleOAuthService.APPLE_ISSUER, CLIENT_ID, 600_000, generator.generateKeyPair()),
+                "apple-user-123"));
+    }
+
+    @Test
+    void testValidateToken_SubjectMismatch_ReturnsFalse() {
+        assertFalse(appleOAuthService.validateToken(
+                token("kid-1", AppleOAuthService.APPLE_ISSUER, CLIENT_ID, 600_000, appleKeys), "someone-else"));
+    }
+
+    @Test
+    void testValidateToken_UnknownKid_ReturnsFalse() {
+        assertFalse(appleOAuthService.validateToken(
+                token("kid-2", AppleOAuthService.APPLE_ISSUER, CLIENT_ID, 600_000, appleKeys), "apple-user-123"));
+        verify(appleJwksCache).getKey("kid-2");
+    }
+
+    private static String token(String kid, String issuer, String audience, long expiresInMillis, KeyPair keys) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .header().keyId(kid).and()
+                .issuer(issuer)
+                .audience().add(audience).and()
+                .subject("apple-user-123")
+                .issuedAt(new Date(now - 1_200_000))
+                .expiration(new Date(now + expiresInMillis))
+                .signWith(keys.getPrivate(), Jwts.SIG.RS256)
+                .compact();
+    }
+}
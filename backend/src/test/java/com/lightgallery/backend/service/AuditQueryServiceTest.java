@@ -0,0 +1,132 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.dto.AuditEventPage;
+import com.lightgallery.backend.dto.AuditEventQuery;
+import com.lightgallery.backend.dto.KeysetCursor;
+import com.lightgallery.backend.entity.AuditEventRecord;
+import com.lightgallery.backend.mapper.AuditEventMapper;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AuditQueryService
+ * Tests keyset paging, filter normalization and streaming
+ */
+class AuditQueryServiceTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2026, 10, 1, 12, 0);
+
+    private AuditEventMapper auditEventMapper;
+    private AuditQueryService auditQueryService;
+
+    @BeforeEach
+    void setUp() {
+        auditEventMapper = mock(AuditEventMapper.class);
+        auditQueryService = new AuditQueryService(auditEventMapper);
+    }
+
+    @Test
+    void testFindEvents_FullPage_ReturnsCursorOfLastRow() {
+        when(auditEventMapper.findPage(any(), isNull(), isNull(), eq(4))).thenReturn(rows(4));
+
+        AuditEventPage page = auditQueryService.findEvents(new AuditEventQuery(), null, 3);
+
+        assertEquals(3, page.getEvents().size());
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(new KeysetCursor(BASE.minusSeconds(2), 3L), cursor);
+    }
+
+    @Test
+    void testFindEvents_LastPage_NoCursor() {
+        KeysetCursor after = new KeysetCursor(BASE, 10L);
+        when(auditEventMapper.findPage(any(), eq(BASE), eq(10L), eq(51))).thenReturn(rows(2));
+
+        AuditEventPage page = auditQueryService.findEvents(new AuditEventQuery(), after.encode(), 50);
+
+        assertEquals(2, page.getEvents().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testFindEvents_CapsPageSize() {
+        when(auditEventMapper.findPage(any(), any(), any(), anyInt())).thenReturn(List.of());
+
+        auditQueryService.findEvents(new AuditEventQuery(), null, 100_000);
+
+        verify(auditEventMapper).findPage(any(), isNull(), isNull(), eq(AuditQueryService.MAX_PAGE_SIZE + 1));
+    }
+
+    @Test
+    void testFindEvents_NormalizesFilters() {
+        when(auditEventMapper.findPage(any(), any(), any(), anyInt())).thenReturn(List.of());
+        AuditEventQuery query = AuditEventQuery.builder()
+                .userId(7L)
+                .eventType("payment_verification_failure")
+                .transactionId("1000000123456789")
+                .build();
+
+        auditQueryService.findEvents(query, null, 10);
+
+        ArgumentCaptor<AuditEventQuery> captor = ArgumentCaptor.forClass(AuditEventQuery.class);
+        verify(auditEventMapper).findPage(captor.capture(), any(), any(), anyInt());
+        assertEquals(7L, captor.getValue().getUserId());
+        assertEquals("PAYMENT_VERIFICATION_FAILURE", captor.getValue().getEventType());
+        assertEquals("1000****6789", captor.getValue().getTransactionId());
+    }
+
+    @Test
+    void testFindEvents_InvalidInput_Throws() {
+        AuditEventQuery badType = AuditEventQuery.builder().eventType("LOGIN").build();
+        AuditEventQuery badRange = AuditEventQuery.builder().from(BASE).to(BASE).build();
+
+        assertThrows(IllegalArgumentException.class, () -> auditQueryService.findEvents(badType, null, 10));
+        assertThrows(IllegalArgumentException.class, () -> auditQueryService.findEvents(badRange, null, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> auditQueryService.findEvents(new AuditEventQuery(), "not-a-cursor", 10));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamEvents_PassesEachRow() {
+        doAnswer(invocation -> {
+            ResultHandler<AuditEventRecord> handler = invocation.getArgument(1);
+            DefaultResultContext<AuditEventRecord> context = new DefaultResultContext<>();
+            for (AuditEventRecord row : rows(3)) {
+                context.nextResultObject(row);
+                handler.handleResult(context);
+            }
+            return null;
+        }).when(auditEventMapper).streamEvents(any(), any(ResultHandler.class));
+
+        List<Long> ids = new ArrayList<>();
+        long count = auditQueryService.streamEvents(new AuditEventQuery(), row -> ids.add(row.getId()));
+
+        assertEquals(3, count);
+        assertEquals(List.of(1L, 2L, 3L), ids);
+    }
+
+    /**
+     * Rows newest first, one second apart
+     */
+    private static List<AuditEventRecord> rows(int count) {
+        return LongStream.range(0, count).mapToObj(i -> {
+            AuditEventRecord record = new AuditEventRecord();
+            record.setId(i + 1);
+            record.setEventType("AUTHENTICATION");
+            record.setOccurredAt(BASE.minusSeconds(i));
+            return record;
+        }).toList();
+    }
+}
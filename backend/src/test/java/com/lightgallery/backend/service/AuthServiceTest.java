@@ -1,24 +1,38 @@
 package com.lightgallery.backend.service;
 
+import com.lightgallery.backend.datasource.ReadYourWritesTracker;
+import com.lightgallery.backend.datasource.SnowflakeIdGenerator;
 import com.lightgallery.backend.dto.AuthResponse;
 import com.lightgallery.backend.dto.OAuthExchangeRequest;
+import com.lightgallery.backend.dto.OAuthProfile;
 import com.lightgallery.backend.entity.AuthToken;
 import com.lightgallery.backend.entity.User;
+import com.lightgallery.backend.entity.UserIdentity;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
 import com.lightgallery.backend.mapper.AuthTokenMapper;
+import com.lightgallery.backend.mapper.UserIdentityMapper;
 import com.lightgallery.backend.mapper.UserMapper;
 import com.lightgallery.backend.util.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -31,6 +45,9 @@ class AuthServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private UserIdentityMapper userIdentityMapper;
+
     @Mock
     private AuthTokenMapper authTokenMapper;
 
@@ -40,7 +57,14 @@ class AuthServiceTest {
     @Mock
     private OAuthProviderService oauthProviderService;
 
-    @InjectMocks
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private LoginIdentityCache loginIdentityCache;
+    private ReadYourWritesTracker readYourWritesTracker;
     private AuthService authService;
 
     private OAuthExchangeRequest oauthRequest;
@@ -49,6 +73,12 @@ class AuthServiceTest {
 
     @BeforeEach
     void setUp() {
+        loginIdentityCache = new LoginIdentityCache(1000, Duration.ofMinutes(30), Duration.ofMinutes(15));
+        readYourWritesTracker = new ReadYourWritesTracker(new SimpleMeterRegistry(), Duration.ofSeconds(5));
+        authService = new AuthService(userMapper, userIdentityMapper, authTokenMapper, jwtUtil, oauthProviderService,
+                auditLogService, new TransactionTemplate(transactionManager), loginIdentityCache,
+                new SnowflakeIdGenerator(1), readYourWritesTracker);
+
         // Setup test OAuth request
         oauthRequest = new OAuthExchangeRequest();
         oauthRequest.setProvider("apple");
@@ -85,14 +115,11 @@ class AuthServiceTest {
     @Test
     void testExchangeOAuthToken_NewUser_Success() {
         // Given
-        when(oauthProviderService.validateOAuthToken(anyString(), anyString(), anyString()))
-                .thenReturn(true);
-        when(userMapper.selectOne(any())).thenReturn(null);
-        when(userMapper.insert(any(User.class))).thenAnswer(invocation -> {
-            User user = invocation.getArgument(0);
-            user.setId(1L);
-            return 1;
-        });
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(null);
+        when(userIdentityMapper.insertIgnore(any(UserIdentity.class))).thenReturn(1);
+        when(userMapper.insert(any(User.class))).thenReturn(1);
         when(jwtUtil.generateAccessToken(anyLong())).thenReturn("new-access-token");
         when(jwtUtil.generateRefreshToken(anyLong())).thenReturn("new-refresh-token");
         when(jwtUtil.getAccessTokenExpiration()).thenReturn(604800000L);
@@ -111,17 +138,25 @@ class AuthServiceTest {
         assertEquals("new-refresh-token", response.getRefreshToken());
         assertEquals("Bearer", response.getTokenType());
 
-        verify(oauthProviderService).validateOAuthToken("apple", "test-auth-code", "apple-user-123");
-        verify(userMapper).insert(any(User.class));
+        verify(oauthProviderService).authenticate("apple", "test-auth-code", "apple-user-123");
+        ArgumentCaptor<UserIdentity> identity = ArgumentCaptor.forClass(UserIdentity.class);
+        ArgumentCaptor<User> user = ArgumentCaptor.forClass(User.class);
+        InOrder inOrder = inOrder(userIdentityMapper, userMapper);
+        inOrder.verify(userIdentityMapper).insertIgnore(identity.capture());
+        inOrder.verify(userMapper).insert(user.capture());
+        assertEquals("apple-user-123", identity.getValue().getProviderUserId());
+        assertEquals(identity.getValue().getUserId(), user.getValue().getId());
+        assertEquals(user.getValue().getId(), response.getUserId());
         verify(authTokenMapper).insert(any(AuthToken.class));
+        assertTrue(readYourWritesTracker.isSticky(response.getUserId()));
     }
 
     @Test
     void testExchangeOAuthToken_ExistingUser_Success() {
         // Given
-        when(oauthProviderService.validateOAuthToken(anyString(), anyString(), anyString()))
-                .thenReturn(true);
-        when(userMapper.selectOne(any())).thenReturn(testUser);
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(testUser);
         when(userMapper.updateById(any(User.class))).thenReturn(1);
         when(jwtUtil.generateAccessToken(anyLong())).thenReturn("new-access-token");
         when(jwtUtil.generateRefreshToken(anyLong())).thenReturn("new-refresh-token");
@@ -140,13 +175,14 @@ class AuthServiceTest {
 
         verify(userMapper).updateById(any(User.class));
         verify(authTokenMapper).insert(any(AuthToken.class));
+        assertTrue(readYourWritesTracker.isSticky(1L));
     }
 
     @Test
     void testExchangeOAuthToken_InvalidToken_ThrowsException() {
         // Given
-        when(oauthProviderService.validateOAuthToken(anyString(), anyString(), anyString()))
-                .thenReturn(false);
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -154,8 +190,181 @@ class AuthServiceTest {
         });
 
         assertEquals("Invalid OAuth token", exception.getMessage());
-        verify(userMapper, never()).insert(any());
-        verify(authTokenMapper, never()).insert(any());
+        verify(userMapper, never()).insert(any(User.class));
+        verify(authTokenMapper, never()).insert(any(AuthToken.class));
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void testExchangeOAuthToken_ProviderUnavailable_Propagates() {
+        // Given
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new ProviderUnavailableException(
+                        "Provider temporarily unavailable: apple_oauth", ProviderCallGuard.APPLE_OAUTH)));
+
+        // When & Then
+        assertThrows(ProviderUnavailableException.class, () -> authService.exchangeOAuthToken(oauthRequest));
+        verify(userMapper, never()).insert(any(User.class));
+        verifyNoInteractions(transactionManager);
+    }
+
+    @Test
+    void testExchangeOAuthToken_ProviderCallHoldsNoTransaction() {
+        // Given
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenAnswer(invocation -> {
+                    verifyNoInteractions(transactionManager);
+                    return CompletableFuture.completedFuture(verifiedProfile());
+                });
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(testUser);
+        when(userMapper.updateById(any(User.class))).thenReturn(1);
+        when(jwtUtil.generateAccessToken(anyLong())).thenReturn("new-access-token");
+        when(jwtUtil.generateRefreshToken(anyLong())).thenReturn("new-refresh-token");
+
+        // When
+        authService.exchangeOAuthToken(oauthRequest);
+
+        // Then
+        InOrder inOrder = inOrder(oauthProviderService, transactionManager, userMapper, authTokenMapper);
+        inOrder.verify(oauthProviderService).authenticate("apple", "test-auth-code", "apple-user-123");
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(userMapper).updateById(any(User.class));
+        inOrder.verify(authTokenMapper).insert(any(AuthToken.class));
+        inOrder.verify(transactionManager).commit(any());
+        verify(auditLogService).logAuthenticationEvent(1L, "apple", true);
+    }
+
+    @Test
+    void testExchangeOAuthToken_ConcurrentFirstLogin_UsesExistingUser() {
+        // Given
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(null);
+        when(userIdentityMapper.insertIgnore(any(UserIdentity.class))).thenReturn(0);
+        when(userIdentityMapper.findUserId("apple", "apple-user-123")).thenReturn(1L);
+        when(userMapper.insert(any(User.class))).thenThrow(new DuplicateKeyException("PRIMARY"));
+        when(userMapper.selectById(1L)).thenReturn(testUser);
+        when(jwtUtil.generateAccessToken(1L)).thenReturn("new-access-token");
+        when(jwtUtil.generateRefreshToken(1L)).thenReturn("new-refresh-token");
+
+        // When
+        AuthResponse response = authService.exchangeOAuthToken(oauthRequest);
+
+        // Then
+        assertEquals(1L, response.getUserId());
+        verify(userMapper).updateById(testUser);
+        verify(authTokenMapper).insert(any(AuthToken.class));
+    }
+
+    @Test
+    void testExchangeOAuthToken_ReturningUser_SkipsLookupAndUpdate() {
+        // Given
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(testUser);
+        when(userMapper.updateById(any(User.class))).thenReturn(1);
+        when(jwtUtil.generateAccessToken(anyLong())).thenReturn("new-access-token");
+        when(jwtUtil.generateRefreshToken(anyLong())).thenReturn("new-refresh-token");
+
+        // When
+        authService.exchangeOAuthToken(oauthRequest);
+        AuthResponse response = authService.exchangeOAuthToken(oauthRequest);
+
+        // Then
+        assertEquals("Test User", response.getDisplayName());
+        verify(userMapper, times(1)).findByProviderAndProviderId(any(), any());
+        // Only the first login records the login time; the second is within the interval
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        verify(userMapper, times(1)).updateById(captor.capture());
+        User update = captor.getValue();
+        assertNotNull(update.getLastLoginAt());
+        assertNull(update.getDisplayName());
+        assertNull(update.getEmail());
+        assertNull(update.getAvatarUrl());
+        verify(authTokenMapper, times(2)).insert(any(AuthToken.class));
+    }
+
+    @Test
+    void testExchangeOAuthToken_LoginRecordedLongAgo_WritesLoginTime() {
+        // Given
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.updateById(any(User.class))).thenReturn(1);
+        testUser.setLastLoginAt(LocalDateTime.now().minusHours(1));
+        loginIdentityCache.put(LoginIdentityCache.CachedIdentity.of(testUser));
+
+        // When
+        authService.exchangeOAuthToken(oauthRequest);
+
+        // Then
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        verify(userMapper).updateById(captor.capture());
+        assertNotNull(captor.getValue().getLastLoginAt());
+        assertNull(captor.getValue().getDisplayName());
+        assertTrue(loginIdentityCache.get("apple", "apple-user-123").getLastLoginAt()
+                .isAfter(testUser.getLastLoginAt()));
+    }
+
+    @Test
+    void testExchangeOAuthToken_CachedUserDeletedElsewhere_CreatesUserAgain() {
+        // Given: the account was deleted on another instance, whose cache invalidation did not reach this one
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        loginIdentityCache.put(LoginIdentityCache.CachedIdentity.of(testUser));
+        when(userMapper.updateById(any(User.class))).thenReturn(0);
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(null);
+        when(userIdentityMapper.insertIgnore(any(UserIdentity.class))).thenReturn(1);
+        when(userMapper.insert(any(User.class))).thenReturn(1);
+
+        // When
+        AuthResponse response = authService.exchangeOAuthToken(oauthRequest);
+
+        // Then
+        assertNotEquals(1L, response.getUserId());
+        assertEquals(response.getUserId(), loginIdentityCache.get("apple", "apple-user-123").getUserId());
+        verify(authTokenMapper, times(1)).insert(any(AuthToken.class));
+    }
+
+    @Test
+    void testExchangeOAuthToken_NewUser_CreatedInsideLoginTransaction() {
+        // Given
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(null);
+        when(userIdentityMapper.insertIgnore(any(UserIdentity.class))).thenReturn(1);
+        when(userMapper.insert(any(User.class))).thenReturn(1);
+
+        // When
+        authService.exchangeOAuthToken(oauthRequest);
+
+        // Then: the directory claim on shard 0 precedes the transaction, the user insert is inside it
+        InOrder inOrder = inOrder(userIdentityMapper, transactionManager, userMapper, authTokenMapper);
+        inOrder.verify(userIdentityMapper).insertIgnore(any(UserIdentity.class));
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(userMapper).insert(any(User.class));
+        inOrder.verify(authTokenMapper).insert(any(AuthToken.class));
+        inOrder.verify(transactionManager).commit(any());
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void testExchangeOAuthToken_ChangedProfile_WritesChangedFields() {
+        // Given
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.updateById(any(User.class))).thenReturn(1);
+        loginIdentityCache.put(LoginIdentityCache.CachedIdentity.of(testUser));
+        oauthRequest.setDisplayName("Renamed User");
+
+        // When
+        AuthResponse response = authService.exchangeOAuthToken(oauthRequest);
+
+        // Then
+        assertEquals("Renamed User", response.getDisplayName());
+        verify(userMapper, never()).findByProviderAndProviderId(any(), any());
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        verify(userMapper).updateById(captor.capture());
+        assertEquals("Renamed User", captor.getValue().getDisplayName());
     }
 
     @Test
@@ -184,6 +393,7 @@ class AuthServiceTest {
 
         verify(jwtUtil).validateToken(refreshToken);
         verify(authTokenMapper).updateById(any(AuthToken.class));
+        assertTrue(readYourWritesTracker.isSticky(1L));
     }
 
     @Test
@@ -198,7 +408,7 @@ class AuthServiceTest {
         });
 
         assertEquals("Invalid or expired refresh token", exception.getMessage());
-        verify(authTokenMapper, never()).updateById(any());
+        verify(authTokenMapper, never()).updateById(any(AuthToken.class));
     }
 
     @Test
@@ -243,4 +453,94 @@ class AuthServiceTest {
         verify(authTokenMapper).delete(any());
         verify(userMapper).deleteById(userId);
     }
+
+    @Test
+    void testDeleteAccount_InvalidatesLoginCache() {
+        // Given
+        loginIdentityCache.put(LoginIdentityCache.CachedIdentity.of(testUser));
+
+        // When
+        authService.deleteAccount(1L);
+
+        // Then
+        assertNull(loginIdentityCache.get("apple", "apple-user-123"));
+    }
+
+    @Test
+    void testExchangeOAuthToken_ProviderProfile_FillsMissingFields() {
+        // Given
+        oauthRequest.setProvider("wechat");
+        oauthRequest.setProviderUserId(null);
+        oauthRequest.setDisplayName(null);
+        oauthRequest.setAvatarUrl(null);
+        OAuthProfile wechatProfile = OAuthProfile.builder()
+                .providerUserId("openid-123")
+                .displayName("微信用户")
+                .avatarUrl("https://thirdwx.qlogo.cn/avatar.png")
+                .build();
+        when(oauthProviderService.authenticate("wechat", "test-auth-code", null))
+                .thenReturn(CompletableFuture.completedFuture(wechatProfile));
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(null);
+        when(userIdentityMapper.insertIgnore(any(UserIdentity.class))).thenReturn(1);
+        when(userMapper.insert(any(User.class))).thenReturn(1);
+
+        // When
+        AuthResponse response = authService.exchangeOAuthToken(oauthRequest);
+
+        // Then
+        assertEquals("微信用户", response.getDisplayName());
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        verify(userMapper).insert(captor.capture());
+        assertEquals("openid-123", captor.getValue().getProviderUserId());
+        assertEquals("https://thirdwx.qlogo.cn/avatar.png", captor.getValue().getAvatarUrl());
+        assertEquals("test@example.com", captor.getValue().getEmail());
+    }
+
+    @Test
+    void testExchangeOAuthToken_IdentityClaimedByOtherLogin_CreatesClaimedUser() {
+        // Given: another instance claimed the identity but has not inserted the user yet
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(null);
+        when(userIdentityMapper.insertIgnore(any(UserIdentity.class))).thenReturn(0);
+        when(userIdentityMapper.findUserId("apple", "apple-user-123")).thenReturn(42L);
+        when(userMapper.insert(any(User.class))).thenReturn(1);
+
+        // When
+        AuthResponse response = authService.exchangeOAuthToken(oauthRequest);
+
+        // Then: both logins end up with the claimed ID, so only one account can exist
+        assertEquals(42L, response.getUserId());
+        ArgumentCaptor<User> captor = ArgumentCaptor.forClass(User.class);
+        verify(userMapper).insert(captor.capture());
+        assertEquals(42L, captor.getValue().getId());
+    }
+
+    @Test
+    void testExchangeOAuthToken_IdentityOfDeletedUser_PointsItAtNewUser() {
+        // Given: the directory still names a deleted account, whose row keeps its ID taken
+        when(oauthProviderService.authenticate(anyString(), anyString(), anyString()))
+                .thenReturn(CompletableFuture.completedFuture(verifiedProfile()));
+        when(userMapper.findByProviderAndProviderId(any(), any())).thenReturn(null);
+        when(userIdentityMapper.insertIgnore(any(UserIdentity.class))).thenReturn(0);
+        when(userIdentityMapper.findUserId("apple", "apple-user-123")).thenReturn(42L);
+        when(userMapper.insert(any(User.class)))
+                .thenThrow(new DuplicateKeyException("PRIMARY"))
+                .thenReturn(1);
+        when(userIdentityMapper.reassign(eq("apple"), eq("apple-user-123"), eq(42L), anyLong())).thenReturn(1);
+
+        // When
+        AuthResponse response = authService.exchangeOAuthToken(oauthRequest);
+
+        // Then
+        ArgumentCaptor<Long> newUserId = ArgumentCaptor.forClass(Long.class);
+        verify(userIdentityMapper).reassign(eq("apple"), eq("apple-user-123"), eq(42L), newUserId.capture());
+        assertNotEquals(42L, newUserId.getValue());
+        assertEquals(newUserId.getValue(), response.getUserId());
+        verify(userMapper, times(2)).insert(any(User.class));
+    }
+
+    private OAuthProfile verifiedProfile() {
+        return OAuthProfile.builder().providerUserId(oauthRequest.getProviderUserId()).build();
+    }
 }
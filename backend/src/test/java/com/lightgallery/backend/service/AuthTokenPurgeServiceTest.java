@@ -0,0 +1,90 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.datasource.ShardMap;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.mapper.AuthTokenMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AuthTokenPurgeService
+ * Tests chunked primary-key-ordered deletion, run limits and metrics
+ */
+class AuthTokenPurgeServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 8, 0);
+
+    private AuthTokenMapper authTokenMapper;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        authTokenMapper = mock(AuthTokenMapper.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(authTokenMapper.estimateRowCount()).thenReturn(1200L);
+        when(authTokenMapper.tableSizeBytes()).thenReturn(4_194_304L);
+        when(authTokenMapper.purgeByIds(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+    }
+
+    @Test
+    void testPurge_WalksChunksInPrimaryKeyOrder() {
+        LocalDateTime threshold = NOW.minusDays(1);
+        when(authTokenMapper.findPurgeableIds(0L, threshold, 3)).thenReturn(List.of(1L, 4L, 5L));
+        when(authTokenMapper.findPurgeableIds(5L, threshold, 3)).thenReturn(List.of(9L, 10L, 12L));
+        when(authTokenMapper.findPurgeableIds(12L, threshold, 3)).thenReturn(List.of(20L));
+
+        long purged = newService(10).purge();
+
+        assertEquals(7, purged);
+        verify(authTokenMapper).purgeByIds(List.of(1L, 4L, 5L));
+        verify(authTokenMapper).purgeByIds(List.of(9L, 10L, 12L));
+        verify(authTokenMapper).purgeByIds(List.of(20L));
+        // A short chunk means the walk reached the end
+        verify(authTokenMapper, never()).findPurgeableIds(eq(20L), any(), anyInt());
+
+        assertEquals(7.0, meterRegistry.get("auth.tokens.purged").counter().count());
+        assertEquals(3, meterRegistry.get("auth.tokens.purge.chunk").timer().count());
+        assertEquals(1200.0, meterRegistry.get("auth.tokens.table.rows").gauge().value());
+        assertEquals(4_194_304.0, meterRegistry.get("auth.tokens.table.bytes").gauge().value());
+    }
+
+    @Test
+    void testPurge_StopsAtMaxChunksPerRun() {
+        when(authTokenMapper.findPurgeableIds(anyLong(), any(), eq(3)))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(0);
+                    return List.of(after + 1, after + 2, after + 3);
+                });
+
+        long purged = newService(2).purge();
+
+        assertEquals(6, purged);
+        verify(authTokenMapper, times(2)).purgeByIds(anyList());
+    }
+
+    @Test
+    void testPurge_NothingToPurge() {
+        when(authTokenMapper.findPurgeableIds(anyLong(), any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, newService(10).purge());
+        verify(authTokenMapper, never()).purgeByIds(anyList());
+        assertEquals(1200.0, meterRegistry.get("auth.tokens.table.rows").gauge().value());
+    }
+
+    private AuthTokenPurgeService newService(int maxChunksPerRun) {
+        Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        return new AuthTokenPurgeService(authTokenMapper, new ShardRouter(new ShardMap(List.of("shard0"), 1)),
+                meterRegistry, clock, Duration.ofDays(1), 3, Duration.ZERO, maxChunksPerRun);
+    }
+}
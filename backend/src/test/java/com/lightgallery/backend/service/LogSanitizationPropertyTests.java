@@ -28,7 +28,7 @@ class LogSanitizationPropertyTests {
 
     @BeforeEach
     void setUp() {
-        auditLogService = new AuditLogService();
+        auditLogService = new AuditLogService(null);
     }
 
     /**
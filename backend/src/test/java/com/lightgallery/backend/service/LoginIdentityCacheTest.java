@@ -0,0 +1,149 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.service.LoginIdentityCache.CachedIdentity;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LoginIdentityCache
+ * Tests bounding, expiry, invalidation, coalescing of concurrent loads and login throttling
+ */
+class LoginIdentityCacheTest {
+
+    @Test
+    void testGetOrLoad_ConcurrentMisses_LoadOnce() throws Exception {
+        LoginIdentityCache cache = new LoginIdentityCache(100, Duration.ofMinutes(30), Duration.ofMinutes(15));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<CachedIdentity> first = CompletableFuture.supplyAsync(() ->
+                cache.getOrLoad("wechat", "openid-1", () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return identity(7L, "openid-1");
+                }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<CachedIdentity> second = CompletableFuture.supplyAsync(() ->
+                cache.getOrLoad("wechat", "openid-1", () -> {
+                    loads.incrementAndGet();
+                    return identity(8L, "openid-1");
+                }));
+        Thread.sleep(50);
+        release.countDown();
+
+        assertEquals(7L, first.get(5, TimeUnit.SECONDS).getUserId());
+        assertEquals(7L, second.get(5, TimeUnit.SECONDS).getUserId());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGetOrLoad_NullResult_NotCached() {
+        LoginIdentityCache cache = new LoginIdentityCache(100, Duration.ofMinutes(30), Duration.ofMinutes(15));
+
+        assertNull(cache.getOrLoad("wechat", "openid-1", () -> null));
+        assertEquals(0, cache.size());
+        assertEquals(3L, cache.getOrLoad("wechat", "openid-1", () -> identity(3L, "openid-1")).getUserId());
+    }
+
+    @Test
+    void testBoundedAndExpiring() {
+        MutableClock clock = new MutableClock();
+        LoginIdentityCache cache = new LoginIdentityCache(clock, 2, Duration.ofMinutes(30), Duration.ofMinutes(15));
+        cache.put(identity(1L, "a"));
+        cache.put(identity(2L, "b"));
+        cache.get("wechat", "a");
+        cache.put(identity(3L, "c"));
+
+        // Least recently used entry is evicted
+        assertEquals(2, cache.size());
+        assertNull(cache.get("wechat", "b"));
+        assertNotNull(cache.get("wechat", "a"));
+
+        clock.advance(Duration.ofMinutes(31));
+        assertNull(cache.get("wechat", "a"));
+    }
+
+    @Test
+    void testInvalidateUser_RemovesEntries() {
+        LoginIdentityCache cache = new LoginIdentityCache(100, Duration.ofMinutes(30), Duration.ofMinutes(15));
+        cache.put(identity(1L, "a"));
+        cache.put(identity(2L, "b"));
+
+        cache.invalidateUser(1L);
+
+        assertNull(cache.get("wechat", "a"));
+        assertNotNull(cache.get("wechat", "b"));
+    }
+
+    @Test
+    void testWithProfile_UnchangedFingerprint() {
+        CachedIdentity identity = identity(1L, "a");
+
+        assertTrue(identity.sameProfile(identity.withProfile(null, "a@example.com", null)));
+        assertFalse(identity.sameProfile(identity.withProfile("New Name", null, null)));
+    }
+
+    @Test
+    void testLoginRecentlyRecorded_WithinInterval() {
+        LoginIdentityCache cache = new LoginIdentityCache(100, Duration.ofMinutes(30), Duration.ofMinutes(15));
+        LocalDateTime now = LocalDateTime.of(2026, 10, 18, 8, 0);
+        CachedIdentity identity = identity(1L, "a");
+
+        assertFalse(cache.loginRecentlyRecorded(identity, now));
+        assertTrue(cache.loginRecentlyRecorded(identity.withLastLoginAt(now.minusMinutes(14)), now));
+        assertFalse(cache.loginRecentlyRecorded(identity.withLastLoginAt(now.minusMinutes(16)), now));
+        assertEquals(now, identity.withLastLoginAt(now).withProfile("New Name", null, null).getLastLoginAt());
+    }
+
+    private static CachedIdentity identity(Long userId, String providerUserId) {
+        return new CachedIdentity(userId, "wechat", providerUserId, "User " + providerUserId,
+                providerUserId + "@example.com", null, null);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
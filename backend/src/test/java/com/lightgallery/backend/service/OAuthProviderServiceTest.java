@@ -0,0 +1,130 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.config.OAuthProviderProperties;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OAuthProviderService
+ * Tests registry dispatch, per-provider deadlines and concurrency isolation
+ */
+class OAuthProviderServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private OAuthProviderService oauthProviderService;
+
+    @BeforeEach
+    void setUp() {
+        OAuthProviderProperties properties = new OAuthProviderProperties();
+        OAuthProviderProperties.Settings slow = new OAuthProviderProperties.Settings();
+        slow.setMaxConcurrentCalls(1);
+        slow.setQueueCapacity(1);
+        slow.setDeadline(Duration.ofMillis(200));
+        properties.getInstances().put("slow", slow);
+
+        meterRegistry = new SimpleMeterRegistry();
+        oauthProviderService = new OAuthProviderService(List.of(
+                provider("fast", (code, userId) -> "good-code".equals(code)),
+                provider("slow", (code, userId) -> {
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                }),
+                provider("broken", (code, userId) -> {
+                    throw new IllegalStateException("provider down");
+                }),
+                provider("open", (code, userId) -> {
+                    throw new ProviderUnavailableException("Provider temporarily unavailable: open", "open");
+                })
+        ), properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        oauthProviderService.shutdown();
+    }
+
+    @Test
+    void testValidate_DispatchesByName() {
+        assertTrue(oauthProviderService.validateOAuthToken("FAST", "good-code", "user").join());
+        assertFalse(oauthProviderService.validateOAuthToken("fast", "bad-code", "user").join());
+        assertFalse(oauthProviderService.validateOAuthToken("unknown", "good-code", "user").join());
+
+        assertEquals(1, meterRegistry.get(OAuthProviderService.VALIDATION_TIMER)
+                .tags("provider", "fast", "outcome", OAuthProviderService.OUTCOME_VALID).timer().count());
+    }
+
+    @Test
+    void testValidate_ProviderError_CompletesFalse() {
+        assertFalse(oauthProviderService.validateOAuthToken("broken", "code", "user").join());
+        assertEquals(1, meterRegistry.get(OAuthProviderService.VALIDATION_TIMER)
+                .tags("provider", "broken", "outcome", OAuthProviderService.OUTCOME_ERROR).timer().count());
+    }
+
+    @Test
+    void testAuthenticate_ProviderUnavailable_CompletesExceptionally() {
+        CompletionException exception = assertThrows(CompletionException.class, () ->
+                oauthProviderService.authenticate("open", "code", "user").join());
+
+        assertInstanceOf(ProviderUnavailableException.class, exception.getCause());
+        assertEquals(1, meterRegistry.get(OAuthProviderService.VALIDATION_TIMER)
+                .tags("provider", "open", "outcome", OAuthProviderService.OUTCOME_UNAVAILABLE).timer().count());
+    }
+
+    @Test
+    void testValidate_DeadlineExceeded_CompletesFalse() {
+        assertFalse(oauthProviderService.validateOAuthToken("slow", "code", "user").join());
+        assertEquals(1, meterRegistry.get(OAuthProviderService.VALIDATION_TIMER)
+                .tags("provider", "slow", "outcome", OAuthProviderService.OUTCOME_TIMEOUT).timer().count());
+    }
+
+    @Test
+    void testValidate_SaturatedProvider_DoesNotBlockOthers() {
+        // One running and one queued call fill the slow provider
+        CompletableFuture<Boolean> running = oauthProviderService.validateOAuthToken("slow", "code", "user");
+        CompletableFuture<Boolean> queued = oauthProviderService.validateOAuthToken("slow", "code", "user");
+
+        assertFalse(oauthProviderService.validateOAuthToken("slow", "code", "user").join());
+        assertEquals(1, meterRegistry.get(OAuthProviderService.VALIDATION_TIMER)
+                .tags("provider", "slow", "outcome", OAuthProviderService.OUTCOME_REJECTED).timer().count());
+
+        assertTrue(oauthProviderService.validateOAuthToken("fast", "good-code", "user").join());
+        assertFalse(running.isDone() && running.join());
+        assertFalse(queued.isDone() && queued.join());
+    }
+
+    private interface Validator {
+        boolean validate(String code, String providerUserId);
+    }
+
+    private static OAuthProvider provider(String name, Validator validator) {
+        return new OAuthProvider() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public boolean validateToken(String code, String providerUserId) {
+                return validator.validate(code, providerUserId);
+            }
+        };
+    }
+}
@@ -0,0 +1,336 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.datasource.ShardMap;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.datasource.SnowflakeIdGenerator;
+import com.lightgallery.backend.entity.PaymentNotification;
+import com.lightgallery.backend.entity.Subscription;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import com.lightgallery.backend.mapper.PaymentNotificationMapper;
+import com.lightgallery.backend.mapper.SubscriptionMapper;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import com.lightgallery.backend.util.AlipayNotifyVerifier;
+import com.lightgallery.backend.util.WeChatPayNotifyVerifier;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for PaymentNotificationService
+ * Tests WeChat Pay / Alipay callback verification, inbox storage and batched application
+ */
+class PaymentNotificationServiceTest {
+
+    private static final String API_V3_KEY = "0123456789abcdef0123456789abcdef";
+
+    private PaymentNotificationMapper notificationMapper;
+    private TransactionMapper transactionMapper;
+    private SubscriptionMapper subscriptionMapper;
+    private SubscriptionService subscriptionService;
+    private PlatformTransactionManager transactionManager;
+    private ShardRouter shardRouter;
+    private KeyPair wechatPlatformKeys;
+    private X509Certificate wechatPlatformCertificate;
+    private KeyPair alipayKeys;
+    private PaymentNotificationService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        notificationMapper = mock(PaymentNotificationMapper.class);
+        transactionMapper = mock(TransactionMapper.class);
+        subscriptionMapper = mock(SubscriptionMapper.class);
+        subscriptionService = mock(SubscriptionService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        wechatPlatformKeys = generator.generateKeyPair();
+        alipayKeys = generator.generateKeyPair();
+        wechatPlatformCertificate = new JcaX509CertificateConverter().getCertificate(
+                new JcaX509v3CertificateBuilder(new X500Name("CN=Tenpay"), new BigInteger("5157F09EFDC096DE15EBE81A47057A72", 16),
+                        new Date(System.currentTimeMillis() - 60_000), new Date(System.currentTimeMillis() + 86_400_000L),
+                        new X500Name("CN=Tenpay"), wechatPlatformKeys.getPublic())
+                        .build(new JcaContentSignerBuilder("SHA256withRSA").build(wechatPlatformKeys.getPrivate())));
+
+        createService(new ShardRouter(new ShardMap(List.of("shard0"), 1)));
+    }
+
+    private void createService(ShardRouter router) {
+        shardRouter = spy(router);
+        service = new PaymentNotificationService(notificationMapper, transactionMapper, subscriptionMapper, subscriptionService,
+                new WeChatPayNotifyVerifier(API_V3_KEY, List.of(wechatPlatformCertificate)),
+                new AlipayNotifyVerifier(Base64.getEncoder().encodeToString(alipayKeys.getPublic().getEncoded()),
+                        "2021000000000000"),
+                mock(AuditLogService.class), new ObjectMapper(), shardRouter, new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(service, "batchSize", 200);
+        ReflectionTestUtils.setField(service, "maxAttempts", 10);
+    }
+
+    @Test
+    void testIngestWeChatPay_ValidCallback_DecryptsAndStores() throws Exception {
+        when(notificationMapper.insertIgnore(any(PaymentNotification.class))).thenReturn(1);
+        String resource = "{\"transaction_id\":\"4200000001\",\"out_trade_no\":\"order-1\"," +
+                "\"trade_state\":\"SUCCESS\",\"amount\":{\"total\":1000,\"currency\":\"CNY\"}}";
+        String body = wechatEnvelope("notify-1", "TRANSACTION.SUCCESS", resource);
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+
+        assertTrue(service.ingestWeChatPay(timestamp, "nonce-1", wechatSign(timestamp, "nonce-1", body),
+                wechatPlatformCertificate.getSerialNumber().toString(16).toUpperCase(), body));
+
+        ArgumentCaptor<PaymentNotification> captor = ArgumentCaptor.forClass(PaymentNotification.class);
+        verify(notificationMapper).insertIgnore(captor.capture());
+        PaymentNotification stored = captor.getValue();
+        assertEquals("notify-1", stored.getNotifyId());
+        assertEquals("4200000001", stored.getPlatformTransactionId());
+        assertEquals(PaymentNotificationService.OUTCOME_VERIFIED, stored.getOutcome());
+        assertEquals(new BigDecimal("10.00"), stored.getAmount());
+    }
+
+    @Test
+    void testIngestWeChatPay_TamperedBody_Rejected() throws Exception {
+        String body = wechatEnvelope("notify-1", "TRANSACTION.SUCCESS", "{\"trade_state\":\"SUCCESS\"}");
+        String timestamp = String.valueOf(System.currentTimeMillis() / 1000);
+        String signature = wechatSign(timestamp, "nonce-1", body);
+
+        assertThrows(PaymentVerificationException.class, () -> service.ingestWeChatPay(timestamp, "nonce-1",
+                signature, wechatPlatformCertificate.getSerialNumber().toString(16), body.replace("notify-1", "notify-2")));
+        verify(notificationMapper, never()).insertIgnore(any(PaymentNotification.class));
+    }
+
+    @Test
+    void testIngestAlipay_ValidSignature_Stores() throws Exception {
+        when(notificationMapper.insertIgnore(any(PaymentNotification.class))).thenReturn(0);
+        Map<String, String> params = alipayParams("TRADE_SUCCESS");
+
+        assertFalse(service.ingestAlipay(params), "Duplicate notify_id is acknowledged but not stored again");
+
+        ArgumentCaptor<PaymentNotification> captor = ArgumentCaptor.forClass(PaymentNotification.class);
+        verify(notificationMapper).insertIgnore(captor.capture());
+        assertEquals("order-2", captor.getValue().getPlatformTransactionId());
+        assertEquals(PaymentNotificationService.OUTCOME_VERIFIED, captor.getValue().getOutcome());
+    }
+
+    @Test
+    void testIngestAlipay_InvalidSignature_Rejected() throws Exception {
+        Map<String, String> params = alipayParams("TRADE_SUCCESS");
+        params.put("total_amount", "0.01");
+
+        assertThrows(PaymentVerificationException.class, () -> service.ingestAlipay(params));
+    }
+
+    @Test
+    void testApplyPending_BatchesStatusUpdates() {
+        PaymentNotification paid = pending(1L, "wechat_pay", "wx-1", PaymentNotificationService.OUTCOME_VERIFIED);
+        PaymentNotification refund = pending(2L, "alipay", "ali-1", PaymentNotificationService.OUTCOME_REFUNDED);
+        PaymentNotification early = pending(3L, "wechat_pay", "wx-unknown", PaymentNotificationService.OUTCOME_VERIFIED);
+        when(notificationMapper.findPending(200)).thenReturn(List.of(paid, refund, early));
+
+        Transaction pendingPurchase = transaction(10L, "wx-1", 100L, Transaction.STATUS_PENDING);
+        when(transactionMapper.findByPlatformTransactionIds(eq("wechat_pay"), anyList()))
+                .thenReturn(List.of(pendingPurchase));
+        when(transactionMapper.findByPlatformTransactionIds(eq("alipay"), anyList()))
+                .thenReturn(List.of(transaction(11L, "ali-1", 101L, Transaction.STATUS_VERIFIED)));
+        when(subscriptionService.grantVerifiedTransaction(pendingPurchase)).thenReturn(subscription(100L));
+
+        assertEquals(3, service.applyPendingNotifications());
+
+        verify(transactionMapper).updateVerificationStatusBatch(eq(List.of(10L)), eq("verified"), anyString());
+        verify(transactionMapper).updateVerificationStatusBatch(eq(List.of(11L)), eq("refunded"), anyString());
+        verify(subscriptionService).grantVerifiedTransaction(pendingPurchase);
+        verify(transactionMapper, never()).updateSubscriptionId(anyLong(), anyLong(), anyLong());
+        verify(subscriptionMapper).updateStatusBatch(List.of(101L), "cancelled");
+        verify(notificationMapper).markProcessed(List.of(1L, 2L), PaymentNotificationService.STATUS_APPLIED);
+        verify(notificationMapper).recordUnmatched(List.of(3L), 10);
+    }
+
+    @Test
+    void testApplyPending_FailedPurchaseConfirmed_GrantsAndLinksSubscription() {
+        PaymentNotification paid = pending(1L, "wechat_pay", "wx-1", PaymentNotificationService.OUTCOME_VERIFIED);
+        when(notificationMapper.findPending(200)).thenReturn(List.of(paid));
+        Transaction failed = transaction(10L, "wx-1", null, Transaction.STATUS_FAILED);
+        when(transactionMapper.findByPlatformTransactionIds(eq("wechat_pay"), anyList())).thenReturn(List.of(failed));
+        when(subscriptionService.grantVerifiedTransaction(failed)).thenReturn(subscription(200L));
+
+        assertEquals(1, service.applyPendingNotifications());
+
+        verify(transactionMapper).updateVerificationStatusBatch(eq(List.of(10L)), eq("verified"), anyString());
+        verify(subscriptionService).grantVerifiedTransaction(failed);
+        verify(transactionMapper).updateSubscriptionId(10L, 1L, 200L);
+        verify(notificationMapper).markProcessed(List.of(1L), PaymentNotificationService.STATUS_APPLIED);
+    }
+
+    @Test
+    void testApplyPending_AlreadyVerifiedPurchase_NotGrantedAgain() {
+        PaymentNotification paid = pending(1L, "wechat_pay", "wx-1", PaymentNotificationService.OUTCOME_VERIFIED);
+        when(notificationMapper.findPending(200)).thenReturn(List.of(paid));
+        when(transactionMapper.findByPlatformTransactionIds(eq("wechat_pay"), anyList()))
+                .thenReturn(List.of(transaction(10L, "wx-1", 100L, Transaction.STATUS_VERIFIED)));
+
+        assertEquals(1, service.applyPendingNotifications());
+
+        verify(subscriptionService, never()).grantVerifiedTransaction(any(Transaction.class));
+        verify(subscriptionMapper, never()).updateStatusBatch(anyList(), anyString());
+    }
+
+    @Test
+    void testApplyPending_RefundedTransaction_StaysRefunded() {
+        PaymentNotification paid = pending(1L, "alipay", "ali-1", PaymentNotificationService.OUTCOME_VERIFIED);
+        when(notificationMapper.findPending(200)).thenReturn(List.of(paid));
+        when(transactionMapper.findByPlatformTransactionIds(eq("alipay"), anyList()))
+                .thenReturn(List.of(transaction(11L, "ali-1", 101L, Transaction.STATUS_REFUNDED)));
+
+        assertEquals(1, service.applyPendingNotifications());
+
+        verify(transactionMapper, never()).updateVerificationStatusBatch(anyList(), anyString(), anyString());
+        verify(subscriptionService, never()).grantVerifiedTransaction(any(Transaction.class));
+        verify(notificationMapper).markProcessed(List.of(1L), PaymentNotificationService.STATUS_IGNORED);
+    }
+
+    @Test
+    void testApplyPending_TransactionOnOtherShard_AppliedThereThenMarked() {
+        createService(new ShardRouter(new ShardMap(List.of("shard0", "shard1"), 16)));
+        PaymentNotification legacy = pending(1L, "wechat_pay", "wx-1", PaymentNotificationService.OUTCOME_FAILED);
+        PaymentNotification remote = pending(2L, "wechat_pay", "wx-2", PaymentNotificationService.OUTCOME_REFUNDED);
+        when(notificationMapper.findPending(200)).thenReturn(List.of(legacy, remote));
+        Transaction remoteTransaction = transaction(20L, "wx-2", 200L, Transaction.STATUS_VERIFIED);
+        remoteTransaction.setUserId(userOnShard(1));
+        when(transactionMapper.findByPlatformTransactionIds(eq("wechat_pay"), anyList()))
+                .thenReturn(List.of(transaction(10L, "wx-1", 100L, Transaction.STATUS_PENDING), remoteTransaction));
+
+        assertEquals(2, service.applyPendingNotifications());
+
+        verify(shardRouter).onShard(eq(1), any());
+        verify(shardRouter).onShard(eq(0), any());
+        // Shard 1 commits before its notification is marked on shard 0, then shard 0 in one transaction
+        InOrder inOrder = inOrder(transactionMapper, subscriptionMapper, transactionManager, notificationMapper);
+        inOrder.verify(transactionMapper).updateVerificationStatusBatch(eq(List.of(20L)), eq("refunded"), anyString());
+        inOrder.verify(subscriptionMapper).updateStatusBatch(List.of(200L), "cancelled");
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(notificationMapper).markProcessed(List.of(2L), PaymentNotificationService.STATUS_APPLIED);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(transactionMapper).updateVerificationStatusBatch(eq(List.of(10L)), eq("failed"), anyString());
+        inOrder.verify(notificationMapper).markProcessed(List.of(1L), PaymentNotificationService.STATUS_APPLIED);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    private long userOnShard(int shard) {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+        for (int attempt = 0; attempt < 1000; attempt++) {
+            long userId = generator.nextId();
+            if (shardRouter.shardFor(userId) == shard) {
+                return userId;
+            }
+        }
+        throw new AssertionError("No user ID on shard " + shard);
+    }
+
+    private String wechatEnvelope(String id, String eventType, String resource) throws Exception {
+        String nonce = "abcdefghijkl";
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(API_V3_KEY.getBytes(StandardCharsets.UTF_8), "AES"),
+                new GCMParameterSpec(128, nonce.getBytes(StandardCharsets.UTF_8)));
+        cipher.updateAAD("transaction".getBytes(StandardCharsets.UTF_8));
+        String ciphertext = Base64.getEncoder().encodeToString(cipher.doFinal(resource.getBytes(StandardCharsets.UTF_8)));
+
+        return new ObjectMapper().writeValueAsString(Map.of(
+                "id", id,
+                "event_type", eventType,
+                "resource_type", "encrypt-resource",
+                "resource", Map.of(
+                        "algorithm", "AEAD_AES_256_GCM",
+                        "ciphertext", ciphertext,
+                        "associated_data", "transaction",
+                        "nonce", nonce)));
+    }
+
+    private String wechatSign(String timestamp, String nonce, String body) throws Exception {
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(wechatPlatformKeys.getPrivate());
+        signature.update((timestamp + "\n" + nonce + "\n" + body + "\n").getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(signature.sign());
+    }
+
+    private Map<String, String> alipayParams(String tradeStatus) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        params.put("notify_id", "ali-notify-1");
+        params.put("notify_type", "trade_status_sync");
+        params.put("app_id", "2021000000000000");
+        params.put("out_trade_no", "order-2");
+        params.put("trade_no", "2024120722001");
+        params.put("trade_status", tradeStatus);
+        params.put("total_amount", "100.00");
+        params.put("sign_type", "RSA2");
+
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initSign(alipayKeys.getPrivate());
+        signature.update(AlipayNotifyVerifier.signContent(params).getBytes(StandardCharsets.UTF_8));
+        params.put("sign", Base64.getEncoder().encodeToString(signature.sign()));
+        return params;
+    }
+
+    private static PaymentNotification pending(Long id, String provider, String platformTransactionId, String outcome) {
+        PaymentNotification notification = new PaymentNotification();
+        notification.setId(id);
+        notification.setProvider(provider);
+        notification.setNotifyId("notify-" + id);
+        notification.setPlatformTransactionId(platformTransactionId);
+        notification.setOutcome(outcome);
+        return notification;
+    }
+
+    private static Transaction transaction(Long id, String platformTransactionId, Long subscriptionId, String status) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setUserId(1L);
+        transaction.setSubscriptionId(subscriptionId);
+        transaction.setPlatformTransactionId(platformTransactionId);
+        transaction.setVerificationStatus(status);
+        transaction.setAmount(new BigDecimal("10.00"));
+        transaction.setCurrency("CNY");
+        transaction.setPaymentMethod(platformTransactionId.startsWith("wx") ? "wechat_pay" : "alipay");
+        transaction.setTier("pro");
+        transaction.setBillingPeriod("monthly");
+        return transaction;
+    }
+
+    private static Subscription subscription(Long id) {
+        Subscription subscription = new Subscription();
+        subscription.setId(id);
+        subscription.setUserId(1L);
+        return subscription;
+    }
+}
@@ -0,0 +1,130 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.dto.AppleSignedTransaction;
+import com.lightgallery.backend.dto.PaymentVerificationRequest;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
+import com.lightgallery.backend.mapper.PaymentNotificationMapper;
+import com.lightgallery.backend.util.AppleJwsVerifier;
+import com.lightgallery.backend.util.AppleTestCertificates;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for PaymentService
+ * Tests local StoreKit 2 signed transaction verification against a generated test CA, and that an
+ * unavailable provider is reported instead of being treated as a rejected payment
+ */
+class PaymentServiceTest {
+
+    private AppleTestCertificates certificates;
+    private RestTemplate restTemplate;
+    private ProviderCallGuard providerCallGuard;
+    private PaymentService paymentService;
+
+    @BeforeEach
+    void setUp() {
+        certificates = new AppleTestCertificates();
+        restTemplate = mock(RestTemplate.class);
+        providerCallGuard = mock(ProviderCallGuard.class);
+        paymentService = new PaymentService(restTemplate, providerCallGuard,
+                mock(PaymentNotificationMapper.class),
+                new AppleJwsVerifier(new ObjectMapper(), certificates.getRoot()));
+        ReflectionTestUtils.setField(paymentService, "appleBundleId", "com.lightgallery.app");
+    }
+
+    @Test
+    void testVerifySignedTransaction_Valid_ExtractsFields() {
+        long expires = System.currentTimeMillis() + 30L * 86_400_000L;
+
+        AppleSignedTransaction transaction = paymentService.verifySignedTransaction(
+                certificates.sign(transactionPayload(expires)));
+
+        assertEquals("2000000002", transaction.getTransactionId());
+        assertEquals("1000000001", transaction.getOriginalTransactionId());
+        assertEquals("com.lightgallery.pro.monthly", transaction.getProductId());
+        assertNotNull(transaction.getExpiresDate());
+        verifyNoInteractions(restTemplate);
+    }
+
+    @Test
+    void testVerifySignedTransaction_OtherBundle_Rejected() {
+        Map<String, Object> payload = transactionPayload(System.currentTimeMillis() + 86_400_000L);
+        payload.put("bundleId", "com.other.app");
+
+        PaymentVerificationException exception = assertThrows(PaymentVerificationException.class, () ->
+                paymentService.verifySignedTransaction(certificates.sign(payload)));
+        assertEquals("INVALID_BUNDLE_ID", exception.getErrorCode());
+    }
+
+    @Test
+    void testVerifySignedTransaction_Revoked_Rejected() {
+        Map<String, Object> payload = transactionPayload(System.currentTimeMillis() + 86_400_000L);
+        payload.put("revocationDate", System.currentTimeMillis());
+
+        PaymentVerificationException exception = assertThrows(PaymentVerificationException.class, () ->
+                paymentService.verifySignedTransaction(certificates.sign(payload)));
+        assertEquals("TRANSACTION_REVOKED", exception.getErrorCode());
+    }
+
+    @Test
+    void testVerifySignedTransaction_Expired_Rejected() {
+        PaymentVerificationException exception = assertThrows(PaymentVerificationException.class, () ->
+                paymentService.verifySignedTransaction(certificates.sign(
+                        transactionPayload(System.currentTimeMillis() - 60_000))));
+        assertEquals("TRANSACTION_EXPIRED", exception.getErrorCode());
+    }
+
+    @Test
+    void testVerifySignedTransaction_UntrustedSigner_Rejected() {
+        AppleTestCertificates forger = new AppleTestCertificates();
+
+        assertThrows(PaymentVerificationException.class, () -> paymentService.verifySignedTransaction(
+                forger.sign(transactionPayload(System.currentTimeMillis() + 86_400_000L))));
+    }
+
+    @Test
+    void testVerifyPayment_ProviderUnavailable_Propagates() {
+        ReflectionTestUtils.setField(paymentService, "wechatAppId", "wx-app");
+        ReflectionTestUtils.setField(paymentService, "wechatAppSecret", "wx-secret");
+        ReflectionTestUtils.setField(paymentService, "wechatPayVerifyUrl",
+                "https://api.mch.weixin.qq.com/v3/pay/transactions/id");
+        when(providerCallGuard.call(eq(ProviderCallGuard.WECHAT_PAY), any()))
+                .thenThrow(new ProviderUnavailableException("Provider temporarily unavailable: wechat_pay",
+                        ProviderCallGuard.WECHAT_PAY));
+
+        PaymentVerificationRequest request = new PaymentVerificationRequest();
+        request.setPaymentMethod("wechat_pay");
+        request.setPlatform("android");
+        request.setTransactionId("wx-tx-1");
+        request.setProductId("com.lightgallery.pro.monthly");
+
+        ProviderUnavailableException exception = assertThrows(ProviderUnavailableException.class, () ->
+                paymentService.verifyPayment(request));
+        assertEquals(ProviderCallGuard.WECHAT_PAY, exception.getProvider());
+    }
+
+    private static Map<String, Object> transactionPayload(long expiresDate) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("transactionId", "2000000002");
+        payload.put("originalTransactionId", "1000000001");
+        payload.put("bundleId", "com.lightgallery.app");
+        payload.put("productId", "com.lightgallery.pro.monthly");
+        payload.put("expiresDate", expiresDate);
+        payload.put("environment", "Sandbox");
+        return payload;
+    }
+}
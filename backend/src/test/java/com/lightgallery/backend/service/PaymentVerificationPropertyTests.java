@@ -1,5 +1,7 @@
 package com.lightgallery.backend.service;
 
+import com.lightgallery.backend.datasource.ShardMap;
+import com.lightgallery.backend.datasource.ShardRouter;
 import com.lightgallery.backend.dto.PaymentVerificationRequest;
 import com.lightgallery.backend.dto.SubscriptionDTO;
 import com.lightgallery.backend.entity.Subscription;
@@ -13,11 +15,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Base64;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -42,12 +46,18 @@ class PaymentVerificationPropertyTests {
     @Mock
     private TransactionMapper transactionMapper;
 
+    @Mock
+    private TransactionWriter transactionWriter;
+
     @Mock
     private UserMapper userMapper;
 
     @Mock
     private PaymentService paymentService;
 
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(new ShardMap(List.of("shard0"), 1));
+
     @InjectMocks
     private SubscriptionService subscriptionService;
 
@@ -90,14 +100,13 @@ class PaymentVerificationPropertyTests {
 
         // Setup mocks
         when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(transactionMapper.selectOne(any())).thenReturn(null);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(null);
         when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(null);
         when(subscriptionMapper.insert(any(Subscription.class))).thenAnswer(invocation -> {
             Subscription sub = invocation.getArgument(0);
             sub.setId(1L);
             return 1;
         });
-        when(transactionMapper.insert(any(Transaction.class))).thenReturn(1);
         
         // Mock payment verification to succeed
         when(paymentService.verifyPayment(any(PaymentVerificationRequest.class))).thenReturn(true);
@@ -141,11 +150,10 @@ class PaymentVerificationPropertyTests {
 
         // Setup mocks
         when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(transactionMapper.selectOne(any())).thenReturn(null);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(null);
         
         // Mock payment verification to fail
         when(paymentService.verifyPayment(any(PaymentVerificationRequest.class))).thenReturn(false);
-        when(transactionMapper.insert(any(Transaction.class))).thenReturn(1);
 
         // When & Then: Verification should throw exception
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -159,7 +167,7 @@ class PaymentVerificationPropertyTests {
         verify(subscriptionMapper, never()).updateById(any(Subscription.class));
 
         // And: Failed transaction should be recorded
-        verify(transactionMapper, times(1)).insert(argThat(txn -> 
+        verify(transactionWriter, times(1)).write(argThat((Transaction txn) -> 
                 "failed".equals(txn.getVerificationStatus()) &&
                 transactionId.equals(txn.getPlatformTransactionId())
         ));
@@ -191,9 +199,8 @@ class PaymentVerificationPropertyTests {
 
         // Setup mocks
         when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(transactionMapper.selectOne(any())).thenReturn(null);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(null);
         when(paymentService.verifyPayment(any(PaymentVerificationRequest.class))).thenReturn(verificationSuccess);
-        when(transactionMapper.insert(any(Transaction.class))).thenReturn(1);
 
         if (verificationSuccess) {
             when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(null);
@@ -213,7 +220,7 @@ class PaymentVerificationPropertyTests {
 
         // Then: Transaction record should be created with correct status
         String expectedStatus = verificationSuccess ? "verified" : "failed";
-        verify(transactionMapper, times(1)).insert(argThat(txn -> {
+        verify(transactionWriter, times(1)).write(argThat((Transaction txn) -> {
             boolean statusMatches = expectedStatus.equals(txn.getVerificationStatus());
             boolean transactionIdMatches = transactionId.equals(txn.getPlatformTransactionId());
             boolean paymentMethodMatches = paymentMethod.equals(txn.getPaymentMethod());
@@ -0,0 +1,136 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.config.ProviderResilienceConfig;
+import com.lightgallery.backend.exception.ProviderUnavailableException;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProviderCallGuard
+ * Tests circuit breaker and bulkhead fast-fail behaviour per provider
+ */
+class ProviderCallGuardTest {
+
+    private ProviderCallGuard providerCallGuard;
+
+    @BeforeEach
+    void setUp() {
+        CircuitBreakerConfig circuitBreakerConfig = CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .recordException(ProviderResilienceConfig::isProviderFailure)
+                .ignoreExceptions(BulkheadFullException.class)
+                .build();
+        BulkheadConfig bulkheadConfig = BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+
+        providerCallGuard = new ProviderCallGuard(
+                CircuitBreakerRegistry.of(circuitBreakerConfig),
+                BulkheadRegistry.of(bulkheadConfig));
+    }
+
+    @Test
+    void testCall_Success_ReturnsResult() {
+        String result = providerCallGuard.call(ProviderCallGuard.APPLE_IAP, () -> "ok");
+
+        assertEquals("ok", result);
+        assertEquals("CLOSED", providerCallGuard.getProviderStates().get(ProviderCallGuard.APPLE_IAP).get("state"));
+    }
+
+    @Test
+    void testCall_RepeatedFailures_OpensCircuitAndFailsFast() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () ->
+                    providerCallGuard.call(ProviderCallGuard.WECHAT_PAY, () -> {
+                        throw new IllegalStateException("gateway timeout");
+                    }));
+        }
+
+        AtomicInteger invocations = new AtomicInteger();
+        ProviderUnavailableException exception = assertThrows(ProviderUnavailableException.class, () ->
+                providerCallGuard.call(ProviderCallGuard.WECHAT_PAY, invocations::incrementAndGet));
+
+        assertEquals(ProviderCallGuard.WECHAT_PAY, exception.getProvider());
+        assertEquals(0, invocations.get(), "Remote call must not run while the circuit is open");
+        assertFalse(providerCallGuard.allProvidersAvailable());
+    }
+
+    @Test
+    void testCall_ClientErrors_DoNotOpenCircuit() {
+        for (int i = 0; i < 8; i++) {
+            assertThrows(HttpClientErrorException.class, () ->
+                    providerCallGuard.call(ProviderCallGuard.APPLE_IAP, () -> {
+                        throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+                    }));
+        }
+
+        assertEquals("CLOSED", providerCallGuard.getProviderStates().get(ProviderCallGuard.APPLE_IAP).get("state"));
+        assertTrue(ProviderResilienceConfig.isProviderFailure(new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+        assertTrue(ProviderResilienceConfig.isProviderFailure(
+                new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE)));
+    }
+
+    @Test
+    void testCall_OpenCircuit_DoesNotAffectOtherProviders() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalStateException.class, () ->
+                    providerCallGuard.call(ProviderCallGuard.WECHAT_OAUTH, () -> {
+                        throw new IllegalStateException("down");
+                    }));
+        }
+
+        Map<String, Map<String, Object>> states = providerCallGuard.getProviderStates();
+        assertEquals("OPEN", states.get(ProviderCallGuard.WECHAT_OAUTH).get("state"));
+        assertEquals("CLOSED", states.get(ProviderCallGuard.APPLE_OAUTH).get("state"));
+        assertEquals("ok", providerCallGuard.call(ProviderCallGuard.APPLE_OAUTH, () -> "ok"));
+    }
+
+    @Test
+    void testCall_BulkheadFull_FailsFast() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> providerCallGuard.call(ProviderCallGuard.ALIPAY, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "slow";
+        }));
+        holder.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            assertThrows(ProviderUnavailableException.class, () ->
+                    providerCallGuard.call(ProviderCallGuard.ALIPAY, () -> "second"));
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        // Bulkhead rejections must not count as provider failures
+        assertEquals("CLOSED", providerCallGuard.getProviderStates().get(ProviderCallGuard.ALIPAY).get("state"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.entity.Receipt;
+import com.lightgallery.backend.mapper.ReceiptMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ReceiptStore
+ * Tests content addressing and compression round trip
+ */
+class ReceiptStoreTest {
+
+    private ReceiptMapper receiptMapper;
+    private ReceiptStore receiptStore;
+
+    @BeforeEach
+    void setUp() {
+        receiptMapper = mock(ReceiptMapper.class);
+        receiptStore = new ReceiptStore(receiptMapper);
+    }
+
+    @Test
+    void testStore_SameReceipt_SameHash() {
+        String receipt = sampleReceipt();
+        when(receiptMapper.insertIgnore(eq(7L), any(Receipt.class))).thenReturn(1, 0);
+
+        String first = receiptStore.store(7L, receipt);
+        String second = receiptStore.store(7L, receipt);
+
+        assertEquals(64, first.length());
+        assertEquals(first, second);
+        assertNotEquals(first, receiptStore.store(7L, receipt + "x"));
+    }
+
+    @Test
+    void testStore_CompressesAndLoadsBack() {
+        String receipt = sampleReceipt();
+        when(receiptMapper.insertIgnore(eq(7L), any(Receipt.class))).thenReturn(1);
+
+        String hash = receiptStore.store(7L, receipt);
+
+        ArgumentCaptor<Receipt> captor = ArgumentCaptor.forClass(Receipt.class);
+        verify(receiptMapper).insertIgnore(eq(7L), captor.capture());
+        Receipt stored = captor.getValue();
+        assertEquals(hash, stored.getReceiptHash());
+        assertTrue(stored.getCompressedSize() < stored.getOriginalSize());
+
+        when(receiptMapper.findPayloadByHash(7L, hash)).thenReturn(stored.getPayload());
+        assertEquals(receipt, receiptStore.load(7L, hash));
+    }
+
+    @Test
+    void testStore_EmptyReceipt_NothingStored() {
+        assertNull(receiptStore.store(7L, null));
+        assertNull(receiptStore.store(7L, ""));
+        verifyNoInteractions(receiptMapper);
+    }
+
+    private static String sampleReceipt() {
+        StringBuilder json = new StringBuilder("{\"receipt\":{\"bundle_id\":\"com.lightgallery\",\"in_app\":[");
+        for (int i = 0; i < 50; i++) {
+            json.append("{\"product_id\":\"com.lightgallery.pro.monthly\",\"transaction_id\":\"")
+                    .append(1000000000L + i).append("\"},");
+        }
+        json.append("{}]}}");
+        return Base64.getEncoder().encodeToString(json.toString().getBytes());
+    }
+}
@@ -1,5 +1,7 @@
 package com.lightgallery.backend.service;
 
+import com.lightgallery.backend.datasource.ShardMap;
+import com.lightgallery.backend.datasource.ShardRouter;
 import com.lightgallery.backend.dto.PaymentVerificationRequest;
 import com.lightgallery.backend.dto.SubscriptionDTO;
 import com.lightgallery.backend.dto.SubscriptionProductDTO;
@@ -7,15 +9,20 @@ import com.lightgallery.backend.dto.SubscriptionSyncRequest;
 import com.lightgallery.backend.entity.Subscription;
 import com.lightgallery.backend.entity.Transaction;
 import com.lightgallery.backend.entity.User;
+import com.lightgallery.backend.exception.SubscriptionException;
 import com.lightgallery.backend.mapper.SubscriptionMapper;
 import com.lightgallery.backend.mapper.TransactionMapper;
 import com.lightgallery.backend.mapper.UserMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -28,7 +35,8 @@ import static org.mockito.Mockito.*;
 
 /**
  * Unit tests for SubscriptionService
- * Tests product retrieval, subscription status logic, and subscription updates
+ * Tests product retrieval, subscription status logic, subscription updates and optimistic
+ * concurrency retries
  */
 @ExtendWith(MockitoExtension.class)
 class SubscriptionServiceTest {
@@ -39,9 +47,24 @@ class SubscriptionServiceTest {
     @Mock
     private TransactionMapper transactionMapper;
 
+    @Mock
+    private TransactionWriter transactionWriter;
+
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private AuditLogService auditLogService;
+
+    @Mock
+    private ReceiptStore receiptStore;
+
+    @Spy
+    private ShardRouter shardRouter = new ShardRouter(new ShardMap(List.of("shard0"), 1));
+
     @InjectMocks
     private SubscriptionService subscriptionService;
 
@@ -222,14 +245,14 @@ class SubscriptionServiceTest {
     void testVerifyAndUpdateSubscription_NewSubscription_Success() {
         // Given
         when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(transactionMapper.selectOne(any())).thenReturn(null);
+        when(paymentService.verifyPayment(any())).thenReturn(true);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(null);
         when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(null);
         when(subscriptionMapper.insert(any(Subscription.class))).thenAnswer(invocation -> {
             Subscription sub = invocation.getArgument(0);
             sub.setId(1L);
             return 1;
         });
-        when(transactionMapper.insert(any(Transaction.class))).thenReturn(1);
 
         // When
         SubscriptionDTO result = subscriptionService.verifyAndUpdateSubscription(1L, paymentRequest);
@@ -243,17 +266,18 @@ class SubscriptionServiceTest {
         assertNotNull(result.getExpiryDate());
 
         verify(subscriptionMapper).insert(any(Subscription.class));
-        verify(transactionMapper).insert(any(Transaction.class));
+        verify(transactionWriter).write(any(Transaction.class));
+        verify(transactionWriter).flushCurrentTransaction();
     }
 
     @Test
     void testVerifyAndUpdateSubscription_ExistingSubscription_Updates() {
         // Given
         when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(transactionMapper.selectOne(any())).thenReturn(null);
+        when(paymentService.verifyPayment(any())).thenReturn(true);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(null);
         when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(testSubscription);
         when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(1);
-        when(transactionMapper.insert(any(Transaction.class))).thenReturn(1);
 
         // When
         SubscriptionDTO result = subscriptionService.verifyAndUpdateSubscription(1L, paymentRequest);
@@ -264,7 +288,8 @@ class SubscriptionServiceTest {
         assertEquals("active", result.getStatus());
 
         verify(subscriptionMapper).updateById(any(Subscription.class));
-        verify(transactionMapper).insert(any(Transaction.class));
+        verify(transactionWriter).write(any(Transaction.class));
+        verify(transactionWriter).flushCurrentTransaction();
     }
 
     @Test
@@ -272,12 +297,13 @@ class SubscriptionServiceTest {
         // Given
         Transaction existingTransaction = new Transaction();
         existingTransaction.setId(1L);
+        existingTransaction.setUserId(1L);
         existingTransaction.setPlatformTransactionId("txn-456");
         existingTransaction.setVerificationStatus("verified");
         existingTransaction.setSubscriptionId(1L);
 
         when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(transactionMapper.selectOne(any())).thenReturn(existingTransaction);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(existingTransaction);
         when(subscriptionMapper.selectById(1L)).thenReturn(testSubscription);
 
         // When
@@ -287,8 +313,48 @@ class SubscriptionServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.getId());
 
-        verify(subscriptionMapper, never()).insert(any());
-        verify(subscriptionMapper, never()).updateById(any());
+        verify(subscriptionMapper, never()).insert(any(Subscription.class));
+        verify(subscriptionMapper, never()).updateById(any(Subscription.class));
+    }
+
+    @Test
+    void testVerifyAndUpdateSubscription_TransactionOfOtherUser_Rejected() {
+        // Given: the platform transaction was verified for a user on another shard
+        Transaction existingTransaction = new Transaction();
+        existingTransaction.setId(1L);
+        existingTransaction.setUserId(2L);
+        existingTransaction.setPlatformTransactionId("txn-456");
+        existingTransaction.setVerificationStatus("verified");
+        existingTransaction.setSubscriptionId(9L);
+
+        when(userMapper.selectById(1L)).thenReturn(testUser);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(existingTransaction);
+
+        // When & Then
+        SubscriptionException exception = assertThrows(SubscriptionException.class,
+                () -> subscriptionService.verifyAndUpdateSubscription(1L, paymentRequest));
+
+        assertEquals("TRANSACTION_ALREADY_USED", exception.getErrorCode());
+        verify(subscriptionMapper, never()).selectById(any());
+        verify(subscriptionMapper, never()).insert(any(Subscription.class));
+        verify(transactionWriter, never()).write(any(Transaction.class));
+        verify(paymentService, never()).verifyPayment(any());
+    }
+
+    @Test
+    void testVerifyAndUpdateSubscription_OriginalTransactionOfOtherUser_Rejected() {
+        // Given
+        paymentRequest.setOriginalTransactionId("txn-123");
+        testSubscription.setUserId(2L);
+        when(userMapper.selectById(1L)).thenReturn(testUser);
+        when(paymentService.verifyPayment(paymentRequest)).thenReturn(true);
+        when(subscriptionMapper.findByOriginalTransactionId("txn-123")).thenReturn(testSubscription);
+
+        // When & Then
+        assertThrows(SubscriptionException.class,
+                () -> subscriptionService.verifyAndUpdateSubscription(1L, paymentRequest));
+        verify(subscriptionMapper, never()).updateById(any(Subscription.class));
+        verify(transactionWriter, never()).write(any(Transaction.class));
     }
 
     @Test
@@ -296,14 +362,14 @@ class SubscriptionServiceTest {
         // Given
         paymentRequest.setProductId("com.lightgallery.pro.yearly");
         when(userMapper.selectById(1L)).thenReturn(testUser);
-        when(transactionMapper.selectOne(any())).thenReturn(null);
+        when(paymentService.verifyPayment(any())).thenReturn(true);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(null);
         when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(null);
         when(subscriptionMapper.insert(any(Subscription.class))).thenAnswer(invocation -> {
             Subscription sub = invocation.getArgument(0);
             sub.setId(1L);
             return 1;
         });
-        when(transactionMapper.insert(any(Transaction.class))).thenReturn(1);
 
         // When
         SubscriptionDTO result = subscriptionService.verifyAndUpdateSubscription(1L, paymentRequest);
@@ -385,7 +451,8 @@ class SubscriptionServiceTest {
         assertNotNull(result);
         assertEquals("expired", result.getStatus());
 
-        verify(subscriptionMapper, times(2)).updateById(any(Subscription.class));
+        // Sync timestamp and expiry are written in one conditional update
+        verify(subscriptionMapper, times(1)).updateById(any(Subscription.class));
     }
 
     @Test
@@ -409,4 +476,178 @@ class SubscriptionServiceTest {
 
         verify(subscriptionMapper, never()).updateById(any(Subscription.class));
     }
+
+    @Test
+    void testSyncSubscription_VersionConflict_ReloadsAndRetries() {
+        // Given
+        SubscriptionSyncRequest syncRequest = SubscriptionSyncRequest.builder()
+                .platform("ios")
+                .forceRefresh(true)
+                .build();
+
+        testSubscription.setVersion(1);
+        Subscription reloaded = copyOf(testSubscription);
+        reloaded.setVersion(2);
+        reloaded.setTier("max");
+        when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(testSubscription);
+        when(subscriptionMapper.selectById(1L)).thenReturn(reloaded);
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(0, 1);
+
+        // When
+        SubscriptionDTO result = subscriptionService.syncSubscription(1L, syncRequest);
+
+        // Then: the change is re-applied on top of the concurrent write
+        assertEquals("max", result.getTier());
+        verify(subscriptionMapper).updateById(testSubscription);
+        verify(subscriptionMapper).updateById(reloaded);
+    }
+
+    @Test
+    void testSyncSubscription_PersistentConflict_GivesUpAfterMaxAttempts() {
+        // Given
+        SubscriptionSyncRequest syncRequest = SubscriptionSyncRequest.builder()
+                .platform("ios")
+                .forceRefresh(true)
+                .build();
+
+        when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(testSubscription);
+        when(subscriptionMapper.selectById(1L)).thenAnswer(invocation -> copyOf(testSubscription));
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(0);
+
+        // When / Then
+        assertThrows(OptimisticLockingFailureException.class,
+                () -> subscriptionService.syncSubscription(1L, syncRequest));
+        verify(subscriptionMapper, times(SubscriptionService.MAX_UPDATE_ATTEMPTS))
+                .updateById(any(Subscription.class));
+    }
+
+    @Test
+    void testGetCurrentSubscription_ExpiredButRenewedConcurrently_KeepsRenewal() {
+        // Given
+        testSubscription.setExpiryDate(LocalDateTime.now().minusDays(1)); // Expired
+        Subscription renewed = copyOf(testSubscription);
+        renewed.setExpiryDate(LocalDateTime.now().plusMonths(1));
+        when(userMapper.selectById(1L)).thenReturn(testUser);
+        when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(testSubscription);
+        when(subscriptionMapper.selectById(1L)).thenReturn(renewed);
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(0);
+
+        // When
+        SubscriptionDTO result = subscriptionService.getCurrentSubscription(1L);
+
+        // Then: the renewal that won is not overwritten with "expired"
+        assertEquals("active", result.getStatus());
+        assertEquals(renewed.getExpiryDate(), result.getExpiryDate());
+        verify(subscriptionMapper, times(1)).updateById(any(Subscription.class));
+    }
+
+    @Test
+    void testGrantVerifiedTransaction_RunningSameTier_ExtendsFromExpiry() {
+        // Given
+        LocalDateTime expiry = testSubscription.getExpiryDate();
+        when(subscriptionMapper.findAllByUserId(1L)).thenReturn(List.of(testSubscription));
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(1);
+
+        // When
+        Subscription result = subscriptionService.grantVerifiedTransaction(verifiedTransaction("pro", "monthly"));
+
+        // Then: the paid month is added after the one already running
+        assertEquals(1L, result.getId());
+        assertEquals(expiry.plusMonths(1), result.getExpiryDate());
+        assertEquals("active", result.getStatus());
+        verify(subscriptionMapper, never()).insert(any(Subscription.class));
+    }
+
+    @Test
+    void testGrantVerifiedTransaction_Lapsed_ExtendsFromNow() {
+        // Given
+        testSubscription.setStatus("cancelled");
+        testSubscription.setExpiryDate(LocalDateTime.now().minusDays(10));
+        when(subscriptionMapper.findAllByUserId(1L)).thenReturn(List.of(testSubscription));
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(1);
+
+        // When
+        Subscription result = subscriptionService.grantVerifiedTransaction(verifiedTransaction("max", "yearly"));
+
+        // Then
+        assertEquals("active", result.getStatus());
+        assertEquals("max", result.getTier());
+        assertEquals("yearly", result.getBillingPeriod());
+        assertTrue(result.getExpiryDate().isAfter(LocalDateTime.now().plusMonths(11)));
+        assertTrue(result.getExpiryDate().isBefore(LocalDateTime.now().plusMonths(13)));
+    }
+
+    @Test
+    void testGrantVerifiedTransaction_NoSubscription_Inserts() {
+        // Given
+        when(subscriptionMapper.findAllByUserId(1L)).thenReturn(List.of());
+        when(subscriptionMapper.insert(any(Subscription.class))).thenAnswer(invocation -> {
+            Subscription sub = invocation.getArgument(0);
+            sub.setId(7L);
+            return 1;
+        });
+
+        // When
+        Subscription result = subscriptionService.grantVerifiedTransaction(verifiedTransaction("pro", "monthly"));
+
+        // Then
+        assertEquals(7L, result.getId());
+        assertEquals(1L, result.getUserId());
+        assertEquals("wechat_pay", result.getPaymentMethod());
+        assertEquals("wx-1", result.getOriginalTransactionId());
+        assertTrue(result.getExpiryDate().isAfter(LocalDateTime.now().plusDays(27)));
+        verify(subscriptionMapper, never()).updateById(any(Subscription.class));
+    }
+
+    @Test
+    void testVerifyAndUpdateSubscription_RecordsVerifiedTransaction() {
+        // Given
+        when(userMapper.selectById(1L)).thenReturn(testUser);
+        when(transactionMapper.findByPlatformTransactionId(any())).thenReturn(null);
+        when(subscriptionMapper.findActiveByUserId(1L)).thenReturn(testSubscription);
+        when(subscriptionMapper.updateById(any(Subscription.class))).thenReturn(1);
+        when(paymentService.verifyPayment(paymentRequest)).thenReturn(true);
+
+        // When
+        subscriptionService.verifyAndUpdateSubscription(1L, paymentRequest);
+
+        // Then
+        ArgumentCaptor<Transaction> captor = ArgumentCaptor.forClass(Transaction.class);
+        InOrder inOrder = inOrder(transactionWriter);
+        inOrder.verify(transactionWriter).write(captor.capture());
+        inOrder.verify(transactionWriter).flushCurrentTransaction();
+        assertEquals(Transaction.STATUS_VERIFIED, captor.getValue().getVerificationStatus());
+        assertEquals("pro", captor.getValue().getTier());
+        assertEquals("monthly", captor.getValue().getBillingPeriod());
+    }
+
+    private static Transaction verifiedTransaction(String tier, String billingPeriod) {
+        Transaction transaction = new Transaction();
+        transaction.setId(10L);
+        transaction.setUserId(1L);
+        transaction.setPaymentMethod("wechat_pay");
+        transaction.setPlatformTransactionId("wx-1");
+        transaction.setVerificationStatus(Transaction.STATUS_FAILED);
+        transaction.setTier(tier);
+        transaction.setBillingPeriod(billingPeriod);
+        return transaction;
+    }
+
+    private static Subscription copyOf(Subscription source) {
+        Subscription copy = new Subscription();
+        copy.setId(source.getId());
+        copy.setUserId(source.getUserId());
+        copy.setTier(source.getTier());
+        copy.setBillingPeriod(source.getBillingPeriod());
+        copy.setStatus(source.getStatus());
+        copy.setPaymentMethod(source.getPaymentMethod());
+        copy.setStartDate(source.getStartDate());
+        copy.setExpiryDate(source.getExpiryDate());
+        copy.setAutoRenew(source.getAutoRenew());
+        copy.setProductId(source.getProductId());
+        copy.setOriginalTransactionId(source.getOriginalTransactionId());
+        copy.setLastSyncedAt(source.getLastSyncedAt());
+        copy.setVersion(source.getVersion());
+        return copy;
+    }
 }
@@ -0,0 +1,119 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.datasource.ShardMap;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TransactionArchiveService
+ * Tests chunked copy-then-delete archival and the per-chunk database transaction
+ */
+class TransactionArchiveServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 8, 0);
+    private static final LocalDateTime CUTOFF = NOW.minusDays(365);
+
+    private TransactionMapper transactionMapper;
+    private PlatformTransactionManager transactionManager;
+    private SimpleMeterRegistry meterRegistry;
+    private ShardRouter shardRouter;
+
+    @BeforeEach
+    void setUp() {
+        transactionMapper = mock(TransactionMapper.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        meterRegistry = new SimpleMeterRegistry();
+        shardRouter = new ShardRouter(new ShardMap(List.of("shard0"), 1));
+        when(transactionMapper.copyToArchive(anyList(), any()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        when(transactionMapper.deleteArchived(anyList()))
+                .thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+    }
+
+    @Test
+    void testArchive_CopiesThenDeletesEachChunk() {
+        when(transactionMapper.findArchivableIds(0L, CUTOFF, 2)).thenReturn(List.of(3L, 7L));
+        when(transactionMapper.findArchivableIds(7L, CUTOFF, 2)).thenReturn(List.of(8L));
+
+        long archived = newService(10).archive();
+
+        assertEquals(3, archived);
+        InOrder inOrder = inOrder(transactionMapper);
+        inOrder.verify(transactionMapper).copyToArchive(List.of(3L, 7L), CUTOFF);
+        inOrder.verify(transactionMapper).deleteArchived(List.of(3L, 7L));
+        inOrder.verify(transactionMapper).copyToArchive(List.of(8L), CUTOFF);
+        inOrder.verify(transactionMapper).deleteArchived(List.of(8L));
+        verify(transactionManager, times(2)).commit(any());
+
+        assertEquals(3.0, meterRegistry.get("transactions.archived").counter().count());
+        assertEquals(2, meterRegistry.get("transactions.archive.chunk").timer().count());
+    }
+
+    @Test
+    void testArchive_StopsAtMaxChunksPerRun() {
+        when(transactionMapper.findArchivableIds(anyLong(), any(), eq(2)))
+                .thenAnswer(invocation -> {
+                    long after = invocation.getArgument(0);
+                    return List.of(after + 1, after + 2);
+                });
+
+        assertEquals(6, newService(3).archive());
+        verify(transactionMapper, times(3)).deleteArchived(anyList());
+    }
+
+    @Test
+    void testArchive_FailedChunkRollsBack() {
+        when(transactionMapper.findArchivableIds(0L, CUTOFF, 2)).thenReturn(List.of(3L, 7L));
+        when(transactionMapper.deleteArchived(anyList())).thenThrow(new RuntimeException("lock wait timeout"));
+
+        TransactionArchiveService service = newService(10);
+
+        assertThrows(RuntimeException.class, service::archive);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        assertEquals(0.0, meterRegistry.get("transactions.archived").counter().count());
+    }
+
+    @Test
+    void testArchive_WalksEveryShardFromTheStart() {
+        shardRouter = new ShardRouter(new ShardMap(List.of("shard0", "shard1"), 16));
+        when(transactionMapper.findArchivableIds(0L, CUTOFF, 2))
+                .thenReturn(List.of(3L))
+                .thenReturn(List.of(5L));
+
+        assertEquals(2, newService(10).archive());
+        verify(transactionMapper, times(2)).findArchivableIds(0L, CUTOFF, 2);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void testArchive_NothingToArchive() {
+        when(transactionMapper.findArchivableIds(anyLong(), any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, newService(10).archive());
+        verify(transactionMapper, never()).copyToArchive(anyList(), any());
+        verifyNoInteractions(transactionManager);
+    }
+
+    private TransactionArchiveService newService(int maxChunksPerRun) {
+        Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        return new TransactionArchiveService(transactionMapper, new TransactionTemplate(transactionManager),
+                shardRouter, meterRegistry, clock, Duration.ofDays(365), 2, Duration.ZERO, maxChunksPerRun);
+    }
+}
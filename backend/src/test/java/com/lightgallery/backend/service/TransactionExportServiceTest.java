@@ -0,0 +1,212 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TransactionExportService
+ * Tests CSV/NDJSON output, gzip, archive tier selection and streaming many rows
+ */
+class TransactionExportServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 8, 0);
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 9, 1, 0, 0);
+    private static final LocalDateTime TO = LocalDateTime.of(2026, 10, 1, 0, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private TransactionMapper transactionMapper;
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionExportService service;
+
+    @BeforeEach
+    void setUp() {
+        transactionMapper = mock(TransactionMapper.class);
+        meterRegistry = new SimpleMeterRegistry();
+        Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        service = new TransactionExportService(transactionMapper, new ObjectMapper(), meterRegistry, clock,
+                Duration.ofDays(365), true, tempDir);
+    }
+
+    @Test
+    void testCsvExport_EscapesFieldsAndReadsHotTableOnly() throws IOException {
+        Transaction quoted = transaction(2L);
+        quoted.setPlatformTransactionId("a,\"b\"");
+        stream(List.of(transaction(1L), quoted));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TransactionExportService.ExportResult result = service.export(FROM, TO, null,
+                TransactionExportService.Format.CSV, false, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].startsWith("id,user_id,subscription_id,transaction_type"));
+        assertEquals("1,7,3,purchase,alipay,10.00,CNY,tx-1,verified,pro,monthly,2026-09-15T12:00", lines[1]);
+        assertTrue(lines[2].contains(",\"a,\"\"b\"\"\",verified,"));
+        assertEquals(2, result.rows());
+        assertEquals(out.size(), result.bytes());
+        assertEquals(2.0, meterRegistry.get("transactions.export.rows").counter().count());
+        verify(transactionMapper, never()).streamArchivedForExport(any(), any(), any(), any());
+    }
+
+    @Test
+    void testNdjsonGzipExport_OneTypedObjectPerLine() throws IOException {
+        stream(List.of(transaction(1L), transaction(2L)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(FROM, TO, " Alipay ", TransactionExportService.Format.NDJSON, true, out);
+
+        String text = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        String[] lines = text.split("\n");
+        assertEquals(2, lines.length);
+        JsonNode row = new ObjectMapper().readTree(lines[0]);
+        assertEquals(1L, row.get("id").asLong());
+        assertTrue(row.get("amount").isNumber());
+        assertEquals("tx-1", row.get("platform_transaction_id").asText());
+        verify(transactionMapper).streamForExport(eq(FROM), eq(TO), eq("alipay"), any());
+    }
+
+    @Test
+    void testRangePastHorizon_ExportsArchiveFirst() throws IOException {
+        LocalDateTime from = NOW.minusYears(2);
+        doAnswer(invocation -> {
+            handle(invocation.getArgument(3), transaction(1L));
+            return null;
+        }).when(transactionMapper).streamArchivedForExport(eq(from), eq(TO), isNull(), any());
+        doAnswer(invocation -> {
+            handle(invocation.getArgument(3), transaction(9L));
+            return null;
+        }).when(transactionMapper).streamForExport(eq(from), eq(TO), isNull(), any());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(from, TO, null, TransactionExportService.Format.CSV, false, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertTrue(lines[1].startsWith("1,"));
+        assertTrue(lines[2].startsWith("9,"));
+    }
+
+    @Test
+    void testLargeExport_StreamsWithoutRetainingRows() throws IOException {
+        int rows = 200_000;
+        doAnswer(invocation -> {
+            ResultHandler<Transaction> handler = invocation.getArgument(3);
+            Transaction row = transaction(0L);
+            for (long id = 1; id <= rows; id++) {
+                row.setId(id);
+                handle(handler, row);
+            }
+            return null;
+        }).when(transactionMapper).streamForExport(any(), any(), any(), any());
+
+        CountingSink sink = new CountingSink();
+        TransactionExportService.ExportResult result = service.export(FROM, TO, null,
+                TransactionExportService.Format.CSV, true, sink);
+
+        assertEquals(rows, result.rows());
+        assertEquals(sink.bytes, result.bytes());
+        assertTrue(result.rowsPerSecond() > 0);
+    }
+
+    @Test
+    void testExportToFile_WritesGzipFile() throws IOException {
+        stream(List.of(transaction(1L)));
+
+        Path file = service.exportToFile(FROM, TO, "alipay", TransactionExportService.Format.CSV);
+
+        assertEquals("transactions-20260901T0000-20261001T0000-alipay.csv.gz", file.getFileName().toString());
+        try (GZIPInputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertEquals(2, new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\r\n").length);
+        }
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void testInvalidRequests_Rejected() {
+        OutputStream out = new ByteArrayOutputStream();
+        assertThrows(IllegalArgumentException.class,
+                () -> service.export(TO, FROM, null, TransactionExportService.Format.CSV, false, out));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.export(FROM, TO, "alipay'--", TransactionExportService.Format.CSV, false, out));
+        assertThrows(IllegalArgumentException.class, () -> TransactionExportService.Format.parse("xlsx"));
+        assertEquals(TransactionExportService.Format.NDJSON, TransactionExportService.Format.parse("NDJSON"));
+        verifyNoInteractions(transactionMapper);
+    }
+
+    private void stream(List<Transaction> transactions) {
+        doAnswer(invocation -> {
+            ResultHandler<Transaction> handler = invocation.getArgument(3);
+            transactions.forEach(t -> handle(handler, t));
+            return null;
+        }).when(transactionMapper).streamForExport(any(), any(), any(), any());
+    }
+
+    private static void handle(ResultHandler<Transaction> handler, Transaction transaction) {
+        DefaultResultContext<Transaction> context = new DefaultResultContext<>();
+        context.nextResultObject(transaction);
+        handler.handleResult(context);
+    }
+
+    private static Transaction transaction(Long id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setUserId(7L);
+        transaction.setSubscriptionId(3L);
+        transaction.setTransactionType("purchase");
+        transaction.setPaymentMethod("alipay");
+        transaction.setAmount(new BigDecimal("10.00"));
+        transaction.setCurrency("CNY");
+        transaction.setPlatformTransactionId("tx-" + id);
+        transaction.setVerificationStatus("verified");
+        transaction.setTier("pro");
+        transaction.setBillingPeriod("monthly");
+        transaction.setCreatedAt(LocalDateTime.of(2026, 9, 15, 12, 0));
+        return transaction;
+    }
+
+    private static final class CountingSink extends OutputStream {
+
+        private long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
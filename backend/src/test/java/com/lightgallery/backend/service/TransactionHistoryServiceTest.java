@@ -0,0 +1,129 @@
+package com.lightgallery.backend.service;
+
+import com.lightgallery.backend.dto.KeysetCursor;
+import com.lightgallery.backend.dto.TransactionHistoryPage;
+import com.lightgallery.backend.dto.TransactionSummary;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for TransactionHistoryService
+ * Tests that the archive tier is only read when a query reaches past the horizon, and keyset
+ * paging of the user-facing history
+ */
+class TransactionHistoryServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 8, 0);
+
+    private TransactionMapper transactionMapper;
+    private TransactionHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        transactionMapper = mock(TransactionMapper.class);
+        Clock clock = Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        service = new TransactionHistoryService(transactionMapper, clock, Duration.ofDays(365));
+    }
+
+    @Test
+    void testDateRange_WithinHorizon_ReadsHotTableOnly() {
+        LocalDateTime start = NOW.minusDays(30);
+        when(transactionMapper.findByUserIdAndDateRange(1L, start, NOW)).thenReturn(List.of(new Transaction()));
+
+        assertEquals(1, service.findByUserIdAndDateRange(1L, start, NOW).size());
+        verify(transactionMapper, never()).findByUserIdAndDateRangeWithArchive(anyLong(), any(), any());
+    }
+
+    @Test
+    void testDateRange_PastHorizon_UnionsArchive() {
+        LocalDateTime start = NOW.minusDays(400);
+
+        service.findByUserIdAndDateRange(1L, start, NOW);
+
+        verify(transactionMapper).findByUserIdAndDateRangeWithArchive(1L, start, NOW);
+        verify(transactionMapper, never()).findByUserIdAndDateRange(anyLong(), any(), any());
+    }
+
+    @Test
+    void testVerificationStatus_PendingIsNeverArchived() {
+        service.findByVerificationStatus("pending");
+        service.findByVerificationStatus("verified");
+
+        verify(transactionMapper).findByVerificationStatus("pending");
+        verify(transactionMapper).findByVerificationStatusWithArchive("verified");
+        verify(transactionMapper, never()).findByVerificationStatusWithArchive("pending");
+    }
+
+    @Test
+    void testCountByPaymentMethod_SumsBothTiers() {
+        when(transactionMapper.countByPaymentMethod("alipay")).thenReturn(5L);
+        when(transactionMapper.countArchivedByPaymentMethod("alipay")).thenReturn(40L);
+
+        assertEquals(45, service.countByPaymentMethod("alipay"));
+    }
+
+    @Test
+    void testFindByPlatformTransactionId_FallsBackToArchive() {
+        Transaction archived = new Transaction();
+        archived.setPlatformTransactionId("tx-1");
+        when(transactionMapper.findArchivedByPlatformTransactionId("tx-1")).thenReturn(archived);
+
+        assertSame(archived, service.findByPlatformTransactionId("tx-1"));
+    }
+
+    @Test
+    void testFindPage_FirstPage_FetchesOneExtraRowAndReturnsCursor() {
+        when(transactionMapper.findSummaryPage(1L, null, null, 3)).thenReturn(List.of(
+                summary(30L, NOW), summary(20L, NOW.minusDays(1)), summary(10L, NOW.minusDays(2))));
+
+        TransactionHistoryPage page = service.findPage(1L, null, 2);
+
+        assertEquals(2, page.getTransactions().size());
+        assertEquals(new KeysetCursor(NOW.minusDays(1), 20L), KeysetCursor.decode(page.getNextCursor()));
+    }
+
+    @Test
+    void testFindPage_ContinuesAfterCursor_LastPageHasNoCursor() {
+        LocalDateTime cursorAt = NOW.minusDays(1);
+        when(transactionMapper.findSummaryPage(1L, cursorAt, 20L, 3))
+                .thenReturn(List.of(summary(10L, NOW.minusDays(2))));
+
+        TransactionHistoryPage page = service.findPage(1L, new KeysetCursor(cursorAt, 20L).encode(), 2);
+
+        assertEquals(1, page.getTransactions().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testFindPage_CapsPageSize() {
+        when(transactionMapper.findSummaryPage(anyLong(), any(), any(), anyInt())).thenReturn(List.of());
+
+        service.findPage(1L, null, 10_000);
+        service.findPage(1L, null, 0);
+
+        verify(transactionMapper).findSummaryPage(1L, null, null, TransactionHistoryService.MAX_PAGE_SIZE + 1);
+        verify(transactionMapper).findSummaryPage(1L, null, null, 2);
+    }
+
+    @Test
+    void testFindPage_MalformedCursor_Rejected() {
+        assertThrows(IllegalArgumentException.class, () -> service.findPage(1L, "bm90LWEtY3Vyc29y", 20));
+        verifyNoInteractions(transactionMapper);
+    }
+
+    private static TransactionSummary summary(Long id, LocalDateTime createdAt) {
+        return TransactionSummary.builder().id(id).createdAt(createdAt).build();
+    }
+}
@@ -0,0 +1,321 @@
+package com.lightgallery.backend.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.lightgallery.backend.datasource.ShardMap;
+import com.lightgallery.backend.datasource.ShardRouter;
+import com.lightgallery.backend.entity.Transaction;
+import com.lightgallery.backend.mapper.TransactionMapper;
+import com.lightgallery.backend.perf.EmbeddedSchemaTranslator;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mybatis.spring.transaction.SpringManagedTransactionFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TransactionWriter
+ * Runs the MyBatis-Plus batch insert against the translated schema on an in-memory H2 database,
+ * including failure isolation within a batch and shutdown of the flusher
+ */
+@Slf4j
+class TransactionWriterTest {
+
+    private JdbcDataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private SqlSessionFactory sqlSessionFactory;
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionWriter writer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1");
+        String script = new ClassPathResource("schema.sql").getContentAsString(StandardCharsets.UTF_8);
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            for (String sql : EmbeddedSchemaTranslator.translate(script).tables()) {
+                statement.execute(sql);
+            }
+        }
+
+        MybatisConfiguration configuration = new MybatisConfiguration(
+                new Environment("test", new SpringManagedTransactionFactory(), dataSource));
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.addMapper(TransactionMapper.class);
+        sqlSessionFactory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        meterRegistry = new SimpleMeterRegistry();
+        writer = newWriter(Duration.ofMillis(200), 100);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+    }
+
+    @Test
+    void testInsertBatch_InsertsRowsAndSetsIds() throws Exception {
+        List<Transaction> transactions = List.of(transaction("tx-1"), transaction("tx-2"), transaction("tx-3"));
+
+        assertEquals(3, writer.insertBatch(transactions));
+
+        assertTrue(transactions.stream().allMatch(t -> t.getId() != null));
+        assertEquals(3, transactions.stream().map(Transaction::getId).distinct().count());
+        assertEquals(3, count());
+        DistributionSummary batchSizes = meterRegistry.get("transactions.writer.batch.size").summary();
+        assertEquals(1, batchSizes.count());
+        assertEquals(3, batchSizes.totalAmount());
+    }
+
+    @Test
+    void testInsertBatch_EmptyDoesNothing() {
+        assertEquals(0, writer.insertBatch(List.of()));
+        assertEquals(0, meterRegistry.get("transactions.writer.batch.size").summary().count());
+    }
+
+    @Test
+    void testWrite_InsideTransactionFlushesOneBatchOnCommit() throws Exception {
+        Transaction first = transaction("tx-1");
+        Transaction second = transaction("tx-2");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            writer.write(first);
+            writer.write(second);
+            assertNull(first.getId());
+        });
+
+        assertNotNull(first.getId());
+        assertNotNull(second.getId());
+        assertEquals(2, count());
+        DistributionSummary batchSizes = meterRegistry.get("transactions.writer.batch.size").summary();
+        assertEquals(1, batchSizes.count());
+        assertEquals(2, batchSizes.max());
+    }
+
+    @Test
+    void testWrite_InsideTransactionRollsBackWithIt() throws Exception {
+        Transaction transaction = transaction("tx-1");
+
+        transactionTemplate.executeWithoutResult(status -> {
+            writer.write(transaction);
+            status.setRollbackOnly();
+        });
+
+        assertNull(transaction.getId());
+        assertEquals(0, count());
+    }
+
+    @Test
+    void testFlushCurrentTransaction_InsertsBeforeCommit() throws Exception {
+        Transaction first = transaction("tx-1");
+        Transaction invalid = transaction("tx-2");
+        invalid.setUserId(null);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            writer.write(first);
+            writer.flushCurrentTransaction();
+            assertNotNull(first.getId());
+
+            // An insert failure is raised in the caller, not at commit
+            writer.write(invalid);
+            assertThrows(RuntimeException.class, writer::flushCurrentTransaction);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, count());
+    }
+
+    @Test
+    void testSubmit_GroupsConcurrentWritesIntoOneBatch() throws Exception {
+        List<CompletableFuture<Transaction>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            results.add(writer.submit(transaction("tx-" + i)));
+        }
+
+        for (CompletableFuture<Transaction> result : results) {
+            assertNotNull(result.join().getId());
+        }
+        assertEquals(5, count());
+        DistributionSummary batchSizes = meterRegistry.get("transactions.writer.batch.size").summary();
+        assertEquals(1, batchSizes.count());
+        assertEquals(5, batchSizes.max());
+    }
+
+    @Test
+    void testWrite_OutsideTransactionWaitsForItsBatch() throws Exception {
+        Transaction transaction = transaction("tx-1");
+
+        writer.write(transaction);
+
+        assertNotNull(transaction.getId());
+        assertEquals(1, count());
+    }
+
+    @Test
+    void testSubmit_FailedBatchFailsOnlyTheBadRow() throws Exception {
+        Transaction valid = transaction("tx-1");
+        Transaction invalid = transaction("tx-2");
+        invalid.setUserId(null);
+        Transaction alsoValid = transaction("tx-3");
+
+        CompletableFuture<Transaction> first = writer.submit(valid);
+        CompletableFuture<Transaction> second = writer.submit(invalid);
+        CompletableFuture<Transaction> third = writer.submit(alsoValid);
+
+        assertNotNull(first.join().getId());
+        assertThrows(CompletionException.class, second::join);
+        assertNotNull(third.join().getId());
+        assertEquals(2, count());
+    }
+
+    @Test
+    void testFlusherInterrupted_WritesQueuedRows() throws Exception {
+        writer.stop();
+        writer = newWriter(Duration.ofSeconds(5), 100);
+        Set<Thread> existing = flusherThreads();
+        writer.start();
+        Thread flusher = flusherThreads().stream()
+                .filter(thread -> !existing.contains(thread))
+                .findFirst()
+                .orElseThrow();
+        CompletableFuture<Transaction> first = writer.submit(transaction("tx-1"));
+        CompletableFuture<Transaction> second = writer.submit(transaction("tx-2"));
+
+        flusher.interrupt();
+
+        assertNotNull(first.get(5, TimeUnit.SECONDS).getId());
+        assertNotNull(second.get(5, TimeUnit.SECONDS).getId());
+        assertEquals(2, count());
+
+        // With the flusher gone, callers insert their own rows
+        Transaction later = transaction("tx-3");
+        writer.write(later);
+        assertNotNull(later.getId());
+    }
+
+    @Test
+    void testWrite_TimesOutInsteadOfWaitingForever() throws Exception {
+        writer.stop();
+        writer = new TransactionWriter(sqlSessionFactory, transactionTemplate,
+                new ShardRouter(new ShardMap(List.of("shard0"), 1)), meterRegistry, Duration.ofSeconds(5), 100, 1000,
+                Duration.ofMillis(100));
+        writer.start();
+
+        long start = System.nanoTime();
+        assertThrows(IllegalStateException.class, () -> writer.write(transaction("tx-1")));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    void testSubmit_AfterStopInsertsImmediately() throws Exception {
+        writer.stop();
+
+        CompletableFuture<Transaction> result = writer.submit(transaction("tx-1"));
+
+        assertTrue(result.isDone());
+        assertNotNull(result.join().getId());
+        assertEquals(1, count());
+    }
+
+    @Test
+    void testStop_DrainsQueuedWrites() throws Exception {
+        writer.stop();
+        writer = newWriter(Duration.ofSeconds(5), 100);
+        writer.start();
+        CompletableFuture<Transaction> result = writer.submit(transaction("tx-1"));
+
+        writer.stop();
+
+        assertTrue(result.isDone());
+        assertEquals(1, count());
+    }
+
+    /**
+     * Insert throughput by batch size
+     * Opt-in: mvn test -Dtest=TransactionWriterTest -Dwriter.benchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "writer.benchmark", matches = "true")
+    void benchmarkInsertThroughput() {
+        int rows = 20_000;
+        for (int batchSize : new int[]{1, 10, 100}) {
+            TransactionWriter benchmarkWriter = newWriter(Duration.ZERO, batchSize);
+            long start = System.nanoTime();
+            for (int offset = 0; offset < rows; offset += batchSize) {
+                List<Transaction> batch = new ArrayList<>(batchSize);
+                for (int i = 0; i < batchSize; i++) {
+                    batch.add(transaction("bench-" + batchSize + "-" + (offset + i)));
+                }
+                transactionTemplate.executeWithoutResult(status -> benchmarkWriter.insertBatch(batch));
+            }
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            log.info("batch size {}: {} rows/s", batchSize, String.format("%,.0f", rows / seconds));
+        }
+    }
+
+    private TransactionWriter newWriter(Duration linger, int maxBatchSize) {
+        return new TransactionWriter(sqlSessionFactory, transactionTemplate,
+                new ShardRouter(new ShardMap(List.of("shard0"), 1)), meterRegistry, linger, maxBatchSize, 1000,
+                Duration.ofSeconds(30));
+    }
+
+    private static Set<Thread> flusherThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("transaction-writer") && thread.isAlive())
+                .collect(Collectors.toSet());
+    }
+
+    private Transaction transaction(String platformTransactionId) {
+        Transaction transaction = new Transaction();
+        transaction.setUserId(1L);
+        transaction.setSubscriptionId(1L);
+        transaction.setTransactionType("purchase");
+        transaction.setPaymentMethod("apple_iap");
+        transaction.setAmount(new BigDecimal("68.00"));
+        transaction.setCurrency("CNY");
+        transaction.setPlatformTransactionId(platformTransactionId);
+        transaction.setVerificationStatus("verified");
+        transaction.setTier("pro");
+        transaction.setBillingPeriod("monthly");
+        transaction.setCreatedAt(LocalDateTime.now());
+        transaction.setUpdatedAt(LocalDateTime.now());
+        return transaction;
+    }
+
+    private long count() throws Exception {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM transactions")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.lightgallery.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.dto.OAuthProfile;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for WeChatOAuthService
+ * Tests code exchange, typed user info mapping and the per-openid profile cache
+ */
+class WeChatOAuthServiceTest {
+
+    private static final String TOKEN_RESPONSE = """
+            {"access_token":"ACCESS","expires_in":7200,"refresh_token":"REFRESH",
+             "openid":"openid-123","scope":"snsapi_userinfo"}""";
+    private static final String USER_INFO_RESPONSE = """
+            {"openid":"openid-123","nickname":"微信用户","sex":1,
+             "headimgurl":"https://thirdwx.qlogo.cn/avatar.png","privilege":[]}""";
+
+    private RestTemplate restTemplate;
+    private MutableClock clock;
+    private WeChatOAuthService weChatOAuthService;
+    private final AtomicInteger userInfoCalls = new AtomicInteger();
+    private String tokenResponse = TOKEN_RESPONSE;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        when(restTemplate.getForObject(any(URI.class), eq(String.class))).thenAnswer(invocation -> {
+            URI uri = invocation.getArgument(0);
+            if (uri.getPath().endsWith("/userinfo")) {
+                userInfoCalls.incrementAndGet();
+                return USER_INFO_RESPONSE;
+            }
+            return tokenResponse;
+        });
+
+        clock = new MutableClock();
+        ProviderCallGuard providerCallGuard = new ProviderCallGuard(
+                CircuitBreakerRegistry.ofDefaults(), BulkheadRegistry.ofDefaults());
+        weChatOAuthService = new WeChatOAuthService(restTemplate, providerCallGuard, new ObjectMapper(),
+                clock, Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(weChatOAuthService, "appId", "wx-app");
+        ReflectionTestUtils.setField(weChatOAuthService, "appSecret", "secret");
+    }
+
+    @Test
+    void testAuthenticate_ReturnsProfileFromUserInfo() {
+        OAuthProfile profile = weChatOAuthService.authenticate("code", "openid-123");
+
+        assertNotNull(profile);
+        assertEquals("openid-123", profile.getProviderUserId());
+        assertEquals("微信用户", profile.getDisplayName());
+        assertEquals("https://thirdwx.qlogo.cn/avatar.png", profile.getAvatarUrl());
+    }
+
+    @Test
+    void testAuthenticate_ProfileCachedPerOpenid() {
+        weChatOAuthService.authenticate("code-1", null);
+        OAuthProfile second = weChatOAuthService.authenticate("code-2", null);
+
+        assertEquals("微信用户", second.getDisplayName());
+        assertEquals(1, userInfoCalls.get());
+
+        clock.advance(Duration.ofMinutes(11));
+        weChatOAuthService.authenticate("code-3", null);
+        assertEquals(2, userInfoCalls.get());
+    }
+
+    @Test
+    void testAuthenticate_BaseScope_SkipsUserInfo() {
+        tokenResponse = TOKEN_RESPONSE.replace("snsapi_userinfo", "snsapi_base");
+
+        OAuthProfile profile = weChatOAuthService.authenticate("code", "openid-123");
+
+        assertEquals("openid-123", profile.getProviderUserId());
+        assertNull(profile.getDisplayName());
+        assertEquals(0, userInfoCalls.get());
+    }
+
+    @Test
+    void testAuthenticate_InvalidCodeOrMismatch_Rejected() {
+        assertNull(weChatOAuthService.authenticate("code", "someone-else"));
+
+        tokenResponse = "{\"errcode\":40029,\"errmsg\":\"invalid code\"}";
+        assertNull(weChatOAuthService.authenticate("bad-code", "openid-123"));
+        assertFalse(weChatOAuthService.validateToken("bad-code", "openid-123"));
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.lightgallery.backend.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lightgallery.backend.exception.PaymentVerificationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AppleJwsVerifier
+ * Uses a locally generated certificate chain in place of Apple's
+ */
+class AppleJwsVerifierTest {
+
+    private AppleTestCertificates certificates;
+    private AppleJwsVerifier verifier;
+
+    @BeforeEach
+    void setUp() {
+        certificates = new AppleTestCertificates();
+        verifier = new AppleJwsVerifier(new ObjectMapper(), certificates.getRoot());
+    }
+
+    @Test
+    void testVerifyAndDecode_ValidJws_ReturnsPayload() {
+        String jws = certificates.sign(Map.of("productId", "com.lightgallery.pro.monthly"));
+
+        JsonNode payload = verifier.verifyAndDecode(jws);
+
+        assertEquals("com.lightgallery.pro.monthly", payload.path("productId").asText());
+        // Second verification takes the cached chain path
+        assertEquals("com.lightgallery.pro.monthly",
+                verifier.verifyAndDecode(jws).path("productId").asText());
+    }
+
+    @Test
+    void testVerifyAndDecode_TamperedPayload_Rejected() {
+        String jws = certificates.sign(Map.of("productId", "com.lightgallery.pro.monthly"));
+        String[] parts = jws.split("\\.");
+        String forged = java.util.Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"productId\":\"com.lightgallery.max.yearly\"}".getBytes());
+
+        assertThrows(PaymentVerificationException.class, () ->
+                verifier.verifyAndDecode(parts[0] + "." + forged + "." + parts[2]));
+    }
+
+    @Test
+    void testVerifyAndDecode_UntrustedRoot_Rejected() {
+        AppleTestCertificates other = new AppleTestCertificates();
+
+        PaymentVerificationException exception = assertThrows(PaymentVerificationException.class, () ->
+                verifier.verifyAndDecode(other.sign(Map.of("productId", "x"))));
+        assertEquals("INVALID_SIGNATURE", exception.getErrorCode());
+    }
+
+    @Test
+    void testVerifyAndDecode_MissingLeafMarker_Rejected() {
+        AppleTestCertificates noMarker = new AppleTestCertificates(false, true);
+        AppleJwsVerifier markerVerifier = new AppleJwsVerifier(new ObjectMapper(), noMarker.getRoot());
+
+        assertThrows(PaymentVerificationException.class, () ->
+                markerVerifier.verifyAndDecode(noMarker.sign(Map.of("productId", "x"))));
+    }
+
+    @Test
+    void testVerifyAndDecode_RootNotConfigured_Rejected() {
+        AppleJwsVerifier unconfigured = new AppleJwsVerifier(new ObjectMapper(), null);
+
+        assertThrows(PaymentVerificationException.class, () ->
+                unconfigured.verifyAndDecode(certificates.sign(Map.of("productId", "x"))));
+    }
+}
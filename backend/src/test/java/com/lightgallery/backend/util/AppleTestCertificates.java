@@ -0,0 +1,123 @@
+package com.lightgallery.backend.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERNull;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.X509Certificate;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Test certificate authority mimicking Apple's App Store signing chain
+ * Generates a root, a WWDR-style intermediate and an App Store leaf certificate
+ * carrying Apple's marker extensions, and signs ES256 JWS payloads with the leaf key.
+ */
+public class AppleTestCertificates {
+
+    private static final AtomicLong SERIAL = new AtomicLong(System.currentTimeMillis());
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final X509Certificate root;
+    private final X509Certificate intermediate;
+    private final X509Certificate leaf;
+    private final PrivateKey leafKey;
+
+    public AppleTestCertificates() {
+        this(true, true);
+    }
+
+    /**
+     * @param leafMarker Whether the leaf carries the App Store marker extension
+     * @param intermediateMarker Whether the intermediate carries the WWDR marker extension
+     */
+    public AppleTestCertificates(boolean leafMarker, boolean intermediateMarker) {
+        try {
+            KeyPair rootKeys = generateKeyPair();
+            KeyPair intermediateKeys = generateKeyPair();
+            KeyPair leafKeys = generateKeyPair();
+
+            root = issue("CN=Test Apple Root CA", rootKeys, "CN=Test Apple Root CA", rootKeys.getPrivate(),
+                    true, null);
+            intermediate = issue("CN=Test Apple WWDR CA", intermediateKeys, "CN=Test Apple Root CA",
+                    rootKeys.getPrivate(), true,
+                    intermediateMarker ? AppleJwsVerifier.INTERMEDIATE_MARKER_OID : null);
+            leaf = issue("CN=Test App Store Signing", leafKeys, "CN=Test Apple WWDR CA",
+                    intermediateKeys.getPrivate(), false,
+                    leafMarker ? AppleJwsVerifier.LEAF_MARKER_OID : null);
+            leafKey = leafKeys.getPrivate();
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to generate test certificates", e);
+        }
+    }
+
+    public X509Certificate getRoot() {
+        return root;
+    }
+
+    /**
+     * Sign a payload as a compact ES256 JWS with the full x5c chain
+     */
+    public String sign(Object payload) {
+        try {
+            Base64.Encoder encoder = Base64.getEncoder();
+            Map<String, Object> header = new LinkedHashMap<>();
+            header.put("alg", "ES256");
+            header.put("x5c", List.of(
+                    encoder.encodeToString(leaf.getEncoded()),
+                    encoder.encodeToString(intermediate.getEncoded()),
+                    encoder.encodeToString(root.getEncoded())));
+
+            Base64.Encoder urlEncoder = Base64.getUrlEncoder().withoutPadding();
+            String signingInput = urlEncoder.encodeToString(objectMapper.writeValueAsBytes(header)) + "."
+                    + urlEncoder.encodeToString(objectMapper.writeValueAsBytes(payload));
+
+            Signature signature = Signature.getInstance("SHA256withECDSAinP1363Format");
+            signature.initSign(leafKey);
+            signature.update(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + urlEncoder.encodeToString(signature.sign());
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to sign test JWS", e);
+        }
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        return generator.generateKeyPair();
+    }
+
+    private static X509Certificate issue(String subject, KeyPair subjectKeys, String issuer, PrivateKey issuerKey,
+                                         boolean ca, String markerOid) throws Exception {
+        Date notBefore = new Date(System.currentTimeMillis() - 60_000);
+        Date notAfter = new Date(System.currentTimeMillis() + 86_400_000L);
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                new X500Name(issuer), BigInteger.valueOf(SERIAL.incrementAndGet()), notBefore, notAfter,
+                new X500Name(subject), subjectKeys.getPublic());
+        builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(ca));
+        if (markerOid != null) {
+            builder.addExtension(new ASN1ObjectIdentifier(markerOid), false, DERNull.INSTANCE);
+        }
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(issuerKey)));
+    }
+}
@@ -0,0 +1,120 @@
+package com.lightgallery.backend.util;
+
+import net.jqwik.api.Arbitraries;
+import net.jqwik.api.Arbitrary;
+import net.jqwik.api.ForAll;
+import net.jqwik.api.Property;
+import net.jqwik.api.Provide;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LogSanitizer
+ * Checks the single-pass scanner against the regex chain it replaces
+ */
+class LogSanitizerTest {
+
+    /**
+     * Property: sanitize produces exactly what the four regex replacements and truncation produce
+     */
+    @Property(tries = 2000)
+    void sanitizeMatchesRegexChain(@ForAll("messages") String message) {
+        assertEquals(regexSanitize(message), LogSanitizer.sanitize(message));
+    }
+
+    /**
+     * Property: maskTransactionId matches the original substring-based masking
+     */
+    @Property(tries = 500)
+    void maskTransactionIdMatchesOriginal(@ForAll("transactionIds") String transactionId) {
+        assertEquals(originalMask(transactionId), LogSanitizer.maskTransactionId(transactionId));
+    }
+
+    @Test
+    void testSanitize_RedactsEachKind() {
+        String token = "a".repeat(20) + "B".repeat(12);
+        assertEquals("Invalid token [TOKEN_REDACTED]", LogSanitizer.sanitize("Invalid token " + token));
+        assertEquals("card [CARD_REDACTED] declined", LogSanitizer.sanitize("card 4111111111111111 declined"));
+        assertEquals("PassWord=[REDACTED]&user=x", LogSanitizer.sanitize("PassWord=hunter2&user=x"));
+        assertEquals("api_key=[REDACTED] pwd=[REDACTED]", LogSanitizer.sanitize("api_key=abc pwd=def"));
+    }
+
+    @Test
+    void testSanitize_BoundariesAndEdges() {
+        // A token swallows the parameter name, so nothing is left to redact as a password
+        String prefix = "x".repeat(24);
+        assertEquals("[TOKEN_REDACTED]=secret", LogSanitizer.sanitize(prefix + "password=secret"));
+        // Underscore is a word character: no boundary, no redaction
+        assertEquals("_1234567890123", LogSanitizer.sanitize("_1234567890123"));
+        // Twenty digits are neither a card nor a token
+        assertEquals("12345678901234567890", LogSanitizer.sanitize("12345678901234567890"));
+        // Empty values are left alone
+        assertEquals("password=&key= x", LogSanitizer.sanitize("password=&key= x"));
+        // Accented letters and attached combining marks count as word characters
+        assertEquals("é1234567890123", LogSanitizer.sanitize("é1234567890123"));
+        assertEquals("1234567890123́", LogSanitizer.sanitize("1234567890123́"));
+    }
+
+    @Test
+    void testSanitize_UnchangedMessageIsReturnedAsIs() {
+        String message = "Subscription not found";
+        assertSame(message, LogSanitizer.sanitize(message));
+        assertEquals("N/A", LogSanitizer.sanitize(null));
+        assertEquals("N/A", LogSanitizer.sanitize(""));
+    }
+
+    @Test
+    void testSanitize_TruncatesAfterRedaction() {
+        String message = "password=" + "p".repeat(600) + " " + "zzz ".repeat(150);
+        String sanitized = LogSanitizer.sanitize(message);
+        assertEquals(500, sanitized.length());
+        assertTrue(sanitized.startsWith("password=[REDACTED] zzz"));
+        assertTrue(sanitized.endsWith("..."));
+    }
+
+    // ========== Generators ==========
+
+    @Provide
+    Arbitrary<String> messages() {
+        Arbitrary<String> fragment = Arbitraries.oneOf(
+                Arbitraries.of("password", "PWD", "Key", "apikey", "API_KEY", "pass", "=", "==", "&", " ",
+                        "\t", "\n", "_", "-", ":", "[", "]", "error", "token "),
+                Arbitraries.strings().numeric().ofMinLength(1).ofMaxLength(21),
+                Arbitraries.strings().alpha().numeric().ofMinLength(1).ofMaxLength(40),
+                Arbitraries.strings().ascii().ofMinLength(1).ofMaxLength(8));
+        return fragment.list().ofMaxSize(30).map(parts -> String.join("", parts))
+                .injectNull(0.02);
+    }
+
+    @Provide
+    Arbitrary<String> transactionIds() {
+        return Arbitraries.strings().ascii().ofMaxLength(40).injectNull(0.05);
+    }
+
+    // ========== Reference implementation ==========
+
+    private static String regexSanitize(String message) {
+        if (message == null || message.isEmpty()) {
+            return "N/A";
+        }
+        String sanitized = message.replaceAll("\\b[A-Za-z0-9]{32,}\\b", "[TOKEN_REDACTED]");
+        sanitized = sanitized.replaceAll("\\b\\d{13,19}\\b", "[CARD_REDACTED]");
+        sanitized = sanitized.replaceAll("(?i)(password|pwd)=[^&\\s]+", "$1=[REDACTED]");
+        sanitized = sanitized.replaceAll("(?i)(key|apikey|api_key)=[^&\\s]+", "$1=[REDACTED]");
+        if (sanitized.length() > 500) {
+            sanitized = sanitized.substring(0, 497) + "...";
+        }
+        return sanitized;
+    }
+
+    private static String originalMask(String transactionId) {
+        if (transactionId == null || transactionId.isEmpty()) {
+            return "N/A";
+        }
+        if (transactionId.length() <= 8) {
+            return transactionId.substring(0, Math.min(2, transactionId.length())) + "****";
+        }
+        return transactionId.substring(0, 4) + "****" + transactionId.substring(transactionId.length() - 4);
+    }
+}